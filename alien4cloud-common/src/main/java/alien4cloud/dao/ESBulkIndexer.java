@@ -0,0 +1,200 @@
+package alien4cloud.dao;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.mapping.ElasticSearchClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+
+/**
+ * Asynchronous bulk indexing pipeline shared by the high volume append-only data (audit traces, monitoring events).
+ *
+ * Index requests are queued in a bounded queue and flushed by a single background thread in a bulk request whenever the configured number of documents is
+ * reached or the flush interval elapsed. When the queue is full the producer waits at most the configured offer timeout (for all the documents it adds) and
+ * then gets back the documents that have not been queued.
+ */
+@Slf4j
+@Component("alien-bulk-indexer")
+public class ESBulkIndexer implements Runnable {
+    @Resource
+    private ElasticSearchClient esClient;
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    @Getter
+    @Value("${bulk_indexer.enabled:true}")
+    private boolean enabled;
+    @Value("${bulk_indexer.queue_size:10000}")
+    private int queueSize;
+    @Value("${bulk_indexer.bulk_size:500}")
+    private int bulkSize;
+    @Value("${bulk_indexer.flush_interval_ms:1000}")
+    private long flushIntervalMs;
+    @Value("${bulk_indexer.offer_timeout_ms:100}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<IndexRequest> queue;
+    private Thread flushThread;
+    private volatile boolean running;
+
+    private Counter queued;
+    private Counter indexed;
+    private Counter failed;
+    private Counter rejected;
+    private Timer flushes;
+
+    @PostConstruct
+    public void start() {
+        queued = metricRegistry.counter(name(ESBulkIndexer.class, "queued"));
+        indexed = metricRegistry.counter(name(ESBulkIndexer.class, "indexed"));
+        failed = metricRegistry.counter(name(ESBulkIndexer.class, "failed"));
+        rejected = metricRegistry.counter(name(ESBulkIndexer.class, "rejected"));
+        flushes = metricRegistry.timer(name(ESBulkIndexer.class, "flushes"));
+        if (!enabled) {
+            log.info("Bulk indexer is disabled, buffered writes will be performed synchronously.");
+            return;
+        }
+        queue = new ArrayBlockingQueue<IndexRequest>(queueSize);
+        metricRegistry.register(name(ESBulkIndexer.class, "queue", "size"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return queue.size();
+            }
+        });
+        running = true;
+        flushThread = new Thread(this, "es-bulk-indexer");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flushThread == null) {
+            return;
+        }
+        running = false;
+        flushThread.interrupt();
+        flushThread.join(flushIntervalMs * 10);
+        // flush the remaining requests from the calling thread
+        List<IndexRequest> batch = Lists.newArrayList();
+        while (queue.drainTo(batch, bulkSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Queue index requests to be executed in a future bulk request.
+     *
+     * @param requests The requests to queue.
+     * @return The requests that have not been queued because the queue was full, the caller is responsible for them.
+     */
+    public List<IndexRequest> add(Collection<IndexRequest> requests) {
+        List<IndexRequest> notQueued = Lists.newArrayList();
+        // the offer timeout applies to the whole call so a caller never waits more than once for a full queue
+        long deadline = System.currentTimeMillis() + offerTimeoutMs;
+        for (IndexRequest request : requests) {
+            boolean added;
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                added = remaining > 0 ? queue.offer(request, remaining, TimeUnit.MILLISECONDS) : queue.offer(request);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                added = false;
+            }
+            if (added) {
+                queued.inc();
+            } else {
+                notQueued.add(request);
+            }
+        }
+        if (!notQueued.isEmpty()) {
+            rejected.inc(notQueued.size());
+            log.warn("Bulk indexer queue is full, {} document(s) have not been queued.", notQueued.size());
+        }
+        return notQueued;
+    }
+
+    @Override
+    public void run() {
+        List<IndexRequest> batch = Lists.newArrayListWithCapacity(bulkSize);
+        while (running) {
+            try {
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < bulkSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    IndexRequest request = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                    queue.drainTo(batch, bulkSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // stop requested: flush the current batch, remaining requests are flushed by the stop method.
+                log.debug("Bulk indexer thread interrupted.");
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<IndexRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BulkRequestBuilder bulkRequestBuilder = esClient.getClient().prepareBulk();
+        boolean refresh = false;
+        for (IndexRequest request : batch) {
+            refresh = refresh || request.refresh();
+            bulkRequestBuilder.add(request);
+        }
+        bulkRequestBuilder.setRefresh(refresh);
+        Timer.Context flushTime = flushes.time();
+        try {
+            BulkResponse response = bulkRequestBuilder.execute().actionGet();
+            if (response.hasFailures()) {
+                int failures = 0;
+                for (int i = 0; i < response.getItems().length; i++) {
+                    if (response.getItems()[i].isFailed()) {
+                        failures++;
+                    }
+                }
+                failed.inc(failures);
+                indexed.inc(batch.size() - failures);
+                log.error("Bulk indexing failed for {} document(s): {}", failures, response.buildFailureMessage());
+            } else {
+                indexed.inc(batch.size());
+            }
+        } catch (Exception e) {
+            failed.inc(batch.size());
+            log.error("Bulk indexing of " + batch.size() + " document(s) failed.", e);
+        } finally {
+            flushTime.stop();
+        }
+        batch.clear();
+    }
+}
@@ -5,19 +5,31 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import lombok.Setter;
 import lombok.SneakyThrows;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetItemResponse;
 import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.mapping.MappingBuilder;
 
+import alien4cloud.dao.model.VersionedData;
 import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.exception.VersionConflictException;
 
 /**
  * ElasticSearch DAO to manage id based operations.
@@ -25,32 +37,139 @@ import alien4cloud.exception.IndexingServiceException;
  * @author luc boutier
  */
 public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericIdDAO {
+    /** Bulk indexer used for buffered saves, if null buffered saves are performed as regular saves. */
+    @Setter
+    private ESBulkIndexer bulkIndexer;
+    private final List<IDAOWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void addWriteListener(IDAOWriteListener listener) {
+        writeListeners.add(listener);
+    }
 
     @Override
-    @SneakyThrows({ IOException.class })
     public <T> void save(T data) {
-        String indexName = getIndexForType(data.getClass());
+        save(data, getRefreshPolicy(data.getClass()));
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public <T> void save(T data, RefreshPolicy refreshPolicy) {
+        String indexName = getIndexForWrite(data);
         String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
 
         String json = getJsonMapper().writeValueAsString(data);
-        getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json).setRefresh(true).execute().actionGet();
+        execute(getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json)
+                .setRefresh(RefreshPolicy.IMMEDIATE.equals(refreshPolicy)), refreshPolicy);
+        notifySaved(data);
+    }
+
+    @Override
+    public <T> long saveIfVersion(T data, long expectedVersion) {
+        return saveIfVersion(data, expectedVersion, getRefreshPolicy(data.getClass()));
     }
 
     @Override
     @SneakyThrows({ IOException.class })
+    public <T> long saveIfVersion(T data, long expectedVersion, RefreshPolicy refreshPolicy) {
+        String indexName = getIndexForWrite(data);
+        String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+
+        String json = getJsonMapper().writeValueAsString(data);
+        long version;
+        try {
+            version = getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json).setVersion(expectedVersion)
+                    .setRefresh(RefreshPolicy.IMMEDIATE.equals(refreshPolicy)).execute().actionGet().getVersion();
+        } catch (ElasticsearchException e) {
+            Throwable cause = ExceptionsHelper.unwrapCause(e);
+            if (cause instanceof VersionConflictEngineException) {
+                // not an indexing failure, let the caller decide what to do (reload and retry or report the conflict)
+                throw new VersionConflictException("Document of type <" + typeName + "> has been updated or deleted since version <" + expectedVersion + ">.", e);
+            }
+            throw e;
+        }
+        notifySaved(data);
+        return version;
+    }
+
+    @Override
     public <T> void save(T[] entities) {
         if (entities == null || entities.length == 0) {
             return;
         }
-        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk().setRefresh(true);
+        save(entities, getRefreshPolicy(entities[0].getClass()));
+    }
+
+    @Override
+    public <T> void save(T[] entities, RefreshPolicy refreshPolicy) {
+        if (entities == null || entities.length == 0) {
+            return;
+        }
+        execute(prepareBulkSave(entities, refreshPolicy), refreshPolicy);
         for (T data : entities) {
-            String indexName = getIndexForType(data.getClass());
+            notifySaved(data);
+        }
+    }
+
+    @Override
+    public <T> void saveAll(T[] entities, RefreshPolicy refreshPolicy) {
+        if (entities == null || entities.length == 0) {
+            return;
+        }
+        BulkResponse response = prepareBulkSave(entities, refreshPolicy).execute().actionGet();
+        // a bulk request doesn't throw when some of its items failed
+        if (response.hasFailures()) {
+            throw new IndexingServiceException("Bulk save failed: " + response.buildFailureMessage());
+        }
+        for (T data : entities) {
+            notifySaved(data);
+        }
+    }
+
+    @SneakyThrows({ IOException.class })
+    private <T> BulkRequestBuilder prepareBulkSave(T[] entities, RefreshPolicy refreshPolicy) {
+        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk().setRefresh(RefreshPolicy.IMMEDIATE.equals(refreshPolicy));
+        for (T data : entities) {
+            String indexName = getIndexForWrite(data);
             String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
 
             String json = getJsonMapper().writeValueAsString(data);
             bulkRequestBuilder.add(getClient().prepareIndex(indexName, typeName).setSource(json));
         }
-        bulkRequestBuilder.execute().actionGet();
+        return bulkRequestBuilder;
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public <T> void saveBuffered(T[] entities) {
+        if (entities == null || entities.length == 0) {
+            return;
+        }
+        if (bulkIndexer == null || !bulkIndexer.isEnabled()) {
+            save(entities);
+            return;
+        }
+        List<IndexRequest> requests = new ArrayList<>(entities.length);
+        for (T data : entities) {
+            String indexName = getIndexForWrite(data);
+            String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+
+            String json = getJsonMapper().writeValueAsString(data);
+            requests.add(getClient().prepareIndex(indexName, typeName).setSource(json)
+                    .setRefresh(RefreshPolicy.IMMEDIATE.equals(getRefreshPolicy(data.getClass()))).request());
+        }
+        List<IndexRequest> rejected = bulkIndexer.add(requests);
+        if (!rejected.isEmpty()) {
+            // the bulk indexer is overloaded, buffered data must not be lost so it is saved synchronously
+            BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk();
+            boolean refresh = false;
+            for (IndexRequest request : rejected) {
+                refresh = refresh || request.refresh();
+                bulkRequestBuilder.add(request);
+            }
+            bulkRequestBuilder.setRefresh(refresh);
+            execute(bulkRequestBuilder, RefreshPolicy.NEXT_REFRESH);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -77,6 +196,21 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         return getJsonMapper().readValue(response.getSourceAsString(), clazz);
     }
 
+    @Override
+    @SneakyThrows({ IOException.class })
+    public <T> VersionedData<T> findVersionedById(Class<T> clazz, String id) {
+        assertIdNotNullFor(id, "findVersionedById");
+        String indexName = getIndexForType(clazz);
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        GetResponse response = getClient().prepareGet(indexName, typeName, id).execute().actionGet();
+
+        if (response == null || !response.isExists()) {
+            ESIndexMapper.getLog().debug("Nothing found in index <{}>, type <{}>, for Id <{}>.", indexName, typeName, id);
+            return null;
+        }
+        return new VersionedData<T>(getJsonMapper().readValue(response.getSourceAsString(), clazz), response.getVersion());
+    }
+
     @Override
     @SneakyThrows({ IOException.class })
     public <T> List<T> findByIds(Class<T> clazz, String... ids) {
@@ -101,10 +235,18 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
 
     @Override
     public void delete(Class<?> clazz, String id) {
+        delete(clazz, id, getRefreshPolicy(clazz));
+    }
+
+    @Override
+    public void delete(Class<?> clazz, String id, RefreshPolicy refreshPolicy) {
         assertIdNotNullFor(id, "delete");
         String indexName = getIndexForType(clazz);
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
-        getClient().prepareDelete(indexName, typeName, id).setRefresh(true).execute().actionGet();
+        execute(getClient().prepareDelete(indexName, typeName, id).setRefresh(RefreshPolicy.IMMEDIATE.equals(refreshPolicy)), refreshPolicy);
+        for (IDAOWriteListener listener : writeListeners) {
+            listener.deleted(clazz, id);
+        }
     }
 
     @Override
@@ -118,6 +260,41 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
             deleteRequestBuilder.setQuery(query);
         }
         deleteRequestBuilder.execute().actionGet();
+        for (IDAOWriteListener listener : writeListeners) {
+            listener.deletedByQuery(clazz);
+        }
+    }
+
+    private void notifySaved(Object data) {
+        for (IDAOWriteListener listener : writeListeners) {
+            listener.saved(data);
+        }
+    }
+
+    /**
+     * Execute a write request according to the given refresh policy: synchronously unless the policy is {@link RefreshPolicy#ASYNC}.
+     *
+     * @param requestBuilder The request to execute.
+     * @param refreshPolicy The refresh policy of the request.
+     */
+    private <Response extends ActionResponse> void execute(ActionRequestBuilder<?, Response, ?> requestBuilder, RefreshPolicy refreshPolicy) {
+        if (!RefreshPolicy.ASYNC.equals(refreshPolicy)) {
+            requestBuilder.execute().actionGet();
+            return;
+        }
+        requestBuilder.execute(new ActionListener<Response>() {
+            @Override
+            public void onResponse(Response response) {
+                if (response instanceof BulkResponse && ((BulkResponse) response).hasFailures()) {
+                    ESIndexMapper.getLog().error("Asynchronous bulk write failed: {}", ((BulkResponse) response).buildFailureMessage());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                ESIndexMapper.getLog().error("Asynchronous write failed.", e);
+            }
+        });
     }
 
     private void assertIdNotNullFor(String id, String operation) {
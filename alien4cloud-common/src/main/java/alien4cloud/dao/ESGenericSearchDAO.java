@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.annotation.Resource;
 
@@ -15,6 +17,7 @@ import org.elasticsearch.action.count.CountRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -24,6 +27,7 @@ import org.elasticsearch.mapping.MappingBuilder;
 import org.elasticsearch.mapping.QueryHelper;
 import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.elasticsearch.mapping.SourceFetchContext;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.facet.Facet;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.facet.terms.TermsFacet;
@@ -46,6 +50,8 @@ import com.google.common.collect.Lists;
  * @author luc boutier
  */
 public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearchDAO {
+    private static final int SCROLL_BATCH_SIZE = 100;
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
     private static final String SCORE_SCRIPT = "_score * ((doc.containsKey('alienScore') && !doc['alienScore'].empty) ? doc['alienScore'].value : 1)";
     @Resource
     private ElasticSearchClient esClient;
@@ -116,7 +122,28 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
     @Override
     public <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder) {
-        return doCustomFind(clazz, query, sortBuilder, Integer.MAX_VALUE);
+        // most queries match only a few elements and a single search request is enough, else scroll rather than requesting Integer.MAX_VALUE elements.
+        List<T> results = doCustomFind(clazz, query, sortBuilder, SCROLL_BATCH_SIZE);
+        if (results == null || results.size() < SCROLL_BATCH_SIZE) {
+            return results;
+        }
+        return Lists.newArrayList(scroll(clazz, query, sortBuilder, SCROLL_BATCH_SIZE));
+    }
+
+    @Override
+    public <T> Iterator<T> scroll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int batchSize) {
+        String indexName = getIndexForType(clazz);
+        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(indexName).setTypes(getTypesFromClass(clazz)).setSize(batchSize)
+                .setScroll(SCROLL_KEEP_ALIVE);
+        if (query != null) {
+            searchRequestBuilder.setQuery(query);
+        }
+        if (sortBuilder == null) {
+            searchRequestBuilder.setSearchType(SearchType.SCAN);
+        } else {
+            searchRequestBuilder.addSort(sortBuilder);
+        }
+        return new ScrollIterator<T>(searchRequestBuilder.execute().actionGet());
     }
 
     @Override
@@ -420,4 +447,67 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         return this.queryHelper;
     }
 
+    /**
+     * Iterates over the hits of a scroll, fetching the next batch only when the current one has been consumed. The scroll is cleared once all the hits have
+     * been returned.
+     */
+    private class ScrollIterator<T> implements Iterator<T> {
+        private String scrollId;
+        private SearchHit[] hits;
+        private int index = 0;
+
+        private ScrollIterator(SearchResponse response) {
+            this.scrollId = response.getScrollId();
+            this.hits = response.getHits().getHits();
+            // scan requests don't return any hits on the first response.
+            fetchIfRequired();
+        }
+
+        private void fetchIfRequired() {
+            while (scrollId != null && index >= hits.length) {
+                SearchResponse response = getClient().prepareSearchScroll(scrollId).setScroll(SCROLL_KEEP_ALIVE).execute().actionGet();
+                scrollId = response.getScrollId();
+                hits = response.getHits().getHits();
+                index = 0;
+                if (hits.length == 0) {
+                    // end of the scroll
+                    clear();
+                }
+            }
+        }
+
+        private void clear() {
+            if (scrollId != null) {
+                getClient().prepareClearScroll().addScrollId(scrollId).execute();
+                scrollId = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < hits.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        @SneakyThrows({ IOException.class })
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SearchHit hit = hits[index];
+            // release the hit as soon as it is consumed
+            hits[index] = null;
+            index++;
+            T element = (T) getJsonMapper().readValue(hit.getSourceAsString(), getClassFromType(hit.getType()));
+            fetchIfRequired();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
 }
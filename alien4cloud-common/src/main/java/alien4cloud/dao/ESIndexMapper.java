@@ -53,6 +53,10 @@ public abstract class ESIndexMapper {
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private final Map<String, Class<?>> typesToClasses = Maps.newHashMap();
+    private final Map<String, RefreshPolicy> typesToRefreshPolicies = Maps.newHashMap();
+    @Getter
+    @Setter
+    private RefreshPolicy defaultRefreshPolicy = RefreshPolicy.IMMEDIATE;
 
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
@@ -114,7 +118,7 @@ public abstract class ESIndexMapper {
     }
 
     @SneakyThrows({ ExecutionException.class, InterruptedException.class })
-    private boolean indexExist(String indexName) {
+    protected boolean indexExist(String indexName) {
         // check if existing before
         final ActionFuture<IndicesExistsResponse> indexExistFuture = esClient.getClient().admin().indices().exists(new IndicesExistsRequest(indexName));
         IndicesExistsResponse response;
@@ -122,7 +126,13 @@ public abstract class ESIndexMapper {
         return response.isExists();
     }
 
-    private void addToMappedClasses(String indexName, Class<?>[] classes) {
+    /**
+     * Map classes to an index (or alias) without creating it.
+     *
+     * @param indexName The index (or alias) in which the classes lie.
+     * @param classes An array of classes to map to this index.
+     */
+    protected void addToMappedClasses(String indexName, Class<?>[] classes) {
         for (Class<?> clazz : classes) {
             addToMappedClasses(indexName, clazz);
         }
@@ -152,6 +162,39 @@ public abstract class ESIndexMapper {
         return index;
     }
 
+    /**
+     * Get the index in which to write the given object, by default the index in which its type lies.
+     *
+     * @param data The object to write.
+     * @return The index in which to write the object.
+     */
+    protected String getIndexForWrite(Object data) {
+        return getIndexForType(data.getClass());
+    }
+
+    /**
+     * Configure the refresh policy to use when writing (save or delete) instances of the given classes.
+     *
+     * @param refreshPolicy The refresh policy to use.
+     * @param classes The classes for which to configure the policy.
+     */
+    public void setRefreshPolicy(RefreshPolicy refreshPolicy, Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            typesToRefreshPolicies.put(MappingBuilder.indexTypeFromClass(clazz), refreshPolicy);
+        }
+    }
+
+    /**
+     * Get the refresh policy to use when writing instances of the given class.
+     *
+     * @param clazz The class for which to get the refresh policy.
+     * @return The refresh policy configured for the class or the default refresh policy if none is configured.
+     */
+    public RefreshPolicy getRefreshPolicy(Class<?> clazz) {
+        RefreshPolicy refreshPolicy = typesToRefreshPolicies.get(MappingBuilder.indexTypeFromClass(clazz));
+        return refreshPolicy == null ? defaultRefreshPolicy : refreshPolicy;
+    }
+
     /**
      * Return a class from the given elastic search type.
      *
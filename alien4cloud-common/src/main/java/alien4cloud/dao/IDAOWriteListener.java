@@ -0,0 +1,30 @@
+package alien4cloud.dao;
+
+/**
+ * Listener notified of the documents written through a dao, for example to invalidate the entries of a cache that hold these documents.
+ *
+ * Listeners are called synchronously once the write request has been executed (or dispatched for the {@link RefreshPolicy#ASYNC} policy).
+ */
+public interface IDAOWriteListener {
+    /**
+     * Called after a document has been saved.
+     *
+     * @param data The saved document.
+     */
+    void saved(Object data);
+
+    /**
+     * Called after a document has been deleted by id.
+     *
+     * @param clazz The class of the deleted document.
+     * @param id The id of the deleted document.
+     */
+    void deleted(Class<?> clazz, String id);
+
+    /**
+     * Called after the documents of a class that match a query have been deleted.
+     *
+     * @param clazz The class of the deleted documents.
+     */
+    void deletedByQuery(Class<?> clazz);
+}
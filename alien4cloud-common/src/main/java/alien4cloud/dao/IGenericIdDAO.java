@@ -4,6 +4,10 @@ import java.util.List;
 
 import org.elasticsearch.index.query.QueryBuilder;
 
+import alien4cloud.dao.model.VersionedData;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * A DAO that allows accessing data by Id or / and multiple Ids.
  * 
@@ -17,6 +21,14 @@ public interface IGenericIdDAO {
      */
     <T> void save(T entity);
 
+    /**
+     * Saves an entity into the repository using a specific refresh policy rather than the one configured for the entity type.
+     * 
+     * @param entity the entity to save
+     * @param refreshPolicy The refresh policy to use for this write.
+     */
+    <T> void save(T entity, RefreshPolicy refreshPolicy);
+
     /**
      * Bulk save multiple entities into the repository
      * 
@@ -24,6 +36,32 @@ public interface IGenericIdDAO {
      */
     <T> void save(T[] entities);
 
+    /**
+     * Bulk save multiple entities into the repository using a specific refresh policy rather than the one configured for the entities types.
+     * 
+     * @param entities The entities to save.
+     * @param refreshPolicy The refresh policy to use for this write.
+     */
+    <T> void save(T[] entities, RefreshPolicy refreshPolicy);
+
+    /**
+     * Bulk save multiple entities into the repository in a single synchronous request that fails if any of the entities could not be saved. Unlike
+     * {@link #save(Object[], RefreshPolicy)} the failures of the single entities are not ignored.
+     * 
+     * @param entities The entities to save.
+     * @param refreshPolicy The refresh policy to use for this write, the request is synchronous even for {@link RefreshPolicy#ASYNC}.
+     * @throws alien4cloud.exception.IndexingServiceException If any of the entities could not be saved.
+     */
+    <T> void saveAll(T[] entities, RefreshPolicy refreshPolicy);
+
+    /**
+     * Queue entities to be saved asynchronously in a future bulk request. This is intended for high volume append-only data and falls back to a regular save
+     * if no bulk indexer is configured for this DAO. Entities that cannot be queued because the bulk indexer is overloaded are saved synchronously.
+     * 
+     * @param entities The entities to save.
+     */
+    <T> void saveBuffered(T[] entities);
+
     /**
      * Find an instance from the given class.
      * 
@@ -33,6 +71,38 @@ public interface IGenericIdDAO {
      */
     <T> T findById(Class<T> clazz, String id);
 
+    /**
+     * Find an instance from the given class along with the version of the document, to be used to save it back with {@link #saveIfVersion(Object, long)}.
+     * 
+     * @param clazz The class of the object to find.
+     * @param id The id of the object.
+     * @return The object that has the given id and its version or null if no object matching the request is found.
+     */
+    <T> VersionedData<T> findVersionedById(Class<T> clazz, String id);
+
+    /**
+     * Saves an entity only if the document in the repository still has the expected version (optimistic concurrency control).
+     * 
+     * @param entity the entity to save
+     * @param expectedVersion The version of the document the entity has been read from.
+     * @return The new version of the document.
+     * @throws alien4cloud.exception.VersionConflictException if the document has been updated or deleted since it has been read.
+     */
+    <T> long saveIfVersion(T entity, long expectedVersion);
+
+    /**
+     * Saves an entity only if the document in the repository still has the expected version using a specific refresh policy rather than the one configured
+     * for the class. The write is always synchronous as the new version is returned, {@link RefreshPolicy#ASYNC} behaves as
+     * {@link RefreshPolicy#NEXT_REFRESH}.
+     * 
+     * @param entity the entity to save
+     * @param expectedVersion The version of the document the entity has been read from.
+     * @param refreshPolicy The refresh policy to use for this write.
+     * @return The new version of the document.
+     * @throws alien4cloud.exception.VersionConflictException if the document has been updated or deleted since it has been read.
+     */
+    <T> long saveIfVersion(T entity, long expectedVersion, RefreshPolicy refreshPolicy);
+
     /**
      * Find instances by id
      * 
@@ -50,6 +120,15 @@ public interface IGenericIdDAO {
      */
     void delete(Class<?> clazz, String id);
 
+    /**
+     * Delete an instance from the given class using a specific refresh policy rather than the one configured for the class.
+     * 
+     * @param clazz The class of the object to delete.
+     * @param id The id of the object to delete.
+     * @param refreshPolicy The refresh policy to use for this write.
+     */
+    void delete(Class<?> clazz, String id, RefreshPolicy refreshPolicy);
+
     /**
      * Delete a data by query
      * 
@@ -57,4 +136,18 @@ public interface IGenericIdDAO {
      * @param query
      */
     public void delete(Class<?> clazz, QueryBuilder query);
-}
\ No newline at end of file
+
+    /**
+     * Get the json mapper used to serialize and deserialize the objects managed by this DAO.
+     * 
+     * @return The json mapper of the DAO.
+     */
+    ObjectMapper getJsonMapper();
+
+    /**
+     * Register a listener notified of the documents saved or deleted through this DAO.
+     * 
+     * @param listener The listener to register.
+     */
+    void addWriteListener(IDAOWriteListener listener);
+}
@@ -1,5 +1,6 @@
 package alien4cloud.dao;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -94,6 +95,18 @@ public interface IGenericSearchDAO extends IGenericIdDAO {
      */
     <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder);
 
+    /**
+     * Iterate over all the elements matching a custom query. Elements are fetched from elastic search using a scroll and de-serialized lazily batch by
+     * batch so the memory used does not depend on the number of matching elements.
+     *
+     * @param clazz The type of data to query.
+     * @param query The query to execute (null to match all).
+     * @param sortBuilder the sort configuration (null for no sort, which allows a more efficient scan).
+     * @param batchSize The number of elements to fetch for every scroll request (per shard when no sort is defined).
+     * @return An iterator over all the elements matching the query.
+     */
+    <T> Iterator<T> scroll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int batchSize);
+
     /**
      * Run a query build from a {@link SearchQueryHelperBuilder}.
      *
@@ -0,0 +1,15 @@
+package alien4cloud.dao;
+
+/**
+ * Defines how a write operation (save or delete) behaves regarding the visibility of the written data for search requests.
+ *
+ * Note that get by id requests are real-time in elastic search and are not impacted by the refresh policy.
+ */
+public enum RefreshPolicy {
+    /** Refresh the shard before returning so the data is immediately visible for search (expensive, use only for read-after-write searches). */
+    IMMEDIATE,
+    /** Wait for the write to be acknowledged, the data will be visible for search after the next periodic refresh of the index. */
+    NEXT_REFRESH,
+    /** Don't wait for the write to complete (fire and forget), failures are only logged. */
+    ASYNC
+}
@@ -0,0 +1,17 @@
+package alien4cloud.dao.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An instance read from the index along with the version of the document it has been read from.
+ * 
+ * @param <T> The type of the instance.
+ */
+@Getter
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class VersionedData<T> {
+    private final T data;
+    private final long version;
+}
@@ -0,0 +1,109 @@
+package alien4cloud.dao;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.mapping.ElasticSearchClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.util.ReflectionUtils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+
+public class ESBulkIndexerTest {
+    private ESBulkIndexer bulkIndexer;
+    private BulkRequestBuilder bulkRequestBuilder;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        bulkRequestBuilder = Mockito.mock(BulkRequestBuilder.class);
+        ListenableActionFuture<BulkResponse> future = Mockito.mock(ListenableActionFuture.class);
+        Mockito.when(future.actionGet()).thenReturn(Mockito.mock(BulkResponse.class));
+        Mockito.when(bulkRequestBuilder.execute()).thenReturn(future);
+        Client client = Mockito.mock(Client.class);
+        Mockito.when(client.prepareBulk()).thenReturn(bulkRequestBuilder);
+        ElasticSearchClient esClient = Mockito.mock(ElasticSearchClient.class);
+        Mockito.when(esClient.getClient()).thenReturn(client);
+
+        metricRegistry = new MetricRegistry();
+        bulkIndexer = new ESBulkIndexer();
+        setField("esClient", esClient);
+        setField("metricRegistry", metricRegistry);
+        setField("enabled", true);
+        setField("queueSize", 10);
+        setField("bulkSize", 2);
+        setField("flushIntervalMs", 50L);
+        setField("offerTimeoutMs", 200L);
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        bulkIndexer.stop();
+    }
+
+    @Test
+    public void requestsShouldBeFlushedInBulk() {
+        bulkIndexer.start();
+        Assert.assertTrue(bulkIndexer.add(requests(3)).isEmpty());
+
+        // a full bulk and a bulk flushed when the interval elapsed
+        Mockito.verify(bulkRequestBuilder, Mockito.timeout(2000).times(3)).add(Mockito.any(IndexRequest.class));
+        Mockito.verify(bulkRequestBuilder, Mockito.timeout(2000).times(2)).execute();
+        Assert.assertEquals(3, metricRegistry.getCounters().get(MetricRegistry.name(ESBulkIndexer.class, "queued")).getCount());
+    }
+
+    @Test
+    public void requestsShouldBeReturnedAfterASingleTimeoutWhenQueueIsFull() {
+        // no flush thread so the queue is never drained
+        setField("enabled", false);
+        bulkIndexer.start();
+        setField("queue", new ArrayBlockingQueue<IndexRequest>(1));
+        List<IndexRequest> requests = requests(4);
+
+        long start = System.currentTimeMillis();
+        List<IndexRequest> notQueued = bulkIndexer.add(requests);
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertTrue("Waited " + elapsed + "ms for a full queue", elapsed < 400);
+        Assert.assertEquals(requests.subList(1, 4), notQueued);
+        Assert.assertEquals(3, metricRegistry.getCounters().get(MetricRegistry.name(ESBulkIndexer.class, "rejected")).getCount());
+    }
+
+    @Test
+    public void stopShouldFlushQueuedRequests() throws InterruptedException {
+        setField("bulkSize", 100);
+        setField("flushIntervalMs", 60000L);
+        bulkIndexer.start();
+        Assert.assertTrue(bulkIndexer.add(requests(5)).isEmpty());
+
+        bulkIndexer.stop();
+
+        Mockito.verify(bulkRequestBuilder, Mockito.times(5)).add(Mockito.any(IndexRequest.class));
+    }
+
+    private static List<IndexRequest> requests(int count) {
+        List<IndexRequest> requests = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            requests.add(new IndexRequest("index", "type", String.valueOf(i)));
+        }
+        return requests;
+    }
+
+    private void setField(String name, Object value) {
+        Field field = ReflectionUtils.findField(ESBulkIndexer.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, bulkIndexer, value);
+    }
+}
@@ -1,6 +1,6 @@
 package alien4cloud.application;
 
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 
 import alien4cloud.cloud.CloudService;
 import alien4cloud.cloud.DeploymentService;
+import alien4cloud.cloud.DeploymentStatusCache;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.GetMultipleDataResult;
 import alien4cloud.exception.AlreadyExistException;
@@ -23,7 +24,6 @@ import alien4cloud.model.application.ApplicationEnvironment;
 import alien4cloud.model.application.ApplicationVersion;
 import alien4cloud.model.application.EnvironmentType;
 import alien4cloud.model.deployment.Deployment;
-import alien4cloud.paas.IPaaSCallback;
 import alien4cloud.paas.exception.CloudDisabledException;
 import alien4cloud.paas.model.DeploymentStatus;
 import alien4cloud.security.AuthorizationUtil;
@@ -34,7 +34,6 @@ import alien4cloud.utils.MapUtil;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.util.concurrent.SettableFuture;
 
 @Slf4j
 @Service
@@ -49,6 +48,8 @@ public class ApplicationEnvironmentService {
     @Resource
     private DeploymentService deploymentService;
     @Resource
+    private DeploymentStatusCache deploymentStatusCache;
+    @Resource
     private ApplicationEnvironmentService applicationEnvironmentService;
     @Resource
     private ApplicationService applicationService;
@@ -161,15 +162,7 @@ public class ApplicationEnvironmentService {
      * @return The deployment associated with the environment.
      */
     public Deployment getActiveDeployment(String appEnvironmentId) {
-        GetMultipleDataResult<Deployment> dataResult = alienDAO.search(
-                Deployment.class,
-                null,
-                MapUtil.newHashMap(new String[] { "deploymentSetup.environmentId", "endDate" }, new String[][] { new String[] { appEnvironmentId },
-                        new String[] { null } }), 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            return dataResult.getData()[0];
-        }
-        return null;
+        return deploymentService.getActiveDeployment(appEnvironmentId);
     }
 
     /**
@@ -238,29 +231,33 @@ public class ApplicationEnvironmentService {
      * @throws CloudDisabledException
      */
     public DeploymentStatus getStatus(ApplicationEnvironment environment) throws Exception {
-        final Deployment deployment = getActiveDeployment(environment.getId());
-        if (deployment == null) {
-            return DeploymentStatus.UNDEPLOYED;
-        }
-        final SettableFuture<DeploymentStatus> statusSettableFuture = SettableFuture.create();
-        // update the deployment status from PaaS if it cannot be found.
-        deploymentService.getDeploymentStatus(deployment, new IPaaSCallback<DeploymentStatus>() {
-            @Override
-            public void onSuccess(DeploymentStatus data) {
-                statusSettableFuture.set(data);
-            }
+        return deploymentStatusCache.getStatus(getActiveDeployment(environment.getId()));
+    }
 
-            @Override
-            public void onFailure(Throwable throwable) {
-                statusSettableFuture.setException(throwable);
+    /**
+     * Get the status of many environments at once, the status of the environments that are not known yet are retrieved in parallel from the PaaS for a
+     * bounded time.
+     *
+     * @param environments The environments for which to get the status.
+     * @return A map of environment id to {@link DeploymentStatus}, the status is UNKNOWN if it cannot be retrieved from the PaaS in time.
+     */
+    public Map<String, DeploymentStatus> getStatuses(Collection<ApplicationEnvironment> environments) {
+        Map<String, DeploymentStatus> environmentStatuses = Maps.newHashMap();
+        Map<String, String> deploymentEnvironments = Maps.newHashMap();
+        List<Deployment> deployments = Lists.newArrayList();
+        for (ApplicationEnvironment environment : environments) {
+            Deployment deployment = getActiveDeployment(environment.getId());
+            if (deployment == null) {
+                environmentStatuses.put(environment.getId(), DeploymentStatus.UNDEPLOYED);
+            } else {
+                deploymentEnvironments.put(deployment.getId(), environment.getId());
+                deployments.add(deployment);
             }
-        });
-        DeploymentStatus currentStatus = statusSettableFuture.get();
-        if (DeploymentStatus.UNDEPLOYED.equals(currentStatus)) {
-            deployment.setEndDate(new Date());
-            alienDAO.save(deployment);
         }
-        return currentStatus;
+        for (Map.Entry<String, DeploymentStatus> deploymentStatus : deploymentStatusCache.getStatuses(deployments).entrySet()) {
+            environmentStatuses.put(deploymentEnvironments.get(deploymentStatus.getKey()), deploymentStatus.getValue());
+        }
+        return environmentStatuses;
     }
 
     /**
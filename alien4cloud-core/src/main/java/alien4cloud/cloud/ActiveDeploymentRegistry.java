@@ -0,0 +1,255 @@
+package alien4cloud.cloud;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.Constants;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.application.DeploymentSetup;
+import alien4cloud.model.deployment.Deployment;
+
+import com.google.common.collect.Lists;
+
+/**
+ * In memory registry of the active deployments (deployments that have no end date) indexed by environment, topology and cloud, paaS id and cloud.
+ *
+ * The registry is loaded from elasticsearch at startup and is then maintained by the services that create deployments or set their end date, so that
+ * active deployments lookups don't require a search. The registry keeps its own copy of the registered deployments and returns copies of them so that
+ * callers can't update the registered deployments without registering them again. The maps of the deployment setups are not copied and must not be
+ * updated.
+ */
+@Slf4j
+@Component
+public class ActiveDeploymentRegistry {
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDao;
+
+    private final ConcurrentMap<String, Deployment> deploymentsById = new ConcurrentHashMap<String, Deployment>();
+    private final ConcurrentMap<String, String> idsByEnvironment = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, String> idsByTopologyAndCloud = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, String> idsByPaaSId = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, Set<String>> idsByCloud = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Load the active deployments from elasticsearch.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        deploymentsById.clear();
+        idsByEnvironment.clear();
+        idsByTopologyAndCloud.clear();
+        idsByPaaSId.clear();
+        idsByCloud.clear();
+        Iterator<Deployment> deployments = alienDao.scroll(Deployment.class,
+                QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), FilterBuilders.missingFilter("endDate")), null, Constants.DEFAULT_ES_SEARCH_SIZE);
+        while (deployments.hasNext()) {
+            register(deployments.next());
+        }
+        log.info("Loaded {} active deployment(s).", deploymentsById.size());
+    }
+
+    /**
+     * Register a deployment that has been saved and has no end date.
+     *
+     * @param deployment The active deployment.
+     */
+    public synchronized void register(Deployment deployment) {
+        unregister(deployment.getId());
+        deploymentsById.put(deployment.getId(), copy(deployment));
+        String environmentId = getEnvironmentId(deployment);
+        if (environmentId != null) {
+            idsByEnvironment.put(environmentId, deployment.getId());
+        }
+        idsByTopologyAndCloud.put(topologyAndCloudKey(deployment.getTopologyId(), deployment.getCloudId()), deployment.getId());
+        if (deployment.getPaasId() != null) {
+            idsByPaaSId.put(paaSIdKey(deployment.getCloudId(), deployment.getPaasId()), deployment.getId());
+        }
+        Set<String> cloudDeployments = idsByCloud.get(deployment.getCloudId());
+        if (cloudDeployments == null) {
+            cloudDeployments = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            idsByCloud.put(deployment.getCloudId(), cloudDeployments);
+        }
+        cloudDeployments.add(deployment.getId());
+    }
+
+    /**
+     * Remove a deployment from the registry, once it has an end date or doesn't exist anymore.
+     *
+     * @param deploymentId The id of the deployment.
+     */
+    public synchronized void unregister(String deploymentId) {
+        Deployment deployment = deploymentsById.remove(deploymentId);
+        if (deployment == null) {
+            return;
+        }
+        String environmentId = getEnvironmentId(deployment);
+        if (environmentId != null) {
+            idsByEnvironment.remove(environmentId, deploymentId);
+        }
+        idsByTopologyAndCloud.remove(topologyAndCloudKey(deployment.getTopologyId(), deployment.getCloudId()), deploymentId);
+        if (deployment.getPaasId() != null) {
+            idsByPaaSId.remove(paaSIdKey(deployment.getCloudId(), deployment.getPaasId()), deploymentId);
+        }
+        Set<String> cloudDeployments = idsByCloud.get(deployment.getCloudId());
+        if (cloudDeployments != null) {
+            cloudDeployments.remove(deploymentId);
+            if (cloudDeployments.isEmpty()) {
+                idsByCloud.remove(deployment.getCloudId());
+            }
+        }
+    }
+
+    /**
+     * Get an active deployment from its id.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return A copy of the deployment or null if there is no active deployment with this id.
+     */
+    public Deployment get(String deploymentId) {
+        return copy(deploymentsById.get(deploymentId));
+    }
+
+    /**
+     * Get the active deployment of an environment.
+     *
+     * @param environmentId The id of the environment.
+     * @return A copy of the active deployment or null if the environment is not deployed.
+     */
+    public Deployment getByEnvironment(String environmentId) {
+        return getById(idsByEnvironment.get(environmentId));
+    }
+
+    /**
+     * Get the active deployment of a topology on a cloud.
+     *
+     * @param topologyId The id of the deployed topology.
+     * @param cloudId The id of the cloud.
+     * @return A copy of the active deployment or null if the topology is not deployed on the cloud.
+     */
+    public Deployment getByTopologyAndCloud(String topologyId, String cloudId) {
+        return getById(idsByTopologyAndCloud.get(topologyAndCloudKey(topologyId, cloudId)));
+    }
+
+    /**
+     * Get the active deployment that has the given paaS id on a cloud.
+     *
+     * @param cloudId The id of the cloud.
+     * @param paaSId The paaS id of the deployment.
+     * @return A copy of the active deployment or null if no active deployment uses the paaS id on the cloud.
+     */
+    public Deployment getByPaaSId(String cloudId, String paaSId) {
+        return getById(idsByPaaSId.get(paaSIdKey(cloudId, paaSId)));
+    }
+
+    /**
+     * Get the active deployments of a cloud.
+     *
+     * @param cloudId The id of the cloud.
+     * @return Copies of the active deployments of the cloud, an empty list if there is none.
+     */
+    public List<Deployment> getByCloud(String cloudId) {
+        Set<String> cloudDeployments = idsByCloud.get(cloudId);
+        List<Deployment> deployments = Lists.newArrayList();
+        if (cloudDeployments != null) {
+            for (String deploymentId : cloudDeployments) {
+                Deployment deployment = deploymentsById.get(deploymentId);
+                if (deployment != null) {
+                    deployments.add(copy(deployment));
+                }
+            }
+        }
+        return deployments;
+    }
+
+    /**
+     * Check if a cloud has active deployments.
+     *
+     * @param cloudId The id of the cloud.
+     * @return true if at least one deployment is active on the cloud.
+     */
+    public boolean hasDeployments(String cloudId) {
+        Set<String> cloudDeployments = idsByCloud.get(cloudId);
+        return cloudDeployments != null && !cloudDeployments.isEmpty();
+    }
+
+    /**
+     * Check against elasticsearch that a deployment found in the registry is still active before rejecting an operation, the deployment is removed from
+     * the registry if it has ended or has been deleted.
+     *
+     * @param deployment The deployment found in the registry, may be null.
+     * @return true if the deployment is still active.
+     */
+    public boolean confirmActive(Deployment deployment) {
+        if (deployment == null) {
+            return false;
+        }
+        Deployment stored = alienDao.findById(Deployment.class, deployment.getId());
+        if (stored == null || stored.getEndDate() != null) {
+            log.warn("Deployment <{}> is not active anymore, removing it from the active deployments.", deployment.getId());
+            unregister(deployment.getId());
+            return false;
+        }
+        return true;
+    }
+
+    private Deployment getById(String deploymentId) {
+        return deploymentId == null ? null : copy(deploymentsById.get(deploymentId));
+    }
+
+    private static Deployment copy(Deployment deployment) {
+        if (deployment == null) {
+            return null;
+        }
+        Deployment copy = new Deployment();
+        copy.setId(deployment.getId());
+        copy.setPaasId(deployment.getPaasId());
+        copy.setSourceType(deployment.getSourceType());
+        copy.setCloudId(deployment.getCloudId());
+        copy.setSourceId(deployment.getSourceId());
+        copy.setSourceName(deployment.getSourceName());
+        copy.setTopologyId(deployment.getTopologyId());
+        copy.setStartDate(copy(deployment.getStartDate()));
+        copy.setEndDate(copy(deployment.getEndDate()));
+        copy.setDeploymentSetup(copy(deployment.getDeploymentSetup()));
+        return copy;
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    private static DeploymentSetup copy(DeploymentSetup setup) {
+        if (setup == null) {
+            return null;
+        }
+        return new DeploymentSetup(setup.getId(), setup.getVersionId(), setup.getEnvironmentId(), setup.getProviderDeploymentProperties(),
+                setup.getInputProperties(), setup.getCloudResourcesMapping(), setup.getNetworkMapping(), setup.getStorageMapping(),
+                setup.getAvailabilityZoneMapping());
+    }
+
+    private static String getEnvironmentId(Deployment deployment) {
+        return deployment.getDeploymentSetup() == null ? null : deployment.getDeploymentSetup().getEnvironmentId();
+    }
+
+    private static String topologyAndCloudKey(String topologyId, String cloudId) {
+        return topologyId + ":" + cloudId;
+    }
+
+    private static String paaSIdKey(String cloudId, String paaSId) {
+        return cloudId + ":" + paaSId;
+    }
+}
@@ -19,8 +19,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.mapping.QueryHelper;
-import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
@@ -41,7 +39,6 @@ import alien4cloud.model.cloud.ICloudResourceTemplate;
 import alien4cloud.model.cloud.NetworkTemplate;
 import alien4cloud.model.cloud.StorageTemplate;
 import alien4cloud.model.components.PropertyDefinition;
-import alien4cloud.model.deployment.Deployment;
 import alien4cloud.paas.IConfigurablePaaSProvider;
 import alien4cloud.paas.IConfigurablePaaSProviderFactory;
 import alien4cloud.paas.IDeploymentParameterizablePaaSProviderFactory;
@@ -66,8 +63,6 @@ import com.google.common.collect.Sets;
 @Component
 @DependsOn("plugin-manager")
 public class CloudService {
-    @Resource
-    private QueryHelper queryHelper;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
     @Resource
@@ -437,15 +432,8 @@ public class CloudService {
      */
     public synchronized boolean disableCloud(String id, boolean force) {
         if (force == false) {
-            String index = alienDAO.getIndexForType(Deployment.class);
-            SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper.buildSearchQuery(index).types(Deployment.class)
-                    .filters(MapUtil.newHashMap(new String[] { "cloudId", "endDate" }, new String[][] { new String[] { id }, new String[] { null } }))
-                    .fieldSort("_timestamp", true);
-
-            GetMultipleDataResult<Object> result = alienDAO.search(searchQueryHelperBuilder, 0, 1);
-
             // TODO place a lock to avoid deployments during disablement of the cloud.
-            if (result.getData().length > 0) {
+            if (deploymentService.getCloudActiveDeployments(id).length > 0) {
                 return false;
             }
         }
@@ -0,0 +1,153 @@
+package alien4cloud.cloud;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.exception.PaaSDeploymentException;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Locks used to serialize the deployment operations (deploy, undeploy) of a given environment while deployments of different environments proceed in
+ * parallel.
+ *
+ * There is one lock per key (environment id, or topology and cloud for deployments that are not related to an environment), locks are weakly referenced
+ * and collected once no thread uses them. The number of threads waiting for a lock and the wait durations are exposed as metrics.
+ */
+@Slf4j
+@Component
+public class DeploymentLockService {
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    @Value("${deployments.lock_timeout_seconds:300}")
+    private long lockTimeoutSeconds;
+
+    private final LoadingCache<String, ReentrantLock> locks = CacheBuilder.newBuilder().weakValues().build(new CacheLoader<String, ReentrantLock>() {
+        @Override
+        public ReentrantLock load(String key) {
+            return new ReentrantLock();
+        }
+    });
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    /** Number of threads waiting for a lock, sampled whenever a thread starts waiting. */
+    private Histogram waitingThreads;
+    private Counter acquisitions;
+    private Counter timeouts;
+    private Timer waitTime;
+
+    @PostConstruct
+    public void init() {
+        waitingThreads = metricRegistry.histogram(name(DeploymentLockService.class, "waiting_threads"));
+        acquisitions = metricRegistry.counter(name(DeploymentLockService.class, "acquisitions"));
+        timeouts = metricRegistry.counter(name(DeploymentLockService.class, "timeouts"));
+        waitTime = metricRegistry.timer(name(DeploymentLockService.class, "wait_time"));
+        metricRegistry.register(name(DeploymentLockService.class, "waiting"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return waiting.get();
+            }
+        });
+    }
+
+    /**
+     * Get the lock key of the deployments of an environment.
+     *
+     * @param environmentId The id of the environment.
+     * @return The lock key.
+     */
+    public static String environmentKey(String environmentId) {
+        return "environment:" + environmentId;
+    }
+
+    /**
+     * Get the lock key for a deployment: the environment of the deployment or the topology and the cloud if the deployment is not related to an
+     * environment (csar test topologies).
+     *
+     * @param environmentId The id of the environment, may be null.
+     * @param topologyId The id of the deployed topology.
+     * @param cloudId The id of the cloud.
+     * @return The lock key.
+     */
+    public static String deploymentKey(String environmentId, String topologyId, String cloudId) {
+        if (environmentId != null) {
+            return environmentKey(environmentId);
+        }
+        return "topology:" + topologyId + ":" + cloudId;
+    }
+
+    /**
+     * Get the lock key for a deployment.
+     *
+     * @param deployment The deployment.
+     * @return The lock key.
+     */
+    public static String deploymentKey(Deployment deployment) {
+        String environmentId = deployment.getDeploymentSetup() == null ? null : deployment.getDeploymentSetup().getEnvironmentId();
+        return deploymentKey(environmentId, deployment.getTopologyId(), deployment.getCloudId());
+    }
+
+    /**
+     * Get the lock key for the paaS id of a deployment, paaS ids must be unique in a cloud.
+     *
+     * @param cloudId The id of the cloud.
+     * @param paaSId The paaS id.
+     * @return The lock key.
+     */
+    public static String paaSIdKey(String cloudId, String paaSId) {
+        return "paas:" + cloudId + ":" + paaSId;
+    }
+
+    /**
+     * Acquire the lock for the given key, waiting if another deployment operation holds it. The returned lock must be released by the caller.
+     *
+     * @param key The key of the lock.
+     * @return The acquired lock.
+     * @throws PaaSDeploymentException if the lock cannot be acquired before the configured timeout.
+     */
+    public ReentrantLock lock(String key) {
+        ReentrantLock lock = locks.getUnchecked(key);
+        if (lock.tryLock()) {
+            acquisitions.inc();
+            return lock;
+        }
+        int currentlyWaiting = waiting.incrementAndGet();
+        waitingThreads.update(currentlyWaiting);
+        Timer.Context waitContext = waitTime.time();
+        try {
+            log.debug("Waiting for deployment lock <{}>, {} thread(s) waiting for deployment locks.", key, currentlyWaiting);
+            if (!lock.tryLock(lockTimeoutSeconds, TimeUnit.SECONDS)) {
+                timeouts.inc();
+                throw new PaaSDeploymentException("Another deployment operation is in progress for <" + key + ">, please try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaaSDeploymentException("Interrupted while waiting for deployment lock <" + key + ">.", e);
+        } finally {
+            waiting.decrementAndGet();
+            waitContext.stop();
+        }
+        acquisitions.inc();
+        return lock;
+    }
+}
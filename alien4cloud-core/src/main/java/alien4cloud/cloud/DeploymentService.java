@@ -6,7 +6,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import lombok.Getter;
@@ -14,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.mapping.QueryHelper;
 import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
@@ -23,6 +28,7 @@ import alien4cloud.application.ApplicationEnvironmentService;
 import alien4cloud.application.ApplicationService;
 import alien4cloud.application.DeploymentSetupService;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.MonitorESDAO;
 import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.dao.model.GetMultipleDataResult;
 import alien4cloud.exception.NotFoundException;
@@ -42,8 +48,9 @@ import alien4cloud.paas.exception.CloudDisabledException;
 import alien4cloud.paas.exception.DeploymentPaaSIdConflictException;
 import alien4cloud.paas.exception.EmptyMetaPropertyException;
 import alien4cloud.paas.exception.MaintenanceModeException;
+import alien4cloud.paas.exception.PaaSAlreadyDeployedException;
 import alien4cloud.paas.exception.OperationExecutionException;
-import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.function.FunctionEvaluator;
 import alien4cloud.paas.model.DeploymentStatus;
 import alien4cloud.paas.model.InstanceInformation;
 import alien4cloud.paas.model.OperationExecRequest;
@@ -59,8 +66,12 @@ import alien4cloud.topology.TopologyUtils;
 import alien4cloud.tosca.normative.NormativeComputeConstants;
 import alien4cloud.utils.MapUtil;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * Manage deployment operations on a cloud.
@@ -73,7 +84,7 @@ public class DeploymentService {
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDao;
     @Resource(name = "alien-monitor-es-dao")
-    private IGenericSearchDAO alienMonitorDao;
+    private MonitorESDAO alienMonitorDao;
     @Resource
     private CloudService cloudService;
     @Resource
@@ -84,6 +95,22 @@ public class DeploymentService {
     private DeploymentSetupService deploymentSetupService;
     @Resource
     private TopologyTreeBuilderService topologyTreeBuilderService;
+    @Resource
+    private DeploymentLockService deploymentLockService;
+    @Resource
+    private ActiveDeploymentRegistry activeDeploymentRegistry;
+    @Resource
+    private InstanceInformationStore instanceInformationStore;
+
+    @Value("${deployments.context_cache.max_size:1000}")
+    private long contextCacheMaxSize;
+    /** Deployment contexts of the active deployments by deployment id, only their topologies are handed out (see getTopologyDeploymentContext). */
+    private Cache<String, PaaSTopologyDeploymentContext> topologyDeploymentContexts;
+
+    @PostConstruct
+    public void init() {
+        topologyDeploymentContexts = CacheBuilder.newBuilder().maximumSize(contextCacheMaxSize).build();
+    }
 
     /**
      * Get deployments for a given cloud
@@ -112,9 +139,15 @@ public class DeploymentService {
     }
 
     private GetMultipleDataResult<?> searchEvents(int from, int size, Deployment deployment) {
-        String index = alienMonitorDao.getIndexForType(AbstractMonitorEvent.class);
+        // only the daily indices of the deployment lifetime contain its events
+        long startDate = deployment.getStartDate() == null ? 0 : deployment.getStartDate().getTime();
+        long endDate = deployment.getEndDate() == null ? System.currentTimeMillis() : deployment.getEndDate().getTime();
+        String[] indices = alienMonitorDao.getEventIndices(startDate, endDate);
+        if (indices.length == 0) {
+            return new GetMultipleDataResult<Object>(new String[0], new Object[0]);
+        }
         SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper
-                .buildSearchQuery(index)
+                .buildSearchQuery(indices)
                 .types(PaaSDeploymentStatusMonitorEvent.class, PaaSInstanceStateMonitorEvent.class, PaaSMessageMonitorEvent.class,
                         PaaSInstanceStorageMonitorEvent.class)
                 .filters(MapUtil.newHashMap(new String[] { "deploymentId" }, new String[][] { new String[] { deployment.getId() } }))
@@ -132,44 +165,71 @@ public class DeploymentService {
      * @return The id of the generated deployment.
      * @throws CloudDisabledException In case the cloud is actually disabled and no deployments can be performed on this cloud.
      */
-    public synchronized String deployTopology(Topology topology, IDeploymentSource deploymentSource, DeploymentSetup deploymentSetup, String cloudId)
+    public String deployTopology(Topology topology, IDeploymentSource deploymentSource, DeploymentSetup deploymentSetup, String cloudId)
             throws CloudDisabledException {
         log.info("Deploying topology [{}] on cloud [{}]", topology.getId(), cloudId);
         String topologyId = topology.getId();
 
-        // Get underlying paaS provider of the cloud
-        IPaaSProvider paaSProvider = cloudService.getPaaSProvider(cloudId);
-
-        // create a deployment object for the given cloud.
-        Deployment deployment = new Deployment();
-        deployment.setCloudId(cloudId);
-        deployment.setId(UUID.randomUUID().toString());
-        deployment.setPaasId(generatePaaSId(deploymentSetup.getEnvironmentId(), cloudId));
-        deployment.setSourceId(deploymentSource.getId());
-        String sourceName;
-        if (deploymentSource.getName() == null) {
-            sourceName = UUID.randomUUID().toString();
-        } else {
-            sourceName = deploymentSource.getName();
+        // deployments of the same environment are serialized, others proceed in parallel
+        ReentrantLock deploymentLock = deploymentLockService.lock(DeploymentLockService.deploymentKey(deploymentSetup.getEnvironmentId(), topologyId,
+                cloudId));
+        try {
+            checkNotDeployed(deploymentSetup.getEnvironmentId(), topologyId, cloudId);
+
+            // Get underlying paaS provider of the cloud
+            IPaaSProvider paaSProvider = cloudService.getPaaSProvider(cloudId);
+
+            // create a deployment object for the given cloud.
+            Deployment deployment = new Deployment();
+            deployment.setCloudId(cloudId);
+            deployment.setId(UUID.randomUUID().toString());
+            deployment.setPaasId(generatePaaSId(deploymentSetup.getEnvironmentId(), cloudId));
+            deployment.setSourceId(deploymentSource.getId());
+            String sourceName;
+            if (deploymentSource.getName() == null) {
+                sourceName = UUID.randomUUID().toString();
+            } else {
+                sourceName = deploymentSource.getName();
+            }
+            deployment.setSourceName(sourceName);
+            deployment.setSourceType(DeploymentSourceType.fromSourceType(deploymentSource.getClass()));
+            deployment.setStartDate(new Date());
+            deployment.setDeploymentSetup(deploymentSetup);
+            // mandatory for the moment since we could have deployment with no environment (csar test)
+            deployment.setTopologyId(topologyId);
+
+            // paaS ids must be unique in a cloud while different environments may generate the same paaS id
+            ReentrantLock paaSIdLock = deploymentLockService.lock(DeploymentLockService.paaSIdKey(cloudId, deployment.getPaasId()));
+            try {
+                checkPaaSIdUnicity(deployment.getPaasId(), cloudId);
+                alienDao.save(deployment);
+                activeDeploymentRegistry.register(deployment);
+            } finally {
+                paaSIdLock.unlock();
+            }
+            // save the topology as a deployed topology.
+            // change the Id before saving
+            topology.setId(deployment.getId());
+            alienMonitorDao.save(topology);
+            // put back the old Id for deployment
+            topology.setId(topologyId);
+            // Build the context for deployment and deploy
+            paaSProvider.deploy(buildTopologyDeploymentContext(deployment, topology), null);
+            log.info("Deployed topology [{}] on cloud [{}], generated deployment with id [{}]", topology.getId(), cloudId, deployment.getId());
+            return deployment.getId();
+        } finally {
+            deploymentLock.unlock();
         }
-        deployment.setSourceName(sourceName);
-        deployment.setSourceType(DeploymentSourceType.fromSourceType(deploymentSource.getClass()));
-        deployment.setStartDate(new Date());
-        deployment.setDeploymentSetup(deploymentSetup);
-        // mandatory for the moment since we could have deployment with no environment (csar test)
-        deployment.setTopologyId(topologyId);
+    }
 
-        alienDao.save(deployment);
-        // save the topology as a deployed topology.
-        // change the Id before saving
-        topology.setId(deployment.getId());
-        alienMonitorDao.save(topology);
-        // put back the old Id for deployment
-        topology.setId(topologyId);
-        // Build the context for deployment and deploy
-        paaSProvider.deploy(buildTopologyDeploymentContext(deployment, topology), null);
-        log.info("Deployed topology [{}] on cloud [{}], generated deployment with id [{}]", topology.getId(), cloudId, deployment.getId());
-        return deployment.getId();
+    private void checkNotDeployed(String environmentId, String topologyId, String cloudId) {
+        if (environmentId != null) {
+            if (activeDeploymentRegistry.confirmActive(getActiveDeployment(environmentId))) {
+                throw new PaaSAlreadyDeployedException("The environment with id <" + environmentId + "> is already deployed");
+            }
+        } else if (activeDeploymentRegistry.confirmActive(getActiveDeployment(cloudId, topologyId))) {
+            throw new PaaSAlreadyDeployedException("The topology with id <" + topologyId + "> is already deployed on cloud <" + cloudId + ">");
+        }
     }
 
     private String generatePaaSId(String envId, String cloudId) throws DeploymentPaaSIdConflictException {
@@ -220,14 +280,11 @@ public class DeploymentService {
         Expression exp = parser.parseExpression(namePattern);
         String paaSId = (String) exp.getValue(new ContextObjectToParse(env, applicationService.getOrFail(env.getApplicationId()), namePattern
                 .contains("metaProperties[")));
-        paaSId = paaSId.trim().replaceAll(" ", "_");
-        checkPaaSIdUnicity(paaSId, cloud);
-
-        return paaSId;
+        return paaSId.trim().replaceAll(" ", "_");
     }
 
-    private void checkPaaSIdUnicity(String paaSId, Cloud cloud) throws DeploymentPaaSIdConflictException {
-        if (isActiveDeployment(paaSId, cloud.getId())) {
+    private void checkPaaSIdUnicity(String paaSId, String cloudId) throws DeploymentPaaSIdConflictException {
+        if (isActiveDeployment(paaSId, cloudId)) {
             throw new DeploymentPaaSIdConflictException("Conflict detected with the generated paasId <" + paaSId + ">.");
         }
     }
@@ -238,6 +295,40 @@ public class DeploymentService {
         return deploymentContext;
     }
 
+    /**
+     * Get the deployment context of an active deployment, the topologies of the context are built from the runtime topology on first access and are then
+     * cached until the runtime topology is updated or the deployment is undeployed.
+     *
+     * Every call returns a new context with its own copy of the deployment so that a PaaS provider updating its context or deployment doesn't change the
+     * context of the other callers. The runtime topology and the PaaS topology of the context are shared and must not be updated.
+     *
+     * @param deployment The active deployment.
+     * @return A new deployment context of the deployment.
+     */
+    private PaaSTopologyDeploymentContext getTopologyDeploymentContext(final Deployment deployment) {
+        Deployment activeDeployment = activeDeploymentRegistry.get(deployment.getId());
+        if (activeDeployment == null) {
+            return buildTopologyDeploymentContext(deployment, alienMonitorDao.findById(Topology.class, deployment.getId()));
+        }
+        PaaSTopologyDeploymentContext cachedContext;
+        try {
+            cachedContext = topologyDeploymentContexts.get(deployment.getId(), new Callable<PaaSTopologyDeploymentContext>() {
+                @Override
+                public PaaSTopologyDeploymentContext call() {
+                    return buildTopologyDeploymentContext(deployment, alienMonitorDao.findById(Topology.class, deployment.getId()));
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        // the registry returns a copy of the deployment
+        PaaSTopologyDeploymentContext deploymentContext = new PaaSTopologyDeploymentContext();
+        deploymentContext.setDeployment(activeDeployment);
+        deploymentContext.setTopology(cachedContext.getTopology());
+        deploymentContext.setPaaSTopology(cachedContext.getPaaSTopology());
+        return deploymentContext;
+    }
+
     private PaaSTopologyDeploymentContext buildTopologyDeploymentContext(Deployment deployment, Topology topology) {
         PaaSTopologyDeploymentContext topologyDeploymentContext = new PaaSTopologyDeploymentContext();
         topologyDeploymentContext.setDeployment(deployment);
@@ -254,12 +345,17 @@ public class DeploymentService {
      * @param deploymentSetup setup object containing information to deploy
      * @throws CloudDisabledException In case the cloud selected for the topology is disabled.
      */
-    public synchronized void undeployTopology(DeploymentSetup deploymentSetup) throws CloudDisabledException {
+    public void undeployTopology(DeploymentSetup deploymentSetup) throws CloudDisabledException {
         String topologyId = deploymentSetupService.getTopologyId(deploymentSetup.getId());
         ApplicationEnvironment environment = deploymentSetupService.getApplicationEnvironment(deploymentSetup.getId());
         log.info("Un-deploying topology [{}] on cloud [{}]", topologyId, environment.getCloudId());
-        Deployment activeDeployment = getActiveDeploymentFailIfNotExists(environment.getId());
-        this.undeploy(activeDeployment);
+        ReentrantLock deploymentLock = deploymentLockService.lock(DeploymentLockService.environmentKey(environment.getId()));
+        try {
+            Deployment activeDeployment = getActiveDeploymentFailIfNotExists(environment.getId());
+            this.undeploy(activeDeployment);
+        } finally {
+            deploymentLock.unlock();
+        }
     }
 
     /**
@@ -268,9 +364,15 @@ public class DeploymentService {
      * @param deploymentId deployment id to deploy
      * @throws CloudDisabledException
      */
-    public synchronized void undeploy(String deploymentId) throws CloudDisabledException {
+    public void undeploy(String deploymentId) throws CloudDisabledException {
         Deployment deployment = getMandatoryDeployment(deploymentId);
-        undeploy(deployment);
+        ReentrantLock deploymentLock = deploymentLockService.lock(DeploymentLockService.deploymentKey(deployment));
+        try {
+            // reload the deployment as it may have been updated while waiting for the lock
+            undeploy(getMandatoryDeployment(deploymentId));
+        } finally {
+            deploymentLock.unlock();
+        }
     }
 
     private void undeploy(Deployment deployment) throws CloudDisabledException {
@@ -280,6 +382,7 @@ public class DeploymentService {
         PaaSDeploymentContext deploymentContext = buildDeploymentContext(deployment);
         paaSProvider.undeploy(deploymentContext, null);
         alienDao.save(deployment);
+        topologyDeploymentContexts.invalidate(deployment.getId());
         log.info("Un-deployed deployment [{}] on cloud [{}]", deployment.getId(), cloudId);
     }
 
@@ -301,14 +404,14 @@ public class DeploymentService {
      */
     public void scale(String applicationEnvironmentId, final String nodeTemplateId, int instances, final IPaaSCallback<Object> callback)
             throws CloudDisabledException {
-        Deployment deployment = getActiveDeploymentFailIfNotExists(applicationEnvironmentId);
+        final Deployment deployment = getActiveDeploymentFailIfNotExists(applicationEnvironmentId);
         final Topology topology = alienMonitorDao.findById(Topology.class, deployment.getId());
         final Capability capability = TopologyUtils.getScalableCapability(topology, nodeTemplateId, true);
         final int previousInitialInstances = TopologyUtils.getScalingProperty(NormativeComputeConstants.SCALABLE_DEFAULT_INSTANCES, capability);
         final int newInitialInstances = previousInitialInstances + instances;
         log.info("Scaling <{}> node from <{}> to <{}>. Updating runtime topology...", nodeTemplateId, previousInitialInstances, newInitialInstances);
         TopologyUtils.setScalingProperty(NormativeComputeConstants.SCALABLE_DEFAULT_INSTANCES, newInitialInstances, capability);
-        alienMonitorDao.save(topology);
+        saveRuntimeTopology(topology);
         log.info("Delegating to the paas provider...");
         // call the paas provider to scale the topology
         IPaaSProvider paaSProvider = cloudService.getPaaSProvider(deployment.getCloudId());
@@ -319,7 +422,7 @@ public class DeploymentService {
                 log.info("Failed to scale <{}> node from <{}> to <{}>. rolling back to {}...", nodeTemplateId, previousInitialInstances, newInitialInstances,
                         previousInitialInstances);
                 TopologyUtils.setScalingProperty(NormativeComputeConstants.SCALABLE_DEFAULT_INSTANCES, previousInitialInstances, capability);
-                alienMonitorDao.save(topology);
+                saveRuntimeTopology(topology);
                 callback.onFailure(throwable);
             }
 
@@ -364,8 +467,7 @@ public class DeploymentService {
             @Override
             public void onSuccess(DeploymentStatus data) {
                 if (data == DeploymentStatus.UNDEPLOYED) {
-                    deployment.setEndDate(new Date());
-                    alienDao.save(deployment);
+                    markUndeployed(deployment);
                 }
                 callback.onSuccess(data);
             }
@@ -387,15 +489,50 @@ public class DeploymentService {
      */
     public void getInstancesInformation(final Deployment deployment, IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback)
             throws CloudDisabledException {
+        getInstancesInformation(deployment, false, callback);
+    }
+
+    /**
+     * Get the detailed status for each instance of each node template. The instances are served by the {@link InstanceInformationStore}, the PaaS provider
+     * is queried only if the instances of the deployment are not known yet or if a refresh is requested.
+     *
+     * @param deployment The deployment for witch to get the instance informations.
+     * @param refresh True to query the PaaS provider even if the instances of the deployment are known.
+     * @param callback callback on witch to send the map of node template's id to map of instance's id to instance information.
+     * @throws CloudDisabledException In case the cloud selected for the topology is disabled.
+     */
+    public void getInstancesInformation(final Deployment deployment, boolean refresh,
+            final IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback) throws CloudDisabledException {
         Map<String, Map<String, InstanceInformation>> instancesInformation = Maps.newHashMap();
         if (deployment == null) {
             callback.onSuccess(instancesInformation);
             return;
         }
-        Topology runtimeTopology = alienMonitorDao.findById(Topology.class, deployment.getId());
-        PaaSTopologyDeploymentContext deploymentContext = buildTopologyDeploymentContext(deployment, runtimeTopology);
+        if (!refresh) {
+            Map<String, Map<String, InstanceInformation>> storedInstances = instanceInformationStore.get(deployment.getId());
+            if (storedInstances != null) {
+                // the store keeps the attributes as received from the PaaS, the attributes derived from other attributes are evaluated on their latest values
+                PaaSTopologyDeploymentContext deploymentContext = getTopologyDeploymentContext(deployment);
+                FunctionEvaluator.postProcessInstanceInformation(storedInstances, deploymentContext.getTopology(), deploymentContext.getPaaSTopology());
+                callback.onSuccess(storedInstances);
+                return;
+            }
+        }
+        PaaSTopologyDeploymentContext deploymentContext = getTopologyDeploymentContext(deployment);
         IPaaSProvider paaSProvider = cloudService.getPaaSProvider(deployment.getCloudId());
-        paaSProvider.getInstancesInformation(deploymentContext, callback);
+        final long queryDate = System.currentTimeMillis();
+        paaSProvider.getInstancesInformation(deploymentContext, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
+            @Override
+            public void onSuccess(Map<String, Map<String, InstanceInformation>> data) {
+                instanceInformationStore.load(deployment.getId(), data, queryDate);
+                callback.onSuccess(data);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                callback.onFailure(throwable);
+            }
+        });
     }
 
     /**
@@ -405,12 +542,22 @@ public class DeploymentService {
      * @throws CloudDisabledException In case the cloud selected for the topology is disabled.
      * @throws OperationExecutionException runtime exception during an operation
      */
-    public void triggerOperationExecution(OperationExecRequest request, Topology topology, IPaaSCallback<Map<String, String>> callback)
-            throws CloudDisabledException, OperationExecutionException {
+    public void triggerOperationExecution(OperationExecRequest request, IPaaSCallback<Map<String, String>> callback) throws CloudDisabledException,
+            OperationExecutionException {
         Deployment activeDeployment = getActiveDeploymentFailIfNotExists(request.getApplicationEnvironmentId());
         IPaaSProvider paaSProvider = cloudService.getPaaSProvider(activeDeployment.getCloudId());
-        // It's a little bit ugly to let deployment setup to null but we do not need this information
-        paaSProvider.executeOperation(buildTopologyDeploymentContext(activeDeployment, topology), request, callback);
+        paaSProvider.executeOperation(getTopologyDeploymentContext(activeDeployment), request, callback);
+    }
+
+    /**
+     * Get the deployed (runtime) topology of an application environment for read only purpose. The returned topology is shared and must not be updated,
+     * use {@link #getRuntimeTopology(String)} to get a topology that can be updated.
+     *
+     * @param applicationEnvironmentId id of the environment
+     * @return the Topology requested if found
+     */
+    public Topology getCachedRuntimeTopology(String applicationEnvironmentId) {
+        return getTopologyDeploymentContext(getActiveDeploymentFailIfNotExists(applicationEnvironmentId)).getTopology();
     }
 
     /**
@@ -424,6 +571,17 @@ public class DeploymentService {
         return alienMonitorDao.findById(Topology.class, deployment.getId());
     }
 
+    /**
+     * Save the deployed (runtime) topology of a deployment, every update of a runtime topology must be saved through this method so that the cached
+     * deployment context of the deployment is rebuilt from the updated topology.
+     *
+     * @param runtimeTopology The runtime topology, its id is the id of the deployment.
+     */
+    public void saveRuntimeTopology(Topology runtimeTopology) {
+        alienMonitorDao.save(runtimeTopology);
+        topologyDeploymentContexts.invalidate(runtimeTopology.getId());
+    }
+
     /**
      * Get the deployed (runtime) topology of an application on a cloud
      *
@@ -476,13 +634,7 @@ public class DeploymentService {
      * @return active deployment or null if not exist
      */
     public Deployment getActiveDeployment(String applicationEnvironmentId) {
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "deploymentSetup.environmentId", "endDate" }, new String[][] {
-                new String[] { applicationEnvironmentId }, new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.search(Deployment.class, null, activeDeploymentFilters, 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            return dataResult.getData()[0];
-        }
-        return null;
+        return activeDeploymentRegistry.getByEnvironment(applicationEnvironmentId);
     }
 
     /**
@@ -493,39 +645,38 @@ public class DeploymentService {
      * @return a deployment
      */
     public Deployment getActiveDeployment(String cloudId, String topologyId) {
-        Deployment deployment = null;
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "cloudId", "topologyId", "endDate" }, new String[][] {
-                new String[] { cloudId }, new String[] { topologyId }, new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.search(Deployment.class, null, activeDeploymentFilters, 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            deployment = dataResult.getData()[0];
-        }
-        return deployment;
+        return activeDeploymentRegistry.getByTopologyAndCloud(topologyId, cloudId);
     }
 
     public Deployment[] getCloudActiveDeployments(String cloudId) {
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "cloudId", "endDate" }, new String[][] { new String[] { cloudId },
-                new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.search(Deployment.class, null, activeDeploymentFilters, 1);
-        return dataResult.getData();
+        List<Deployment> deployments = activeDeploymentRegistry.getByCloud(cloudId);
+        return deployments.toArray(new Deployment[deployments.size()]);
     }
 
     private boolean isActiveDeployment(String paaSId, String cloudId) {
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "cloudId", "paasId", "endDate" }, new String[][] {
-                new String[] { cloudId }, new String[] { paaSId }, new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.find(Deployment.class, activeDeploymentFilters, Integer.MAX_VALUE);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            return true;
+        return activeDeploymentRegistry.confirmActive(activeDeploymentRegistry.getByPaaSId(cloudId, paaSId));
+    }
+
+    /**
+     * Set the end date of a deployment that has been undeployed.
+     *
+     * @param deployment The deployment that has been undeployed.
+     */
+    public void markUndeployed(Deployment deployment) {
+        if (deployment.getEndDate() == null) {
+            deployment.setEndDate(new Date());
+            alienDao.save(deployment);
         }
-        return false;
+        activeDeploymentRegistry.unregister(deployment.getId());
+        instanceInformationStore.invalidate(deployment.getId());
+        topologyDeploymentContexts.invalidate(deployment.getId());
     }
 
     public Map<String, PaaSTopologyDeploymentContext> getCloudActiveDeploymentContexts(String cloudId) {
         Deployment[] deployments = getCloudActiveDeployments(cloudId);
         Map<String, PaaSTopologyDeploymentContext> activeDeploymentContexts = Maps.newHashMap();
         for (Deployment deployment : deployments) {
-            Topology topology = alienMonitorDao.findById(Topology.class, deployment.getId());
-            activeDeploymentContexts.put(deployment.getPaasId(), buildTopologyDeploymentContext(deployment, topology));
+            activeDeploymentContexts.put(deployment.getPaasId(), getTopologyDeploymentContext(deployment));
         }
         return activeDeploymentContexts;
     }
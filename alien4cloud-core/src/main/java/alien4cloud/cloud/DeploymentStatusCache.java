@@ -0,0 +1,291 @@
+package alien4cloud.cloud;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.IPaasEventListener;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Last known status of the active deployments.
+ *
+ * Statuses are updated from the {@link PaaSDeploymentStatusMonitorEvent}s of the PaaS providers. A status older than the configured staleness bound is
+ * still returned but a refresh from the PaaS provider is triggered in background. The PaaS provider is queried synchronously, for a bounded time, only for
+ * deployments that have no known status yet. Statuses that are not updated expire so that the statuses of the deployments that are not looked at anymore
+ * don't stay in memory.
+ *
+ * The dates of the events are set by the PaaS providers and are only compared with each other, a status returned by a query to the PaaS provider is
+ * kept only if no other status has been received since the query started.
+ */
+@Slf4j
+@Component
+public class DeploymentStatusCache implements IPaasEventListener<AbstractMonitorEvent> {
+    @Resource
+    private DeploymentService deploymentService;
+    @Resource
+    private IPaasEventService paasEventService;
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    /** Age in seconds after which a status is refreshed from the PaaS provider. */
+    @Value("${deployments.status_cache.staleness_seconds:60}")
+    private long stalenessSeconds;
+    @Value("${deployments.status_cache.max_size:10000}")
+    private long maxSize;
+    /** Time in seconds after which a status that has not been updated is removed from the cache. */
+    @Value("${deployments.status_cache.expire_seconds:600}")
+    private long expireSeconds;
+    /** Maximum time in seconds to wait for the PaaS provider to return the status of a deployment. */
+    @Value("${deployments.status_cache.fetch_timeout_seconds:10}")
+    private long fetchTimeoutSeconds;
+    /** Number of threads used to refresh stale statuses. */
+    @Value("${deployments.status_cache.refresh_threads:2}")
+    private int refreshThreads;
+
+    /** Clock used for the staleness and the expiry of the statuses. */
+    private Ticker ticker = Ticker.systemTicker();
+    private Cache<String, CachedStatus> statuses;
+    /** Number of updates of the cache, used to know if a status has been updated while the PaaS provider was queried. */
+    private final AtomicLong updates = new AtomicLong();
+    private ExecutorService refreshExecutor;
+    /** Ids of the deployments for which a refresh is in progress. */
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @PostConstruct
+    public void init() {
+        statuses = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(expireSeconds, TimeUnit.SECONDS).ticker(ticker).recordStats().build();
+        refreshExecutor = Executors.newFixedThreadPool(refreshThreads, new ThreadFactoryBuilder().setNameFormat("deployment-status-%d").setDaemon(true)
+                .build());
+        paasEventService.addListener(this);
+        metricRegistry.register(name(DeploymentStatusCache.class, "size"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return statuses.size();
+            }
+        });
+        metricRegistry.register(name(DeploymentStatusCache.class, "hits"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return statuses.stats().hitCount();
+            }
+        });
+        metricRegistry.register(name(DeploymentStatusCache.class, "misses"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return statuses.stats().missCount();
+            }
+        });
+        metricRegistry.register(name(DeploymentStatusCache.class, "refreshing"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return refreshing.size();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the status of a deployment.
+     *
+     * @param deployment The deployment for which to get the status, may be null.
+     * @return The last known status of the deployment, {@link DeploymentStatus#UNDEPLOYED} if the deployment is null.
+     * @throws Exception if the deployment has no known status and the PaaS provider failed to return it or timed out.
+     */
+    public DeploymentStatus getStatus(Deployment deployment) throws Exception {
+        if (deployment == null) {
+            return DeploymentStatus.UNDEPLOYED;
+        }
+        CachedStatus cached = getCachedStatus(deployment);
+        if (cached != null) {
+            return cached.status;
+        }
+        return waitForStatus(fetch(deployment), TimeUnit.SECONDS.toNanos(fetchTimeoutSeconds));
+    }
+
+    /**
+     * Get the status of many deployments, the PaaS providers are queried in parallel for the deployments that have no known status. The whole call
+     * doesn't wait more than the fetch timeout for the PaaS providers.
+     *
+     * @param deployments The deployments for which to get the status.
+     * @return A map of deployment id to status, {@link DeploymentStatus#UNKNOWN} if the status couldn't be retrieved in time.
+     */
+    public Map<String, DeploymentStatus> getStatuses(Collection<Deployment> deployments) {
+        Map<String, DeploymentStatus> result = Maps.newHashMap();
+        Map<String, SettableFuture<DeploymentStatus>> fetches = Maps.newHashMap();
+        for (Deployment deployment : deployments) {
+            CachedStatus cached = getCachedStatus(deployment);
+            if (cached != null) {
+                result.put(deployment.getId(), cached.status);
+            } else {
+                fetches.put(deployment.getId(), fetch(deployment));
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(fetchTimeoutSeconds);
+        for (Map.Entry<String, SettableFuture<DeploymentStatus>> fetch : fetches.entrySet()) {
+            try {
+                result.put(fetch.getKey(), waitForStatus(fetch.getValue(), deadline - System.nanoTime()));
+            } catch (Exception e) {
+                log.debug("Getting status for the deployment <" + fetch.getKey() + "> failed. Returned status is UNKNOWN.", e);
+                result.put(fetch.getKey(), DeploymentStatus.UNKNOWN);
+            }
+        }
+        return result;
+    }
+
+    private CachedStatus getCachedStatus(Deployment deployment) {
+        CachedStatus cached = statuses.getIfPresent(deployment.getId());
+        if (cached != null && ticker.read() - cached.updateTime > TimeUnit.SECONDS.toNanos(stalenessSeconds)) {
+            refreshInBackground(deployment);
+        }
+        return cached;
+    }
+
+    private void refreshInBackground(final Deployment deployment) {
+        if (!refreshing.add(deployment.getId())) {
+            return;
+        }
+        refreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    waitForStatus(fetch(deployment), TimeUnit.SECONDS.toNanos(fetchTimeoutSeconds));
+                } catch (Exception e) {
+                    log.debug("Failed to refresh status of deployment <" + deployment.getId() + ">, last known status is kept.", e);
+                } finally {
+                    refreshing.remove(deployment.getId());
+                }
+            }
+        });
+    }
+
+    /**
+     * Query the PaaS provider for the status of a deployment, the cache is updated once the status is returned.
+     */
+    private SettableFuture<DeploymentStatus> fetch(final Deployment deployment) {
+        final SettableFuture<DeploymentStatus> statusFuture = SettableFuture.create();
+        final long updatesBeforeFetch = updates.get();
+        try {
+            deploymentService.getDeploymentStatus(deployment, new IPaaSCallback<DeploymentStatus>() {
+                @Override
+                public void onSuccess(DeploymentStatus data) {
+                    updateFromFetch(deployment.getId(), data, updatesBeforeFetch);
+                    statusFuture.set(data);
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    statusFuture.setException(throwable);
+                }
+            });
+        } catch (Exception e) {
+            statusFuture.setException(e);
+        }
+        return statusFuture;
+    }
+
+    private DeploymentStatus waitForStatus(SettableFuture<DeploymentStatus> statusFuture, long timeoutNanos) throws Exception {
+        try {
+            return statusFuture.get(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("PaaS provider didn't return the deployment status within " + fetchTimeoutSeconds + " seconds.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Update the status of a deployment from an event unless a more recent event has been received.
+     */
+    private synchronized void updateFromEvent(String deploymentId, DeploymentStatus status, long eventDate) {
+        if (DeploymentStatus.UNDEPLOYED.equals(status)) {
+            // the deployment is not active anymore
+            statuses.invalidate(deploymentId);
+            return;
+        }
+        CachedStatus cached = statuses.getIfPresent(deploymentId);
+        if (cached == null || cached.eventDate <= eventDate) {
+            statuses.put(deploymentId, new CachedStatus(status, updates.incrementAndGet(), ticker.read(), eventDate));
+        }
+    }
+
+    /**
+     * Update the status of a deployment from the result of a query to the PaaS provider unless the cache has been updated since the query started.
+     */
+    private synchronized void updateFromFetch(String deploymentId, DeploymentStatus status, long updatesBeforeFetch) {
+        CachedStatus cached = statuses.getIfPresent(deploymentId);
+        if (cached != null && cached.update > updatesBeforeFetch) {
+            // the status has been updated while the PaaS provider was queried and may be more recent
+            return;
+        }
+        if (DeploymentStatus.UNDEPLOYED.equals(status)) {
+            statuses.invalidate(deploymentId);
+            return;
+        }
+        // the date of the last event is kept so that older events received later are still ignored
+        statuses.put(deploymentId, new CachedStatus(status, updates.incrementAndGet(), ticker.read(), cached == null ? Long.MIN_VALUE : cached.eventDate));
+    }
+
+    @Override
+    public void eventHappened(AbstractMonitorEvent event) {
+        PaaSDeploymentStatusMonitorEvent statusEvent = (PaaSDeploymentStatusMonitorEvent) event;
+        updateFromEvent(statusEvent.getDeploymentId(), statusEvent.getDeploymentStatus(), statusEvent.getDate());
+    }
+
+    @Override
+    public boolean canHandle(AbstractMonitorEvent event) {
+        return event instanceof PaaSDeploymentStatusMonitorEvent;
+    }
+
+    @AllArgsConstructor
+    private static final class CachedStatus {
+        private final DeploymentStatus status;
+        /** Number of the update of the cache that set this status. */
+        private final long update;
+        /** Time of the update of the status, read from the ticker of the cache. */
+        private final long updateTime;
+        /** Date of the latest event received for the deployment (set by the PaaS provider), Long.MIN_VALUE if none has been received. */
+        private final long eventDate;
+    }
+}
@@ -0,0 +1,262 @@
+package alien4cloud.cloud;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.paas.IPaasEventListener;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+import alien4cloud.paas.model.PaaSInstanceStateMonitorEvent;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+
+/**
+ * Runtime state of the instances of the active deployments.
+ *
+ * The instances of a deployment are first loaded from the PaaS provider and are then updated from the {@link PaaSInstanceStateMonitorEvent}s (and so
+ * from the {@link alien4cloud.paas.model.PaaSInstanceStorageMonitorEvent}s) so that the runtime view of a deployment can be served without querying the
+ * PaaS provider. Entries are removed when the deployment is undeployed. As events may be lost, instances that have not been loaded from the PaaS provider
+ * for more than the configured staleness bound are not served anymore so that they are loaded again.
+ *
+ * Attributes are stored as received, the attributes that are functions of other attributes (concat, get_attribute, get_operation_output) must be evaluated
+ * when the instances are served, see {@link alien4cloud.paas.function.FunctionEvaluator#postProcessInstanceInformation}.
+ */
+@Component
+public class InstanceInformationStore implements IPaasEventListener<AbstractMonitorEvent> {
+    @Resource
+    private IPaasEventService paasEventService;
+    @Resource
+    private ActiveDeploymentRegistry activeDeploymentRegistry;
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    /** Age in seconds after which the instances of a deployment are loaded again from the PaaS provider. */
+    @Value("${deployments.instances_store.staleness_seconds:300}")
+    private long stalenessSeconds;
+    /** Clock used for the staleness of the instances. */
+    private Ticker ticker = Ticker.systemTicker();
+
+    private final ConcurrentMap<String, DeploymentInstances> instancesByDeployment = new ConcurrentHashMap<String, DeploymentInstances>();
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        hits = metricRegistry.counter(name(InstanceInformationStore.class, "hits"));
+        misses = metricRegistry.counter(name(InstanceInformationStore.class, "misses"));
+        metricRegistry.register(name(InstanceInformationStore.class, "deployments"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return instancesByDeployment.size();
+            }
+        });
+        paasEventService.addListener(this);
+    }
+
+    /**
+     * Get the instances of a deployment.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return A copy of the instances of the deployment by node template id and instance id or null if the instances have not been loaded from the PaaS
+     *         provider yet or have been loaded for more than the staleness bound.
+     */
+    public Map<String, Map<String, InstanceInformation>> get(String deploymentId) {
+        DeploymentInstances deploymentInstances = instancesByDeployment.get(deploymentId);
+        if (deploymentInstances != null) {
+            synchronized (deploymentInstances) {
+                if (deploymentInstances.loaded && ticker.read() - deploymentInstances.loadTime <= TimeUnit.SECONDS.toNanos(stalenessSeconds)) {
+                    hits.inc();
+                    return copy(deploymentInstances.instances);
+                }
+            }
+        }
+        misses.inc();
+        return null;
+    }
+
+    /**
+     * Load the instances of a deployment as returned by the PaaS provider. Instances updated by an event that occurred after the provider has been queried
+     * are kept.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param instances The instances of the deployment by node template id and instance id.
+     * @param queryDate The date at which the PaaS provider has been queried.
+     */
+    public void load(String deploymentId, Map<String, Map<String, InstanceInformation>> instances, long queryDate) {
+        if (instances == null || activeDeploymentRegistry.get(deploymentId) == null) {
+            return;
+        }
+        DeploymentInstances deploymentInstances = getOrCreate(deploymentId);
+        synchronized (deploymentInstances) {
+            // remove the instances that doesn't exist anymore
+            Iterator<Map.Entry<String, Map<String, InstanceInformation>>> nodeIterator = deploymentInstances.instances.entrySet().iterator();
+            while (nodeIterator.hasNext()) {
+                Map.Entry<String, Map<String, InstanceInformation>> nodeEntry = nodeIterator.next();
+                Map<String, InstanceInformation> loadedNodeInstances = instances.get(nodeEntry.getKey());
+                Iterator<String> instanceIterator = nodeEntry.getValue().keySet().iterator();
+                while (instanceIterator.hasNext()) {
+                    String instanceId = instanceIterator.next();
+                    if ((loadedNodeInstances == null || !loadedNodeInstances.containsKey(instanceId))
+                            && !deploymentInstances.isUpdatedAfter(nodeEntry.getKey(), instanceId, queryDate)) {
+                        instanceIterator.remove();
+                        deploymentInstances.updateDates.remove(instanceKey(nodeEntry.getKey(), instanceId));
+                    }
+                }
+                if (nodeEntry.getValue().isEmpty()) {
+                    nodeIterator.remove();
+                }
+            }
+            for (Map.Entry<String, Map<String, InstanceInformation>> nodeEntry : instances.entrySet()) {
+                for (Map.Entry<String, InstanceInformation> instanceEntry : nodeEntry.getValue().entrySet()) {
+                    if (!deploymentInstances.isUpdatedAfter(nodeEntry.getKey(), instanceEntry.getKey(), queryDate)) {
+                        deploymentInstances.getNodeInstances(nodeEntry.getKey()).put(instanceEntry.getKey(), copy(instanceEntry.getValue()));
+                    }
+                }
+            }
+            deploymentInstances.loaded = true;
+            deploymentInstances.loadTime = ticker.read();
+        }
+    }
+
+    /**
+     * Remove the instances of a deployment from the store.
+     *
+     * @param deploymentId The id of the deployment.
+     */
+    public void invalidate(String deploymentId) {
+        instancesByDeployment.remove(deploymentId);
+    }
+
+    @Override
+    public void eventHappened(AbstractMonitorEvent event) {
+        if (event instanceof PaaSDeploymentStatusMonitorEvent) {
+            if (DeploymentStatus.UNDEPLOYED.equals(((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus())) {
+                invalidate(event.getDeploymentId());
+            }
+            return;
+        }
+        PaaSInstanceStateMonitorEvent instanceEvent = (PaaSInstanceStateMonitorEvent) event;
+        if (activeDeploymentRegistry.get(event.getDeploymentId()) == null) {
+            // events of deployments that are not active anymore are not stored
+            return;
+        }
+        DeploymentInstances deploymentInstances = getOrCreate(event.getDeploymentId());
+        synchronized (deploymentInstances) {
+            deploymentInstances.updateDates.put(instanceKey(instanceEvent.getNodeTemplateId(), instanceEvent.getInstanceId()), event.getDate());
+            if (instanceEvent.getInstanceState() == null) {
+                // the instance has been deleted
+                Map<String, InstanceInformation> nodeInstances = deploymentInstances.instances.get(instanceEvent.getNodeTemplateId());
+                if (nodeInstances != null) {
+                    nodeInstances.remove(instanceEvent.getInstanceId());
+                    if (nodeInstances.isEmpty()) {
+                        deploymentInstances.instances.remove(instanceEvent.getNodeTemplateId());
+                    }
+                }
+                return;
+            }
+            Map<String, InstanceInformation> nodeInstances = deploymentInstances.getNodeInstances(instanceEvent.getNodeTemplateId());
+            InstanceInformation instance = nodeInstances.get(instanceEvent.getInstanceId());
+            if (instance == null) {
+                instance = new InstanceInformation();
+                instance.setAttributes(Maps.<String, String> newHashMap());
+                nodeInstances.put(instanceEvent.getInstanceId(), instance);
+            }
+            instance.setState(instanceEvent.getInstanceState());
+            instance.setInstanceStatus(instanceEvent.getInstanceStatus());
+            if (instanceEvent.getAttributes() != null) {
+                if (instance.getAttributes() == null) {
+                    instance.setAttributes(Maps.<String, String> newHashMap());
+                }
+                instance.getAttributes().putAll(instanceEvent.getAttributes());
+            }
+            if (instanceEvent.getRuntimeProperties() != null) {
+                instance.setRuntimeProperties(Maps.newHashMap(instanceEvent.getRuntimeProperties()));
+            }
+        }
+    }
+
+    @Override
+    public boolean canHandle(AbstractMonitorEvent event) {
+        return event instanceof PaaSInstanceStateMonitorEvent || event instanceof PaaSDeploymentStatusMonitorEvent;
+    }
+
+    private DeploymentInstances getOrCreate(String deploymentId) {
+        DeploymentInstances deploymentInstances = instancesByDeployment.get(deploymentId);
+        if (deploymentInstances == null) {
+            DeploymentInstances created = new DeploymentInstances();
+            deploymentInstances = instancesByDeployment.putIfAbsent(deploymentId, created);
+            if (deploymentInstances == null) {
+                deploymentInstances = created;
+            }
+        }
+        return deploymentInstances;
+    }
+
+    private static Map<String, Map<String, InstanceInformation>> copy(Map<String, Map<String, InstanceInformation>> instances) {
+        Map<String, Map<String, InstanceInformation>> copy = Maps.newHashMapWithExpectedSize(instances.size());
+        for (Map.Entry<String, Map<String, InstanceInformation>> nodeEntry : instances.entrySet()) {
+            Map<String, InstanceInformation> nodeInstances = Maps.newHashMapWithExpectedSize(nodeEntry.getValue().size());
+            for (Map.Entry<String, InstanceInformation> instanceEntry : nodeEntry.getValue().entrySet()) {
+                nodeInstances.put(instanceEntry.getKey(), copy(instanceEntry.getValue()));
+            }
+            copy.put(nodeEntry.getKey(), nodeInstances);
+        }
+        return copy;
+    }
+
+    private static InstanceInformation copy(InstanceInformation instance) {
+        return new InstanceInformation(instance.getState(), instance.getInstanceStatus(), copy(instance.getAttributes()), copy(instance.getRuntimeProperties()),
+                copy(instance.getOperationsOutputs()));
+    }
+
+    private static Map<String, String> copy(Map<String, String> map) {
+        return map == null ? null : Maps.newHashMap(map);
+    }
+
+    private static String instanceKey(String nodeTemplateId, String instanceId) {
+        return nodeTemplateId + "/" + instanceId;
+    }
+
+    /** Instances of a deployment, every access must be synchronized on the instance. */
+    private static final class DeploymentInstances {
+        /** True once the instances have been loaded from the PaaS provider. */
+        private boolean loaded = false;
+        /** Time of the last load from the PaaS provider, read from the ticker of the store. */
+        private long loadTime;
+        private final Map<String, Map<String, InstanceInformation>> instances = Maps.newHashMap();
+        /** Date of the last event received for every instance. */
+        private final Map<String, Long> updateDates = Maps.newHashMap();
+
+        private Map<String, InstanceInformation> getNodeInstances(String nodeTemplateId) {
+            Map<String, InstanceInformation> nodeInstances = instances.get(nodeTemplateId);
+            if (nodeInstances == null) {
+                nodeInstances = Maps.newHashMap();
+                instances.put(nodeTemplateId, nodeInstances);
+            }
+            return nodeInstances;
+        }
+
+        private boolean isUpdatedAfter(String nodeTemplateId, String instanceId, long date) {
+            Long updateDate = updateDates.get(instanceKey(nodeTemplateId, instanceId));
+            return updateDate != null && updateDate > date;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import alien4cloud.model.templates.TopologyTemplateVersion;
 import alien4cloud.model.topology.AbstractTopologyVersion;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.wf.WorkflowsBuilderService;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.VersionUtil;
 
@@ -31,6 +32,8 @@ public abstract class AbtractVersionService<V extends AbstractTopologyVersion> {
 
     @Resource
     private WorkflowsBuilderService workflowBuilderService;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
 
     protected abstract V buildVersionImplem();
 
@@ -93,7 +96,8 @@ public abstract class AbtractVersionService<V extends AbstractTopologyVersion> {
             checkTopologyReleasable(topology);
         }
 
-        alienDAO.save(topology);
+        // save through the topology service so the last update date of the topology is updated
+        topologyServiceCore.save(topology);
 
         appVersion.setTopologyId(topology.getId());
         alienDAO.save(appVersion);
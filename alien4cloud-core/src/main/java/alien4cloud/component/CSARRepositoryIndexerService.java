@@ -5,35 +5,39 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Resource;
 
 import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.IdsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.ElasticSearchClient;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.Constants;
 import alien4cloud.dao.ElasticSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.RefreshPolicy;
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.images.IImageDAO;
+import alien4cloud.images.ImageReferencesLock;
 import alien4cloud.model.common.Tag;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedModelUtils;
 import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.tosca.ArchiveImageLoader;
-import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -45,6 +49,10 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
     private ElasticSearchClient elasticSearchClient;
     @Resource
     private IImageDAO imageDAO;
+    @Resource
+    private ImageReferencesLock imageReferencesLock;
+    @Resource
+    private IndexedToscaElementCache elementCache;
 
     private void refreshIndexForSearching() {
         elasticSearchClient.getClient().admin().indices().prepareRefresh(ElasticSearchDAO.TOSCA_ELEMENT_INDEX).execute().actionGet();
@@ -52,17 +60,12 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
 
     @Override
     public Map<String, IndexedToscaElement> getArchiveElements(String archiveName, String archiveVersion) {
-        GetMultipleDataResult<IndexedToscaElement> elements = alienDAO.find(
-                IndexedToscaElement.class,
-                MapUtil.newHashMap(new String[] { "archiveName", "archiveVersion" }, new String[][] { new String[] { archiveName },
-                        new String[] { archiveVersion } }), Integer.MAX_VALUE);
+        Iterator<IndexedToscaElement> elements = alienDAO.scroll(IndexedToscaElement.class, getArchiveQuery(archiveName, archiveVersion), null,
+                Constants.DEFAULT_ES_SEARCH_SIZE);
 
         Map<String, IndexedToscaElement> elementsByIds = Maps.newHashMap();
-        if (elements == null) {
-            return elementsByIds;
-        }
-
-        for (IndexedToscaElement element : elements.getData()) {
+        while (elements.hasNext()) {
+            IndexedToscaElement element = elements.next();
             elementsByIds.put(element.getId(), element);
         }
         return elementsByIds;
@@ -70,17 +73,21 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
 
     @Override
     public void deleteElements(String archiveName, String archiveVersion) {
-
-        FilterBuilder filter = FilterBuilders.boolFilter().must(FilterBuilders.termFilter("archiveName", archiveName))
-                .must(FilterBuilders.termFilter("archiveVersion", archiveVersion));
-        GetMultipleDataResult<IndexedToscaElement> result = alienDAO.search(IndexedToscaElement.class, null, null, filter, null, 0, Integer.MAX_VALUE);
-        IndexedToscaElement[] elements = result.getData();
+        Iterator<IndexedToscaElement> elements = alienDAO.scroll(IndexedToscaElement.class, getArchiveQuery(archiveName, archiveVersion), null,
+                Constants.DEFAULT_ES_SEARCH_SIZE);
 
         // we need to delete each element and find the new highest version element
-        for (IndexedToscaElement element : elements) {
-            deleteElement(element);
+        Set<String> imageIds = Sets.newHashSet();
+        while (elements.hasNext()) {
+            deleteElement(elements.next(), imageIds);
         }
+        deleteUnusedImages(imageIds);
+    }
 
+    private static QueryBuilder getArchiveQuery(String archiveName, String archiveVersion) {
+        return QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(),
+                FilterBuilders.boolFilter().must(FilterBuilders.termFilter("archiveName", archiveName))
+                        .must(FilterBuilders.termFilter("archiveVersion", archiveVersion)));
     }
 
     @Override
@@ -89,39 +96,128 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         if (archiveElements == null) {
             return;
         }
-        List<? extends IndexedInheritableToscaElement> orderedElements = IndexedModelUtils.orderByDerivedFromHierarchy(archiveElements);
-        for (IndexedInheritableToscaElement element : orderedElements) {
-            indexInheritableElement(archiveName, archiveVersion, element, dependencies);
-        }
+        indexArchiveElements(archiveName, archiveVersion, archiveElements.values(), dependencies);
     }
 
     @Override
     public void indexInheritableElement(String archiveName, String archiveVersion, IndexedInheritableToscaElement element,
             Collection<CSARDependency> dependencies) {
-        element.setLastUpdateDate(new Date());
-        Date creationDate = element.getCreationDate() == null ? element.getLastUpdateDate() : element.getCreationDate();
-        element.setCreationDate(creationDate);
-        if (element.getDerivedFrom() != null) {
-            Class<? extends IndexedInheritableToscaElement> indexedType = element.getClass();
-            BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
-            // Check dependencies
-            if (dependencies != null) {
-                for (CSARDependency dependency : dependencies) {
-                    addArchiveToQuery(boolQueryBuilder, element.getDerivedFrom().get(0), dependency.getName(), dependency.getVersion());
+        indexArchiveElements(archiveName, archiveVersion, Collections.singletonList(element), dependencies);
+    }
+
+    @Override
+    public void indexArchiveElements(String archiveName, String archiveVersion, Collection<? extends IndexedInheritableToscaElement> archiveElements,
+            Collection<CSARDependency> dependencies) {
+        if (archiveElements == null || archiveElements.isEmpty()) {
+            return;
+        }
+        // an element can only derive from an element of the same type
+        Map<Class<? extends IndexedInheritableToscaElement>, Map<String, IndexedInheritableToscaElement>> elementsByType = Maps.newHashMap();
+        for (IndexedInheritableToscaElement element : archiveElements) {
+            Map<String, IndexedInheritableToscaElement> typeElements = elementsByType.get(element.getClass());
+            if (typeElements == null) {
+                typeElements = Maps.newLinkedHashMap();
+                elementsByType.put(element.getClass(), typeElements);
+            }
+            typeElements.put(element.getElementId(), element);
+        }
+        List<IndexedToscaElement> updatedElements = Lists.newArrayList();
+        for (Map.Entry<Class<? extends IndexedInheritableToscaElement>, Map<String, IndexedInheritableToscaElement>> typeEntry : elementsByType.entrySet()) {
+            prepareElements(archiveName, archiveVersion, typeEntry.getKey(), typeEntry.getValue(), dependencies, updatedElements);
+        }
+        // write all the elements in a single bulk request that fails if any element could not be indexed and refresh only once
+        alienDAO.saveAll(updatedElements.toArray(new IndexedToscaElement[updatedElements.size()]), RefreshPolicy.NEXT_REFRESH);
+        refreshIndexForSearching();
+        // the dao invalidates the cached elements on save, invalidate again once searchable so that no resolution made before the refresh is kept
+        for (IndexedInheritableToscaElement element : archiveElements) {
+            elementCache.invalidate(element.getElementId());
+        }
+    }
+
+    /**
+     * Merge the elements of a given type with their parents and compute their highest version, the elements to save are added to the updated elements.
+     */
+    private void prepareElements(String archiveName, String archiveVersion, Class<? extends IndexedInheritableToscaElement> indexedType,
+            Map<String, IndexedInheritableToscaElement> elements, Collection<CSARDependency> dependencies, List<IndexedToscaElement> updatedElements) {
+        Map<String, IndexedInheritableToscaElement> indexedParents = findIndexedParents(archiveName, archiveVersion, indexedType, elements, dependencies);
+        Map<String, IndexedToscaElement> highestVersionElements = findHighestVersionElements(archiveName, indexedType);
+        Date now = new Date();
+        // parents are processed (and so merged with their own parents) before their children
+        for (IndexedInheritableToscaElement element : IndexedModelUtils.orderByDerivedFromHierarchy(elements)) {
+            element.setLastUpdateDate(now);
+            Date creationDate = element.getCreationDate() == null ? element.getLastUpdateDate() : element.getCreationDate();
+            element.setCreationDate(creationDate);
+            if (element.getDerivedFrom() != null) {
+                String parentId = element.getDerivedFrom().get(0);
+                IndexedInheritableToscaElement superElement = elements.get(parentId);
+                if (superElement == null) {
+                    superElement = indexedParents.get(parentId);
+                }
+                if (superElement == null) {
+                    throw new IndexingServiceException("Indexing service is in an inconsistent state, the super element [" + element.getDerivedFrom()
+                            + "] is not found for element [" + element.getId() + "]");
+                }
+                IndexedModelUtils.mergeInheritableIndex(superElement, element);
+            }
+            updateHighestVersion(element, highestVersionElements.get(element.getElementId()), updatedElements);
+        }
+    }
+
+    /**
+     * Find, in a single request, the parents of the elements that are not part of the elements (so from the dependencies or previously indexed elements of
+     * the archive).
+     */
+    private Map<String, IndexedInheritableToscaElement> findIndexedParents(String archiveName, String archiveVersion,
+            Class<? extends IndexedInheritableToscaElement> indexedType, Map<String, IndexedInheritableToscaElement> elements,
+            Collection<CSARDependency> dependencies) {
+        Set<String> parentIds = Sets.newHashSet();
+        for (IndexedInheritableToscaElement element : elements.values()) {
+            if (element.getDerivedFrom() != null && !elements.containsKey(element.getDerivedFrom().get(0))) {
+                parentIds.add(element.getDerivedFrom().get(0));
+            }
+        }
+        Map<String, IndexedInheritableToscaElement> parents = Maps.newHashMap();
+        if (parentIds.isEmpty()) {
+            return parents;
+        }
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+        // Check dependencies
+        if (dependencies != null) {
+            for (CSARDependency dependency : dependencies) {
+                addArchiveToQuery(boolQueryBuilder, parentIds, dependency.getName(), dependency.getVersion());
+            }
+        }
+        // Check in the archive it-self
+        addArchiveToQuery(boolQueryBuilder, parentIds, archiveName, archiveVersion);
+        List<? extends IndexedInheritableToscaElement> indexedParents = alienDAO.customFindAll(indexedType, boolQueryBuilder);
+        if (indexedParents != null) {
+            for (IndexedInheritableToscaElement parent : indexedParents) {
+                if (!parents.containsKey(parent.getElementId())) {
+                    parents.put(parent.getElementId(), parent);
                 }
             }
-            // Check in the archive it-self
-            addArchiveToQuery(boolQueryBuilder, element.getDerivedFrom().get(0), archiveName, archiveVersion);
-            IndexedInheritableToscaElement superElement = alienDAO.customFind(indexedType, boolQueryBuilder);
-            if (superElement == null) {
-                throw new IndexingServiceException("Indexing service is in an inconsistent state, the super element [" + element.getDerivedFrom()
-                        + "] is not found for element [" + element.getId() + "]");
+        }
+        return parents;
+    }
+
+    /**
+     * Find the highest version elements of an archive (whatever the version of the archive) by element id.
+     */
+    private Map<String, IndexedToscaElement> findHighestVersionElements(String archiveName, Class<? extends IndexedInheritableToscaElement> indexedType) {
+        BoolQueryBuilder highestVersionElementQueryBuilder = QueryBuilders.boolQuery();
+        QueryBuilder archiveNameMatch = QueryBuilders.termQuery("archiveName", archiveName);
+        QueryBuilder beHighestVersion = QueryBuilders.termQuery("highestVersion", true);
+        highestVersionElementQueryBuilder.must(archiveNameMatch).must(beHighestVersion);
+        List<? extends IndexedToscaElement> highestVersionElements = alienDAO.customFindAll(indexedType, highestVersionElementQueryBuilder);
+        Map<String, IndexedToscaElement> highestVersionElementsById = Maps.newHashMap();
+        if (highestVersionElements != null) {
+            for (IndexedToscaElement highestVersionElement : highestVersionElements) {
+                highestVersionElementsById.put(highestVersionElement.getElementId(), highestVersionElement);
             }
-            IndexedModelUtils.mergeInheritableIndex(superElement, element);
         }
-        saveAndUpdateHighestVersion(element);
+        return highestVersionElementsById;
     }
-    
+
     /**
      * Delete this indexed element and ensure that the <code>highestVersion<code> and <code>olderVersions</code> properties
      * are up to date for the remaining ones.
@@ -184,13 +280,7 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         }
     }
 
-    private void saveAndUpdateHighestVersion(IndexedToscaElement element) {
-        BoolQueryBuilder highestVersionElementQueryBuilder = QueryBuilders.boolQuery();
-        QueryBuilder archiveNameMatch = QueryBuilders.termQuery("archiveName", element.getArchiveName());
-        QueryBuilder elementIdMatch = QueryBuilders.matchQuery("elementId", element.getElementId().toLowerCase());
-        QueryBuilder beHighestVersion = QueryBuilders.termQuery("highestVersion", true);
-        highestVersionElementQueryBuilder.must(archiveNameMatch).must(elementIdMatch).must(beHighestVersion);
-        IndexedToscaElement highestVersionElement = alienDAO.customFind(element.getClass(), highestVersionElementQueryBuilder);
+    private void updateHighestVersion(IndexedToscaElement element, IndexedToscaElement highestVersionElement, List<IndexedToscaElement> updatedElements) {
         if (highestVersionElement != null) {
             int compareVersionResult = VersionUtil.compare(element.getArchiveVersion(), highestVersionElement.getArchiveVersion());
             if (compareVersionResult > 0) {
@@ -202,13 +292,13 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
                 newOlderVersions.add(highestVersionElement.getArchiveVersion());
                 element.setOlderVersions(newOlderVersions);
                 highestVersionElement.setOlderVersions(null);
-                alienDAO.save(element);
-                alienDAO.save(highestVersionElement);
+                updatedElements.add(element);
+                updatedElements.add(highestVersionElement);
             } else if (compareVersionResult == 0) {
                 // The same version as the highest --> override
                 element.setHighestVersion(true);
                 element.setOlderVersions(highestVersionElement.getOlderVersions());
-                alienDAO.save(element);
+                updatedElements.add(element);
             } else {
                 // Current version is more recent than mine, just save
                 Set<String> currentOlderVersions = highestVersionElement.getOlderVersions();
@@ -217,35 +307,59 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
                     highestVersionElement.setOlderVersions(currentOlderVersions);
                 }
                 currentOlderVersions.add(element.getArchiveVersion());
-                alienDAO.save(highestVersionElement);
-                alienDAO.save(element);
+                updatedElements.add(highestVersionElement);
+                updatedElements.add(element);
             }
         } else {
             // No element found with other version, I'm the highest version
             element.setHighestVersion(true);
-            alienDAO.save(element);
+            updatedElements.add(element);
         }
-        refreshIndexForSearching();
     }
 
-    private static void addArchiveToQuery(BoolQueryBuilder boolQueryBuilder, String elementId, String archiveName, String archiveVersion) {
-        QueryBuilder matchIdQueryBuilder = QueryBuilders.idsQuery().addIds(elementId + ":" + archiveVersion);
+    private static void addArchiveToQuery(BoolQueryBuilder boolQueryBuilder, Collection<String> elementIds, String archiveName, String archiveVersion) {
+        IdsQueryBuilder matchIdQueryBuilder = QueryBuilders.idsQuery();
+        for (String elementId : elementIds) {
+            matchIdQueryBuilder.addIds(elementId + ":" + archiveVersion);
+        }
         QueryBuilder matchArchiveNameQueryBuilder = QueryBuilders.termQuery("archiveName", archiveName);
         boolQueryBuilder.should(QueryBuilders.boolQuery().must(matchIdQueryBuilder).must(matchArchiveNameQueryBuilder));
     }
 
-    private void deleteElement(IndexedToscaElement element) {
+    private void deleteElement(IndexedToscaElement element, Set<String> imageIds) {
         Tag iconTag = ArchiveImageLoader.getIconTag(element.getTags());
         if (iconTag != null) {
-            imageDAO.delete(iconTag.getValue());
+            imageIds.add(iconTag.getValue());
         }
         deleteAndUpdateHighestVersion(element);
     }
 
     @Override
-    public void deleteElements(Collection<IndexedToscaElement> elements) {
+    public Set<String> deleteElements(Collection<IndexedToscaElement> elements) {
+        Set<String> imageIds = Sets.newHashSet();
         for (IndexedToscaElement element : elements) {
-            deleteElement(element);
+            deleteElement(element, imageIds);
+        }
+        return imageIds;
+    }
+
+    @Override
+    public void deleteUnusedImages(Collection<String> imageIds) {
+        if (imageIds.isEmpty()) {
+            return;
+        }
+        // images are shared by the elements that have the same icon, imports that may reuse them must not run between the count and the delete
+        Lock deletionLock = imageReferencesLock.deletionLock();
+        deletionLock.lock();
+        try {
+            refreshIndexForSearching();
+            for (String imageId : imageIds) {
+                if (alienDAO.count(IndexedToscaElement.class, QueryBuilders.termQuery("tags.value", imageId)) == 0) {
+                    imageDAO.delete(imageId);
+                }
+            }
+        } finally {
+            deletionLock.unlock();
         }
     }
 }
\ No newline at end of file
@@ -12,8 +12,10 @@ import javax.annotation.Resource;
 import lombok.NonNull;
 
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.mapping.MappingBuilder;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.IGenericSearchDAO;
@@ -23,8 +25,10 @@ import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.utils.CollectionUtils;
+import alien4cloud.utils.TypeMap;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -32,6 +36,8 @@ import com.google.common.collect.Sets;
 public class CSARRepositorySearchService implements ICSARRepositorySearchService {
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO searchDAO;
+    @Resource
+    private IndexedToscaElementCache elementCache;
 
     @Override
     public boolean isElementExistInDependencies(@NonNull Class<? extends IndexedToscaElement> elementClass, @NonNull String elementId,
@@ -54,6 +60,17 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
         if (dependencies == null || dependencies.isEmpty()) {
             return null;
         }
+        Optional<T> cached = elementCache.get(elementClass, elementId, dependencies);
+        if (cached != null) {
+            return cached.orNull();
+        }
+        long cacheGeneration = elementCache.getGeneration();
+        T element = findElementInDependencies(elementClass, elementId, dependencies);
+        elementCache.put(elementClass, elementId, dependencies, element, cacheGeneration);
+        return element;
+    }
+
+    private <T extends IndexedToscaElement> T findElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
         // The query match element id of all defined dependencies' version from defined dependencies' archive name
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
         for (CSARDependency dependency : dependencies) {
@@ -76,6 +93,69 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
         }
     }
 
+    @Override
+    public TypeMap getElementsInDependencies(Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds, Collection<CSARDependency> dependencies) {
+        TypeMap elements = new TypeMap();
+        if (dependencies == null || dependencies.isEmpty()) {
+            return elements;
+        }
+        // resolve elements from the cache first and search only the missing ones
+        Map<Class<? extends IndexedToscaElement>, Set<String>> missingElementIds = Maps.newHashMap();
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> entry : elementIds.entrySet()) {
+            for (String elementId : entry.getValue()) {
+                Optional<? extends IndexedToscaElement> cached = elementCache.get(entry.getKey(), elementId, dependencies);
+                if (cached == null) {
+                    if (!missingElementIds.containsKey(entry.getKey())) {
+                        missingElementIds.put(entry.getKey(), Sets.<String> newHashSet());
+                    }
+                    missingElementIds.get(entry.getKey()).add(elementId);
+                } else if (cached.isPresent()) {
+                    elements.put(elementId, cached.get());
+                }
+            }
+        }
+        if (missingElementIds.isEmpty()) {
+            return elements;
+        }
+
+        // A single query matches all element ids of every class in all defined dependencies' version from defined dependencies' archive name
+        long cacheGeneration = elementCache.getGeneration();
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> entry : missingElementIds.entrySet()) {
+            String typeName = MappingBuilder.indexTypeFromClass(entry.getKey());
+            for (CSARDependency dependency : dependencies) {
+                IdsQueryBuilder idQueryBuilder = QueryBuilders.idsQuery(typeName);
+                for (String elementId : entry.getValue()) {
+                    idQueryBuilder.addIds(elementId + ":" + dependency.getVersion());
+                }
+                QueryBuilder matchArchiveNameQueryBuilder = QueryBuilders.termQuery("archiveName", dependency.getName());
+                boolQueryBuilder.should(QueryBuilders.boolQuery().must(idQueryBuilder).must(matchArchiveNameQueryBuilder));
+            }
+        }
+        TypeMap foundElements = new TypeMap();
+        List<IndexedToscaElement> searchResult = searchDAO.customFindAll(IndexedToscaElement.class, boolQueryBuilder);
+        if (searchResult != null) {
+            for (IndexedToscaElement element : searchResult) {
+                // keep the highest version when the element exists in multiple dependencies
+                IndexedToscaElement current = foundElements.get(element.getClass(), element.getElementId());
+                if (current == null
+                        || VersionUtil.parseVersion(current.getArchiveVersion()).compareTo(VersionUtil.parseVersion(element.getArchiveVersion())) < 0) {
+                    foundElements.put(element.getElementId(), element);
+                }
+            }
+        }
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> entry : missingElementIds.entrySet()) {
+            for (String elementId : entry.getValue()) {
+                IndexedToscaElement element = foundElements.get(entry.getKey(), elementId);
+                elementCache.put(entry.getKey(), elementId, dependencies, element, cacheGeneration);
+                if (element != null) {
+                    elements.put(elementId, element);
+                }
+            }
+        }
+        return elements;
+    }
+
     @Override
     public <T extends IndexedToscaElement> T getRequiredElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies)
             throws NotFoundException {
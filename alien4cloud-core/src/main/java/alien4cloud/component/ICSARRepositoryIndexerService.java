@@ -2,6 +2,7 @@ package alien4cloud.component;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedToscaElement;
@@ -39,6 +40,18 @@ public interface ICSARRepositoryIndexerService {
     void indexInheritableElements(String archiveName, String archiveVersion, Map<String, ? extends IndexedInheritableToscaElement> archiveElements,
             Collection<CSARDependency> dependencies);
 
+    /**
+     * Index multiple elements of different types into the repository at once: the parents of the elements are resolved from the elements themselves or
+     * in a single request per type and all elements are saved in a single bulk request.
+     * 
+     * @param archiveName The name of the archive in which the elements lies.
+     * @param archiveVersion The version of the archive in which the elements lies.
+     * @param archiveElements The elements to index.
+     * @param dependencies The archive dependencies (in order to add infos from the parent element to the child...)
+     */
+    void indexArchiveElements(String archiveName, String archiveVersion, Collection<? extends IndexedInheritableToscaElement> archiveElements,
+            Collection<CSARDependency> dependencies);
+
     /**
      * Index a single element into the repository.
      * 
@@ -50,9 +63,19 @@ public interface ICSARRepositoryIndexerService {
     void indexInheritableElement(String archiveName, String archiveVersion, IndexedInheritableToscaElement element, Collection<CSARDependency> dependencies);
 
     /**
-     * Delete the given elements from the repository.
+     * Delete the given elements from the repository. The images of the elements are not deleted as they may be used by the elements that replace them, see
+     * {@link #deleteUnusedImages(Collection)}.
      * 
      * @param elements the elements to delete.
+     * @return The ids of the images of the deleted elements.
+     */
+    Set<String> deleteElements(Collection<IndexedToscaElement> elements);
+
+    /**
+     * Delete the images that are not used anymore by any element of the repository. Waits for the running imports of archives as they may reference the
+     * images, see {@link alien4cloud.images.ImageReferencesLock}.
+     * 
+     * @param imageIds The ids of the images to delete if unused.
      */
-    void deleteElements(Collection<IndexedToscaElement> elements);
+    void deleteUnusedImages(Collection<String> imageIds);
 }
\ No newline at end of file
@@ -2,11 +2,13 @@ package alien4cloud.component;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.utils.TypeMap;
 
 /**
  * Service interface to search elements in CSARs.
@@ -33,6 +35,15 @@ public interface ICSARRepositorySearchService {
      */
     <T extends IndexedToscaElement> T getElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies);
 
+    /**
+     * Get multiple elements from defined dependencies in a single request rather than one request per element.
+     *
+     * @param elementIds The TOSCA element ids (without archive version) of the elements to get by concrete element class.
+     * @param dependencies A list of CSAR in which the elements may be defined.
+     * @return A type map of the found elements by element id, elements that are not found are not in the map.
+     */
+    TypeMap getElementsInDependencies(Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds, Collection<CSARDependency> dependencies);
+
     /**
      * Get an element from defined dependencies.
      *
@@ -0,0 +1,238 @@
+package alien4cloud.component;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.IDAOWriteListener;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedToscaElement;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Bounded cache for the resolution of tosca elements in a set of dependencies (see {@link ICSARRepositorySearchService#getElementInDependencies}).
+ *
+ * Entries are keyed by the element class, the element id and the exact set of dependencies (name and version) so that different archive versions never
+ * share an entry. Resolved elements are stored serialized and a new instance is returned on every hit as callers are allowed to modify the returned
+ * elements. Unresolved elements are cached too.
+ *
+ * The resolutions of an element are grouped by element id so that all of them are invalidated at once whenever the element is saved or deleted through
+ * the dao (the cache listens to the writes of the dao), the size of the cache is the number of element ids. Entries also expire after a configurable
+ * time to bound the staleness of the elements written by other alien nodes or directly in elastic search.
+ */
+@Slf4j
+@Component
+public class IndexedToscaElementCache implements IDAOWriteListener {
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO searchDAO;
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    @Value("${components.cache.max_size:2000}")
+    private long maxSize;
+    @Value("${components.cache.ttl_seconds:600}")
+    private long ttlSeconds;
+
+    /** Resolutions of the elements by element id. */
+    private Cache<String, ConcurrentMap<CacheKey, CachedElement>> cache;
+    /** Incremented on every invalidation so that a resolution started before an invalidation is not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats().build();
+        searchDAO.addWriteListener(this);
+        metricRegistry.register(name(IndexedToscaElementCache.class, "size"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.size();
+            }
+        });
+        metricRegistry.register(name(IndexedToscaElementCache.class, "hits"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().hitCount();
+            }
+        });
+        metricRegistry.register(name(IndexedToscaElementCache.class, "misses"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().missCount();
+            }
+        });
+        metricRegistry.register(name(IndexedToscaElementCache.class, "evictions"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().evictionCount();
+            }
+        });
+    }
+
+    /**
+     * Get the generation of the cache, to be read before resolving an element that will be put in the cache.
+     *
+     * @return The current generation of the cache.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Get a cached resolution.
+     *
+     * @param elementClass The class of the element to resolve.
+     * @param elementId The id of the element to resolve.
+     * @param dependencies The dependencies in which to resolve the element.
+     * @return null if the resolution is not cached, an absent optional if the element is known not to exist in the dependencies, a copy of the cached
+     *         element otherwise.
+     */
+    public <T extends IndexedToscaElement> Optional<T> get(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+        ConcurrentMap<CacheKey, CachedElement> resolutions = cache.getIfPresent(elementId);
+        CachedElement cached = resolutions == null ? null : resolutions.get(new CacheKey(elementClass, dependencies));
+        if (cached == null) {
+            return null;
+        }
+        if (cached.json == null) {
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(elementClass.cast(searchDAO.getJsonMapper().readValue(cached.json, cached.type)));
+        } catch (IOException e) {
+            log.warn("Unable to read cached element <" + elementId + ">, element will be resolved from the index.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Cache the resolution of an element.
+     *
+     * @param elementClass The class of the resolved element.
+     * @param elementId The id of the resolved element.
+     * @param dependencies The dependencies in which the element has been resolved.
+     * @param element The resolved element, null if the element doesn't exist in the dependencies.
+     * @param generation The generation of the cache read before the element has been resolved, the resolution is not cached if the cache has been
+     *            invalidated in the meantime.
+     */
+    public void put(Class<? extends IndexedToscaElement> elementClass, String elementId, Collection<CSARDependency> dependencies, IndexedToscaElement element,
+            long generation) {
+        CachedElement value;
+        try {
+            value = element == null ? new CachedElement(null, null) : new CachedElement(element.getClass(), searchDAO.getJsonMapper().writeValueAsString(
+                    element));
+        } catch (IOException e) {
+            log.warn("Unable to cache element <" + elementId + ">.", e);
+            return;
+        }
+        if (this.generation.get() != generation) {
+            return;
+        }
+        CacheKey key = new CacheKey(elementClass, dependencies);
+        ConcurrentMap<CacheKey, CachedElement> resolutions;
+        try {
+            resolutions = cache.get(elementId, new Callable<ConcurrentMap<CacheKey, CachedElement>>() {
+                @Override
+                public ConcurrentMap<CacheKey, CachedElement> call() {
+                    return Maps.newConcurrentMap();
+                }
+            });
+        } catch (ExecutionException e) {
+            // not thrown by the loader
+            return;
+        }
+        resolutions.put(key, value);
+        if (this.generation.get() != generation) {
+            // invalidated while being cached
+            resolutions.remove(key);
+        }
+    }
+
+    /**
+     * Invalidate all the cached resolutions of an element, whatever the dependencies.
+     *
+     * @param elementId The id of the element that has been indexed, updated or deleted.
+     */
+    public void invalidate(String elementId) {
+        generation.incrementAndGet();
+        cache.invalidate(elementId);
+    }
+
+    /**
+     * Invalidate all the cached resolutions.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void saved(Object data) {
+        if (data instanceof IndexedToscaElement) {
+            invalidate(((IndexedToscaElement) data).getElementId());
+        }
+    }
+
+    @Override
+    public void deleted(Class<?> clazz, String id) {
+        if (IndexedToscaElement.class.isAssignableFrom(clazz)) {
+            // ids of the elements are <element id>:<archive version>
+            int versionSeparator = id.lastIndexOf(':');
+            invalidate(versionSeparator < 0 ? id : id.substring(0, versionSeparator));
+        }
+    }
+
+    @Override
+    public void deletedByQuery(Class<?> clazz) {
+        if (clazz.isAssignableFrom(IndexedToscaElement.class) || IndexedToscaElement.class.isAssignableFrom(clazz)) {
+            invalidateAll();
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class CachedElement {
+        /** Concrete type of the element as the requested class may be a super class. */
+        private final Class<?> type;
+        /** Serialized element, null if the element doesn't exist in the dependencies. */
+        private final String json;
+    }
+
+    @EqualsAndHashCode
+    private static final class CacheKey {
+        private final String elementClass;
+        private final Set<String> dependencies;
+
+        private CacheKey(Class<?> elementClass, Collection<CSARDependency> dependencies) {
+            this.elementClass = elementClass.getName();
+            // copy the dependencies as strings as CSARDependency is mutable
+            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+            for (CSARDependency dependency : dependencies) {
+                builder.add(dependency.getName() + ":" + dependency.getVersion());
+            }
+            this.dependencies = builder.build();
+        }
+    }
+}
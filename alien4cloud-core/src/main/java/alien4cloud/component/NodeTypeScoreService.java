@@ -1,6 +1,7 @@
 package alien4cloud.component;
 
 import java.util.Date;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.annotation.PostConstruct;
@@ -14,7 +15,6 @@ import org.springframework.stereotype.Component;
 
 import alien4cloud.Constants;
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.dao.model.GetMultipleDataResult;
 import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.utils.MapUtil;
@@ -54,30 +54,24 @@ public class NodeTypeScoreService implements Runnable {
     public void run() {
         log.info("Updating node type scores.");
         // Go over all indexed node types.
-        GetMultipleDataResult<IndexedNodeType> getMultipleDataResult = alienESDAO.find(IndexedNodeType.class, null, 0, Constants.DEFAULT_ES_SEARCH_SIZE);
-        int from = getMultipleDataResult.getTo() + 1;
-        processNodeTypes(getMultipleDataResult.getData());
-        while (getMultipleDataResult.getData().length > 0 && from < getMultipleDataResult.getTotalResults()) {
-            getMultipleDataResult = alienESDAO.find(IndexedNodeType.class, null, from, from + Constants.DEFAULT_ES_SEARCH_SIZE);
-            from = getMultipleDataResult.getTo() + 1;
-            processNodeTypes(getMultipleDataResult.getData());
+        Iterator<IndexedNodeType> nodeTypes = alienESDAO.scroll(IndexedNodeType.class, null, null, Constants.DEFAULT_ES_SEARCH_SIZE);
+        while (nodeTypes.hasNext()) {
+            processNodeType(nodeTypes.next());
         }
     }
 
-    private void processNodeTypes(IndexedNodeType[] indexedNodeTypes) {
-        for (IndexedNodeType nodeType : indexedNodeTypes) {
-            Map<String, String[]> usedNodeFiler = Maps.newHashMap();
-            usedNodeFiler.put("nodeTemplates.value.type", new String[] { nodeType.getElementId() });
-            // count the applications that uses the node-type
-            long usageFactor = usageBoost * alienESDAO.count(Topology.class, null, usedNodeFiler);
-            // get the version factor (latest version of a node is better than previous version, snapshot versions do not get boost)
-            long versionFactor = isLatestVersion(nodeType) ? versionBoost : 0;
-            // default boost (boost node types that have a default capability)
-            long defaultFactor = nodeType.getDefaultCapabilities() == null || nodeType.getDefaultCapabilities().isEmpty() ? 0 : defaultBoost;
-            // update the score for the node type.
-            nodeType.setAlienScore(usageFactor + defaultFactor + versionFactor);
-            alienESDAO.save(nodeType);
-        }
+    private void processNodeType(IndexedNodeType nodeType) {
+        Map<String, String[]> usedNodeFiler = Maps.newHashMap();
+        usedNodeFiler.put("nodeTemplates.value.type", new String[] { nodeType.getElementId() });
+        // count the applications that uses the node-type
+        long usageFactor = usageBoost * alienESDAO.count(Topology.class, null, usedNodeFiler);
+        // get the version factor (latest version of a node is better than previous version, snapshot versions do not get boost)
+        long versionFactor = isLatestVersion(nodeType) ? versionBoost : 0;
+        // default boost (boost node types that have a default capability)
+        long defaultFactor = nodeType.getDefaultCapabilities() == null || nodeType.getDefaultCapabilities().isEmpty() ? 0 : defaultBoost;
+        // update the score for the node type.
+        nodeType.setAlienScore(usageFactor + defaultFactor + versionFactor);
+        alienESDAO.save(nodeType);
     }
 
     private boolean isLatestVersion(IndexedNodeType nodeType) {
@@ -7,11 +7,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,12 +36,10 @@ import alien4cloud.exception.GitNoModificationDetected;
 import alien4cloud.exception.GitNotAuthorizedException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.git.RepositoryManager;
-import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
-import alien4cloud.security.model.CsarDependenciesBean;
 import alien4cloud.security.model.CsarGitCheckoutLocation;
 import alien4cloud.security.model.CsarGitRepository;
-import alien4cloud.tosca.ArchiveUploadService;
+import alien4cloud.tosca.BulkArchiveUploadService;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.utils.FileUtil;
@@ -54,7 +49,7 @@ import alien4cloud.utils.ReflectionUtil;
 @Slf4j
 public class CsarGitService {
     @Resource
-    ArchiveUploadService uploadService;
+    BulkArchiveUploadService bulkUploadService;
 
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
@@ -296,40 +291,12 @@ public class CsarGitService {
     @SuppressWarnings("unchecked")
     public ParsingResult<Csar>[] triggerImportFromTmpFolder(String pathToReach, List<Path> csarsToImport, boolean isStoredLocally)
             throws CSARVersionAlreadyExistsException, ParsingException, IOException, GitAPIException {
-        List<ParsingResult<Csar>> parsingResult = new ArrayList<ParsingResult<Csar>>();
-        ParsingResult<Csar> result = null;
-        List<CsarDependenciesBean> csarDependenciesBeanList = uploadService.preParsing(csarsToImport);
-        for (CsarDependenciesBean dep : csarDependenciesBeanList) {
-            if (dep.getDependencies() == null || dep.getDependencies().isEmpty()) {
-                result = uploadService.upload(dep.getPath());
-                parsingResult.add(result);
-                removeTmpGitFolder(pathToReach, isStoredLocally);
-                return parsingResult.toArray(new ParsingResult[parsingResult.size()]);
-            }
-        }
-        this.updateDependenciesList(csarDependenciesBeanList);
-        parsingResult = this.handleImportLogic(csarDependenciesBeanList, parsingResult);
+        // archives are uploaded concurrently once the archives they depend on have been uploaded
+        List<ParsingResult<Csar>> parsingResult = bulkUploadService.upload(csarsToImport);
         this.removeTmpGitFolder(pathToReach, isStoredLocally);
         return parsingResult.toArray(new ParsingResult[parsingResult.size()]);
     }
 
-    /**
-     * Update the CsarDependenciesBean list based on the CSARDependency found (i.e : deleted or imported
-     * 
-     * @param list List containing the CsarDependenciesBean
-     */
-    private void updateDependenciesList(List<CsarDependenciesBean> csarDependenciesBeanList) {
-        for (CsarDependenciesBean csarContainer : csarDependenciesBeanList) {
-            Iterator<?> it = csarContainer.getDependencies().iterator();
-            while (it.hasNext()) {
-                CSARDependency dependencie = (CSARDependency) it.next();
-                if (lookupForDependencie(dependencie, csarDependenciesBeanList) == null) {
-                    it.remove();
-                }
-            }
-        }
-    }
-
     /**
      * Remove the Git clone folder where the CSAR are stored
      * 
@@ -351,91 +318,6 @@ public class CsarGitService {
         }
     }
 
-    /**
-     * Process to a lookup in the CsarDependenciesBean list to check if a CSARDependency is in the list
-     * 
-     * @param dependencie
-     * @param list
-     * @return the csarBean matching the dependency
-     */
-    private CsarDependenciesBean lookupForDependencie(CSARDependency dependencie, List<CsarDependenciesBean> csarDependenciesBeanList) {
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            if ((dependencie.getName() + ":" + dependencie.getVersion()).equals(csarBean.getName() + ":" + csarBean.getVersion())) {
-                return csarBean;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Method to import a repository based on its inter-dependencies
-     * 
-     * @param csarDependenciesBeanList List of the CsarGitRepository to import
-     * @param parsingResult Result of the pre-process parsing
-     * @return The result of the final import
-     * @throws CSARVersionAlreadyExistsException
-     * @throws ParsingException
-     */
-    private List<ParsingResult<Csar>> handleImportLogic(List<CsarDependenciesBean> csarDependenciesBeanList, List<ParsingResult<Csar>> parsingResult)
-            throws CSARVersionAlreadyExistsException, ParsingException {
-        ParsingResult<Csar> result = null;
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            if (csarBean.getDependencies().isEmpty()) {
-                result = uploadService.upload(csarBean.getPath());
-                removeExistingDependencies(csarBean, csarDependenciesBeanList);
-                parsingResult.add(result);
-            } else {
-                Iterator<?> it = csarBean.getDependencies().iterator();
-                while (it.hasNext()) {
-                    CSARDependency dep = (CSARDependency) it.next();
-                    CsarDependenciesBean bean = lookupForDependencie(dep, csarDependenciesBeanList);
-                    this.analyseCsarBean(result, bean, parsingResult, csarDependenciesBeanList);
-                }
-            }
-        }
-        return parsingResult;
-    }
-    
-/**
- * Analyse a CsarDependenciesBean to check if it is ready to import
- * @param result Result of the pre-parsing process
- * @param bean Bean containing the CsarGitRepository informations
- * @param parsingResult Global result of the pre-parsing result
- * @param csarDependenciesBeanList
- * @throws CSARVersionAlreadyExistsException
- * @throws ParsingException
- */
-    private void analyseCsarBean(ParsingResult<Csar> result, CsarDependenciesBean bean, List<ParsingResult<Csar>> parsingResult,
-            List<CsarDependenciesBean> csarDependenciesBeanList) throws CSARVersionAlreadyExistsException, ParsingException {
-        if (bean != null) {
-            result = uploadService.upload(bean.getPath());
-            parsingResult.add(result);
-            removeExistingDependencies(bean, csarDependenciesBeanList);
-        }
-    }
-
-    /**
-     * Remove all the occurences of the dependencie when uploaded
-     * 
-     * @param bean Bean representing the Csar to import with detailed data
-     * @param csarDependenciesBeanList The list containing the other CsarDependenciesBean
-     */
-    private void removeExistingDependencies(CsarDependenciesBean bean, List<CsarDependenciesBean> csarDependenciesBeanList) {
-        Set<?> tmpSet;
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            // To avoid concurrentmodificationexception we clone the set before fetching
-            tmpSet = new HashSet(csarBean.getDependencies());
-            Iterator<?> it = tmpSet.iterator();
-            while (it.hasNext()) {
-                CSARDependency dep = (CSARDependency) it.next();
-                if ((dep.getName() + ":" + dep.getVersion()).equals(bean.getName() + ":" + bean.getVersion())) {
-                    it.remove();
-                }
-            }
-            csarBean.setDependencies(tmpSet);
-        }
-    }
-
     /**
      * Method to update a CsarGitRepository based on its unique id
      * 
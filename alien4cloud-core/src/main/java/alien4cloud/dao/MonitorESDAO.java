@@ -2,10 +2,35 @@ package alien4cloud.dao;
 
 import java.beans.IntrospectionException;
 import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.hppc.cursors.ObjectCursor;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.mapping.MappingBuilder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.exception.IndexingServiceException;
@@ -15,17 +40,51 @@ import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
 import alien4cloud.paas.model.PaaSInstanceStateMonitorEvent;
 import alien4cloud.paas.model.PaaSInstanceStorageMonitorEvent;
 import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+import alien4cloud.paas.model.PaaSMonitorWatermark;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Elastic Search DAO for Monitor events in Alien application.
  *
+ * Events are stored in daily indices (based on the date of the event) that are all part of the {@link #EVENTS_ALIAS} alias. The retention of the events
+ * is enforced by dropping the indices of the days older than the events lifetime rather than by expiring every event.
+ *
+ * The known daily indices are only synchronized with the alias every hour while the indices of the oldest days may be dropped by another alien instance
+ * at any time. The indices of these days are created again if needed before every write so that an event is never written to an index created by
+ * elasticsearch without the alias and the mappings (the auto creation of the daily indices should also be disabled in the elasticsearch configuration).
+ *
  * @author luc boutier
  */
+@Slf4j
 @Component("alien-monitor-es-dao")
 public class MonitorESDAO extends ESGenericSearchDAO {
+    /** Alias of all the indices that contains monitor events. */
+    public static final String EVENTS_ALIAS = "monitorevents";
+    /** Index in which the events were stored before being partitioned by day, its events still expire through their ttl. */
+    private static final String LEGACY_EVENTS_INDEX = "deploymentmonitorevents";
+    private static final String EVENTS_INDEX_PREFIX = "deploymentmonitorevents-";
+    private static final String EVENTS_INDEX_DATE_FORMAT = "yyyy.MM.dd";
+    private static final long DAY_MS = 1000L * 60 * 60 * 24;
+    /** Every hours. */
+    private static final long RETENTION_CHECK_MS = 1000L * 60 * 60;
+    private static final Class<?>[] EVENT_CLASSES = new Class<?>[] { AbstractMonitorEvent.class, PaaSDeploymentStatusMonitorEvent.class,
+            PaaSInstanceStateMonitorEvent.class, PaaSMessageMonitorEvent.class, PaaSInstanceStorageMonitorEvent.class };
 
     @Value("${paas_monitor.events_lifetime}")
     private String eventMonitoringTtl;
+    @Value("${paas_monitor.events_refresh_policy:ASYNC}")
+    private RefreshPolicy eventRefreshPolicy;
+    @Resource(name = "alien-bulk-indexer")
+    private ESBulkIndexer bulkIndexer;
+    @Resource(name = "paas-monitor-scheduler")
+    private TaskScheduler scheduler;
+
+    private long eventsLifetimeMs;
+    private boolean legacyEventsIndex;
+    /** Daily indices of the events by day (number of days since epoch). */
+    private final ConcurrentNavigableMap<Long, String> eventIndices = new ConcurrentSkipListMap<Long, String>();
 
     /**
      * Initialize the dao after being loaded by spring (Create the indexes).
@@ -41,10 +100,157 @@ public class MonitorESDAO extends ESGenericSearchDAO {
         // init indices and mapped classes
         setJsonMapper(new ElasticSearchMapper());
 
-        Class<?>[] classes = new Class<?>[] { AbstractMonitorEvent.class, PaaSDeploymentStatusMonitorEvent.class, PaaSInstanceStateMonitorEvent.class,
-                PaaSMessageMonitorEvent.class, PaaSInstanceStorageMonitorEvent.class };
         initIndices("deployedtopologies", null, Topology.class);
-        initIndices("deploymentmonitorevents", eventMonitoringTtl, classes);
+        initIndices("monitorwatermarks", null, PaaSMonitorWatermark.class);
+        initEventIndices();
+        // runtime topologies and watermarks are only accessed by id (real-time) and events are append-only, so none of them requires a refresh on write.
+        setRefreshPolicy(RefreshPolicy.NEXT_REFRESH, Topology.class, PaaSMonitorWatermark.class);
+        setRefreshPolicy(eventRefreshPolicy, EVENT_CLASSES);
+        setBulkIndexer(bulkIndexer);
         initCompleted();
+
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                dropExpiredEventIndices();
+            }
+        }, RETENTION_CHECK_MS);
+    }
+
+    private void initEventIndices() {
+        eventsLifetimeMs = TimeValue.parseTimeValue(eventMonitoringTtl, null).millis();
+        // searches (and deletes) on the events are performed on the alias, saves are routed to the daily index of the event.
+        addToMappedClasses(EVENTS_ALIAS, EVENT_CLASSES);
+        legacyEventsIndex = indexExist(LEGACY_EVENTS_INDEX);
+        if (legacyEventsIndex) {
+            log.info("Adding legacy monitor events index <{}> to alias <{}>", LEGACY_EVENTS_INDEX, EVENTS_ALIAS);
+            getClient().admin().indices().prepareAliases().addAlias(LEGACY_EVENTS_INDEX, EVENTS_ALIAS).execute().actionGet();
+        }
+        loadEventIndices();
+        // make sure that the alias exists
+        getEventIndex(System.currentTimeMillis());
+    }
+
+    @Override
+    protected String getIndexForWrite(Object data) {
+        if (data instanceof AbstractMonitorEvent) {
+            return getEventIndex(((AbstractMonitorEvent) data).getDate());
+        }
+        return super.getIndexForWrite(data);
+    }
+
+    /**
+     * Get the daily index in which to store an event, the index is created if it doesn't exist yet.
+     *
+     * @param date The date of the event, if 0 the current date is used.
+     * @return The name of the index in which to store the event.
+     */
+    public String getEventIndex(long date) {
+        long now = System.currentTimeMillis();
+        long day = (date > 0 ? date : now) / DAY_MS;
+        if (day <= (now - eventsLifetimeMs) / DAY_MS) {
+            // the index of the day may have been dropped by another instance since the indices have been loaded
+            return createEventIndex(day, true);
+        }
+        String indexName = eventIndices.get(day);
+        if (indexName == null) {
+            indexName = createEventIndex(day, false);
+        }
+        return indexName;
+    }
+
+    /**
+     * Get the indices that may contain the events that occurred in a given period.
+     *
+     * @param fromDate The start date of the period.
+     * @param toDate The end date of the period.
+     * @return The indices that may contain the events of the period, from the most recent to the oldest.
+     */
+    public String[] getEventIndices(long fromDate, long toDate) {
+        List<String> indices = Lists.newArrayList(eventIndices.subMap(fromDate / DAY_MS, true, toDate / DAY_MS, true).descendingMap().values());
+        if (legacyEventsIndex) {
+            indices.add(LEGACY_EVENTS_INDEX);
+        }
+        return indices.toArray(new String[indices.size()]);
+    }
+
+    /**
+     * Create the daily index of a day.
+     *
+     * @param day The day (number of days since epoch).
+     * @param force True to create the index even if it is known, the creation is ignored if the index exists.
+     * @return The name of the index.
+     */
+    @SneakyThrows({ IOException.class })
+    private synchronized String createEventIndex(long day, boolean force) {
+        String indexName = eventIndices.get(day);
+        if (indexName != null && !force) {
+            return indexName;
+        }
+        indexName = EVENTS_INDEX_PREFIX + getDateFormat().format(new Date(day * DAY_MS));
+        CreateIndexRequestBuilder createIndexRequestBuilder = getClient().admin().indices().prepareCreate(indexName).addAlias(new Alias(EVENTS_ALIAS));
+        for (Class<?> clazz : EVENT_CLASSES) {
+            createIndexRequestBuilder.addMapping(MappingBuilder.indexTypeFromClass(clazz), getMappingBuilder().getMapping(clazz));
+        }
+        try {
+            if (!createIndexRequestBuilder.execute().actionGet().isAcknowledged()) {
+                throw new IndexingServiceException("Failed to create index <" + indexName + ">");
+            }
+            log.info("Created monitor events index <{}>", indexName);
+        } catch (IndexAlreadyExistsException e) {
+            log.debug("Monitor events index <{}> has already been created.", indexName);
+        }
+        eventIndices.put(day, indexName);
+        return indexName;
+    }
+
+    /** Synchronize the daily indices with the ones of the alias (indices may have been created or dropped by another alien instance). */
+    private void loadEventIndices() {
+        ImmutableOpenMap<String, List<AliasMetaData>> aliases = getClient().admin().indices().prepareGetAliases(EVENTS_ALIAS).execute().actionGet()
+                .getAliases();
+        Set<String> indices = Sets.newHashSet();
+        DateFormat dateFormat = getDateFormat();
+        for (ObjectCursor<String> index : aliases.keys()) {
+            if (!index.value.startsWith(EVENTS_INDEX_PREFIX)) {
+                continue;
+            }
+            try {
+                eventIndices.put(dateFormat.parse(index.value.substring(EVENTS_INDEX_PREFIX.length())).getTime() / DAY_MS, index.value);
+                indices.add(index.value);
+            } catch (ParseException e) {
+                log.warn("Ignoring index <{}> of alias <{}> that is not a daily monitor events index.", index.value, EVENTS_ALIAS);
+            }
+        }
+        eventIndices.values().retainAll(indices);
+    }
+
+    /**
+     * Drop the daily indices that only contain events older than the events lifetime.
+     */
+    public synchronized void dropExpiredEventIndices() {
+        try {
+            loadEventIndices();
+            Map<Long, String> expiredIndices = eventIndices.headMap((System.currentTimeMillis() - eventsLifetimeMs) / DAY_MS);
+            if (expiredIndices.isEmpty()) {
+                return;
+            }
+            String[] indices = expiredIndices.values().toArray(new String[expiredIndices.size()]);
+            log.info("Dropping expired monitor events indices {}", Arrays.toString(indices));
+            try {
+                getClient().admin().indices().prepareDelete(indices).execute().actionGet();
+            } catch (IndexMissingException e) {
+                log.debug("Monitor events indices have already been dropped.", e);
+            }
+            expiredIndices.clear();
+        } catch (RuntimeException e) {
+            // keep the periodic task alive
+            log.error("Failed to drop expired monitor events indices.", e);
+        }
+    }
+
+    private static DateFormat getDateFormat() {
+        DateFormat dateFormat = new SimpleDateFormat(EVENTS_INDEX_DATE_FORMAT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
     }
-}
\ No newline at end of file
+}
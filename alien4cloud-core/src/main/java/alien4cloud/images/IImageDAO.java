@@ -16,6 +16,14 @@ public interface IImageDAO {
      */
     String writeImage(byte[] imageBytes);
 
+    /**
+     * Save an image identified by the hash of its content, the image is not saved again if an image with the same content already exists.
+     * 
+     * @param imageBytes The content of the image.
+     * @return The id of the image.
+     */
+    String writeImageIfAbsent(byte[] imageBytes);
+
     /**
      * Save an image in the DAO layer.
      * 
@@ -24,7 +32,7 @@ public interface IImageDAO {
     void writeImage(ImageData imageData);
 
     /**
-     * Get an image as a byte array based on the image id.
+     * Get an image as a byte array based on the image id, the requested quality is generated from the original image if it doesn't exist yet.
      * 
      * @param id The id of the image to read.
      * @param imageQuality The level of quality of the image to get.
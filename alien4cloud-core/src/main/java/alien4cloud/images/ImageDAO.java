@@ -12,20 +12,28 @@ import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.imageio.ImageIO;
 
+import lombok.extern.slf4j.Slf4j;
+
 import org.elasticsearch.mapping.MappingBuilder;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.ESGenericIdDAO;
+import alien4cloud.dao.RefreshPolicy;
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.images.exception.ImageUploadException;
 import alien4cloud.utils.ImageQuality;
 import alien4cloud.utils.ImageResizeUtil;
 
+import com.google.common.hash.Hashing;
+
 /**
  * A dao to store/load images.
  * 
+ * Images are stored as png in their original size, the other {@link ImageQuality qualities} are generated and stored when first read.
+ * 
  * @author luc boutier
  */
+@Slf4j
 @Component("image-dao")
 public class ImageDAO extends ESGenericIdDAO implements IImageDAO {
 
@@ -55,33 +63,37 @@ public class ImageDAO extends ESGenericIdDAO implements IImageDAO {
         return iconId;
     }
 
+    @Override
+    public String writeImageIfAbsent(byte[] imageBytes) {
+        String imageId = Hashing.sha256().hashBytes(imageBytes).toString();
+        if (getClient().prepareGet(getIndexForType(ImageData.class), MappingBuilder.indexTypeFromClass(ImageData.class), imageId).setFetchSource(false)
+                .execute().actionGet().isExists()) {
+            // the same image has already been stored
+            return imageId;
+        }
+        ImageData imageData = new ImageData();
+        imageData.setData(imageBytes);
+        imageData.setId(imageId);
+        writeImage(imageData);
+        return imageId;
+    }
+
     @Override
     public void writeImage(final ImageData imageData) {
-        // resize the image to store the different available qualities.
+        // only the original image is stored, the other qualities are generated when first read.
         InputStream is = new ByteArrayInputStream(imageData.getData());
         try {
             BufferedImage original = ImageIO.read(is);
             if (original == null) {
                 throw new ImageUploadException("The image is not valid and cannot be read");
             }
-            resizeAndWrite(getImageId(ImageQuality.QUALITY_16, imageData.getId()), original, ImageQuality.QUALITY_16.getSize());
-            resizeAndWrite(getImageId(ImageQuality.QUALITY_32, imageData.getId()), original, ImageQuality.QUALITY_32.getSize());
-            resizeAndWrite(getImageId(ImageQuality.QUALITY_64, imageData.getId()), original, ImageQuality.QUALITY_64.getSize());
-            resizeAndWrite(getImageId(ImageQuality.QUALITY_128, imageData.getId()), original, ImageQuality.QUALITY_128.getSize());
-            // resizeAndWrite(getImageId(ImageQuality.QUALITY_512, imageData.getId()), original, ImageQuality.QUALITY_512.getSize());
-
             saveAsPng(imageData.getId(), original);
         } catch (IOException e) {
             throw new ImageUploadException("Unable to write uploaded image to data source", e);
         }
     }
 
-    private void resizeAndWrite(final String imageId, final BufferedImage original, final int size) throws IOException {
-        BufferedImage target = ImageResizeUtil.resizeImageWithHint(original, size, size, true);
-        saveAsPng(imageId, target);
-    }
-
-    private void saveAsPng(String imageId, BufferedImage target) throws IOException {
+    private ImageData saveAsPng(String imageId, BufferedImage target) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(target, "png", baos);
         baos.flush();
@@ -91,17 +103,45 @@ public class ImageDAO extends ESGenericIdDAO implements IImageDAO {
         imageData.setMime("image/png");
         baos.close();
 
-        this.save(imageData);
+        // images are only read by id (real-time) so we don't need to wait for a refresh.
+        this.save(imageData, RefreshPolicy.NEXT_REFRESH);
+        return imageData;
     }
 
     @Override
     public ImageData readImage(final String id, ImageQuality imageQuality) {
-        return findById(ImageData.class, getImageId(imageQuality, id));
+        ImageData imageData = findById(ImageData.class, getImageId(imageQuality, id));
+        if (imageData != null || imageQuality.getSize() <= 0) {
+            return imageData;
+        }
+        // generate the quality from the original image on first read
+        ImageData originalData = findById(ImageData.class, id);
+        if (originalData == null) {
+            return null;
+        }
+        try {
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(originalData.getData()));
+            if (original == null) {
+                log.warn("Image <{}> is not valid and cannot be resized.", id);
+                return originalData;
+            }
+            BufferedImage target = ImageResizeUtil.resizeImageWithHint(original, imageQuality.getSize(), imageQuality.getSize(), true);
+            return saveAsPng(getImageId(imageQuality, id), target);
+        } catch (IOException e) {
+            log.warn("Unable to resize image <" + id + ">.", e);
+            return originalData;
+        }
     }
 
     @Override
     public void delete(String id) {
         delete(ImageData.class, id);
+        for (ImageQuality imageQuality : ImageQuality.values()) {
+            if (imageQuality.getSize() > 0) {
+                // delete the qualities that have been generated
+                delete(ImageData.class, getImageId(imageQuality, id));
+            }
+        }
     }
 
     private String getImageId(final ImageQuality imageQuality, final String id) {
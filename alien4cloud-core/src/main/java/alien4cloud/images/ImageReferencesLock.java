@@ -0,0 +1,33 @@
+package alien4cloud.images;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Serialize the deletion of unused images with the imports of archives.
+ *
+ * Images are identified by their content and shared by all the elements that have the same icon, an import may reuse an existing image that no indexed
+ * element references until the import is completed. Imports hold the import lock from the write of their images until their elements are indexed while the
+ * deletion of unused images holds the (exclusive) deletion lock.
+ */
+@Component
+public class ImageReferencesLock {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @return The lock to hold from the write of the images of an archive until the elements that reference them are indexed.
+     */
+    public Lock importLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * @return The lock to hold while looking for and deleting unused images.
+     */
+    public Lock deletionLock() {
+        return lock.writeLock();
+    }
+}
@@ -1,5 +1,6 @@
 package alien4cloud.model.topology;
 
+import java.util.Date;
 import java.util.Map;
 import java.util.Set;
 
@@ -8,10 +9,12 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import org.elasticsearch.annotation.DateField;
 import org.elasticsearch.annotation.ESObject;
 import org.elasticsearch.annotation.Id;
 import org.elasticsearch.annotation.NestedObject;
 import org.elasticsearch.annotation.query.TermFilter;
+import org.elasticsearch.mapping.IndexType;
 
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.DeploymentArtifact;
@@ -23,6 +26,7 @@ import alien4cloud.utils.jackson.ConditionalOnAttribute;
 import alien4cloud.utils.jackson.JSonMapEntryArrayDeSerializer;
 import alien4cloud.utils.jackson.JSonMapEntryArraySerializer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -114,4 +118,12 @@ public class Topology implements IManagedSecuredResource {
      * All the workflows associated with this topology.
      */
     private Map<String, Workflow> workflows;
-}
\ No newline at end of file
+
+    /** Date of the last update of the topology. */
+    @DateField(includeInAll = false, index = IndexType.no)
+    private Date lastUpdateDate;
+
+    /** Version of the indexed document the topology has been read from, used to detect concurrent updates (not serialized). */
+    @JsonIgnore
+    private Long documentVersion;
+}
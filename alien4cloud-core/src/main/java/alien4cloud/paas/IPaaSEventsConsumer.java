@@ -0,0 +1,18 @@
+package alien4cloud.paas;
+
+import alien4cloud.paas.model.AbstractMonitorEvent;
+
+/**
+ * Receives the monitoring events pushed by a {@link IPushEventsPaaSProvider}.
+ */
+public interface IPaaSEventsConsumer {
+
+    /**
+     * Push events to alien. Events are queued and processed asynchronously, this method never blocks.
+     *
+     * @param events The events, ordered by date.
+     * @return true if the events have been queued, false if the queue is full. In such case events are not lost, alien will recover them using
+     *         {@link IPaaSProvider#getEventsSince(java.util.Date, int, IPaaSCallback)}.
+     */
+    boolean offer(AbstractMonitorEvent... events);
+}
@@ -0,0 +1,16 @@
+package alien4cloud.paas;
+
+/**
+ * A PaaS provider that is able to push its monitoring events to alien rather than waiting for alien to poll them using
+ * {@link IPaaSProvider#getEventsSince(java.util.Date, int, IPaaSCallback)}. Polling is still used to recover events when the provider is registered or
+ * when the pushed events cannot be processed fast enough.
+ */
+public interface IPushEventsPaaSProvider extends IPaaSProvider {
+
+    /**
+     * Set the consumer to which the events must be pushed.
+     *
+     * @param consumer The consumer of the events, null when the provider is not monitored anymore and must stop pushing events.
+     */
+    void setEventsConsumer(IPaaSEventsConsumer consumer);
+}
@@ -0,0 +1,186 @@
+package alien4cloud.paas;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.paas.model.AbstractMonitorEvent;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Dispatch the monitor events of the PaaS providers to the registered {@link IPaasEventListener}s.
+ *
+ * Every listener has its own workers and queues so that a slow listener doesn't delay the other listeners nor the retrieval of the events. Events are
+ * partitioned by deployment id: the events of a deployment are always handled by the same worker and are delivered to a listener in the order they have
+ * been dispatched. The dispatch never waits for a listener as it is done while the monitor of the provider is locked: when the queue of a listener is full
+ * the event is dropped for this listener (the event is still saved and available to the other listeners). Queue depth, dropped events and processing
+ * latency of every listener are exposed as metrics.
+ */
+@Slf4j
+@Component
+public class PaaSEventsDispatcher {
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    /** Number of workers (and so of deployments that can be processed in parallel) for every listener. */
+    @Value("${paas_monitor.dispatcher.partitions:4}")
+    private int partitions = 4;
+    /** Maximum number of events waiting to be processed by a worker of a listener. */
+    @Value("${paas_monitor.dispatcher.queue_size:1000}")
+    private int queueSize = 1000;
+
+    private final List<ListenerWorkers> workers = Lists.newCopyOnWriteArrayList();
+
+    @PostConstruct
+    public void checkSettings() {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("paas_monitor.dispatcher.partitions must be at least 1 but is " + partitions);
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("paas_monitor.dispatcher.queue_size must be at least 1 but is " + queueSize);
+        }
+    }
+
+    /**
+     * Register a listener, the listener will receive all the events dispatched after the registration.
+     *
+     * @param listener The listener to register.
+     */
+    public synchronized void addListener(IPaasEventListener<?> listener) {
+        String name = listener.getClass().getSimpleName();
+        int sameName = 0;
+        for (ListenerWorkers existing : workers) {
+            if (existing.listener.getClass().getSimpleName().equals(name)) {
+                sameName++;
+            }
+        }
+        workers.add(new ListenerWorkers(sameName == 0 ? name : name + "_" + sameName, listener));
+    }
+
+    /**
+     * Dispatch events to the listeners that can handle them.
+     *
+     * @param events The events to dispatch, events of a same deployment must be sorted in the order they occurred.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void dispatch(AbstractMonitorEvent... events) {
+        if (events == null) {
+            return;
+        }
+        for (ListenerWorkers listenerWorkers : workers) {
+            IPaasEventListener listener = listenerWorkers.listener;
+            for (AbstractMonitorEvent event : events) {
+                if (listener.canHandle(event)) {
+                    listenerWorkers.enqueue(event);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ListenerWorkers listenerWorkers : workers) {
+            listenerWorkers.executor.shutdownNow();
+        }
+    }
+
+    /** Queues and workers of a listener, one queue per partition. */
+    private class ListenerWorkers {
+        private final String name;
+        @SuppressWarnings("rawtypes")
+        private final IPaasEventListener listener;
+        private final List<BlockingQueue<AbstractMonitorEvent>> queues;
+        private final ExecutorService executor;
+
+        /** Processing time of the events by the listener. */
+        private final Timer latency;
+        private final Counter errors;
+        private final Counter dropped;
+
+        private ListenerWorkers(String name, IPaasEventListener<?> listener) {
+            this.name = name;
+            this.listener = listener;
+            this.latency = metricRegistry.timer(name(PaaSEventsDispatcher.class, name, "latency"));
+            this.errors = metricRegistry.counter(name(PaaSEventsDispatcher.class, name, "errors"));
+            this.dropped = metricRegistry.counter(name(PaaSEventsDispatcher.class, name, "dropped_events"));
+            metricRegistry.register(name(PaaSEventsDispatcher.class, name, "queue_size"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return queueSize();
+                }
+            });
+            this.queues = Lists.newArrayListWithCapacity(partitions);
+            this.executor = Executors.newFixedThreadPool(partitions, new ThreadFactoryBuilder().setNameFormat("paas-events-" + name + "-%d").setDaemon(true)
+                    .build());
+            for (int i = 0; i < partitions; i++) {
+                final BlockingQueue<AbstractMonitorEvent> queue = new LinkedBlockingQueue<AbstractMonitorEvent>(queueSize);
+                queues.add(queue);
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        consume(queue);
+                    }
+                });
+            }
+        }
+
+        private void enqueue(AbstractMonitorEvent event) {
+            String deploymentId = event.getDeploymentId();
+            int partition = deploymentId == null ? 0 : (deploymentId.hashCode() & Integer.MAX_VALUE) % queues.size();
+            BlockingQueue<AbstractMonitorEvent> queue = queues.get(partition);
+            if (!queue.offer(event)) {
+                dropped.inc();
+                log.warn("Events queue of listener {} is full, dropping event {}", name, event);
+            }
+        }
+
+        private int queueSize() {
+            int size = 0;
+            for (BlockingQueue<AbstractMonitorEvent> queue : queues) {
+                size += queue.size();
+            }
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void consume(BlockingQueue<AbstractMonitorEvent> queue) {
+            while (!Thread.currentThread().isInterrupted()) {
+                AbstractMonitorEvent event;
+                try {
+                    event = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Timer.Context processingTime = latency.time();
+                try {
+                    listener.eventHappened(event);
+                } catch (Throwable e) {
+                    // the worker must survive any failure of the listener, otherwise the dispatch would block forever once its queue is full
+                    errors.inc();
+                    log.error("Listener " + name + " failed to process event " + event, e);
+                } finally {
+                    processingTime.stop();
+                }
+            }
+        }
+    }
+}
@@ -4,26 +4,45 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Resource;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
+import org.springframework.scheduling.TaskScheduler;
 
+import alien4cloud.cloud.ActiveDeploymentRegistry;
 import alien4cloud.cloud.DeploymentService;
-import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.MonitorESDAO;
 import alien4cloud.dao.model.GetMultipleDataResult;
-import alien4cloud.model.deployment.Deployment;
 import alien4cloud.paas.model.AbstractMonitorEvent;
-import alien4cloud.utils.MapUtil;
+import alien4cloud.paas.model.PaaSMonitorWatermark;
 import alien4cloud.utils.TypeScanner;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 /**
  * Monitor service to watch a deployed topologies for a given PaaS provider.
+ *
+ * Events are polled from the PaaS provider, the number of events requested grows while the provider returns full pages and a new poll is triggered
+ * immediately so that bursts of events are processed without waiting for the next tick. PaaS providers that implement {@link IPushEventsPaaSProvider}
+ * push their events in a bounded queue that is drained on every tick, polling is then only used to recover the events that occurred before the
+ * registration or that could not be queued.
+ *
+ * The latest processed events of the cloud are saved in a {@link PaaSMonitorWatermark} so that the monitoring restarts from them and ignores them when they
+ * are polled again.
  */
 @SuppressWarnings("unchecked")
 @Slf4j
@@ -31,30 +50,98 @@ public class PaaSProviderPollingMonitor implements Runnable {
     @Resource(name = "deploymentService")
     private DeploymentService deploymentService;
     private static final int MAX_POLLED_EVENTS = 100;
-    private final IGenericSearchDAO dao;
-    private final IGenericSearchDAO monitorDAO;
+    private final ActiveDeploymentRegistry activeDeploymentRegistry;
+    private final MonitorESDAO monitorDAO;
     private final IPaaSProvider paaSProvider;
+    private final TaskScheduler scheduler;
+    private final PollingSettings settings;
     private Date lastPollingDate;
-    @SuppressWarnings("rawtypes")
-    private List<IPaasEventListener> listeners;
+    /** Latest events processed, saved with the events so that the monitoring restarts from them. */
+    private PaaSMonitorWatermark watermark;
+    private final PaaSEventsDispatcher dispatcher;
     private PaaSEventsCallback paaSEventsCallback;
     private String cloudId;
     private boolean hasDeployments = false;
     private boolean getEventsInProgress = false;
+    /** Number of events requested on the next poll, between the minimum and maximum polled events of the settings. */
+    private int polledEvents;
+
+    /** Queue of the events pushed by the provider, null if the provider doesn't push events. */
+    private final BlockingQueue<AbstractMonitorEvent> pushedEvents;
+    /** True while events are recovered by polling (after registration or when pushed events have been dropped). */
+    private volatile boolean recovering;
+    /** Pushed events older than this date have been recovered by polling and are ignored. */
+    private Date recoveredUntil;
+    /** Keys of the events recovered at the recoveredUntil date, pushed events of that date are ignored only if they have one of these keys. */
+    private Set<String> recoveredKeys;
+    /** Number of times pushed events have been dropped because the queue was full. */
+    private final AtomicLong overflows = new AtomicLong();
+    /** Value of the overflows counter when the running poll started, recovery ends only if no events have been dropped since then. */
+    private long pollOverflows;
 
     /**
      * Create a new instance of the {@link PaaSProviderPollingMonitor} to monitor the given paas provider.
      *
+     * @param activeDeploymentRegistry The registry of the active deployments.
      * @param paaSProvider The paas provider to monitor.
+     * @param dispatcher The dispatcher of the events to the listeners.
      */
-    @SuppressWarnings("rawtypes")
-    public PaaSProviderPollingMonitor(IGenericSearchDAO dao, IGenericSearchDAO monitorDAO, IPaaSProvider paaSProvider, List<IPaasEventListener> listeners,
-            String cloudId) {
+    public PaaSProviderPollingMonitor(ActiveDeploymentRegistry activeDeploymentRegistry, MonitorESDAO monitorDAO, IPaaSProvider paaSProvider,
+            PaaSEventsDispatcher dispatcher, String cloudId) {
+        this(activeDeploymentRegistry, monitorDAO, paaSProvider, dispatcher, cloudId, null, new PollingSettings(MAX_POLLED_EVENTS, MAX_POLLED_EVENTS, 0));
+    }
+
+    /**
+     * Create a new instance of the {@link PaaSProviderPollingMonitor} to monitor the given paas provider.
+     *
+     * @param activeDeploymentRegistry The registry of the active deployments.
+     * @param paaSProvider The paas provider to monitor.
+     * @param dispatcher The dispatcher of the events to the listeners.
+     * @param scheduler The scheduler used to poll again immediately when a poll returns a full page of events, may be null.
+     * @param settings The polling settings.
+     */
+    public PaaSProviderPollingMonitor(ActiveDeploymentRegistry activeDeploymentRegistry, MonitorESDAO monitorDAO, IPaaSProvider paaSProvider,
+            PaaSEventsDispatcher dispatcher, String cloudId, TaskScheduler scheduler, PollingSettings settings) {
         this.cloudId = cloudId;
-        this.dao = dao;
+        this.activeDeploymentRegistry = activeDeploymentRegistry;
         this.monitorDAO = monitorDAO;
         this.paaSProvider = paaSProvider;
-        this.listeners = listeners;
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.polledEvents = settings.getMinPolledEvents();
+        this.watermark = monitorDAO.findById(PaaSMonitorWatermark.class, cloudId);
+        if (watermark != null) {
+            if (watermark.getLastEventKeys() == null) {
+                watermark.setLastEventKeys(Sets.<String> newHashSet());
+            }
+            this.lastPollingDate = new Date(watermark.getLastEventDate());
+            log.info("Recovering events of cloud {} from the last processed event {}", cloudId, lastPollingDate);
+        } else {
+            // no watermark has been saved yet for the cloud (first monitoring or upgrade)
+            AbstractMonitorEvent lastEvent = findLastEvent();
+            if (lastEvent != null) {
+                this.lastPollingDate = new Date(lastEvent.getDate());
+                log.info("Recovering events from the last in elasticsearch {} of type {}", lastPollingDate, lastEvent.getClass().getName());
+            } else {
+                this.lastPollingDate = new Date();
+                log.debug("No monitor events found, the last polling date will be current date {}", this.lastPollingDate);
+            }
+            this.watermark = new PaaSMonitorWatermark(cloudId, lastPollingDate.getTime(), Sets.<String> newHashSet());
+        }
+        paaSEventsCallback = new PaaSEventsCallback();
+
+        if (paaSProvider instanceof IPushEventsPaaSProvider && settings.getPushQueueSize() > 0) {
+            pushedEvents = new LinkedBlockingQueue<AbstractMonitorEvent>(settings.getPushQueueSize());
+            // events that occurred while alien was not monitoring the cloud are recovered by polling
+            recovering = true;
+            ((IPushEventsPaaSProvider) paaSProvider).setEventsConsumer(new PushedEventsConsumer());
+        } else {
+            pushedEvents = null;
+        }
+    }
+
+    private AbstractMonitorEvent findLastEvent() {
         Set<Class<?>> eventClasses = Sets.newHashSet();
         try {
             eventClasses = TypeScanner.scanTypes("alien4cloud.paas.model", AbstractMonitorEvent.class);
@@ -63,60 +150,81 @@ public class PaaSProviderPollingMonitor implements Runnable {
         }
         Map<String, String[]> filter = Maps.newHashMap();
         filter.put("cloudId", new String[] { this.cloudId });
-        // sort by filed date DESC
-        SearchQueryHelperBuilder searchQueryHelperBuilder = monitorDAO.getQueryHelper().buildSearchQuery("deploymentmonitorevents")
-                .types(eventClasses.toArray(new Class<?>[eventClasses.size()])).filters(filter).fieldSort("date", true);
-
-        // the first one is the one with the latest date
-        GetMultipleDataResult lastestEventResult = monitorDAO.search(searchQueryHelperBuilder, 0, 1);
-        if (lastestEventResult.getData().length > 0) {
-            AbstractMonitorEvent lastEvent = (AbstractMonitorEvent) lastestEventResult.getData()[0];
-            Date lastEventDate = new Date(lastEvent.getDate());
-            log.info("Recovering events from the last in elasticsearch {} of type {}", lastEventDate, lastEvent.getClass().getName());
-            this.lastPollingDate = lastEventDate;
-        } else {
-            this.lastPollingDate = new Date();
-            log.debug("No monitor events found, the last polling date will be current date {}", this.lastPollingDate);
+        // look for the latest event in the daily indices from the most recent one, the latest event is usually in the first one
+        for (String index : monitorDAO.getEventIndices(0, Long.MAX_VALUE)) {
+            // sort by filed date DESC
+            SearchQueryHelperBuilder searchQueryHelperBuilder = monitorDAO.getQueryHelper().buildSearchQuery(index)
+                    .types(eventClasses.toArray(new Class<?>[eventClasses.size()])).filters(filter).fieldSort("date", true);
+            // the first one is the one with the latest date
+            GetMultipleDataResult lastestEventResult = monitorDAO.search(searchQueryHelperBuilder, 0, 1);
+            if (lastestEventResult.getData().length > 0) {
+                return (AbstractMonitorEvent) lastestEventResult.getData()[0];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop receiving the events pushed by the provider.
+     */
+    public void stop() {
+        if (pushedEvents != null) {
+            ((IPushEventsPaaSProvider) paaSProvider).setEventsConsumer(null);
+        }
+    }
+
+    private class PushedEventsConsumer implements IPaaSEventsConsumer {
+        @Override
+        public boolean offer(AbstractMonitorEvent... events) {
+            // events are queued even while recovering as they may occur after the last poll, duplicates are ignored when draining the queue
+            for (AbstractMonitorEvent event : events) {
+                if (!pushedEvents.offer(event)) {
+                    log.warn("Queue of pushed events is full for cloud {}, events will be recovered by polling.", cloudId);
+                    // the counter is incremented before the flag is set so that a poll in progress never ends the recovery of these events
+                    overflows.incrementAndGet();
+                    recovering = true;
+                    return false;
+                }
+            }
+            return true;
         }
-        paaSEventsCallback = new PaaSEventsCallback();
     }
 
     private class PaaSEventsCallback implements IPaaSCallback<AbstractMonitorEvent[]> {
 
         @Override
         public void onSuccess(AbstractMonitorEvent[] auditEvents) {
+            boolean fullPage;
             synchronized (PaaSProviderPollingMonitor.this) {
                 if (log.isTraceEnabled()) {
                     log.trace("Polled from date {}", lastPollingDate);
                 }
-                if (log.isDebugEnabled() && auditEvents != null && auditEvents.length > 0) {
-                    log.debug("Saving events for cloud {}", cloudId);
-                    for (AbstractMonitorEvent event : auditEvents) {
-                        log.debug(event.toString());
-                    }
-                }
-                if (auditEvents != null && auditEvents.length > 0) {
-                    for (AbstractMonitorEvent event : auditEvents) {
-                        // Enrich event with cloud id before saving them
-                        event.setCloudId(cloudId);
-                    }
-                    for (IPaasEventListener listener : listeners) {
-                        for (AbstractMonitorEvent event : auditEvents) {
-                            if (listener.canHandle(event)) {
-                                listener.eventHappened(event);
-                            }
-                            if (event.getDate() > 0) {
-                                Date eventDate = new Date(event.getDate());
-                                lastPollingDate = eventDate.after(lastPollingDate) ? eventDate : lastPollingDate;
-                            } else {
-                                event.setDate(System.currentTimeMillis());
-                            }
+                processEvents(auditEvents, true);
+                fullPage = auditEvents != null && auditEvents.length >= polledEvents;
+                if (fullPage) {
+                    // more events are probably waiting, request bigger pages
+                    polledEvents = Math.min(polledEvents * 2, settings.getMaxPolledEvents());
+                } else {
+                    polledEvents = Math.max(polledEvents / 2, settings.getMinPolledEvents());
+                    if (recovering && pushedEvents != null && overflows.get() == pollOverflows) {
+                        // polling caught up, events pushed before the last polled event have already been processed
+                        recoveredUntil = lastPollingDate;
+                        // the watermark keeps the keys of the latest events processed, other events of the same millisecond have not been polled
+                        recoveredKeys = watermark.getLastEventDate() == lastPollingDate.getTime() ? Sets.newHashSet(watermark.getLastEventKeys()) : Sets
+                                .<String> newHashSet();
+                        recovering = false;
+                        if (overflows.get() != pollOverflows) {
+                            // events have been dropped concurrently, they may be more recent than the polled ones
+                            recovering = true;
                         }
                     }
-                    monitorDAO.save(auditEvents);
                 }
                 getEventsInProgress = false;
             }
+            if (fullPage && scheduler != null) {
+                // don't wait for the next tick to get the next events
+                scheduler.schedule(PaaSProviderPollingMonitor.this, new Date());
+            }
         }
 
         @Override
@@ -131,30 +239,140 @@ public class PaaSProviderPollingMonitor implements Runnable {
         }
     }
 
+    /**
+     * Save and dispatch events.
+     *
+     * @param auditEvents The events to process.
+     * @param polled True if the events have been polled, polled events that occurred before the latest processed event are ignored.
+     */
+    private void processEvents(AbstractMonitorEvent[] auditEvents, boolean polled) {
+        if (log.isDebugEnabled() && auditEvents != null && auditEvents.length > 0) {
+            log.debug("Saving events for cloud {}", cloudId);
+            for (AbstractMonitorEvent event : auditEvents) {
+                log.debug(event.toString());
+            }
+        }
+        if (auditEvents != null && auditEvents.length > 0) {
+            List<AbstractMonitorEvent> newEvents = Lists.newArrayListWithCapacity(auditEvents.length);
+            for (AbstractMonitorEvent event : auditEvents) {
+                // Enrich event with cloud id before saving them
+                event.setCloudId(cloudId);
+                if (event.getDate() > 0) {
+                    if (!updateWatermark(event, polled)) {
+                        log.debug("Ignoring event already processed {}", event);
+                        continue;
+                    }
+                    Date eventDate = new Date(event.getDate());
+                    lastPollingDate = eventDate.after(lastPollingDate) ? eventDate : lastPollingDate;
+                } else {
+                    event.setDate(System.currentTimeMillis());
+                }
+                newEvents.add(event);
+            }
+            if (newEvents.isEmpty()) {
+                return;
+            }
+            AbstractMonitorEvent[] events = newEvents.toArray(new AbstractMonitorEvent[newEvents.size()]);
+            monitorDAO.saveBuffered(events);
+            // the watermark is queued after the events so it is not saved before them
+            monitorDAO.saveBuffered(new PaaSMonitorWatermark[] { watermark });
+            // listeners process the events asynchronously so a slow listener doesn't delay the next polling
+            dispatcher.dispatch(events);
+        }
+    }
+
+    /**
+     * Update the watermark with an event.
+     *
+     * @param event The event to process.
+     * @param polled True if the event has been polled.
+     * @return False if the event has already been processed and must be ignored.
+     */
+    private boolean updateWatermark(AbstractMonitorEvent event, boolean polled) {
+        if (event.getDate() < watermark.getLastEventDate()) {
+            // polling is done from the latest event, older events have already been processed (pushed events may not be ordered)
+            return !polled;
+        }
+        String eventKey = getEventKey(event);
+        if (event.getDate() > watermark.getLastEventDate()) {
+            watermark.setLastEventDate(event.getDate());
+            watermark.getLastEventKeys().clear();
+        }
+        return watermark.getLastEventKeys().add(eventKey);
+    }
+
+    @SneakyThrows(JsonProcessingException.class)
+    private String getEventKey(AbstractMonitorEvent event) {
+        return Hashing.md5().hashBytes(monitorDAO.getJsonMapper().writeValueAsString(event).getBytes(Charsets.UTF_8)).toString();
+    }
+
     @Override
-    @SuppressWarnings("rawtypes")
     public synchronized void run() {
         if (getEventsInProgress) {
             // Get events since is running
             return;
         }
+        if (pushedEvents != null && !recovering) {
+            drainPushedEvents();
+            return;
+        }
         getEventsInProgress = true;
-        if (hasDeployments) {
-            paaSProvider.getEventsSince(lastPollingDate, MAX_POLLED_EVENTS, paaSEventsCallback);
+        if (hasDeployments || recovering) {
+            pollOverflows = overflows.get();
+            paaSProvider.getEventsSince(lastPollingDate, polledEvents, paaSEventsCallback);
         } else {
             getEventsInProgress = false;
-            hasDeployments = getActiveDeployment() != null;
+            hasDeployments = activeDeploymentRegistry.hasDeployments(cloudId);
         }
     }
 
-    private Deployment getActiveDeployment() {
-        Deployment deployment = null;
+    private void drainPushedEvents() {
+        List<AbstractMonitorEvent> events = Lists.newArrayListWithCapacity(Math.min(pushedEvents.size(), settings.getMaxPolledEvents()));
+        pushedEvents.drainTo(events, settings.getMaxPolledEvents());
+        if (recoveredUntil != null) {
+            List<AbstractMonitorEvent> newEvents = Lists.newArrayListWithCapacity(events.size());
+            for (AbstractMonitorEvent event : events) {
+                if (!isRecovered(event)) {
+                    newEvents.add(event);
+                }
+            }
+            events = newEvents;
+        }
+        processEvents(events.toArray(new AbstractMonitorEvent[events.size()]), false);
+        if (!pushedEvents.isEmpty() && scheduler != null) {
+            scheduler.schedule(this, new Date());
+        }
+    }
 
-        GetMultipleDataResult<Deployment> dataResult = dao.search(Deployment.class, null,
-                MapUtil.newHashMap(new String[] { "cloudId", "endDate" }, new String[][] { new String[] { cloudId }, new String[] { null } }), 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            deployment = dataResult.getData()[0];
+    /**
+     * Check if a pushed event has already been recovered by polling.
+     *
+     * @param event The pushed event.
+     * @return True if the event is older than the recovered events or is one of the latest recovered events.
+     */
+    private boolean isRecovered(AbstractMonitorEvent event) {
+        if (event.getDate() <= 0 || event.getDate() > recoveredUntil.getTime()) {
+            return false;
+        }
+        if (event.getDate() < recoveredUntil.getTime()) {
+            return true;
         }
-        return deployment;
+        // keys are computed from the events enriched with the cloud id
+        event.setCloudId(cloudId);
+        return recoveredKeys.contains(getEventKey(event));
+    }
+
+    /**
+     * Settings of the monitoring of a paaS provider.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PollingSettings {
+        /** Number of events requested when polling a provider that is not under load. */
+        private final int minPolledEvents;
+        /** Maximum number of events requested when the provider returns full pages of events. */
+        private final int maxPolledEvents;
+        /** Size of the queue of the events pushed by the providers that implement {@link IPushEventsPaaSProvider}, 0 to always poll the events. */
+        private final int pushQueueSize;
     }
 }
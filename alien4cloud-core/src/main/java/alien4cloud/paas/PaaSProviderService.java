@@ -1,8 +1,5 @@
 package alien4cloud.paas;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 
@@ -14,7 +11,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
-import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.cloud.ActiveDeploymentRegistry;
+import alien4cloud.dao.MonitorESDAO;
 import alien4cloud.exception.AlreadyExistException;
 
 import com.google.common.collect.Maps;
@@ -24,24 +22,33 @@ import com.google.common.collect.Maps;
  */
 @Component
 public class PaaSProviderService implements IPaasEventService {
-    @Resource(name = "alien-es-dao")
-    private IGenericSearchDAO alienDao;
+    @Resource
+    private ActiveDeploymentRegistry activeDeploymentRegistry;
     @Resource(name = "alien-monitor-es-dao")
-    private IGenericSearchDAO alienMonitorDao;
+    private MonitorESDAO alienMonitorDao;
     @Resource(name = "paas-monitor-scheduler")
     private TaskScheduler scheduler;
     /** Interval in milliseconds on which to retrieve monitoring events from a PaaS provider. */
     @Value("${paas_monitor.monitor_interval_ms}")
     private long monitorIntervalMs = 1000 * 30;
+    /** Number of events requested when polling a PaaS provider. */
+    @Value("${paas_monitor.polled_events:100}")
+    private int polledEvents;
+    /** Maximum number of events requested when a PaaS provider returns full pages of events. */
+    @Value("${paas_monitor.max_polled_events:1000}")
+    private int maxPolledEvents;
+    /** Size of the queue of the events pushed by the PaaS providers that support it. */
+    @Value("${paas_monitor.push_queue_size:10000}")
+    private int pushQueueSize;
 
-    private Map<String, Registration> monitorRegistrations = Maps.newHashMap();
+    @Resource
+    private PaaSEventsDispatcher dispatcher;
 
-    @SuppressWarnings("rawtypes")
-    private List<IPaasEventListener> listeners = Collections.synchronizedList(new ArrayList<IPaasEventListener>());
+    private Map<String, Registration> monitorRegistrations = Maps.newHashMap();
 
     @Override
     public void addListener(IPaasEventListener<?> listener) {
-        listeners.add(listener);
+        dispatcher.addListener(listener);
     }
 
     /**
@@ -55,9 +62,10 @@ public class PaaSProviderService implements IPaasEventService {
             throw new AlreadyExistException("Cloud [" + cloudId + "] has already been registered");
         }
         // create the polling monitor responsible to monitor this instance.
-        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, instance, listeners, cloudId);
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(activeDeploymentRegistry, alienMonitorDao, instance, dispatcher, cloudId, scheduler,
+                new PaaSProviderPollingMonitor.PollingSettings(polledEvents, Math.max(polledEvents, maxPolledEvents), pushQueueSize));
         ScheduledFuture<?> monitorFuture = scheduler.scheduleAtFixedRate(monitor, monitorIntervalMs);
-        Registration registration = new Registration(instance, monitorFuture);
+        Registration registration = new Registration(instance, monitor, monitorFuture);
         monitorRegistrations.put(cloudId, registration);
     }
 
@@ -70,6 +78,7 @@ public class PaaSProviderService implements IPaasEventService {
         Registration registration = monitorRegistrations.remove(cloudId);
         if (registration != null) {
             registration.registration.cancel(false);
+            registration.monitor.stop();
             return registration.providerInstance;
         } else {
             return null;
@@ -93,6 +102,7 @@ public class PaaSProviderService implements IPaasEventService {
     @AllArgsConstructor
     private class Registration {
         private IPaaSProvider providerInstance;
+        private PaaSProviderPollingMonitor monitor;
         private ScheduledFuture<?> registration;
     }
 }
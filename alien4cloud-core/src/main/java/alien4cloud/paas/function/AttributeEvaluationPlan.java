@@ -0,0 +1,225 @@
+package alien4cloud.paas.function;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import alien4cloud.model.components.AttributeDefinition;
+import alien4cloud.model.components.ConcatPropertyValue;
+import alien4cloud.model.components.FunctionPropertyValue;
+import alien4cloud.model.components.IValue;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.IPaaSTemplate;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSNodeTemplate;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.tosca.normative.ToscaFunctionConstants;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Evaluation plan of the attributes of the nodes of a {@link PaaSTopology}.
+ *
+ * The attributes are compiled once for a topology: the templates targeted by the functions are resolved from their keyword and the properties (that don't
+ * change at runtime) are evaluated. Applying the plan to the instances informations then only requires lookups in the instances informations. The result
+ * is the same as the evaluation of every attribute with {@link FunctionEvaluator#parseAttribute}.
+ */
+@Slf4j
+@SuppressWarnings("rawtypes")
+public final class AttributeEvaluationPlan {
+    /** Evaluators of the attributes by node template id and attribute id. */
+    private final Map<String, Map<String, IAttributeEvaluator>> evaluators;
+
+    private AttributeEvaluationPlan(Map<String, Map<String, IAttributeEvaluator>> evaluators) {
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Compile the attributes of all the nodes of a topology.
+     *
+     * @param topology The topology.
+     * @param paaSTopology The paaS topology built from the topology.
+     * @return The evaluation plan of the attributes.
+     */
+    public static AttributeEvaluationPlan compile(Topology topology, PaaSTopology paaSTopology) {
+        Map<String, Map<String, IAttributeEvaluator>> evaluators = Maps.newHashMap();
+        for (PaaSNodeTemplate nodeTemplate : paaSTopology.getAllNodes().values()) {
+            Map<String, IValue> attributes = nodeTemplate.getIndexedToscaElement().getAttributes();
+            if (attributes == null) {
+                continue;
+            }
+            Map<String, IAttributeEvaluator> nodeEvaluators = Maps.newHashMap();
+            for (Map.Entry<String, IValue> attributeEntry : attributes.entrySet()) {
+                if (attributeEntry.getValue() != null) {
+                    nodeEvaluators.put(attributeEntry.getKey(),
+                            compileAttribute(attributeEntry.getKey(), attributeEntry.getValue(), topology, nodeTemplate, paaSTopology.getAllNodes()));
+                }
+            }
+            evaluators.put(nodeTemplate.getId(), nodeEvaluators);
+        }
+        return new AttributeEvaluationPlan(evaluators);
+    }
+
+    /**
+     * Replace the attributes of the instances by their evaluated values.
+     *
+     * @param instanceInformations The instances informations by node template id and instance id.
+     */
+    public void apply(Map<String, Map<String, InstanceInformation>> instanceInformations) {
+        for (Map.Entry<String, Map<String, InstanceInformation>> nodeEntry : instanceInformations.entrySet()) {
+            Map<String, IAttributeEvaluator> nodeEvaluators = evaluators.get(nodeEntry.getKey());
+            if (nodeEvaluators == null || nodeEvaluators.isEmpty()) {
+                continue;
+            }
+            for (Map.Entry<String, InstanceInformation> instanceEntry : nodeEntry.getValue().entrySet()) {
+                Map<String, String> attributes = instanceEntry.getValue().getAttributes();
+                if (attributes == null) {
+                    continue;
+                }
+                for (Map.Entry<String, String> attributeEntry : attributes.entrySet()) {
+                    IAttributeEvaluator evaluator = nodeEvaluators.get(attributeEntry.getKey());
+                    if (evaluator != null) {
+                        attributeEntry.setValue(evaluator.evaluate(instanceInformations, instanceEntry.getKey()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static IAttributeEvaluator compileAttribute(String attributeId, IValue attributeValue, Topology topology, PaaSNodeTemplate nodeTemplate,
+            Map<String, PaaSNodeTemplate> builtPaaSTemplates) {
+        if (attributeValue instanceof AttributeDefinition) {
+            return new DefinitionEvaluator(Lists.<IPaaSTemplate> newArrayList(nodeTemplate), attributeId, ((AttributeDefinition) attributeValue).getDefault());
+        }
+        if (attributeValue instanceof ConcatPropertyValue) {
+            List<IAttributeEvaluator> segments = Lists.newArrayList();
+            for (IValue concatParam : ((ConcatPropertyValue) attributeValue).getParameters()) {
+                if (concatParam instanceof ScalarPropertyValue) {
+                    segments.add(new ConstantEvaluator(((ScalarPropertyValue) concatParam).getValue()));
+                } else if (concatParam instanceof PropertyDefinition) {
+                    segments.add(new ConstantEvaluator(((PropertyDefinition) concatParam).getDefault()));
+                } else if (concatParam instanceof FunctionPropertyValue) {
+                    segments.add(compileConcatFunction((FunctionPropertyValue) concatParam, topology, nodeTemplate, builtPaaSTemplates));
+                }
+            }
+            return new ConcatEvaluator(segments);
+        }
+        if (attributeValue instanceof FunctionPropertyValue) {
+            FunctionPropertyValue function = (FunctionPropertyValue) attributeValue;
+            if (ToscaFunctionConstants.GET_OPERATION_OUTPUT.equals(function.getFunction())) {
+                try {
+                    return new OperationOutputEvaluator(FunctionEvaluator.getPaaSTemplatesFromKeyword(nodeTemplate, function.getTemplateName(),
+                            builtPaaSTemplates), function, null);
+                } catch (RuntimeException e) {
+                    return new FailingEvaluator(e);
+                }
+            }
+        }
+        return new ConstantEvaluator(null);
+    }
+
+    private static IAttributeEvaluator compileConcatFunction(FunctionPropertyValue function, Topology topology, PaaSNodeTemplate nodeTemplate,
+            Map<String, PaaSNodeTemplate> builtPaaSTemplates) {
+        try {
+            List<? extends IPaaSTemplate> paaSTemplates = FunctionEvaluator.getPaaSTemplatesFromKeyword(nodeTemplate, function.getTemplateName(),
+                    builtPaaSTemplates);
+            switch (function.getFunction()) {
+            case ToscaFunctionConstants.GET_ATTRIBUTE:
+                return new AttributeEvaluator(paaSTemplates, function.getElementNameToFetch());
+            case ToscaFunctionConstants.GET_PROPERTY:
+                // properties don't change at runtime
+                return new ConstantEvaluator(FunctionEvaluator.extractRuntimeInformationProperty(topology, function.getElementNameToFetch(), paaSTemplates));
+            case ToscaFunctionConstants.GET_OPERATION_OUTPUT:
+                return new OperationOutputEvaluator(paaSTemplates, function, "<" + function.getElementNameToFetch() + ">");
+            default:
+                log.warn("Function [{}] is not yet handled in concat operation.", function.getFunction());
+                return new ConstantEvaluator("");
+            }
+        } catch (RuntimeException e) {
+            // fail on evaluation as when the attribute is parsed
+            return new FailingEvaluator(e);
+        }
+    }
+
+    /** Compiled evaluation of an attribute or of a segment of a concat attribute. */
+    private interface IAttributeEvaluator {
+        String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId);
+    }
+
+    @AllArgsConstructor
+    private static final class ConstantEvaluator implements IAttributeEvaluator {
+        private final String value;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            return value;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class FailingEvaluator implements IAttributeEvaluator {
+        private final RuntimeException exception;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            throw exception;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class DefinitionEvaluator implements IAttributeEvaluator {
+        private final List<? extends IPaaSTemplate> nodes;
+        private final String attributeId;
+        private final String defaultValue;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            String runtimeAttributeValue = FunctionEvaluator.extractRuntimeInformationAttribute(instanceInformations, instanceId, nodes, attributeId);
+            if (runtimeAttributeValue != null && !runtimeAttributeValue.contains("=Error!]") && !runtimeAttributeValue.isEmpty()) {
+                return runtimeAttributeValue;
+            }
+            return defaultValue;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class AttributeEvaluator implements IAttributeEvaluator {
+        private final List<? extends IPaaSTemplate> nodes;
+        private final String attributeId;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            return FunctionEvaluator.extractRuntimeInformationAttribute(instanceInformations, instanceId, nodes, attributeId);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class OperationOutputEvaluator implements IAttributeEvaluator {
+        private final List<? extends IPaaSTemplate> nodes;
+        private final FunctionPropertyValue function;
+        private final String defaultValue;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            return FunctionEvaluator.extractRuntimeInformationOperationOutput(instanceInformations, instanceId, nodes, function, defaultValue);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class ConcatEvaluator implements IAttributeEvaluator {
+        private final List<IAttributeEvaluator> segments;
+
+        @Override
+        public String evaluate(Map<String, Map<String, InstanceInformation>> instanceInformations, String instanceId) {
+            StringBuilder evaluatedAttribute = new StringBuilder();
+            for (IAttributeEvaluator segment : segments) {
+                evaluatedAttribute.append(segment.evaluate(instanceInformations, instanceId));
+            }
+            return evaluatedAttribute.toString();
+        }
+    }
+}
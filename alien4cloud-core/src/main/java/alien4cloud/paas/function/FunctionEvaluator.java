@@ -2,6 +2,8 @@ package alien4cloud.paas.function;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,8 +38,12 @@ import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.PropertyUtil;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * Utility class to process functions defined in attributes level:
@@ -49,34 +55,33 @@ import com.google.common.collect.Maps;
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public final class FunctionEvaluator {
 
+    /** Evaluation plans of the attributes by paaS topology, paaS topologies are compared by identity. */
+    private static final Cache<PaaSTopology, AttributeEvaluationPlan> EVALUATION_PLANS = CacheBuilder.newBuilder().weakKeys().build();
+
     /**
-     * Post process / enrich instance information by parsing all function in attributes and replacing them with real values
+     * Post process / enrich instance information by parsing all function in attributes and replacing them with real values.
+     *
+     * The functions of the attributes are compiled once per paaS topology instance into an {@link AttributeEvaluationPlan}, a paaS topology must so not be
+     * updated once its instance informations have been processed.
      *
      * @param instanceInformations the instance information to post process
      * @param topology the topology
      * @param paaSTopology the pass topology
      */
-    public static void postProcessInstanceInformation(Map<String, Map<String, InstanceInformation>> instanceInformations, Topology topology,
-            PaaSTopology paaSTopology) {
-        // parse attributes
-        for (Map.Entry<String, Map<String, InstanceInformation>> nodeInstanceId : instanceInformations.entrySet()) {
-
-            for (Map.Entry<String, InstanceInformation> nodeInstanceNumber : nodeInstanceId.getValue().entrySet()) {
-
-                if (nodeInstanceNumber.getValue().getAttributes() != null) {
-                    for (Map.Entry<String, String> attributeEntry : nodeInstanceNumber.getValue().getAttributes().entrySet()) {
-                        PaaSNodeTemplate nodeTemplate = paaSTopology.getAllNodes().get(nodeInstanceId.getKey());
-                        Map<String, IValue> nodeTemplateAttributes = nodeTemplate.getIndexedToscaElement().getAttributes();
-                        IValue attributeValue = nodeTemplateAttributes.get(attributeEntry.getKey());
-                        if (attributeValue != null) {
-                            String parsedAttribute = FunctionEvaluator.parseAttribute(attributeEntry.getKey(), attributeValue, topology, instanceInformations,
-                                    nodeInstanceNumber.getKey(), nodeTemplate, paaSTopology.getAllNodes());
-                            attributeEntry.setValue(parsedAttribute);
-                        }
-                    }
+    public static void postProcessInstanceInformation(Map<String, Map<String, InstanceInformation>> instanceInformations, final Topology topology,
+            final PaaSTopology paaSTopology) {
+        AttributeEvaluationPlan evaluationPlan;
+        try {
+            evaluationPlan = EVALUATION_PLANS.get(paaSTopology, new Callable<AttributeEvaluationPlan>() {
+                @Override
+                public AttributeEvaluationPlan call() {
+                    return AttributeEvaluationPlan.compile(topology, paaSTopology);
                 }
-            }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
         }
+        evaluationPlan.apply(instanceInformations);
     }
 
     /**
@@ -166,7 +171,7 @@ public final class FunctionEvaluator {
         return null;
     }
 
-    private static String extractRuntimeInformationOperationOutput(Map<String, Map<String, InstanceInformation>> runtimeInformations, String instanceId,
+    static String extractRuntimeInformationOperationOutput(Map<String, Map<String, InstanceInformation>> runtimeInformations, String instanceId,
             List<? extends IPaaSTemplate> nodes, FunctionPropertyValue function, String defaultValue) {
         String outputRQN = AlienUtils.prefixWith(AlienConstants.OPERATION_NAME_SEPARATOR, function.getElementNameToFetch(),
                 new String[] { function.getInterfaceName(), function.getOperationName() });
@@ -200,7 +205,7 @@ public final class FunctionEvaluator {
      * @param nodes
      * @return
      */
-    private static String extractRuntimeInformationProperty(Topology topology, String propertyOrAttributeName, List<? extends IPaaSTemplate> nodes) {
+    static String extractRuntimeInformationProperty(Topology topology, String propertyOrAttributeName, List<? extends IPaaSTemplate> nodes) {
         AbstractPropertyValue propertyOrAttributeValue;
         NodeTemplate template = null;
         for (IPaaSTemplate node : nodes) {
@@ -226,7 +231,7 @@ public final class FunctionEvaluator {
      * @param propertyOrAttributeName
      * @return runtime value
      */
-    private static String extractRuntimeInformationAttribute(Map<String, Map<String, InstanceInformation>> runtimeInformations, String currentInstance,
+    static String extractRuntimeInformationAttribute(Map<String, Map<String, InstanceInformation>> runtimeInformations, String currentInstance,
             List<? extends IPaaSTemplate> nodes, String propertyOrAttributeName) {
         Map<String, String> attributes = null;
         // return the first found
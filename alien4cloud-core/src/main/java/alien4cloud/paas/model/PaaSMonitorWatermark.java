@@ -0,0 +1,30 @@
+package alien4cloud.paas.model;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+
+/**
+ * Latest monitor event processed for a cloud, used to recover the events of the cloud from this event when the monitoring restarts.
+ */
+@Getter
+@Setter
+@ESObject
+@NoArgsConstructor
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class PaaSMonitorWatermark {
+    /** Id of the cloud. */
+    @Id
+    private String cloudId;
+    /** Date of the latest event processed for the cloud. */
+    private long lastEventDate;
+    /** Keys of the events processed at the date of the latest event, events polled again are ignored. */
+    private Set<String> lastEventKeys;
+}
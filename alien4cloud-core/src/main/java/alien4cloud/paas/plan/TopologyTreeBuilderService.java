@@ -42,6 +42,7 @@ import alien4cloud.paas.function.FunctionEvaluator;
 import alien4cloud.paas.model.PaaSNodeTemplate;
 import alien4cloud.paas.model.PaaSRelationshipTemplate;
 import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.TopologyUtils;
 import alien4cloud.tosca.ToscaUtils;
 import alien4cloud.tosca.normative.NormativeBlockStorageConstants;
@@ -66,6 +67,8 @@ public class TopologyTreeBuilderService {
     private CsarFileRepository repository;
     @Resource
     private CSARRepositorySearchService csarSearchService;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Fetch informations from the repository to complete the topology node template informations with additional data such as artifacts paths etc.
@@ -76,8 +79,8 @@ public class TopologyTreeBuilderService {
     public Map<String, PaaSNodeTemplate> buildPaaSNodeTemplates(Topology topology) {
         Map<String, PaaSNodeTemplate> nodeTemplates = Maps.newHashMap();
 
-        // cache IndexedToscaElements, CloudServiceArchive and ToscaElements to limit queries.
-        TypeMap cache = new TypeMap();
+        // fetch all the IndexedToscaElements of the topology in a single request and cache them to limit queries.
+        TypeMap cache = topologyServiceCore.getIndexedTypesFromTopology(topology);
 
         // Fill in PaaSNodeTemplate by fetching node types and CSAR path from the repositories.
         if (topology.getNodeTemplates() != null) {
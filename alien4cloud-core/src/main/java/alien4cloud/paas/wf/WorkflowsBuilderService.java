@@ -100,10 +100,27 @@ public class WorkflowsBuilderService {
     }
 
     public void addNode(TopologyContext topologyContext, String nodeName, NodeTemplate nodeTemplate) {
+        addNodeToWorkflows(topologyContext, nodeName);
+        refreshWorkflows(topologyContext);
+    }
+
+    /**
+     * Add the steps of a node to the workflows without computing the hosts nor validating the workflows. This allows to add several nodes and relationships
+     * and then to call {@link #refreshWorkflows(TopologyContext)} only once.
+     */
+    public void addNodeToWorkflows(TopologyContext topologyContext, String nodeName) {
         boolean forceOperation = WorkflowUtils.isComputeOrNetwork(nodeName, topologyContext);
         for (Workflow wf : topologyContext.getTopology().getWorkflows().values()) {
             AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
             builder.addNode(wf, nodeName, topologyContext, forceOperation);
+        }
+    }
+
+    /**
+     * Compute the hosts of the workflow steps and validate the workflows of a topology.
+     */
+    public void refreshWorkflows(TopologyContext topologyContext) {
+        for (Workflow wf : topologyContext.getTopology().getWorkflows().values()) {
             WorkflowUtils.fillHostId(wf, topologyContext);
             workflowValidator.validate(topologyContext, wf);
         }
@@ -122,15 +139,21 @@ public class WorkflowsBuilderService {
     }
 
     public void addRelationship(TopologyContext topologyContext, String nodeTemplateName, String relationshipName) {
+        addRelationshipToWorkflows(topologyContext, nodeTemplateName, relationshipName);
+        refreshWorkflows(topologyContext);
+    }
+
+    /**
+     * Add the steps and edges of a relationship to the workflows without computing the hosts nor validating the workflows (see
+     * {@link #refreshWorkflows(TopologyContext)}).
+     */
+    public void addRelationshipToWorkflows(TopologyContext topologyContext, String nodeTemplateName, String relationshipName) {
         NodeTemplate nodeTemplate = topologyContext.getTopology().getNodeTemplates().get(nodeTemplateName);
         RelationshipTemplate relationshipTemplate = nodeTemplate.getRelationships().get(relationshipName);
         for (Workflow wf : topologyContext.getTopology().getWorkflows().values()) {
             AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
             builder.addRelationship(wf, nodeTemplateName, nodeTemplate, relationshipTemplate, topologyContext);
-            WorkflowUtils.fillHostId(wf, topologyContext);
-            workflowValidator.validate(topologyContext, wf);
         }
-        debugWorkflow(topologyContext.getTopology());
     }
 
     public void removeRelationship(Topology topology, String nodeTemplateName, String relationshipName, RelationshipTemplate relationshipTemplate) {
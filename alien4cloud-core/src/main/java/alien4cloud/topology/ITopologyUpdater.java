@@ -0,0 +1,16 @@
+package alien4cloud.topology;
+
+import alien4cloud.model.topology.Topology;
+
+/**
+ * Modification of a topology applied by {@link TopologyServiceCore#updateTopology(String, ITopologyUpdater)}.
+ */
+public interface ITopologyUpdater {
+    /**
+     * Apply the modification on the topology. This may be called several times (on a freshly loaded topology) if the topology has been updated
+     * concurrently, the modification must not have side effects outside of the topology.
+     *
+     * @param topology The topology to update.
+     */
+    void update(Topology topology);
+}
@@ -32,4 +32,9 @@ public class TopologyDTO {
      * The TOSCA as a YAML content.
      */
     private String yaml;
+
+    /**
+     * Version of the topology (date of the last update in milliseconds), null if the topology has never been updated.
+     */
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package alien4cloud.topology;
+
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import alien4cloud.model.topology.NodeTemplate;
+
+/**
+ * Topology DTO that contains only the changes since a version of the topology known by the client:
+ * <ul>
+ * <li>topology contains all the fields of the topology but the node templates.</li>
+ * <li>nodeTemplates contains the node templates that have been added or updated since the base version.</li>
+ * <li>removedNodeTemplates contains the names of the node templates that have been removed since the base version.</li>
+ * <li>nodeTypes, relationshipTypes and capabilityTypes contain only the types that were not referenced in the base version.</li>
+ * </ul>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class TopologyDeltaDTO extends TopologyDTO {
+    /** The version of the topology on which the delta must be applied. */
+    private Long baseVersion;
+    private Map<String, NodeTemplate> nodeTemplates;
+    private Set<String> removedNodeTemplates;
+}
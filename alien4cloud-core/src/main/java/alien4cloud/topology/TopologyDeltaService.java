@@ -0,0 +1,186 @@
+package alien4cloud.topology;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+
+import lombok.SneakyThrows;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+
+import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.RelationshipTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.utils.TypeMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Builds topology DTOs that contain only the changes since a version of the topology already known by the client (see {@link TopologyDeltaDTO}).
+ *
+ * The service keeps, for each client and topology, a hash of every node template of the last version sent to the client and the types already sent. When
+ * the client version doesn't match the last version sent (another client updated the topology, the snapshot has been evicted...) a complete
+ * {@link TopologyDTO} is returned. Snapshots are replaced with an atomic compare-and-set so that concurrent requests of a client never leave a snapshot that
+ * doesn't match what the client received, the next request of the client gets a complete DTO instead.
+ */
+@Service
+public class TopologyDeltaService {
+    private static final int SNAPSHOT_CACHE_SIZE = 1000;
+    private static final long SNAPSHOT_EXPIRATION_MINUTES = 30;
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Resource
+    private ICSARRepositorySearchService csarRepoSearchService;
+    @Resource
+    private TopologyService topologyService;
+
+    /** Last state of a topology sent to a client by client id and topology id, entries of the clients that stopped editing expire. */
+    private final Cache<String, TopologySnapshot> snapshots = CacheBuilder.newBuilder().maximumSize(SNAPSHOT_CACHE_SIZE)
+            .expireAfterAccess(SNAPSHOT_EXPIRATION_MINUTES, TimeUnit.MINUTES).build();
+
+    /**
+     * Build the DTO of a topology.
+     *
+     * @param topology The topology for which to build a DTO.
+     * @param clientId The id of the client (topology editor) that requests the DTO, null if the client doesn't identify itself (a complete {@link TopologyDTO}
+     *            is then always returned).
+     * @param baseVersion The version of the topology known by the client, null to get a complete {@link TopologyDTO}.
+     * @return A {@link TopologyDeltaDTO} if the changes since the base version can be computed, a complete {@link TopologyDTO} if not.
+     */
+    public TopologyDTO buildTopologyDTO(Topology topology, String clientId, Long baseVersion) {
+        if (clientId == null) {
+            return topologyService.buildTopologyDTO(topology);
+        }
+        String snapshotKey = clientId + ":" + topology.getId();
+        Long version = topology.getLastUpdateDate() == null ? null : topology.getLastUpdateDate().getTime();
+        TopologySnapshot previous = baseVersion == null ? null : snapshots.getIfPresent(snapshotKey);
+        TopologySnapshot current = new TopologySnapshot(version, hash(topology.getDependencies()));
+        if (topology.getNodeTemplates() != null) {
+            for (Map.Entry<String, NodeTemplate> nodeTemplateEntry : topology.getNodeTemplates().entrySet()) {
+                current.nodeTemplates.put(nodeTemplateEntry.getKey(), hash(nodeTemplateEntry.getValue()));
+            }
+        }
+
+        if (version == null || previous == null || !baseVersion.equals(previous.version) || !previous.dependencies.equals(current.dependencies)) {
+            return buildFullTopologyDTO(topology, snapshotKey, current);
+        }
+
+        TopologyDeltaDTO delta = new TopologyDeltaDTO();
+        delta.setVersion(version);
+        delta.setBaseVersion(baseVersion);
+        Topology topologyWithoutNodes = new Topology();
+        BeanUtils.copyProperties(topology, topologyWithoutNodes, "nodeTemplates");
+        delta.setTopology(topologyWithoutNodes);
+        delta.setOutputCapabilityProperties(topology.getOutputCapabilityProperties());
+        delta.setYaml(topologyService.getYaml(topology));
+
+        // node templates that have been added, updated or removed
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        Set<String> newNodeTypes = Sets.newHashSet();
+        Set<String> newRelationshipTypes = Sets.newHashSet();
+        for (Map.Entry<String, HashCode> nodeTemplateHash : current.nodeTemplates.entrySet()) {
+            if (nodeTemplateHash.getValue().equals(previous.nodeTemplates.get(nodeTemplateHash.getKey()))) {
+                continue;
+            }
+            NodeTemplate nodeTemplate = topology.getNodeTemplates().get(nodeTemplateHash.getKey());
+            nodeTemplates.put(nodeTemplateHash.getKey(), nodeTemplate);
+            if (!previous.nodeTypes.contains(nodeTemplate.getType())) {
+                newNodeTypes.add(nodeTemplate.getType());
+            }
+            if (nodeTemplate.getRelationships() != null) {
+                for (RelationshipTemplate relationshipTemplate : nodeTemplate.getRelationships().values()) {
+                    if (!previous.relationshipTypes.contains(relationshipTemplate.getType())) {
+                        newRelationshipTypes.add(relationshipTemplate.getType());
+                    }
+                }
+            }
+        }
+        delta.setNodeTemplates(nodeTemplates);
+        delta.setRemovedNodeTemplates(Sets.newHashSet(Sets.difference(previous.nodeTemplates.keySet(), current.nodeTemplates.keySet())));
+
+        // types that were not referenced in the base version
+        Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds = Maps.newHashMap();
+        elementIds.put(IndexedNodeType.class, newNodeTypes);
+        elementIds.put(IndexedRelationshipType.class, newRelationshipTypes);
+        TypeMap types = csarRepoSearchService.getElementsInDependencies(elementIds, topology.getDependencies());
+        Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
+        for (String nodeType : newNodeTypes) {
+            nodeTypes.put(nodeType, types.get(IndexedNodeType.class, nodeType));
+        }
+        Map<String, IndexedRelationshipType> relationshipTypes = Maps.newHashMap();
+        for (String relationshipType : newRelationshipTypes) {
+            relationshipTypes.put(relationshipType, types.get(IndexedRelationshipType.class, relationshipType));
+        }
+        if (nodeTypes.containsValue(null) || relationshipTypes.containsValue(null)) {
+            // let the complete DTO build report the missing types
+            return buildFullTopologyDTO(topology, snapshotKey, current);
+        }
+        Map<String, IndexedCapabilityType> capabilityTypes = topologyService.getIndexedCapabilityTypes(nodeTypes.values(), topology.getDependencies());
+        capabilityTypes.keySet().removeAll(previous.capabilityTypes);
+        delta.setNodeTypes(nodeTypes);
+        delta.setRelationshipTypes(relationshipTypes);
+        delta.setCapabilityTypes(capabilityTypes);
+
+        current.nodeTypes.addAll(previous.nodeTypes);
+        current.nodeTypes.addAll(nodeTypes.keySet());
+        current.relationshipTypes.addAll(previous.relationshipTypes);
+        current.relationshipTypes.addAll(relationshipTypes.keySet());
+        current.capabilityTypes.addAll(previous.capabilityTypes);
+        current.capabilityTypes.addAll(capabilityTypes.keySet());
+        if (!snapshots.asMap().replace(snapshotKey, previous, current)) {
+            // a concurrent request of the client replaced the snapshot, the state of the client is unknown
+            snapshots.invalidate(snapshotKey);
+        }
+        return delta;
+    }
+
+    private TopologyDTO buildFullTopologyDTO(Topology topology, String snapshotKey, TopologySnapshot snapshot) {
+        TopologyDTO topologyDTO = topologyService.buildTopologyDTO(topology);
+        snapshot.nodeTypes.addAll(topologyDTO.getNodeTypes().keySet());
+        snapshot.relationshipTypes.addAll(topologyDTO.getRelationshipTypes().keySet());
+        snapshot.capabilityTypes.addAll(topologyDTO.getCapabilityTypes().keySet());
+        if (snapshot.version == null) {
+            snapshots.invalidate(snapshotKey);
+        } else {
+            snapshots.put(snapshotKey, snapshot);
+        }
+        return topologyDTO;
+    }
+
+    @SneakyThrows(JsonProcessingException.class)
+    private HashCode hash(Object object) {
+        return Hashing.md5().hashBytes(alienDAO.getJsonMapper().writeValueAsString(object).getBytes(Charsets.UTF_8));
+    }
+
+    /** State of a topology as sent to the client. */
+    private static class TopologySnapshot {
+        private final Long version;
+        private final HashCode dependencies;
+        private final Map<String, HashCode> nodeTemplates = Maps.newHashMap();
+        private final Set<String> nodeTypes = Sets.newHashSet();
+        private final Set<String> relationshipTypes = Sets.newHashSet();
+        private final Set<String> capabilityTypes = Sets.newHashSet();
+
+        private TopologySnapshot(Long version, HashCode dependencies) {
+            this.version = version;
+            this.dependencies = dependencies;
+        }
+    }
+}
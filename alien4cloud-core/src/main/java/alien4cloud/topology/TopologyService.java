@@ -54,6 +54,7 @@ import alien4cloud.topology.task.TaskCode;
 import alien4cloud.tosca.container.ToscaTypeLoader;
 import alien4cloud.tosca.serializer.VelocityUtil;
 import alien4cloud.utils.MapUtil;
+import alien4cloud.utils.TypeMap;
 import alien4cloud.utils.VersionUtil;
 
 import com.google.common.collect.Maps;
@@ -84,10 +85,15 @@ public class TopologyService {
     @Resource
     private TopologyTemplateVersionService topologyTemplateVersionService;
 
+    @Resource
+    private TopologyYamlCache yamlCache;
+
     private ToscaTypeLoader initializeTypeLoader(Topology topology) {
         ToscaTypeLoader loader = new ToscaTypeLoader(csarService);
-        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, false, false);
-        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topology);
+        // fetch all the types of the topology at once rather than one by one
+        TypeMap types = topologyServiceCore.getIndexedTypesFromTopology(topology);
+        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, types, false, false);
+        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topology, types);
         if (topology.getNodeTemplates() != null) {
             for (NodeTemplate nodeTemplate : topology.getNodeTemplates().values()) {
                 IndexedNodeType nodeType = nodeTypes.get(nodeTemplate.getType());
@@ -116,16 +122,26 @@ public class TopologyService {
      * @return A map of capability types defined in the given node types.
      */
     public Map<String, IndexedCapabilityType> getIndexedCapabilityTypes(Collection<IndexedNodeType> nodeTypes, Collection<CSARDependency> dependencies) {
-        Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
+        Set<String> capabilityTypeIds = Sets.newHashSet();
         for (IndexedNodeType nodeType : nodeTypes) {
             if (nodeType.getCapabilities() != null) {
                 for (CapabilityDefinition capabilityDefinition : nodeType.getCapabilities()) {
-                    IndexedCapabilityType capabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class,
-                            capabilityDefinition.getType(), dependencies);
-                    capabilityTypes.put(capabilityDefinition.getType(), capabilityType);
+                    capabilityTypeIds.add(capabilityDefinition.getType());
                 }
             }
         }
+        Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds = Maps.newHashMap();
+        elementIds.put(IndexedCapabilityType.class, capabilityTypeIds);
+        TypeMap types = csarRepoSearchService.getElementsInDependencies(elementIds, dependencies);
+        Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
+        for (String capabilityTypeId : capabilityTypeIds) {
+            IndexedCapabilityType capabilityType = types.get(IndexedCapabilityType.class, capabilityTypeId);
+            if (capabilityType == null) {
+                throw new NotFoundException("Element elementId: <" + capabilityTypeId + "> of type <" + IndexedCapabilityType.class.getSimpleName()
+                        + "> cannot be found in dependencies " + dependencies);
+            }
+            capabilityTypes.put(capabilityTypeId, capabilityType);
+        }
         return capabilityTypes;
     }
 
@@ -308,12 +324,15 @@ public class TopologyService {
      * @return The {@link TopologyDTO} that contains the given topology
      */
     public TopologyDTO buildTopologyDTO(Topology topology) {
-        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, false, false);
-        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topology);
+        // fetch all the types of the topology at once rather than one by one
+        TypeMap types = topologyServiceCore.getIndexedTypesFromTopology(topology);
+        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, types, false, false);
+        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topology, types);
         Map<String, IndexedCapabilityType> capabilityTypes = getIndexedCapabilityTypes(nodeTypes.values(), topology.getDependencies());
-        String yaml = getYaml(topology);
         Map<String, Map<String, Set<String>>> outputCapabilityProperties = topology.getOutputCapabilityProperties();
-        return new TopologyDTO(topology, nodeTypes, relationshipTypes, capabilityTypes, outputCapabilityProperties, yaml);
+        String yaml = getYaml(topology);
+        Long version = topology.getLastUpdateDate() == null ? null : topology.getLastUpdateDate().getTime();
+        return new TopologyDTO(topology, nodeTypes, relationshipTypes, capabilityTypes, outputCapabilityProperties, yaml, version);
     }
 
     /**
@@ -445,13 +464,35 @@ public class TopologyService {
         return topologyTemplate;
     }
 
+    /**
+     * Get the TOSCA yaml of a topology. The yaml is cached by topology id and generated again only when the topology has been updated.
+     *
+     * @param topology The topology for which to get the yaml.
+     * @return The TOSCA yaml of the topology.
+     */
     public String getYaml(Topology topology) {
+        User loggedUser = AuthorizationUtil.getCurrentUser();
+        String author = loggedUser != null ? loggedUser.getUsername() : null;
+        String yaml = yamlCache.get(topology, author);
+        if (yaml != null) {
+            return yaml;
+        }
+        try {
+            yaml = generateYaml(topology, author);
+            yamlCache.put(topology, author, yaml);
+            return yaml;
+        } catch (Exception e) {
+            log.error("Exception while templating YAML for topology " + topology.getId(), e);
+            return ExceptionUtils.getFullStackTrace(e);
+        }
+    }
+
+    private String generateYaml(Topology topology, String author) throws Exception {
         Map<String, Object> velocityCtx = new HashMap<>();
         velocityCtx.put("topology", topology);
         velocityCtx.put("template_name", "template-id");
         velocityCtx.put("template_version", "1.0.0-SNAPSHOT");
-        User loggedUser = AuthorizationUtil.getCurrentUser();
-        velocityCtx.put("template_author", loggedUser != null ? loggedUser.getUsername() : null);
+        velocityCtx.put("template_author", author);
         if (Application.class.getSimpleName().toLowerCase().equals(topology.getDelegateType())) {
             String applicationId = topology.getDelegateId();
             Application application = appService.getOrFail(applicationId);
@@ -472,15 +513,8 @@ public class TopologyService {
             }
         }
 
-        try {
-            StringWriter writer = new StringWriter();
-            VelocityUtil.generate("templates/topology-1_0_0_wd03.yml.vm", writer, velocityCtx);
-            return writer.toString();
-        } catch (Exception e) {
-            log.error("Exception while templating YAML for topology " + topology.getId(), e);
-            return ExceptionUtils.getFullStackTrace(e);
-        }
-
+        StringWriter writer = new StringWriter();
+        VelocityUtil.generate("templates/topology-1_0_0_wd03.yml.vm", writer, velocityCtx);
+        return writer.toString();
     }
-
 }
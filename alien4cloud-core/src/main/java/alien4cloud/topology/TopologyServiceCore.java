@@ -1,14 +1,18 @@
 package alien4cloud.topology;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Resource;
 
+import lombok.extern.slf4j.Slf4j;
+
 import org.apache.commons.collections4.MapUtils;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Sets;
@@ -20,7 +24,9 @@ import alien4cloud.component.IToscaElementFinder;
 import alien4cloud.csar.services.CsarService;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.VersionedData;
 import alien4cloud.exception.NotFoundException;
+import alien4cloud.exception.VersionConflictException;
 import alien4cloud.model.components.AbstractPropertyValue;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.CapabilityDefinition;
@@ -45,11 +51,18 @@ import alien4cloud.model.topology.SubstitutionTarget;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.PropertyUtil;
+import alien4cloud.utils.TypeMap;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Maps;
 
+@Slf4j
 @Service
 public class TopologyServiceCore {
+    /** Number of times an update is applied on a freshly loaded topology when the topology has been updated concurrently. */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
 
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
@@ -76,8 +89,33 @@ public class TopologyServiceCore {
         }
     };
 
+    /**
+     * One lock per topology id to serialize the read-modify-write cycles of {@link #updateTopology(String, ITopologyUpdater)}, updates of different topologies
+     * never contend. Locks are weakly referenced and collected once no thread uses them.
+     */
+    private final LoadingCache<String, ReentrantLock> topologyLocks = CacheBuilder.newBuilder().weakValues()
+            .build(new CacheLoader<String, ReentrantLock>() {
+                @Override
+                public ReentrantLock load(String topologyId) {
+                    return new ReentrantLock();
+                }
+            });
+
+    /**
+     * Get a topology given its id. The version of the document is kept in the topology so that a concurrent update is detected when it is saved back
+     * using {@link #save(Topology)}.
+     *
+     * @param topologyId id of the topology
+     * @return the found topology or null if not found
+     */
     public Topology getTopology(String topologyId) {
-        return alienDAO.findById(Topology.class, topologyId);
+        VersionedData<Topology> versionedTopology = alienDAO.findVersionedById(Topology.class, topologyId);
+        if (versionedTopology == null) {
+            return null;
+        }
+        Topology topology = versionedTopology.getData();
+        topology.setDocumentVersion(versionedTopology.getVersion());
+        return topology;
     }
 
     /**
@@ -136,6 +174,43 @@ public class TopologyServiceCore {
         return getNodeTemplate(topology.getId(), nodeTemplateId, nodeTemplates);
     }
 
+    /**
+     * Get all the indexed types used in a topology (node types, relationship types and capability types of the node templates) using a single request.
+     *
+     * @param topology The topology for which to get indexed types.
+     * @return A type map that contains the indexed types used in the topology.
+     */
+    public TypeMap getIndexedTypesFromTopology(Topology topology) {
+        Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds = Maps.newHashMap();
+        Set<String> nodeTypes = Sets.newHashSet();
+        Set<String> relationshipTypes = Sets.newHashSet();
+        Set<String> capabilityTypes = Sets.newHashSet();
+        if (topology.getNodeTemplates() != null) {
+            for (NodeTemplate template : topology.getNodeTemplates().values()) {
+                nodeTypes.add(template.getType());
+                if (template.getRelationships() != null) {
+                    for (RelationshipTemplate relationship : template.getRelationships().values()) {
+                        relationshipTypes.add(relationship.getType());
+                    }
+                }
+                if (template.getCapabilities() != null) {
+                    for (Capability capability : template.getCapabilities().values()) {
+                        capabilityTypes.add(capability.getType());
+                    }
+                }
+                if (template.getRequirements() != null) {
+                    for (Requirement requirement : template.getRequirements().values()) {
+                        capabilityTypes.add(requirement.getType());
+                    }
+                }
+            }
+        }
+        elementIds.put(IndexedNodeType.class, nodeTypes);
+        elementIds.put(IndexedRelationshipType.class, relationshipTypes);
+        elementIds.put(IndexedCapabilityType.class, capabilityTypes);
+        return csarRepoSearchService.getElementsInDependencies(elementIds, topology.getDependencies());
+    }
+
     /**
      * Get the indexed node types used in a topology.
      *
@@ -146,14 +221,27 @@ public class TopologyServiceCore {
      * @return A map of indexed node types.
      */
     public Map<String, IndexedNodeType> getIndexedNodeTypesFromTopology(Topology topology, boolean abstractOnly, boolean useTemplateNameAsKey) {
+        return getIndexedNodeTypesFromTopology(topology, getIndexedTypesFromTopology(topology), abstractOnly, useTemplateNameAsKey);
+    }
+
+    /**
+     * Get the indexed node types used in a topology from the types already fetched for the topology.
+     *
+     * @param topology The topology for which to get indexed node types.
+     * @param types The indexed types of the topology as returned by {@link #getIndexedTypesFromTopology(Topology)}.
+     * @param abstractOnly If true, only abstract types will be retrieved.
+     * @param useTemplateNameAsKey If true the name of the node template will be used as key for the type in the returned map, if not the type will be used as
+     *            key.
+     * @return A map of indexed node types.
+     */
+    public Map<String, IndexedNodeType> getIndexedNodeTypesFromTopology(Topology topology, TypeMap types, boolean abstractOnly, boolean useTemplateNameAsKey) {
         Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
         if (topology.getNodeTemplates() == null) {
             return nodeTypes;
         }
         for (Map.Entry<String, NodeTemplate> template : topology.getNodeTemplates().entrySet()) {
             if (!nodeTypes.containsKey(template.getValue().getType())) {
-                IndexedNodeType nodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, template.getValue().getType(),
-                        topology.getDependencies());
+                IndexedNodeType nodeType = getRequiredType(types, IndexedNodeType.class, template.getValue().getType(), topology);
                 if (!abstractOnly || nodeType.isAbstract()) {
                     String key = useTemplateNameAsKey ? template.getKey() : template.getValue().getType();
                     nodeTypes.put(key, nodeType);
@@ -170,6 +258,17 @@ public class TopologyServiceCore {
      * @return the map containing rel
      */
     public Map<String, IndexedRelationshipType> getIndexedRelationshipTypesFromTopology(Topology topology) {
+        return getIndexedRelationshipTypesFromTopology(topology, getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Get IndexedRelationshipType in a topology from the types already fetched for the topology.
+     *
+     * @param topology the topology to find all relationship types
+     * @param types The indexed types of the topology as returned by {@link #getIndexedTypesFromTopology(Topology)}.
+     * @return the map containing rel
+     */
+    public Map<String, IndexedRelationshipType> getIndexedRelationshipTypesFromTopology(Topology topology, TypeMap types) {
         Map<String, IndexedRelationshipType> relationshipTypes = Maps.newHashMap();
         if (topology.getNodeTemplates() == null) {
             return relationshipTypes;
@@ -180,8 +279,7 @@ public class TopologyServiceCore {
                 for (Map.Entry<String, RelationshipTemplate> relationshipEntry : template.getRelationships().entrySet()) {
                     RelationshipTemplate relationship = relationshipEntry.getValue();
                     if (!relationshipTypes.containsKey(relationship.getType())) {
-                        IndexedRelationshipType relationshipType = csarRepoSearchService.getRequiredElementInDependencies(IndexedRelationshipType.class,
-                                relationship.getType(), topology.getDependencies());
+                        IndexedRelationshipType relationshipType = getRequiredType(types, IndexedRelationshipType.class, relationship.getType(), topology);
                         relationshipTypes.put(relationship.getType(), relationshipType);
                     }
                 }
@@ -197,6 +295,17 @@ public class TopologyServiceCore {
      * @return the map containing rel
      */
     public Map<String, IndexedCapabilityType> getIndexedCapabilityTypesFromTopology(Topology topology) {
+        return getIndexedCapabilityTypesFromTopology(topology, getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Get the IndexedCapabilityType of the capabilities of a topology from the types already fetched for the topology.
+     *
+     * @param topology the topology to find all capability types
+     * @param types The indexed types of the topology as returned by {@link #getIndexedTypesFromTopology(Topology)}.
+     * @return the map containing capability type id --> capability type
+     */
+    public Map<String, IndexedCapabilityType> getIndexedCapabilityTypesFromTopology(Topology topology, TypeMap types) {
         Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
         if (topology.getNodeTemplates() == null) {
             return capabilityTypes;
@@ -207,8 +316,7 @@ public class TopologyServiceCore {
                 for (Map.Entry<String, Capability> capabilityEntry : template.getCapabilities().entrySet()) {
                     Capability capability = capabilityEntry.getValue();
                     if (!capabilityTypes.containsKey(capability.getType())) {
-                        IndexedCapabilityType capabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class,
-                                capability.getType(), topology.getDependencies());
+                        IndexedCapabilityType capabilityType = getRequiredType(types, IndexedCapabilityType.class, capability.getType(), topology);
                         capabilityTypes.put(capability.getType(), capabilityType);
                     }
                 }
@@ -217,6 +325,24 @@ public class TopologyServiceCore {
         return capabilityTypes;
     }
 
+    /**
+     * Get a type from the types already fetched for a topology.
+     *
+     * @param types The indexed types of the topology as returned by {@link #getIndexedTypesFromTopology(Topology)}.
+     * @param elementClass The class of the type to get.
+     * @param elementId The id of the type to get.
+     * @param topology The topology that uses the type.
+     * @return The type, throws NotFoundException if the type cannot be found in the dependencies of the topology.
+     */
+    public static <T extends IndexedToscaElement> T getRequiredType(TypeMap types, Class<T> elementClass, String elementId, Topology topology) {
+        T element = types.get(elementClass, elementId);
+        if (element == null) {
+            throw new NotFoundException("Element elementId: <" + elementId + "> of type <" + elementClass.getSimpleName()
+                    + "> cannot be found in dependencies " + topology.getDependencies());
+        }
+        return element;
+    }
+
     public NodeTemplate buildNodeTemplate(Set<CSARDependency> dependencies, IndexedNodeType indexedNodeType, NodeTemplate templateToMerge) {
         return buildNodeTemplate(dependencies, indexedNodeType, templateToMerge, repoToscaElementFinder);
     }
@@ -341,6 +467,7 @@ public class TopologyServiceCore {
     public TopologyTemplate createTopologyTemplate(Topology topology, String name, String description, String version) {
         String topologyId = UUID.randomUUID().toString();
         topology.setId(topologyId);
+        topology.setDocumentVersion(null);
 
         String topologyTemplateId = UUID.randomUUID().toString();
         TopologyTemplate topologyTemplate = new TopologyTemplate();
@@ -351,7 +478,7 @@ public class TopologyServiceCore {
         topology.setDelegateId(topologyTemplateId);
         topology.setDelegateType(TopologyTemplate.class.getSimpleName().toLowerCase());
 
-        this.alienDAO.save(topology);
+        save(topology);
         this.alienDAO.save(topologyTemplate);
         if (version == null) {
             topologyTemplateVersionService.createVersion(topologyTemplateId, null, topology);
@@ -401,6 +528,61 @@ public class TopologyServiceCore {
         return null;
     }
 
+    /**
+     * Save a topology and update its last update date.
+     * 
+     * If the topology has been read using {@link #getTopology(String)} it is saved only if it has not been updated since it has been read. Updates that
+     * are not triggered by a user (and so cannot be applied again by the user on a conflict) should use {@link #updateTopology(String, ITopologyUpdater)}.
+     * 
+     * @param topology The topology to save.
+     * @throws VersionConflictException if the topology has been updated since it has been read.
+     */
+    public void save(Topology topology) {
+        long now = System.currentTimeMillis();
+        // the last update date is used to detect changes (yaml cache), make sure it changes even for updates done in the same millisecond.
+        if (topology.getLastUpdateDate() != null && topology.getLastUpdateDate().getTime() >= now) {
+            now = topology.getLastUpdateDate().getTime() + 1;
+        }
+        topology.setLastUpdateDate(new Date(now));
+        if (topology.getDocumentVersion() == null) {
+            alienDAO.save(topology);
+        } else {
+            topology.setDocumentVersion(alienDAO.saveIfVersion(topology, topology.getDocumentVersion()));
+        }
+    }
+
+    /**
+     * Load a topology, apply an update and save it. Updates of the same topology are serialized and the update is applied again on a freshly loaded
+     * topology if the topology has been updated concurrently (by another alien instance for example).
+     * 
+     * @param topologyId The id of the topology to update.
+     * @param updater The update to apply.
+     * @return The updated topology.
+     * @throws NotFoundException if the topology doesn't exist.
+     * @throws VersionConflictException if the topology has been updated concurrently on every attempt.
+     */
+    public Topology updateTopology(String topologyId, ITopologyUpdater updater) {
+        ReentrantLock lock = topologyLocks.getUnchecked(topologyId);
+        lock.lock();
+        try {
+            for (int attempt = 1;; attempt++) {
+                Topology topology = getMandatoryTopology(topologyId);
+                updater.update(topology);
+                try {
+                    save(topology);
+                    return topology;
+                } catch (VersionConflictException e) {
+                    if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Topology <{}> has been updated concurrently, applying the update again (attempt {}).", topologyId, attempt + 1);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Assign an id to the topology, save it and return the generated id.
      * 
@@ -410,7 +592,8 @@ public class TopologyServiceCore {
     public String saveTopology(Topology topology) {
         String topologyId = UUID.randomUUID().toString();
         topology.setId(topologyId);
-        this.alienDAO.save(topology);
+        topology.setDocumentVersion(null);
+        save(topology);
         return topologyId;
     }
 
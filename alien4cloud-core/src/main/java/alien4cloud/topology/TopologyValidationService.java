@@ -36,6 +36,7 @@ import alien4cloud.topology.validation.TopologyAbstractNodeValidationService;
 import alien4cloud.topology.validation.TopologyAbstractRelationshipValidationService;
 import alien4cloud.topology.validation.TopologyPropertiesValidationService;
 import alien4cloud.topology.validation.TopologyRequirementBoundsValidationServices;
+import alien4cloud.utils.TypeMap;
 import alien4cloud.utils.services.ConstraintPropertyService;
 
 @Service
@@ -68,6 +69,8 @@ public class TopologyValidationService {
     private NodeFilterValidationService nodeFilterValidationService;
     @Resource
     private WorkflowsBuilderService workflowBuilderService;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Validate if a topology is valid for deployment or not
@@ -83,6 +86,9 @@ public class TopologyValidationService {
             return dto;
         }
 
+        // fetch all the types of the topology in a single request and share them with the validation services.
+        TypeMap types = topologyServiceCore.getIndexedTypesFromTopology(topology);
+
         // validate the workflows
         List<WorkflowTask> tasks = Lists.newArrayList();
         if (topology.getWorkflows() != null) {
@@ -102,20 +108,20 @@ public class TopologyValidationService {
         dto.addToTaskList(tasks);
 
         // validate abstract relationships
-        dto.addToTaskList(topologyAbstractRelationshipValidationService.validateAbstractRelationships(topology));
+        dto.addToTaskList(topologyAbstractRelationshipValidationService.validateAbstractRelationships(topology, types));
 
         // validate abstract node types and find suggestions
-        dto.addToTaskList(topologyAbstractNodeValidationService.findReplacementForAbstracts(topology));
+        dto.addToTaskList(topologyAbstractNodeValidationService.findReplacementForAbstracts(topology, types));
 
         // validate requirements lowerBounds
-        dto.addToTaskList(topologyRequirementBoundsValidationServices.validateRequirementsLowerBounds(topology));
+        dto.addToTaskList(topologyRequirementBoundsValidationServices.validateRequirementsLowerBounds(topology, types));
 
         // validate the node filters for all relationships
-        dto.addToTaskList(nodeFilterValidationService.validateRequirementFilters(topology));
+        dto.addToTaskList(nodeFilterValidationService.validateRequirementFilters(topology, types));
 
         // validate required properties (properties of NodeTemplate, Relationship and Capability)
         // check also CLOUD / ENVIRONMENT meta properties
-        List<PropertiesTask> validateProperties = topologyPropertiesValidationService.validateProperties(topology);
+        List<PropertiesTask> validateProperties = topologyPropertiesValidationService.validateProperties(topology, types);
         if (hasOnlyPropertiesWarnings(validateProperties)) {
             dto.addToWarningList(validateProperties);
         } else {
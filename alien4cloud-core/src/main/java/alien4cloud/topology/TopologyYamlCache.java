@@ -0,0 +1,105 @@
+package alien4cloud.topology;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.AllArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.IDAOWriteListener;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.topology.Topology;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the TOSCA yaml generated for the topologies.
+ *
+ * Entries are keyed by topology id and are reused only while the last update date of the topology and the author match. Entries are invalidated whenever
+ * a topology is saved or deleted through the dao and also expire after some time as renaming an application or a version does not update the topology.
+ */
+@Component
+public class TopologyYamlCache implements IDAOWriteListener {
+    private static final int YAML_CACHE_SIZE = 100;
+    private static final long YAML_CACHE_EXPIRATION_MINUTES = 10;
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+
+    private final Cache<String, CachedYaml> cache = CacheBuilder.newBuilder().maximumSize(YAML_CACHE_SIZE)
+            .expireAfterWrite(YAML_CACHE_EXPIRATION_MINUTES, TimeUnit.MINUTES).build();
+
+    @PostConstruct
+    public void init() {
+        alienDAO.addWriteListener(this);
+    }
+
+    /**
+     * Get the cached yaml of a topology.
+     *
+     * @param topology The topology for which to get the yaml.
+     * @param author The author of the yaml.
+     * @return The cached yaml or null if the topology is not cacheable, not cached or has been updated since the yaml has been cached.
+     */
+    public String get(Topology topology, String author) {
+        if (!isCacheable(topology)) {
+            return null;
+        }
+        CachedYaml cachedYaml = cache.getIfPresent(topology.getId());
+        if (cachedYaml != null && cachedYaml.lastUpdateDate.equals(topology.getLastUpdateDate()) && Objects.equal(cachedYaml.author, author)) {
+            return cachedYaml.yaml;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the yaml generated for a topology, topologies without id or last update date are not cached.
+     *
+     * @param topology The topology for which the yaml has been generated.
+     * @param author The author of the yaml.
+     * @param yaml The generated yaml.
+     */
+    public void put(Topology topology, String author, String yaml) {
+        if (isCacheable(topology)) {
+            cache.put(topology.getId(), new CachedYaml(topology.getLastUpdateDate(), author, yaml));
+        }
+    }
+
+    private boolean isCacheable(Topology topology) {
+        return topology.getId() != null && topology.getLastUpdateDate() != null;
+    }
+
+    @Override
+    public void saved(Object data) {
+        if (data instanceof Topology) {
+            cache.invalidate(((Topology) data).getId());
+        }
+    }
+
+    @Override
+    public void deleted(Class<?> clazz, String id) {
+        if (Topology.class.equals(clazz)) {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public void deletedByQuery(Class<?> clazz) {
+        if (Topology.class.equals(clazz)) {
+            cache.invalidateAll();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class CachedYaml {
+        private final Date lastUpdateDate;
+        private final String author;
+        private final String yaml;
+    }
+}
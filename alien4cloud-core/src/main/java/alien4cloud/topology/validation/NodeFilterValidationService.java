@@ -7,7 +7,6 @@ import javax.annotation.Resource;
 
 import org.springframework.stereotype.Component;
 
-import alien4cloud.component.CSARRepositorySearchService;
 import alien4cloud.exception.InvalidArgumentException;
 import alien4cloud.model.components.AbstractPropertyValue;
 import alien4cloud.model.components.CapabilityDefinition;
@@ -32,6 +31,7 @@ import alien4cloud.tosca.normative.IPropertyType;
 import alien4cloud.tosca.normative.ToscaType;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
+import alien4cloud.utils.TypeMap;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -41,8 +41,6 @@ import com.google.common.collect.Maps;
  */
 @Component
 public class NodeFilterValidationService {
-    @Resource
-    private CSARRepositorySearchService csarRepoSearchService;
     @Resource
     private TopologyServiceCore topologyServiceCore;
 
@@ -58,17 +56,23 @@ public class NodeFilterValidationService {
      * Performs validation of the node filters to check that relationships targets the filter requirements.
      */
     public List<NodeFiltersTask> validateRequirementFilters(Topology topology) {
+        return validateRequirementFilters(topology, topologyServiceCore.getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Performs validation of the node filters to check that relationships targets the filter requirements using the types already fetched for the topology.
+     */
+    public List<NodeFiltersTask> validateRequirementFilters(Topology topology, TypeMap types) {
         List<NodeFiltersTask> toReturnTaskList = Lists.newArrayList();
         Map<String, NodeTemplate> nodeTemplates = topology.getNodeTemplates();
-        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, false, true);
-        Map<String, IndexedCapabilityType> capabilityTypes = topologyServiceCore.getIndexedCapabilityTypesFromTopology(topology);
+        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, types, false, true);
+        Map<String, IndexedCapabilityType> capabilityTypes = topologyServiceCore.getIndexedCapabilityTypesFromTopology(topology, types);
         for (Map.Entry<String, NodeTemplate> nodeTempEntry : nodeTemplates.entrySet()) {
             Map<String, RelationshipTemplate> relationshipsMap = nodeTempEntry.getValue().getRelationships();
             if (relationshipsMap == null || relationshipsMap.isEmpty()) {
                 continue;
             }
-            IndexedNodeType sourceNodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, nodeTempEntry.getValue().getType(),
-                    topology.getDependencies());
+            IndexedNodeType sourceNodeType = nodeTypes.get(nodeTempEntry.getKey());
             if (sourceNodeType.isAbstract()) {
                 continue;
             }
@@ -5,6 +5,7 @@ import alien4cloud.model.topology.Topology;
 import alien4cloud.topology.TopologyService;
 import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.task.SuggestionsTask;
+import alien4cloud.utils.TypeMap;
 import com.google.common.collect.Maps;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
@@ -29,9 +30,16 @@ public class TopologyAbstractNodeValidationService {
     /**
      * Find replacements components for abstract nodes in a Topology
      */
-    @SneakyThrows({ IOException.class })
     public List<SuggestionsTask> findReplacementForAbstracts(Topology topology) {
-        Map<String, IndexedNodeType> nodeTempNameToAbstractIndexedNodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, true, true);
+        return findReplacementForAbstracts(topology, topologyServiceCore.getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Find replacements components for abstract nodes in a Topology using the types already fetched for the topology.
+     */
+    @SneakyThrows({ IOException.class })
+    public List<SuggestionsTask> findReplacementForAbstracts(Topology topology, TypeMap types) {
+        Map<String, IndexedNodeType> nodeTempNameToAbstractIndexedNodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, types, true, true);
         Map<String, Map<String, Set<String>>> nodeTemplatesToFilters = Maps.newHashMap();
         for (Map.Entry<String, IndexedNodeType> idntEntry : nodeTempNameToAbstractIndexedNodeTypes.entrySet()) {
             topologyService.processNodeTemplate(topology, Maps.immutableEntry(idntEntry.getKey(), topology.getNodeTemplates().get(idntEntry.getKey())),
@@ -1,14 +1,15 @@
 package alien4cloud.topology.validation;
 
-import alien4cloud.component.CSARRepositorySearchService;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedRelationshipType;
 import alien4cloud.model.topology.NodeTemplate;
 import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.task.TaskCode;
 import alien4cloud.topology.task.TopologyTask;
+import alien4cloud.utils.TypeMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.elasticsearch.common.collect.Lists;
@@ -25,7 +26,7 @@ import java.util.Set;
 @Component
 public class TopologyAbstractRelationshipValidationService {
     @Resource
-    private CSARRepositorySearchService csarRepoSearchService;
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Checks that no relationships in a topology are abstract (and cannot be instanciated).
@@ -34,7 +35,18 @@ public class TopologyAbstractRelationshipValidationService {
      * @return A list tasks to be done to make this topology valid.
      */
     public List<TopologyTask> validateAbstractRelationships(Topology topology) {
-        Map<String, IndexedRelationshipType[]> abstractIndexedRelationshipTypes = getIndexedRelationshipTypesFromTopology(topology, true);
+        return validateAbstractRelationships(topology, topologyServiceCore.getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Checks that no relationships in a topology are abstract (and cannot be instanciated).
+     *
+     * @param topology The topology to validate.
+     * @param types The indexed types of the topology as returned by {@link TopologyServiceCore#getIndexedTypesFromTopology(Topology)}.
+     * @return A list tasks to be done to make this topology valid.
+     */
+    public List<TopologyTask> validateAbstractRelationships(Topology topology, TypeMap types) {
+        Map<String, IndexedRelationshipType[]> abstractIndexedRelationshipTypes = getIndexedRelationshipTypesFromTopology(topology, types, true);
         return getTaskListFromMapArray(abstractIndexedRelationshipTypes, TaskCode.IMPLEMENT);
     }
 
@@ -42,10 +54,11 @@ public class TopologyAbstractRelationshipValidationService {
      * Get the relationships from a topology
      *
      * @param topology topology to be validated
+     * @param types The indexed types of the topology.
      * @param abstractOnes if only abstract ones should be retrieved
      * @return a map containing node template id --> list of relationship type that this node references
      */
-    private Map<String, IndexedRelationshipType[]> getIndexedRelationshipTypesFromTopology(Topology topology, Boolean abstractOnes) {
+    private Map<String, IndexedRelationshipType[]> getIndexedRelationshipTypesFromTopology(Topology topology, TypeMap types, Boolean abstractOnes) {
         Map<String, IndexedRelationshipType[]> indexedRelationshipTypesMap = Maps.newHashMap();
         if (topology.getNodeTemplates() == null) {
             return indexedRelationshipTypesMap;
@@ -57,8 +70,7 @@ public class TopologyAbstractRelationshipValidationService {
 
             Set<IndexedRelationshipType> indexedRelationshipTypes = Sets.newHashSet();
             for (RelationshipTemplate relTemplate : template.getValue().getRelationships().values()) {
-                IndexedRelationshipType indexedRelationshipType = csarRepoSearchService.getElementInDependencies(IndexedRelationshipType.class,
-                        relTemplate.getType(), topology.getDependencies());
+                IndexedRelationshipType indexedRelationshipType = types.get(IndexedRelationshipType.class, relTemplate.getType());
                 if (indexedRelationshipType != null) {
                     if (abstractOnes == null || abstractOnes.equals(indexedRelationshipType.isAbstract())) {
                         indexedRelationshipTypes.add(indexedRelationshipType);
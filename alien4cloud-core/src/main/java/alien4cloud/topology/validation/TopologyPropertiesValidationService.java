@@ -12,7 +12,6 @@ import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.common.collect.Lists;
 
-import alien4cloud.component.CSARRepositorySearchService;
 import alien4cloud.exception.InvalidArgumentException;
 import alien4cloud.model.components.*;
 import alien4cloud.model.topology.Capability;
@@ -20,11 +19,13 @@ import alien4cloud.model.topology.NodeTemplate;
 import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.function.FunctionEvaluator;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.task.PropertiesTask;
 import alien4cloud.topology.task.ScalableTask;
 import alien4cloud.topology.task.TaskCode;
 import alien4cloud.topology.task.TaskLevel;
 import alien4cloud.tosca.normative.NormativeComputeConstants;
+import alien4cloud.utils.TypeMap;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -36,7 +37,7 @@ import org.springframework.stereotype.Component;
 @Component
 public class TopologyPropertiesValidationService {
     @Resource
-    private CSARRepositorySearchService csarRepoSearchService;
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Validate that the properties values in the topology are matching the property definitions (required & constraints).
@@ -45,6 +46,17 @@ public class TopologyPropertiesValidationService {
      * @return A list tasks to be done to make this topology valid.
      */
     public List<PropertiesTask> validateProperties(Topology topology) {
+        return validateProperties(topology, topologyServiceCore.getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Validate that the properties values in the topology are matching the property definitions (required & constraints).
+     *
+     * @param topology The actual topology to validate.
+     * @param types The indexed types of the topology as returned by {@link TopologyServiceCore#getIndexedTypesFromTopology(Topology)}.
+     * @return A list tasks to be done to make this topology valid.
+     */
+    public List<PropertiesTask> validateProperties(Topology topology, TypeMap types) {
         List<PropertiesTask> toReturnTaskList = Lists.newArrayList();
         Map<String, NodeTemplate> nodeTemplates = topology.getNodeTemplates();
 
@@ -54,8 +66,7 @@ public class TopologyPropertiesValidationService {
             if (nodeTemplate.getProperties() == null || nodeTemplate.getProperties().isEmpty()) {
                 continue;
             }
-            IndexedNodeType relatedIndexedNodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, nodeTemplate.getType(),
-                    topology.getDependencies());
+            IndexedNodeType relatedIndexedNodeType = TopologyServiceCore.getRequiredType(types, IndexedNodeType.class, nodeTemplate.getType(), topology);
             // do pass if abstract node
             if (relatedIndexedNodeType.isAbstract()) {
                 continue;
@@ -78,7 +89,7 @@ public class TopologyPropertiesValidationService {
                     if (relationship.getProperties() == null || relationship.getProperties().isEmpty()) {
                         continue;
                     }
-                    addRequiredPropertyIdToTaskProperties(relationship.getProperties(), getRelationshipPropertyDefinition(topology, nodeTemplate), task);
+                    addRequiredPropertyIdToTaskProperties(relationship.getProperties(), getRelationshipPropertyDefinition(topology, types, nodeTemplate), task);
                 }
             }
 
@@ -89,7 +100,7 @@ public class TopologyPropertiesValidationService {
                     if (capability.getProperties() == null || capability.getProperties().isEmpty()) {
                         continue;
                     }
-                    addRequiredPropertyIdToTaskProperties(capability.getProperties(), getCapabilitiesPropertyDefinition(topology, nodeTemplate), task);
+                    addRequiredPropertyIdToTaskProperties(capability.getProperties(), getCapabilitiesPropertyDefinition(topology, types, nodeTemplate), task);
                     if (capability.getType().equals(NormativeComputeConstants.SCALABLE_CAPABILITY_TYPE)) {
                         Map<String, AbstractPropertyValue> scalableProperties = capability.getProperties();
                         verifyScalableProperties(scalableProperties, toReturnTaskList, nodeTempEntry.getKey());
@@ -107,12 +118,12 @@ public class TopologyPropertiesValidationService {
         return toReturnTaskList.isEmpty() ? null : toReturnTaskList;
     }
 
-    private Map<String, PropertyDefinition> getCapabilitiesPropertyDefinition(Topology topology, NodeTemplate nodeTemplate) {
+    private Map<String, PropertyDefinition> getCapabilitiesPropertyDefinition(Topology topology, TypeMap types, NodeTemplate nodeTemplate) {
         Map<String, PropertyDefinition> relatedProperties = Maps.newTreeMap();
 
         for (Map.Entry<String, Capability> capabilityEntry : nodeTemplate.getCapabilities().entrySet()) {
-            IndexedCapabilityType indexedCapabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class, capabilityEntry
-                    .getValue().getType(), topology.getDependencies());
+            IndexedCapabilityType indexedCapabilityType = TopologyServiceCore.getRequiredType(types, IndexedCapabilityType.class, capabilityEntry.getValue()
+                    .getType(), topology);
             if (indexedCapabilityType.getProperties() != null && !indexedCapabilityType.getProperties().isEmpty()) {
                 relatedProperties.putAll(indexedCapabilityType.getProperties());
             }
@@ -121,12 +132,12 @@ public class TopologyPropertiesValidationService {
         return relatedProperties;
     }
 
-    private Map<String, PropertyDefinition> getRelationshipPropertyDefinition(Topology topology, NodeTemplate nodeTemplate) {
+    private Map<String, PropertyDefinition> getRelationshipPropertyDefinition(Topology topology, TypeMap types, NodeTemplate nodeTemplate) {
         Map<String, PropertyDefinition> relatedProperties = Maps.newTreeMap();
 
         for (Map.Entry<String, RelationshipTemplate> relationshipTemplateEntry : nodeTemplate.getRelationships().entrySet()) {
-            IndexedRelationshipType indexedRelationshipType = csarRepoSearchService.getRequiredElementInDependencies(IndexedRelationshipType.class,
-                    relationshipTemplateEntry.getValue().getType(), topology.getDependencies());
+            IndexedRelationshipType indexedRelationshipType = TopologyServiceCore.getRequiredType(types, IndexedRelationshipType.class,
+                    relationshipTemplateEntry.getValue().getType(), topology);
             if (indexedRelationshipType.getProperties() != null && !indexedRelationshipType.getProperties().isEmpty()) {
                 relatedProperties.putAll(indexedRelationshipType.getProperties());
             }
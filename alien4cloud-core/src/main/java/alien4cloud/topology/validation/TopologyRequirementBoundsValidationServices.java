@@ -8,6 +8,7 @@ import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.Requirement;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.function.FunctionEvaluator;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.task.RequirementToSatisfy;
 import alien4cloud.topology.task.RequirementsTask;
 import alien4cloud.topology.task.TaskCode;
@@ -15,6 +16,7 @@ import alien4cloud.tosca.normative.IPropertyType;
 import alien4cloud.tosca.normative.ToscaType;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
+import alien4cloud.utils.TypeMap;
 import org.apache.commons.collections4.CollectionUtils;
 import org.elasticsearch.common.collect.Lists;
 import org.springframework.stereotype.Component;
@@ -32,6 +34,8 @@ import java.util.Set;
 public class TopologyRequirementBoundsValidationServices {
     @Resource
     private CSARRepositorySearchService csarRepoSearchService;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Check if the upperBound of a requirement is reached on a node template
@@ -67,6 +71,17 @@ public class TopologyRequirementBoundsValidationServices {
      * @return A list of validation errors (tasks to be done to make the topology compliant).
      */
     public List<RequirementsTask> validateRequirementsLowerBounds(Topology topology) {
+        return validateRequirementsLowerBounds(topology, topologyServiceCore.getIndexedTypesFromTopology(topology));
+    }
+
+    /**
+     * Perform validation of requirements bounds/occurences for the given topology using the types already fetched for the topology.
+     * 
+     * @param topology The topology to check
+     * @param types The indexed types of the topology as returned by {@link TopologyServiceCore#getIndexedTypesFromTopology(Topology)}.
+     * @return A list of validation errors (tasks to be done to make the topology compliant).
+     */
+    public List<RequirementsTask> validateRequirementsLowerBounds(Topology topology, TypeMap types) {
         List<RequirementsTask> toReturnTaskList = Lists.newArrayList();
         Map<String, NodeTemplate> nodeTemplates = topology.getNodeTemplates();
         for (Map.Entry<String, NodeTemplate> nodeTempEntry : nodeTemplates.entrySet()) {
@@ -74,8 +89,7 @@ public class TopologyRequirementBoundsValidationServices {
             if (nodeTemp.getRequirements() == null) {
                 continue;
             }
-            IndexedNodeType relatedIndexedNodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, nodeTemp.getType(),
-                    topology.getDependencies());
+            IndexedNodeType relatedIndexedNodeType = TopologyServiceCore.getRequiredType(types, IndexedNodeType.class, nodeTemp.getType(), topology);
             // do pass if abstract node
             if (relatedIndexedNodeType.isAbstract()) {
                 continue;
@@ -4,16 +4,24 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.common.Tag;
 import alien4cloud.images.IImageDAO;
-import alien4cloud.images.ImageData;
 import alien4cloud.images.exception.ImageUploadException;
 import alien4cloud.tosca.model.ArchiveRoot;
 import alien4cloud.tosca.parser.ParsingError;
@@ -21,9 +29,18 @@ import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Import images from CloudServiceArchive to ElasticSearch
+ * 
+ * Images are identified by the hash of their content so an icon used by many elements (or archives) is stored only once. The icons of an archive are
+ * decoded and stored concurrently.
  */
+@Slf4j
 @Component
 public class ArchiveImageLoader {
     private static final String ALIEN_ICON_TAG = "icon";
@@ -31,28 +48,60 @@ public class ArchiveImageLoader {
     @Resource
     private IImageDAO imageDAO;
 
+    /** Number of images stored concurrently. */
+    @Value("${archive.image_threads:2}")
+    private int imageThreads;
+
+    private ExecutorService imageExecutor;
+
+    @PostConstruct
+    public void init() {
+        imageExecutor = Executors.newFixedThreadPool(imageThreads, new ThreadFactoryBuilder().setNameFormat("archive-image-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        imageExecutor.shutdownNow();
+    }
+
     /**
      * Import all images from the artifacts types in an archive.
      * 
      * @param archiveFile The path to the archive root.
      * @param archiveRoot The archive root object.
      */
-    @SuppressWarnings("unchecked")
     public void importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult) {
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getNodeTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getRelationshipTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getCapabilityTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getArtifactTypes());
+        try (FileSystem csarFS = FileSystems.newFileSystem(archiveFile, null)) {
+            List<IconImport> iconImports = Lists.newArrayList();
+            // icons are written once per path in the archive
+            Map<String, Future<String>> imageIdsByPath = Maps.newHashMap();
+            importImages(csarFS, parsingResult, iconImports, imageIdsByPath);
+            for (IconImport iconImport : iconImports) {
+                setIconId(iconImport, imageIdsByPath.get(iconImport.iconPath.toString()));
+            }
+        } catch (IOException e) {
+            log.error("Unable to read archive [" + archiveFile + "] to import images", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void importImages(FileSystem csarFS, ParsingResult<ArchiveRoot> parsingResult, List<IconImport> iconImports,
+            Map<String, Future<String>> imageIdsByPath) {
+        importImages(csarFS, parsingResult, parsingResult.getResult().getNodeTypes(), iconImports, imageIdsByPath);
+        importImages(csarFS, parsingResult, parsingResult.getResult().getRelationshipTypes(), iconImports, imageIdsByPath);
+        importImages(csarFS, parsingResult, parsingResult.getResult().getCapabilityTypes(), iconImports, imageIdsByPath);
+        importImages(csarFS, parsingResult, parsingResult.getResult().getArtifactTypes(), iconImports, imageIdsByPath);
 
         for (ParsingResult<?> subResult : parsingResult.getContext().getSubResults()) {
             if (subResult.getResult() instanceof ArchiveRoot) {
-                importImages(archiveFile, (ParsingResult<ArchiveRoot>) subResult);
+                importImages(csarFS, (ParsingResult<ArchiveRoot>) subResult, iconImports, imageIdsByPath);
             }
         }
     }
 
-    private void importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult,
-            Map<String, ? extends IndexedInheritableToscaElement> toscaInheritableElement) {
+    private void importImages(FileSystem csarFS, ParsingResult<ArchiveRoot> parsingResult,
+            Map<String, ? extends IndexedInheritableToscaElement> toscaInheritableElement, List<IconImport> iconImports,
+            Map<String, Future<String>> imageIdsByPath) {
         if (toscaInheritableElement == null) {
             return;
         }
@@ -61,21 +110,15 @@ public class ArchiveImageLoader {
                 List<Tag> tags = element.getValue().getTags();
                 Tag iconTag = ArchiveImageLoader.getIconTag(tags);
                 if (iconTag != null) {
-                    FileSystem csarFS = null;
                     Path iconPath = null;
 
                     try {
-                        csarFS = FileSystems.newFileSystem(archiveFile, null);
                         iconPath = csarFS.getPath(iconTag.getValue());
                         if (!Files.isDirectory(iconPath)) {
-                            String iconId = UUID.randomUUID().toString();
-                            // Saving the image
-                            ImageData imageData = new ImageData();
-                            imageData.setData(Files.readAllBytes(iconPath));
-                            imageData.setId(iconId);
-                            imageDAO.writeImage(imageData);
-                            // Replace the image uri by the indexed image ID
-                            iconTag.setValue(iconId);
+                            if (!imageIdsByPath.containsKey(iconPath.toString())) {
+                                imageIdsByPath.put(iconPath.toString(), submitImage(Files.readAllBytes(iconPath)));
+                            }
+                            iconImports.add(new IconImport(parsingResult, iconTag, iconPath));
                         } else {
                             parsingResult
                                     .getContext()
@@ -88,13 +131,7 @@ public class ArchiveImageLoader {
                                 .getContext()
                                 .getParsingErrors()
                                 .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.MISSING_FILE, "Icon loading", null, "No icon file found at path <"
-                                        + iconPath + ">", null, iconPath.toString()));
-                    } catch (ImageUploadException e) {
-                        parsingResult
-                                .getContext()
-                                .getParsingErrors()
-                                .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.INVALID_ICON_FORMAT, "Icon loading", null,
-                                        "Invalid icon format at path <" + iconPath + ">", null, iconPath.toString()));
+                                        + iconPath + ">", null, String.valueOf(iconPath)));
                     } catch (IOException e) {
                         parsingResult
                                 .getContext()
@@ -107,6 +144,34 @@ public class ArchiveImageLoader {
         }
     }
 
+    private Future<String> submitImage(final byte[] imageBytes) {
+        return imageExecutor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return imageDAO.writeImageIfAbsent(imageBytes);
+            }
+        });
+    }
+
+    private void setIconId(IconImport iconImport, Future<String> imageId) {
+        try {
+            // Replace the image uri by the indexed image ID
+            iconImport.iconTag.setValue(imageId.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof ImageUploadException)) {
+                throw Throwables.propagate(e.getCause());
+            }
+            iconImport.parsingResult
+                    .getContext()
+                    .getParsingErrors()
+                    .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.INVALID_ICON_FORMAT, "Icon loading", null, "Invalid icon format at path <"
+                            + iconImport.iconPath + ">", null, iconImport.iconPath.toString()));
+        }
+    }
+
     /**
      * Get the icon tag from a tag list.
      * 
@@ -123,4 +188,17 @@ public class ArchiveImageLoader {
         }
         return tags.get(iconTagIndex);
     }
-}
\ No newline at end of file
+
+    /** Icon of an element waiting for the id of its image. */
+    private static final class IconImport {
+        private final ParsingResult<ArchiveRoot> parsingResult;
+        private final Tag iconTag;
+        private final Path iconPath;
+
+        private IconImport(ParsingResult<ArchiveRoot> parsingResult, Tag iconTag, Path iconPath) {
+            this.parsingResult = parsingResult;
+            this.iconTag = iconTag;
+            this.iconPath = iconPath;
+        }
+    }
+}
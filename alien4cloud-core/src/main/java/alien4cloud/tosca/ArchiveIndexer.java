@@ -1,16 +1,23 @@
 package alien4cloud.tosca;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
 import org.springframework.stereotype.Component;
 
 import alien4cloud.component.ICSARRepositoryIndexerService;
+import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.tosca.model.ArchiveRoot;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 @Component
 public class ArchiveIndexer {
     @Resource
@@ -23,17 +30,21 @@ public class ArchiveIndexer {
      * @param archiveVersion The version of the archive.
      * @param root The archive root.
      * @param update true if the archive is updated, false if the archive is just indexed.
+     * @return The ids of the images of the replaced elements, to delete with {@link ICSARRepositoryIndexerService#deleteUnusedImages(java.util.Collection)} once
+     *         the import lock of the images has been released.
      */
-    public void indexArchive(String archiveName, String archiveVersion, ArchiveRoot root, boolean update) {
+    public Set<String> indexArchive(String archiveName, String archiveVersion, ArchiveRoot root, boolean update) {
+        Set<String> previousImageIds = Collections.emptySet();
         if (update) {
             // get element from the archive so we get the creation date.
             Map<String, IndexedToscaElement> previousElements = indexerService.getArchiveElements(archiveName, archiveVersion);
             prepareForUpdate(archiveName, archiveVersion, root, previousElements);
-            // delete all previous elements and their images
-            indexerService.deleteElements(previousElements.values());
+            // delete all previous elements
+            previousImageIds = indexerService.deleteElements(previousElements.values());
         }
 
         performIndexing(archiveName, archiveVersion, root);
+        return previousImageIds;
     }
 
     private void prepareForUpdate(String archiveName, String archiveVersion, ArchiveRoot root, Map<String, IndexedToscaElement> previousElements) {
@@ -63,16 +74,33 @@ public class ArchiveIndexer {
     }
 
     private void performIndexing(String archiveName, String archiveVersion, ArchiveRoot root) {
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getArtifactTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getCapabilityTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getNodeTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getRelationshipTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getDataTypes(), root.getArchive().getDependencies());
+        // all the elements of the archive (including local imports) are indexed at once so parents defined in the archive are resolved in memory
+        List<IndexedInheritableToscaElement> elements = Lists.newArrayList();
+        Set<CSARDependency> dependencies = Sets.newLinkedHashSet();
+        collectElements(root, elements, dependencies);
+        indexerService.indexArchiveElements(archiveName, archiveVersion, elements, dependencies);
+    }
+
+    private void collectElements(ArchiveRoot root, List<IndexedInheritableToscaElement> elements, Set<CSARDependency> dependencies) {
+        addElements(root.getArtifactTypes(), elements);
+        addElements(root.getCapabilityTypes(), elements);
+        addElements(root.getNodeTypes(), elements);
+        addElements(root.getRelationshipTypes(), elements);
+        addElements(root.getDataTypes(), elements);
+        if (root.getArchive().getDependencies() != null) {
+            dependencies.addAll(root.getArchive().getDependencies());
+        }
 
         if (root.getLocalImports() != null) {
             for (ArchiveRoot child : root.getLocalImports()) {
-                performIndexing(archiveName, archiveVersion, child);
+                collectElements(child, elements, dependencies);
             }
         }
     }
+
+    private void addElements(Map<String, ? extends IndexedInheritableToscaElement> archiveElements, List<IndexedInheritableToscaElement> elements) {
+        if (archiveElements != null) {
+            elements.addAll(archiveElements.values());
+        }
+    }
 }
\ No newline at end of file
@@ -22,7 +22,9 @@ import alien4cloud.tosca.model.ToscaMeta;
 import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.ToscaCsarDependenciesParser;
 import alien4cloud.tosca.parser.ToscaParser;
+import alien4cloud.tosca.parser.YamlParser;
 import alien4cloud.tosca.parser.YamlSimpleParser;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.tosca.parser.impl.base.ValidatedNodeParser;
@@ -45,9 +47,26 @@ public class ArchiveParser {
     @Resource
     private ToscaParser toscaParser;
     @Resource
+    private ToscaCsarDependenciesParser dependenciesParser;
+    @Resource
     private Validator validator;
 
     public ParsingResult<ArchiveRoot> parse(Path archiveFile) throws ParsingException {
+        return parse(archiveFile, toscaParser);
+    }
+
+    /**
+     * Parse only the header of an archive: the meta file and the header of the definitions (version, name and imports), the types and topology are not parsed.
+     * 
+     * @param archiveFile The archive path.
+     * @return The parsing result with an {@link ArchiveRoot} that contains only the {@link Csar} with its name, version and dependencies.
+     * @throws ParsingException
+     */
+    public ParsingResult<ArchiveRoot> parseDependencies(Path archiveFile) throws ParsingException {
+        return parse(archiveFile, dependenciesParser);
+    }
+
+    private ParsingResult<ArchiveRoot> parse(Path archiveFile, YamlParser<ArchiveRoot> definitionsParser) throws ParsingException {
         FileSystem csarFS;
         try {
             csarFS = FileSystems.newFileSystem(archiveFile, null);
@@ -62,15 +81,15 @@ public class ArchiveParser {
         }
 
         if (Files.exists(csarFS.getPath(TOSCA_META_FILE_LOCATION))) {
-            return parseFromToscaMeta(csarFS);
+            return parseFromToscaMeta(csarFS, definitionsParser);
         } else if (Files.exists(csarFS.getPath(ALIEN_META_FILE_LOCATION))) {
-            return parseFromAlienMeta(csarFS);
+            return parseFromAlienMeta(csarFS, definitionsParser);
         }
-        return parseFromRootDefinitions(csarFS);
+        return parseFromRootDefinitions(csarFS, definitionsParser);
     }
 
     @Deprecated
-    private ParsingResult<ArchiveRoot> parseFromAlienMeta(FileSystem csarFS) throws ParsingException {
+    private ParsingResult<ArchiveRoot> parseFromAlienMeta(FileSystem csarFS, YamlParser<ArchiveRoot> definitionsParser) throws ParsingException {
         // add deprecated warning.
         YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(new ValidatedNodeParser<ToscaMeta>(validator, csarMetaMapping.getParser()));
         ParsingResult<ToscaMeta> parsingResult = parser.parseFile(csarFS.getPath(ALIEN_META_FILE_LOCATION));
@@ -85,14 +104,15 @@ public class ArchiveParser {
         Csar csar = new Csar();
         csar.setDependencies(parsingResult.getResult().getDependencies());
         archiveRoot.setArchive(csar);
-        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), ALIEN_META_FILE_LOCATION, archiveRoot);
+        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), ALIEN_META_FILE_LOCATION, archiveRoot,
+                definitionsParser);
         return mergeWithToscaMeta(archiveResult, parsingResult);
     }
 
-    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS) throws ParsingException {
+    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS, YamlParser<ArchiveRoot> definitionsParser) throws ParsingException {
         YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(toscaMetaMapping.getParser());
         ParsingResult<ToscaMeta> parsingResult = parser.parseFile(csarFS.getPath(TOSCA_META_FILE_LOCATION));
-        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), TOSCA_META_FILE_LOCATION, null);
+        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), TOSCA_META_FILE_LOCATION, null, definitionsParser);
         return mergeWithToscaMeta(archiveResult, parsingResult);
     }
 
@@ -106,22 +126,22 @@ public class ArchiveParser {
         return archiveResult;
     }
 
-    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS, ToscaMeta toscaMeta, String metaFileName, ArchiveRoot instance)
-            throws ParsingException {
+    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS, ToscaMeta toscaMeta, String metaFileName, ArchiveRoot instance,
+            YamlParser<ArchiveRoot> definitionsParser) throws ParsingException {
         if (toscaMeta.getEntryDefinitions() != null) {
-            return toscaParser.parseFile(csarFS.getPath(toscaMeta.getEntryDefinitions()), instance);
+            return definitionsParser.parseFile(csarFS.getPath(toscaMeta.getEntryDefinitions()), instance);
         }
         throw new ParsingException(metaFileName, new ParsingError(ErrorCode.ENTRY_DEFINITION_NOT_FOUND, "No entry definitions found in the meta file.", null,
                 null, null, null));
     }
 
-    private ParsingResult<ArchiveRoot> parseFromRootDefinitions(FileSystem csarFS) throws ParsingException {
+    private ParsingResult<ArchiveRoot> parseFromRootDefinitions(FileSystem csarFS, YamlParser<ArchiveRoot> definitionsParser) throws ParsingException {
         // load definitions from the archive root
         try {
             DefinitionVisitor visitor = new DefinitionVisitor(csarFS);
             Files.walkFileTree(csarFS.getPath(csarFS.getSeparator()), EnumSet.noneOf(FileVisitOption.class), 1, visitor);
             if (visitor.getDefinitionFiles().size() == 1) {
-                return toscaParser.parseFile(visitor.getDefinitionFiles().get(0));
+                return definitionsParser.parseFile(visitor.getDefinitionFiles().get(0));
             }
             throw new ParsingException("Archive", new ParsingError(ErrorCode.SINGLE_DEFINITION_SUPPORTED,
                     "Alien only supports archives with a single root definition.", null, null, null, 
@@ -3,15 +3,19 @@ package alien4cloud.tosca;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Resource;
 
 import org.springframework.stereotype.Component;
 
+import alien4cloud.component.ICSARRepositoryIndexerService;
 import alien4cloud.component.ICSARRepositorySearchService;
 import alien4cloud.component.repository.ICsarRepositry;
 import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
 import alien4cloud.csar.services.CsarService;
+import alien4cloud.images.ImageReferencesLock;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.model.components.IndexedToscaElement;
@@ -31,7 +35,6 @@ import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
-import alien4cloud.tosca.parser.ToscaCsarDependenciesParser;
 import alien4cloud.tosca.parser.ToscaParsingUtil;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.VersionUtil;
@@ -42,8 +45,6 @@ public class ArchiveUploadService {
     @Resource
     private ArchiveParser parser;
     @Resource
-    private ToscaCsarDependenciesParser dependenciesParser;
-    @Resource
     private ArchivePostProcessor postProcessor;
     @Resource
     private ArchiveImageLoader imageLoader;
@@ -54,6 +55,10 @@ public class ArchiveUploadService {
     @Resource
     private ArchiveIndexer archiveIndexer;
     @Resource
+    private ICSARRepositoryIndexerService indexerService;
+    @Resource
+    private ImageReferencesLock imageReferencesLock;
+    @Resource
     private TopologyServiceCore topologyServiceCore;
     @Resource
     private TopologyTemplateVersionService topologyTemplateVersionService;
@@ -114,10 +119,20 @@ public class ArchiveUploadService {
         csarService.save(parsingResult.getResult().getArchive());
         // save the archive in the repository
         archiveRepositry.storeCSAR(archiveName, archiveVersion, path);
-        // manage images before archive storage in the repository
-        imageLoader.importImages(path, parsingResult);
-        // index the archive content in elastic-search
-        archiveIndexer.indexArchive(archiveName, archiveVersion, parsingResult.getResult(), archive != null);
+        // the images reused by the archive must not be deleted as unused before the elements that reference them are indexed
+        Set<String> replacedImageIds;
+        Lock imagesImportLock = imageReferencesLock.importLock();
+        imagesImportLock.lock();
+        try {
+            // manage images before archive storage in the repository
+            imageLoader.importImages(path, parsingResult);
+            // index the archive content in elastic-search
+            replacedImageIds = archiveIndexer.indexArchive(archiveName, archiveVersion, parsingResult.getResult(), archive != null);
+        } finally {
+            imagesImportLock.unlock();
+        }
+        // images are identified by their content so the new elements may use the images of the previous ones
+        indexerService.deleteUnusedImages(replacedImageIds);
 
         // if a topology has been added we want to notify the user
         if (parsingResult.getResult().getTopology() != null && !parsingResult.getResult().getTopology().isEmpty()) {
@@ -182,25 +197,34 @@ public class ArchiveUploadService {
     }
 
     public ArrayList<CsarDependenciesBean> preParsing(List<Path> paths) throws ParsingException {
-       
         ArrayList<CsarDependenciesBean> listCsarDependenciesBean = new ArrayList<CsarDependenciesBean>();
         for (Path path : paths) {
-            CsarDependenciesBean csarDepContainer = new CsarDependenciesBean();
-            ParsingResult<ArchiveRoot> parsingResult = parser.parse(path);
-            postProcessor.postProcess(parsingResult);
-            csarDepContainer.setName(parsingResult.getResult().getArchive().getName());
-            csarDepContainer.setVersion(parsingResult.getResult().getArchive().getVersion());
-            csarDepContainer.setPath(path);
-            if (parsingResult.getResult().getArchive().getDependencies() != null) {
-                if (!parsingResult.getResult().getArchive().getDependencies().isEmpty() || parsingResult.getResult().getArchive().getDependencies() != null) {
-                    csarDepContainer.setDependencies(parsingResult.getResult().getArchive().getDependencies());
-                }
-            }
-            listCsarDependenciesBean.add(csarDepContainer);
+            listCsarDependenciesBean.add(preParsing(path));
         }
         return listCsarDependenciesBean;
     }
 
+    /**
+     * Parse the header of an archive to get its name, version and dependencies, the content of the archive is not parsed.
+     * 
+     * @param path The archive path.
+     * @return The name, version and dependencies of the archive.
+     * @throws ParsingException
+     */
+    public CsarDependenciesBean preParsing(Path path) throws ParsingException {
+        CsarDependenciesBean csarDepContainer = new CsarDependenciesBean();
+        ParsingResult<ArchiveRoot> parsingResult = parser.parseDependencies(path);
+        csarDepContainer.setName(parsingResult.getResult().getArchive().getName());
+        csarDepContainer.setVersion(parsingResult.getResult().getArchive().getVersion());
+        csarDepContainer.setPath(path);
+        if (parsingResult.getResult().getArchive().getDependencies() != null) {
+            if (!parsingResult.getResult().getArchive().getDependencies().isEmpty() || parsingResult.getResult().getArchive().getDependencies() != null) {
+                csarDepContainer.setDependencies(parsingResult.getResult().getArchive().getDependencies());
+            }
+        }
+        return csarDepContainer;
+    }
+
     /**
      * Create a simple result without all the parsed data but just the {@link Csar} object as well as the eventual errors.
      * 
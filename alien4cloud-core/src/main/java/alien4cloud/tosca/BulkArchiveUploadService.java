@@ -0,0 +1,255 @@
+package alien4cloud.tosca;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.model.CsarDependenciesBean;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.utils.VersionUtil;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Upload of multiple archives at once.
+ *
+ * The dependencies of the archives are discovered concurrently, then an archive is uploaded as soon as the archives it depends on (and the previous
+ * versions of the same archive) have been uploaded so that independent archives are parsed, post-processed and indexed concurrently. An archive given
+ * more than once (same name and version) is uploaded only once.
+ */
+@Slf4j
+@Component
+public class BulkArchiveUploadService {
+    @Resource
+    private ArchiveUploadService uploadService;
+
+    /** Number of archives processed concurrently. */
+    @Value("${archive.import_threads:4}")
+    private int importThreads;
+
+    private ExecutorService importExecutor;
+
+    @PostConstruct
+    public void init() {
+        importExecutor = Executors.newFixedThreadPool(importThreads, new ThreadFactoryBuilder().setNameFormat("archive-import-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    /**
+     * Upload multiple archives, see {@link ArchiveUploadService#upload(Path)}.
+     *
+     * @param paths The paths of the archives to upload.
+     * @return The results of the uploads in the order in which the archives have been uploaded.
+     * @throws ParsingException
+     * @throws CSARVersionAlreadyExistsException
+     */
+    public List<ParsingResult<Csar>> upload(List<Path> paths) throws ParsingException, CSARVersionAlreadyExistsException {
+        // the tasks are executed with the security context of the caller
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        List<Future<CsarDependenciesBean>> preParsings = Lists.newArrayListWithCapacity(paths.size());
+        for (final Path path : paths) {
+            preParsings.add(importExecutor.submit(new DelegatingSecurityContextCallable<CsarDependenciesBean>(new Callable<CsarDependenciesBean>() {
+                @Override
+                public CsarDependenciesBean call() throws Exception {
+                    return uploadService.preParsing(path);
+                }
+            }, securityContext)));
+        }
+        // concurrent uploads of the same archive would race on the check of the existing versions
+        Map<String, ArchiveNode> nodes = Maps.newLinkedHashMap();
+        for (Future<CsarDependenciesBean> preParsing : preParsings) {
+            CsarDependenciesBean archive = get(preParsing);
+            String archiveId = archiveId(archive.getName(), archive.getVersion());
+            ArchiveNode existing = nodes.get(archiveId);
+            if (existing == null) {
+                nodes.put(archiveId, new ArchiveNode(archive));
+            } else {
+                log.warn("Archive <{}> is given more than once, <{}> is ignored and <{}> is uploaded.", archiveId, archive.getPath(),
+                        existing.archive.getPath());
+            }
+        }
+        return upload(Lists.newArrayList(nodes.values()), securityContext);
+    }
+
+    private List<ParsingResult<Csar>> upload(List<ArchiveNode> nodes, SecurityContext securityContext) throws ParsingException,
+            CSARVersionAlreadyExistsException {
+        linkNodes(nodes);
+        List<ParsingResult<Csar>> results = Lists.newArrayListWithCapacity(nodes.size());
+        CompletionService<ArchiveNode> completionService = new ExecutorCompletionService<ArchiveNode>(importExecutor);
+        int running = 0;
+        for (ArchiveNode node : nodes) {
+            if (node.pendingDependencies == 0) {
+                submit(completionService, node, securityContext);
+                running++;
+            }
+        }
+        Exception failure = null;
+        while (running > 0) {
+            ArchiveNode node = get(take(completionService));
+            running--;
+            if (node.failure != null) {
+                // don't upload other archives but wait for the ones in progress
+                failure = failure == null ? node.failure : failure;
+                continue;
+            }
+            results.add(node.result);
+            if (failure == null) {
+                for (ArchiveNode dependent : node.dependents) {
+                    dependent.pendingDependencies--;
+                    if (dependent.pendingDependencies == 0) {
+                        submit(completionService, dependent, securityContext);
+                        running++;
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            Throwables.propagateIfInstanceOf(failure, ParsingException.class);
+            Throwables.propagateIfInstanceOf(failure, CSARVersionAlreadyExistsException.class);
+            throw Throwables.propagate(failure);
+        }
+        for (ArchiveNode node : nodes) {
+            if (!node.submitted) {
+                // archives with cyclic dependencies are uploaded in the given order
+                log.warn("Archive <{}:{}> is part of a dependency cycle.", node.archive.getName(), node.archive.getVersion());
+                results.add(uploadService.upload(node.archive.getPath()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Link every archive to the archives of the list it depends on, an archive also depends on the previous versions of the same archive.
+     */
+    private void linkNodes(List<ArchiveNode> nodes) {
+        Map<String, ArchiveNode> nodesById = Maps.newHashMap();
+        Map<String, List<ArchiveNode>> nodesByName = Maps.newHashMap();
+        for (ArchiveNode node : nodes) {
+            nodesById.put(archiveId(node.archive.getName(), node.archive.getVersion()), node);
+            List<ArchiveNode> versions = nodesByName.get(node.archive.getName());
+            if (versions == null) {
+                versions = Lists.newArrayList();
+                nodesByName.put(node.archive.getName(), versions);
+            }
+            versions.add(node);
+        }
+        for (ArchiveNode node : nodes) {
+            if (node.archive.getDependencies() == null) {
+                continue;
+            }
+            for (Object dependency : node.archive.getDependencies()) {
+                CSARDependency csarDependency = (CSARDependency) dependency;
+                ArchiveNode dependencyNode = nodesById.get(archiveId(csarDependency.getName(), csarDependency.getVersion()));
+                if (dependencyNode != null && dependencyNode != node) {
+                    dependencyNode.addDependent(node);
+                }
+            }
+        }
+        for (List<ArchiveNode> versions : nodesByName.values()) {
+            Collections.sort(versions, new Comparator<ArchiveNode>() {
+                @Override
+                public int compare(ArchiveNode left, ArchiveNode right) {
+                    return VersionUtil.compare(left.archive.getVersion(), right.archive.getVersion());
+                }
+            });
+            for (int i = 1; i < versions.size(); i++) {
+                versions.get(i - 1).addDependent(versions.get(i));
+            }
+        }
+    }
+
+    private static String archiveId(String name, String version) {
+        return name + ":" + version;
+    }
+
+    private void submit(CompletionService<ArchiveNode> completionService, final ArchiveNode node, SecurityContext securityContext) {
+        node.submitted = true;
+        completionService.submit(new DelegatingSecurityContextCallable<ArchiveNode>(new Callable<ArchiveNode>() {
+            @Override
+            public ArchiveNode call() {
+                try {
+                    node.result = uploadService.upload(node.archive.getPath());
+                } catch (ParsingException | CSARVersionAlreadyExistsException | RuntimeException e) {
+                    node.failure = e;
+                }
+                return node;
+            }
+        }, securityContext));
+    }
+
+    private static <T> Future<T> take(CompletionService<T> completionService) {
+        try {
+            return completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws ParsingException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), ParsingException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /** An archive to upload in the dependency graph. */
+    private static final class ArchiveNode {
+        private final CsarDependenciesBean archive;
+        /** Archives to upload once this archive has been uploaded. */
+        private final List<ArchiveNode> dependents = Lists.newArrayList();
+        /** Number of archives to upload before this one. */
+        private int pendingDependencies = 0;
+        private boolean submitted = false;
+        private ParsingResult<Csar> result;
+        private Exception failure;
+
+        private ArchiveNode(CsarDependenciesBean archive) {
+            this.archive = archive;
+        }
+
+        private void addDependent(ArchiveNode dependent) {
+            if (!dependents.contains(dependent)) {
+                dependents.add(dependent);
+                dependent.pendingDependencies++;
+            }
+        }
+    }
+}
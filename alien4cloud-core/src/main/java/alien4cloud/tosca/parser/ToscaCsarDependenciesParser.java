@@ -30,9 +30,9 @@ public class ToscaCsarDependenciesParser extends YamlParser<ArchiveRoot> {
 
     @PostConstruct
     public void initialize() throws ParsingException {
-        // initialize type registry for working draft 3.
+        // initialize type registry for working draft 3, only the header of the definitions (version, name and imports) is mapped.
         Map<String, INodeParser> registry = mappingGenerator.process("classpath:tosca-simple-profile-import-mapping.yml");
-        parserRegistriesByVersion.put("tosca-simple-profile-import-mapping", registry);
+        parserRegistriesByVersion.put("tosca_simple_yaml_1_0_0_wd03", registry);
     }
     
     @Override
@@ -0,0 +1,150 @@
+package alien4cloud.cloud;
+
+import java.util.Date;
+import java.util.List;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.application.DeploymentSetup;
+import alien4cloud.model.deployment.Deployment;
+
+import com.google.common.collect.Lists;
+
+public class ActiveDeploymentRegistryTest {
+    private IGenericSearchDAO alienDao;
+    private ActiveDeploymentRegistry registry;
+
+    @Before
+    public void before() {
+        alienDao = Mockito.mock(IGenericSearchDAO.class);
+        registry = new ActiveDeploymentRegistry();
+        ReflectionTestUtils.setField(registry, "alienDao", alienDao);
+    }
+
+    @Test
+    public void activeDeploymentsShouldBeLoadedWithAScroll() {
+        Mockito.when(
+                alienDao.scroll(Mockito.eq(Deployment.class), Mockito.any(QueryBuilder.class), Mockito.any(SortBuilder.class), Mockito.anyInt()))
+                .thenReturn(Lists.newArrayList(deployment("1", "env1", "cloud"), deployment("2", "env2", "cloud")).iterator());
+
+        registry.load();
+
+        Assert.assertEquals("1", registry.get("1").getId());
+        Assert.assertEquals("2", registry.getByEnvironment("env2").getId());
+        Assert.assertEquals(2, registry.getByCloud("cloud").size());
+    }
+
+    @Test
+    public void registeredDeploymentShouldBeFoundByEveryIndex() {
+        registry.register(deployment("1", "env", "cloud"));
+
+        Assert.assertEquals("1", registry.get("1").getId());
+        Assert.assertEquals("1", registry.getByEnvironment("env").getId());
+        Assert.assertEquals("1", registry.getByTopologyAndCloud("topology-1", "cloud").getId());
+        Assert.assertEquals("1", registry.getByPaaSId("cloud", "paas-1").getId());
+        Assert.assertEquals("1", registry.getByCloud("cloud").get(0).getId());
+        Assert.assertTrue(registry.hasDeployments("cloud"));
+
+        Assert.assertNull(registry.get("2"));
+        Assert.assertNull(registry.getByEnvironment("other"));
+        Assert.assertNull(registry.getByTopologyAndCloud("topology-1", "other"));
+        Assert.assertNull(registry.getByPaaSId("other", "paas-1"));
+        Assert.assertTrue(registry.getByCloud("other").isEmpty());
+        Assert.assertFalse(registry.hasDeployments("other"));
+    }
+
+    @Test
+    public void unregisteredDeploymentShouldBeRemovedFromEveryIndex() {
+        registry.register(deployment("1", "env", "cloud"));
+        registry.register(deployment("2", "env2", "cloud"));
+
+        registry.unregister("1");
+
+        Assert.assertNull(registry.get("1"));
+        Assert.assertNull(registry.getByEnvironment("env"));
+        Assert.assertNull(registry.getByTopologyAndCloud("topology-1", "cloud"));
+        Assert.assertNull(registry.getByPaaSId("cloud", "paas-1"));
+        List<Deployment> cloudDeployments = registry.getByCloud("cloud");
+        Assert.assertEquals(1, cloudDeployments.size());
+        Assert.assertEquals("2", cloudDeployments.get(0).getId());
+
+        registry.unregister("2");
+        Assert.assertFalse(registry.hasDeployments("cloud"));
+        // unregistering an unknown deployment is ignored
+        registry.unregister("unknown");
+    }
+
+    @Test
+    public void newDeploymentOfAnEnvironmentShouldReplaceThePreviousOne() {
+        registry.register(deployment("1", "env", "cloud"));
+        Deployment redeployed = deployment("1", "env", "cloud");
+        redeployed.setPaasId("other-paas");
+
+        registry.register(redeployed);
+
+        Assert.assertNull(registry.getByPaaSId("cloud", "paas-1"));
+        Assert.assertEquals("1", registry.getByPaaSId("cloud", "other-paas").getId());
+        Assert.assertEquals(1, registry.getByCloud("cloud").size());
+    }
+
+    @Test
+    public void registeredDeploymentsShouldNotBeUpdatedByCallers() {
+        Deployment deployment = deployment("1", "env", "cloud");
+        registry.register(deployment);
+        deployment.setPaasId("updated");
+
+        Deployment registered = registry.get("1");
+        Assert.assertNotSame(deployment, registered);
+        Assert.assertEquals("paas-1", registered.getPaasId());
+        registered.setEndDate(new Date());
+        registered.getDeploymentSetup().setEnvironmentId("updated");
+
+        Assert.assertNull(registry.getByEnvironment("env").getEndDate());
+        Assert.assertEquals("env", registry.getByCloud("cloud").get(0).getDeploymentSetup().getEnvironmentId());
+    }
+
+    @Test
+    public void confirmActiveShouldUnregisterEndedDeployments() {
+        Deployment deployment = deployment("1", "env", "cloud");
+        registry.register(deployment);
+        Mockito.when(alienDao.findById(Deployment.class, "1")).thenReturn(deployment);
+
+        Assert.assertFalse(registry.confirmActive(null));
+        Assert.assertTrue(registry.confirmActive(registry.get("1")));
+        Assert.assertNotNull(registry.get("1"));
+
+        Deployment ended = deployment("1", "env", "cloud");
+        ended.setEndDate(new Date());
+        Mockito.when(alienDao.findById(Deployment.class, "1")).thenReturn(ended);
+        Assert.assertFalse(registry.confirmActive(registry.get("1")));
+        Assert.assertNull(registry.get("1"));
+    }
+
+    @Test
+    public void confirmActiveShouldUnregisterDeletedDeployments() {
+        registry.register(deployment("1", "env", "cloud"));
+
+        Assert.assertFalse(registry.confirmActive(registry.get("1")));
+        Assert.assertNull(registry.getByEnvironment("env"));
+    }
+
+    private static Deployment deployment(String id, String environmentId, String cloudId) {
+        Deployment deployment = new Deployment();
+        deployment.setId(id);
+        deployment.setCloudId(cloudId);
+        deployment.setPaasId("paas-" + id);
+        deployment.setTopologyId("topology-" + id);
+        deployment.setStartDate(new Date());
+        DeploymentSetup deploymentSetup = new DeploymentSetup();
+        deploymentSetup.setEnvironmentId(environmentId);
+        deployment.setDeploymentSetup(deploymentSetup);
+        return deployment;
+    }
+}
@@ -0,0 +1,105 @@
+package alien4cloud.cloud;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.paas.exception.PaaSDeploymentException;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class DeploymentLockServiceTest {
+    private DeploymentLockService lockService;
+    private MetricRegistry metricRegistry;
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        metricRegistry = new MetricRegistry();
+        lockService = new DeploymentLockService();
+        ReflectionTestUtils.setField(lockService, "metricRegistry", metricRegistry);
+        ReflectionTestUtils.setField(lockService, "lockTimeoutSeconds", 1L);
+        lockService.init();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void deploymentsWithoutEnvironmentShouldBeLockedByTopologyAndCloud() {
+        Assert.assertEquals(DeploymentLockService.environmentKey("env"), DeploymentLockService.deploymentKey("env", "topology", "cloud"));
+        Assert.assertNotEquals(DeploymentLockService.deploymentKey(null, "topology", "cloud"), DeploymentLockService.deploymentKey(null, "topology", "cloud2"));
+    }
+
+    @Test
+    public void locksOfDifferentEnvironmentsShouldNotBlockEachOther() throws Exception {
+        ReentrantLock lock = lockService.lock(DeploymentLockService.environmentKey("env1"));
+        try {
+            Future<Boolean> other = lockInAnotherThread(DeploymentLockService.environmentKey("env2"));
+            Assert.assertTrue(other.get(500, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(0L, count("timeouts"));
+    }
+
+    @Test
+    public void lockOfTheSameEnvironmentShouldWaitForRelease() throws Exception {
+        ReentrantLock lock = lockService.lock(DeploymentLockService.environmentKey("env"));
+        Future<Boolean> other;
+        try {
+            other = lockInAnotherThread(DeploymentLockService.environmentKey("env"));
+            Thread.sleep(200);
+            Assert.assertFalse(other.isDone());
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertTrue(other.get(500, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2L, count("acquisitions"));
+        Assert.assertEquals(1L, metricRegistry.getHistograms().get(MetricRegistry.name(DeploymentLockService.class, "waiting_threads")).getSnapshot()
+                .getMax());
+    }
+
+    @Test
+    public void lockShouldFailWhenTheTimeoutIsReached() throws Exception {
+        ReentrantLock lock = lockService.lock(DeploymentLockService.environmentKey("env"));
+        try {
+            lockInAnotherThread(DeploymentLockService.environmentKey("env")).get(5, TimeUnit.SECONDS);
+            Assert.fail("Lock should not be acquired while held by another deployment operation.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PaaSDeploymentException);
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(1L, count("timeouts"));
+        Assert.assertEquals(0, metricRegistry.getGauges().get(MetricRegistry.name(DeploymentLockService.class, "waiting")).getValue());
+    }
+
+    private Future<Boolean> lockInAnotherThread(final String key) {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                ReentrantLock lock = lockService.lock(key);
+                lock.unlock();
+                return true;
+            }
+        });
+    }
+
+    private long count(String counter) {
+        return metricRegistry.getCounters().get(MetricRegistry.name(DeploymentLockService.class, counter)).getCount();
+    }
+}
@@ -0,0 +1,130 @@
+package alien4cloud.cloud;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.MonitorESDAO;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.IPaaSProvider;
+import alien4cloud.paas.exception.CloudDisabledException;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSNodeTemplate;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.paas.model.PaaSTopologyDeploymentContext;
+import alien4cloud.paas.plan.TopologyTreeBuilderService;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class DeploymentServiceTest {
+    private static final String ENVIRONMENT_ID = "environment";
+    private static final String DEPLOYMENT_ID = "deployment";
+
+    private MonitorESDAO alienMonitorDao;
+    private InstanceInformationStore instanceInformationStore;
+    private IPaaSProvider paaSProvider;
+    private Deployment deployment;
+    private DeploymentService deploymentService;
+
+    @Before
+    public void before() throws CloudDisabledException {
+        deployment = new Deployment();
+        deployment.setId(DEPLOYMENT_ID);
+        deployment.setCloudId("cloud");
+        deployment.setPaasId("paas");
+        ActiveDeploymentRegistry activeDeploymentRegistry = Mockito.mock(ActiveDeploymentRegistry.class);
+        Mockito.when(activeDeploymentRegistry.getByEnvironment(ENVIRONMENT_ID)).thenReturn(deployment);
+        Mockito.when(activeDeploymentRegistry.get(DEPLOYMENT_ID)).thenReturn(deployment);
+        Mockito.when(activeDeploymentRegistry.getByCloud("cloud")).thenReturn(Lists.newArrayList(deployment));
+        TopologyTreeBuilderService topologyTreeBuilderService = Mockito.mock(TopologyTreeBuilderService.class);
+        PaaSTopology paaSTopology = new PaaSTopology();
+        paaSTopology.setAllNodes(Maps.<String, PaaSNodeTemplate> newHashMap());
+        Mockito.when(topologyTreeBuilderService.buildPaaSTopology(Mockito.any(Topology.class))).thenReturn(paaSTopology);
+        alienMonitorDao = Mockito.mock(MonitorESDAO.class);
+        instanceInformationStore = Mockito.mock(InstanceInformationStore.class);
+        paaSProvider = Mockito.mock(IPaaSProvider.class);
+        CloudService cloudService = Mockito.mock(CloudService.class);
+        Mockito.when(cloudService.getPaaSProvider("cloud")).thenReturn(paaSProvider);
+
+        deploymentService = new DeploymentService();
+        ReflectionTestUtils.setField(deploymentService, "alienMonitorDao", alienMonitorDao);
+        ReflectionTestUtils.setField(deploymentService, "activeDeploymentRegistry", activeDeploymentRegistry);
+        ReflectionTestUtils.setField(deploymentService, "topologyTreeBuilderService", topologyTreeBuilderService);
+        ReflectionTestUtils.setField(deploymentService, "instanceInformationStore", instanceInformationStore);
+        ReflectionTestUtils.setField(deploymentService, "cloudService", cloudService);
+        ReflectionTestUtils.setField(deploymentService, "contextCacheMaxSize", 10L);
+        deploymentService.init();
+    }
+
+    @Test
+    public void deploymentContextShouldBeRebuiltFromTheSavedRuntimeTopology() {
+        Topology runtimeTopology = runtimeTopology();
+        Topology updatedRuntimeTopology = runtimeTopology();
+        Mockito.when(alienMonitorDao.findById(Topology.class, DEPLOYMENT_ID)).thenReturn(runtimeTopology, updatedRuntimeTopology);
+
+        Assert.assertSame(runtimeTopology, deploymentService.getCachedRuntimeTopology(ENVIRONMENT_ID));
+        Assert.assertSame(runtimeTopology, deploymentService.getCachedRuntimeTopology(ENVIRONMENT_ID));
+        Mockito.verify(alienMonitorDao, Mockito.times(1)).findById(Topology.class, DEPLOYMENT_ID);
+
+        deploymentService.saveRuntimeTopology(updatedRuntimeTopology);
+
+        Mockito.verify(alienMonitorDao).save(updatedRuntimeTopology);
+        Assert.assertSame(updatedRuntimeTopology, deploymentService.getCachedRuntimeTopology(ENVIRONMENT_ID));
+    }
+
+    @Test
+    public void everyCallerShouldGetItsOwnDeploymentContext() {
+        Topology runtimeTopology = runtimeTopology();
+        Mockito.when(alienMonitorDao.findById(Topology.class, DEPLOYMENT_ID)).thenReturn(runtimeTopology);
+
+        PaaSTopologyDeploymentContext context = deploymentService.getCloudActiveDeploymentContexts("cloud").get(deployment.getPaasId());
+        context.setDeployment(new Deployment());
+        context.setTopology(null);
+        PaaSTopologyDeploymentContext otherContext = deploymentService.getCloudActiveDeploymentContexts("cloud").get(deployment.getPaasId());
+
+        Assert.assertNotSame(context, otherContext);
+        Assert.assertEquals(DEPLOYMENT_ID, otherContext.getDeploymentId());
+        // the topologies built for the deployment are cached
+        Assert.assertSame(runtimeTopology, otherContext.getTopology());
+        Mockito.verify(alienMonitorDao, Mockito.times(1)).findById(Topology.class, DEPLOYMENT_ID);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void storedInstancesShouldBeServedUnlessARefreshIsRequested() throws Exception {
+        Mockito.when(alienMonitorDao.findById(Topology.class, DEPLOYMENT_ID)).thenReturn(runtimeTopology());
+        Map<String, Map<String, InstanceInformation>> storedInstances = Maps.newHashMap();
+        Mockito.when(instanceInformationStore.get(DEPLOYMENT_ID)).thenReturn(storedInstances);
+        IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback = Mockito.mock(IPaaSCallback.class);
+
+        deploymentService.getInstancesInformation(deployment, false, callback);
+
+        Mockito.verify(callback).onSuccess(Mockito.same(storedInstances));
+        Mockito.verify(paaSProvider, Mockito.never()).getInstancesInformation(Mockito.any(PaaSTopologyDeploymentContext.class),
+                Mockito.any(IPaaSCallback.class));
+
+        // a refresh queries the PaaS provider and loads its instances in the store
+        deploymentService.getInstancesInformation(deployment, true, callback);
+
+        ArgumentCaptor<IPaaSCallback> paaSCallback = ArgumentCaptor.forClass(IPaaSCallback.class);
+        Mockito.verify(paaSProvider).getInstancesInformation(Mockito.any(PaaSTopologyDeploymentContext.class), paaSCallback.capture());
+        Map<String, Map<String, InstanceInformation>> paaSInstances = Maps.newHashMap();
+        paaSCallback.getValue().onSuccess(paaSInstances);
+        Mockito.verify(instanceInformationStore).load(Mockito.eq(DEPLOYMENT_ID), Mockito.same(paaSInstances), Mockito.anyLong());
+        Mockito.verify(callback).onSuccess(Mockito.same(paaSInstances));
+    }
+
+    private static Topology runtimeTopology() {
+        Topology topology = new Topology();
+        topology.setId(DEPLOYMENT_ID);
+        return topology;
+    }
+}
@@ -0,0 +1,182 @@
+package alien4cloud.cloud;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+
+public class DeploymentStatusCacheTest {
+    private DeploymentService deploymentService;
+    private DeploymentStatusCache statusCache;
+    private Deployment deployment;
+    private FakeTicker ticker;
+
+    @Before
+    public void before() {
+        deploymentService = Mockito.mock(DeploymentService.class);
+        statusCache = new DeploymentStatusCache();
+        ReflectionTestUtils.setField(statusCache, "deploymentService", deploymentService);
+        ReflectionTestUtils.setField(statusCache, "paasEventService", Mockito.mock(IPaasEventService.class));
+        ReflectionTestUtils.setField(statusCache, "stalenessSeconds", 60L);
+        ReflectionTestUtils.setField(statusCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(statusCache, "expireSeconds", 600L);
+        ReflectionTestUtils.setField(statusCache, "fetchTimeoutSeconds", 1L);
+        ticker = new FakeTicker();
+        ReflectionTestUtils.setField(statusCache, "ticker", ticker);
+        ReflectionTestUtils.setField(statusCache, "refreshThreads", 1);
+        ReflectionTestUtils.setField(statusCache, "metricRegistry", new MetricRegistry());
+        statusCache.init();
+
+        deployment = new Deployment();
+        deployment.setId("deployment");
+    }
+
+    @After
+    public void after() {
+        statusCache.shutdown();
+    }
+
+    @Test
+    public void statusEventShouldReplaceTheCachedStatus() throws Exception {
+        paaSReturns(DeploymentStatus.DEPLOYED);
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+
+        // the date of the event is set by the PaaS provider, it is not compared with the date of the query
+        statusCache.eventHappened(statusEvent(DeploymentStatus.UNDEPLOYMENT_IN_PROGRESS, 0));
+
+        Assert.assertEquals(DeploymentStatus.UNDEPLOYMENT_IN_PROGRESS, statusCache.getStatus(deployment));
+        Mockito.verify(deploymentService, Mockito.times(1)).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+    }
+
+    @Test
+    public void undeployedEventShouldInvalidateTheCachedStatus() throws Exception {
+        paaSReturns(DeploymentStatus.DEPLOYED);
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+
+        statusCache.eventHappened(statusEvent(DeploymentStatus.UNDEPLOYED, 0));
+
+        // the status is not known anymore and is requested again to the PaaS provider
+        paaSReturns(DeploymentStatus.DEPLOYMENT_IN_PROGRESS);
+        Assert.assertEquals(DeploymentStatus.DEPLOYMENT_IN_PROGRESS, statusCache.getStatus(deployment));
+        Mockito.verify(deploymentService, Mockito.times(2)).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+    }
+
+    @Test
+    public void olderStatusEventShouldBeIgnored() throws Exception {
+        statusCache.eventHappened(statusEvent(DeploymentStatus.DEPLOYED, 5000));
+        statusCache.eventHappened(statusEvent(DeploymentStatus.DEPLOYMENT_IN_PROGRESS, 4000));
+
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+        Mockito.verify(deploymentService, Mockito.never()).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statusReceivedDuringAQueryShouldNotBeReplacedByItsResult() throws Exception {
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                statusCache.eventHappened(statusEvent(DeploymentStatus.UNDEPLOYMENT_IN_PROGRESS, 0));
+                ((IPaaSCallback<DeploymentStatus>) invocation.getArguments()[1]).onSuccess(DeploymentStatus.DEPLOYED);
+                return null;
+            }
+        }).when(deploymentService).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+        Assert.assertEquals(DeploymentStatus.UNDEPLOYMENT_IN_PROGRESS, statusCache.getStatus(deployment));
+    }
+
+    @Test
+    public void statusesShouldBeUnknownWhenThePaaSProviderDoesNotAnswerInTime() throws Exception {
+        // the PaaS provider never answers
+        Deployment other = new Deployment();
+        other.setId("other");
+        long start = System.nanoTime();
+        Map<String, DeploymentStatus> statuses = statusCache.getStatuses(Lists.newArrayList(deployment, other));
+
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, statuses.get(deployment.getId()));
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, statuses.get(other.getId()));
+        // the timeout is shared by all the queries
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        statusCache.eventHappened(statusEvent(DeploymentStatus.DEPLOYED, 0));
+        statuses = statusCache.getStatuses(Lists.newArrayList(deployment));
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statuses.get(deployment.getId()));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void statusShouldFailWhenThePaaSProviderDoesNotAnswerInTime() throws Exception {
+        statusCache.getStatus(deployment);
+    }
+
+    @Test
+    public void statusesThatAreNotUpdatedShouldExpire() throws Exception {
+        statusCache.eventHappened(statusEvent(DeploymentStatus.DEPLOYED, 0));
+        ticker.advance(599);
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+
+        ticker.advance(2);
+        paaSReturns(DeploymentStatus.DEPLOYMENT_IN_PROGRESS);
+        Assert.assertEquals(DeploymentStatus.DEPLOYMENT_IN_PROGRESS, statusCache.getStatus(deployment));
+    }
+
+    @Test
+    public void staleStatusShouldBeReturnedAndRefreshedInBackground() throws Exception {
+        statusCache.eventHappened(statusEvent(DeploymentStatus.DEPLOYED, 0));
+        paaSReturns(DeploymentStatus.DEPLOYMENT_IN_PROGRESS);
+        ticker.advance(61);
+
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, statusCache.getStatus(deployment));
+        Mockito.verify(deploymentService, Mockito.timeout(2000)).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void paaSReturns(final DeploymentStatus status) throws Exception {
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((IPaaSCallback<DeploymentStatus>) invocation.getArguments()[1]).onSuccess(status);
+                return null;
+            }
+        }).when(deploymentService).getDeploymentStatus(Mockito.eq(deployment), Mockito.any(IPaaSCallback.class));
+    }
+
+    private PaaSDeploymentStatusMonitorEvent statusEvent(DeploymentStatus status, long date) {
+        PaaSDeploymentStatusMonitorEvent event = new PaaSDeploymentStatusMonitorEvent();
+        event.setDeploymentId(deployment.getId());
+        event.setDeploymentStatus(status);
+        event.setDate(date);
+        return event;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public synchronized long read() {
+            return nanos;
+        }
+
+        private synchronized void advance(long seconds) {
+            nanos += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package alien4cloud.cloud;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.InstanceStatus;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+import alien4cloud.paas.model.PaaSInstanceStateMonitorEvent;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+
+public class InstanceInformationStoreTest {
+    private static final String DEPLOYMENT_ID = "deployment";
+
+    private InstanceInformationStore store;
+    private FakeTicker ticker;
+
+    @Before
+    public void before() {
+        ActiveDeploymentRegistry activeDeploymentRegistry = Mockito.mock(ActiveDeploymentRegistry.class);
+        Mockito.when(activeDeploymentRegistry.get(DEPLOYMENT_ID)).thenReturn(new Deployment());
+        store = new InstanceInformationStore();
+        ticker = new FakeTicker();
+        ReflectionTestUtils.setField(store, "paasEventService", Mockito.mock(IPaasEventService.class));
+        ReflectionTestUtils.setField(store, "activeDeploymentRegistry", activeDeploymentRegistry);
+        ReflectionTestUtils.setField(store, "metricRegistry", new MetricRegistry());
+        ReflectionTestUtils.setField(store, "stalenessSeconds", 300L);
+        ReflectionTestUtils.setField(store, "ticker", ticker);
+        store.init();
+    }
+
+    @Test
+    public void instancesShouldNotBeServedBeforeTheyAreLoaded() {
+        store.eventHappened(instanceEvent("server", "0", "started", 1000L));
+
+        Assert.assertNull(store.get(DEPLOYMENT_ID));
+    }
+
+    @Test
+    public void eventsShouldUpdateTheLoadedInstances() {
+        store.load(DEPLOYMENT_ID, instances("server", "0", "starting", "ip_address", "10.0.0.1"), 1000L);
+
+        PaaSInstanceStateMonitorEvent event = instanceEvent("server", "0", "started", 2000L);
+        event.setAttributes(Maps.<String, String> newHashMap());
+        event.getAttributes().put("ip_address", "10.0.0.2");
+        store.eventHappened(event);
+        store.eventHappened(instanceEvent("server", "1", "starting", 2000L));
+
+        Map<String, InstanceInformation> instances = store.get(DEPLOYMENT_ID).get("server");
+        Assert.assertEquals(2, instances.size());
+        Assert.assertEquals("started", instances.get("0").getState());
+        Assert.assertEquals("10.0.0.2", instances.get("0").getAttributes().get("ip_address"));
+        Assert.assertEquals("starting", instances.get("1").getState());
+
+        // a deleted instance is removed
+        store.eventHappened(instanceEvent("server", "1", null, 3000L));
+        Assert.assertFalse(store.get(DEPLOYMENT_ID).get("server").containsKey("1"));
+    }
+
+    @Test
+    public void loadShouldKeepTheInstancesUpdatedAfterTheQuery() {
+        store.load(DEPLOYMENT_ID, instances("server", "0", "starting", "ip_address", "10.0.0.1"), 1000L);
+        store.eventHappened(instanceEvent("server", "0", "started", 3000L));
+
+        // the PaaS provider has been queried before the event
+        store.load(DEPLOYMENT_ID, instances("server", "0", "starting", "ip_address", "10.0.0.1"), 2000L);
+        Assert.assertEquals("started", store.get(DEPLOYMENT_ID).get("server").get("0").getState());
+
+        // the PaaS provider has been queried after the event
+        store.load(DEPLOYMENT_ID, instances("server", "0", "stopping", "ip_address", "10.0.0.1"), 4000L);
+        Assert.assertEquals("stopping", store.get(DEPLOYMENT_ID).get("server").get("0").getState());
+    }
+
+    @Test
+    public void storedAttributesShouldNotBeChangedByTheCallers() {
+        store.load(DEPLOYMENT_ID, instances("server", "0", "started", "ip_address", "10.0.0.1"), 1000L);
+
+        // the derived attributes are evaluated on the returned copies
+        store.get(DEPLOYMENT_ID).get("server").get("0").getAttributes().put("url", "http://10.0.0.1:8080");
+
+        Assert.assertFalse(store.get(DEPLOYMENT_ID).get("server").get("0").getAttributes().containsKey("url"));
+    }
+
+    @Test
+    public void undeployedEventShouldInvalidateTheInstances() {
+        store.load(DEPLOYMENT_ID, instances("server", "0", "started", "ip_address", "10.0.0.1"), 1000L);
+
+        PaaSDeploymentStatusMonitorEvent event = new PaaSDeploymentStatusMonitorEvent();
+        event.setDeploymentId(DEPLOYMENT_ID);
+        event.setDeploymentStatus(DeploymentStatus.UNDEPLOYED);
+        store.eventHappened(event);
+
+        Assert.assertNull(store.get(DEPLOYMENT_ID));
+    }
+
+    @Test
+    public void staleInstancesShouldBeLoadedAgain() {
+        store.load(DEPLOYMENT_ID, instances("server", "0", "started", "ip_address", "10.0.0.1"), 1000L);
+        ticker.advance(300);
+        Assert.assertNotNull(store.get(DEPLOYMENT_ID));
+
+        ticker.advance(1);
+        Assert.assertNull(store.get(DEPLOYMENT_ID));
+
+        store.load(DEPLOYMENT_ID, instances("server", "0", "started", "ip_address", "10.0.0.1"), 2000L);
+        Assert.assertNotNull(store.get(DEPLOYMENT_ID));
+    }
+
+    private static PaaSInstanceStateMonitorEvent instanceEvent(String nodeTemplateId, String instanceId, String state, long date) {
+        PaaSInstanceStateMonitorEvent event = new PaaSInstanceStateMonitorEvent();
+        event.setDeploymentId(DEPLOYMENT_ID);
+        event.setNodeTemplateId(nodeTemplateId);
+        event.setInstanceId(instanceId);
+        event.setInstanceState(state);
+        event.setInstanceStatus(InstanceStatus.SUCCESS);
+        event.setDate(date);
+        return event;
+    }
+
+    private static Map<String, Map<String, InstanceInformation>> instances(String nodeTemplateId, String instanceId, String state, String attribute,
+            String value) {
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put(attribute, value);
+        Map<String, InstanceInformation> nodeInstances = Maps.newHashMap();
+        nodeInstances.put(instanceId, new InstanceInformation(state, InstanceStatus.SUCCESS, attributes, null, null));
+        Map<String, Map<String, InstanceInformation>> instances = Maps.newHashMap();
+        instances.put(nodeTemplateId, nodeInstances);
+        return instances;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public synchronized long read() {
+            return nanos;
+        }
+
+        private synchronized void advance(long seconds) {
+            nanos += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package alien4cloud.component;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
+import org.elasticsearch.client.AdminClient;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.mapping.ElasticSearchClient;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RefreshPolicy;
+import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedInheritableToscaElement;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedToscaElement;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CSARRepositoryIndexerServiceTest {
+    private static final Collection<CSARDependency> DEPENDENCIES = Lists.newArrayList(new CSARDependency("tosca-normative-types", "1.0"));
+
+    private IGenericSearchDAO alienDAO;
+    private IndicesAdminClient indicesAdminClient;
+    private IndexedToscaElementCache elementCache;
+    private CSARRepositoryIndexerService indexerService;
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        elementCache = Mockito.mock(IndexedToscaElementCache.class);
+        indicesAdminClient = Mockito.mock(IndicesAdminClient.class);
+        Mockito.when(indicesAdminClient.prepareRefresh(ElasticSearchDAO.TOSCA_ELEMENT_INDEX)).thenReturn(
+                Mockito.mock(RefreshRequestBuilder.class, Mockito.RETURNS_DEEP_STUBS));
+        AdminClient adminClient = Mockito.mock(AdminClient.class);
+        Mockito.when(adminClient.indices()).thenReturn(indicesAdminClient);
+        Client client = Mockito.mock(Client.class);
+        Mockito.when(client.admin()).thenReturn(adminClient);
+        ElasticSearchClient elasticSearchClient = Mockito.mock(ElasticSearchClient.class);
+        Mockito.when(elasticSearchClient.getClient()).thenReturn(client);
+
+        indexerService = new CSARRepositoryIndexerService();
+        ReflectionTestUtils.setField(indexerService, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(indexerService, "elasticSearchClient", elasticSearchClient);
+        ReflectionTestUtils.setField(indexerService, "elementCache", elementCache);
+    }
+
+    @Test
+    public void archiveElementsShouldBeSavedInASingleBulkAndRefreshedOnce() {
+        IndexedNodeType root = nodeType("tosca.nodes.Root", "tosca-normative-types", "1.0", null);
+        IndexedNodeType olderCompute = nodeType("my.nodes.Compute", "my-archive", "1.0", "tosca.nodes.Root");
+        olderCompute.setHighestVersion(true);
+        // the first query loads the parents from the dependencies, the second one the highest versions of the archive elements
+        Mockito.when(alienDAO.customFindAll(Mockito.eq(IndexedNodeType.class), Mockito.any(QueryBuilder.class))).thenReturn(Lists.newArrayList(root))
+                .thenReturn(Lists.newArrayList(olderCompute));
+        IndexedNodeType compute = nodeType("my.nodes.Compute", "my-archive", "2.0", "tosca.nodes.Root");
+        IndexedNodeType server = nodeType("my.nodes.Server", "my-archive", "2.0", "my.nodes.Compute");
+
+        indexerService.indexArchiveElements("my-archive", "2.0", Lists.<IndexedInheritableToscaElement> newArrayList(server, compute), DEPENDENCIES);
+
+        ArgumentCaptor<IndexedToscaElement[]> savedElements = ArgumentCaptor.forClass(IndexedToscaElement[].class);
+        InOrder inOrder = Mockito.inOrder(alienDAO, indicesAdminClient, elementCache);
+        inOrder.verify(alienDAO).saveAll(savedElements.capture(), Mockito.eq(RefreshPolicy.NEXT_REFRESH));
+        inOrder.verify(indicesAdminClient).prepareRefresh(ElasticSearchDAO.TOSCA_ELEMENT_INDEX);
+        inOrder.verify(elementCache).invalidate("my.nodes.Server");
+        Mockito.verify(elementCache).invalidate("my.nodes.Compute");
+        Mockito.verify(alienDAO, Mockito.never()).save(Mockito.any(Object.class));
+        Mockito.verify(alienDAO, Mockito.never()).save(Mockito.any(Object[].class));
+        Mockito.verify(alienDAO, Mockito.never()).save(Mockito.any(Object[].class), Mockito.any(RefreshPolicy.class));
+        Mockito.verifyNoMoreInteractions(indicesAdminClient);
+
+        // the new elements and the previous highest version are saved together
+        List<IndexedToscaElement> saved = Lists.newArrayList(savedElements.getValue());
+        Assert.assertEquals(3, saved.size());
+        Assert.assertTrue(saved.contains(olderCompute));
+        Assert.assertFalse(olderCompute.isHighestVersion());
+        Assert.assertTrue(compute.isHighestVersion());
+        Assert.assertEquals(Sets.newHashSet("1.0"), compute.getOlderVersions());
+        // parents are merged in memory whether they come from the archive or from the dependencies
+        Assert.assertEquals(Lists.newArrayList("tosca.nodes.Root"), compute.getDerivedFrom());
+        Assert.assertEquals(Lists.newArrayList("my.nodes.Compute", "tosca.nodes.Root"), server.getDerivedFrom());
+    }
+
+    @Test
+    public void failedBulkShouldNotBeRefreshed() {
+        Mockito.doThrow(new IndexingServiceException("Bulk save failed")).when(alienDAO)
+                .saveAll(Mockito.any(IndexedToscaElement[].class), Mockito.eq(RefreshPolicy.NEXT_REFRESH));
+        IndexedNodeType root = nodeType("tosca.nodes.Root", "tosca-normative-types", "1.0", null);
+
+        try {
+            indexerService.indexArchiveElements("tosca-normative-types", "1.0", Lists.<IndexedInheritableToscaElement> newArrayList(root), null);
+            Assert.fail("The failure of the bulk save must fail the archive indexing.");
+        } catch (IndexingServiceException e) {
+            Mockito.verifyZeroInteractions(indicesAdminClient, elementCache);
+        }
+    }
+
+    private static IndexedNodeType nodeType(String elementId, String archiveName, String archiveVersion, String parent) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        nodeType.setArchiveName(archiveName);
+        nodeType.setArchiveVersion(archiveVersion);
+        if (parent != null) {
+            nodeType.setDerivedFrom(Lists.newArrayList(parent));
+        }
+        return nodeType;
+    }
+}
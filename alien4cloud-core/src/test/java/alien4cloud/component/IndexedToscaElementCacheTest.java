@@ -0,0 +1,143 @@
+package alien4cloud.component;
+
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedNodeType;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+public class IndexedToscaElementCacheTest {
+    private static final Collection<CSARDependency> DEPENDENCIES = Lists.newArrayList(new CSARDependency("tosca-normative-types", "1.0"));
+
+    private IndexedToscaElementCache cache;
+
+    @Before
+    public void before() {
+        IGenericSearchDAO searchDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(searchDAO.getJsonMapper()).thenReturn(new ElasticSearchMapper());
+        cache = new IndexedToscaElementCache();
+        ReflectionTestUtils.setField(cache, "searchDAO", searchDAO);
+        ReflectionTestUtils.setField(cache, "maxSize", 2L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "metricRegistry", new MetricRegistry());
+        cache.init();
+        Mockito.verify(searchDAO).addWriteListener(cache);
+    }
+
+    @Test
+    public void cachedElementShouldBeReturnedAsACopy() {
+        IndexedNodeType nodeType = nodeType("tosca.nodes.Compute");
+        cache.put(IndexedNodeType.class, nodeType.getElementId(), DEPENDENCIES, nodeType, cache.getGeneration());
+
+        Optional<IndexedNodeType> cached = cache.get(IndexedNodeType.class, nodeType.getElementId(), DEPENDENCIES);
+        Assert.assertTrue(cached.isPresent());
+        Assert.assertEquals("Compute", cached.get().getDescription());
+        Assert.assertNotSame(nodeType, cached.get());
+        // the key contains the dependencies
+        Assert.assertNull(cache.get(IndexedNodeType.class, nodeType.getElementId(), Lists.newArrayList(new CSARDependency("tosca-normative-types",
+                "2.0"))));
+    }
+
+    @Test
+    public void missingElementShouldBeCached() {
+        cache.put(IndexedNodeType.class, "tosca.nodes.Missing", DEPENDENCIES, null, cache.getGeneration());
+
+        Optional<IndexedNodeType> cached = cache.get(IndexedNodeType.class, "tosca.nodes.Missing", DEPENDENCIES);
+        Assert.assertNotNull(cached);
+        Assert.assertFalse(cached.isPresent());
+    }
+
+    @Test
+    public void reindexedElementShouldBeInvalidated() {
+        IndexedNodeType compute = nodeType("tosca.nodes.Compute");
+        IndexedNodeType root = nodeType("tosca.nodes.Root");
+        long generation = cache.getGeneration();
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, generation);
+        cache.put(IndexedNodeType.class, root.getElementId(), DEPENDENCIES, root, generation);
+
+        cache.invalidate(compute.getElementId());
+
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+        Assert.assertNotNull(cache.get(IndexedNodeType.class, root.getElementId(), DEPENDENCIES));
+        // a resolution started before the invalidation is not cached
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, generation);
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+    }
+
+    @Test
+    public void daoWritesShouldInvalidateTheElement() {
+        IndexedNodeType compute = nodeType("tosca.nodes.Compute");
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, cache.getGeneration());
+        cache.put(IndexedNodeType.class, compute.getElementId(), Lists.newArrayList(new CSARDependency("tosca-normative-types", "2.0")), compute,
+                cache.getGeneration());
+
+        cache.saved(compute);
+
+        // all the resolutions of the element are invalidated whatever the dependencies
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), Lists.newArrayList(new CSARDependency("tosca-normative-types",
+                "2.0"))));
+
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, cache.getGeneration());
+        cache.deleted(IndexedNodeType.class, compute.getId());
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+    }
+
+    @Test
+    public void daoWritesOfOtherClassesShouldNotInvalidateTheCache() {
+        IndexedNodeType compute = nodeType("tosca.nodes.Compute");
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, cache.getGeneration());
+
+        cache.saved(new Object());
+        cache.deleted(Object.class, compute.getElementId());
+        cache.deletedByQuery(String.class);
+
+        Assert.assertNotNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+    }
+
+    @Test
+    public void daoDeleteByQueryShouldInvalidateTheCache() {
+        IndexedNodeType compute = nodeType("tosca.nodes.Compute");
+        cache.put(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES, compute, cache.getGeneration());
+
+        cache.deletedByQuery(IndexedNodeType.class);
+
+        Assert.assertNull(cache.get(IndexedNodeType.class, compute.getElementId(), DEPENDENCIES));
+    }
+
+    @Test
+    public void cacheShouldBeBounded() {
+        for (int i = 0; i < 10; i++) {
+            IndexedNodeType nodeType = nodeType("tosca.nodes.Type" + i);
+            cache.put(IndexedNodeType.class, nodeType.getElementId(), DEPENDENCIES, nodeType, cache.getGeneration());
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 10; i++) {
+            if (cache.get(IndexedNodeType.class, "tosca.nodes.Type" + i, DEPENDENCIES) != null) {
+                cached++;
+            }
+        }
+        Assert.assertTrue(cached <= 2);
+    }
+
+    private static IndexedNodeType nodeType(String elementId) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        nodeType.setArchiveName("tosca-normative-types");
+        nodeType.setArchiveVersion("1.0");
+        nodeType.setDescription(elementId.substring(elementId.lastIndexOf('.') + 1));
+        return nodeType;
+    }
+}
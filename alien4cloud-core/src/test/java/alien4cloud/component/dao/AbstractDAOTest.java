@@ -10,6 +10,7 @@ import org.elasticsearch.mapping.ElasticSearchClient;
 import org.junit.After;
 import org.junit.Before;
 
+import alien4cloud.component.IndexedToscaElementCache;
 import alien4cloud.dao.ElasticSearchDAO;
 import alien4cloud.model.application.Application;
 import alien4cloud.model.topology.Topology;
@@ -18,6 +19,8 @@ public abstract class AbstractDAOTest {
 
     @Resource
     protected ElasticSearchClient esclient;
+    @Resource
+    private IndexedToscaElementCache elementCache;
 
     protected Client nodeClient;
 
@@ -47,5 +50,7 @@ public abstract class AbstractDAOTest {
         clearIndex(ElasticSearchDAO.TOSCA_ELEMENT_INDEX);
         clearIndex(Topology.class.getSimpleName().toLowerCase());
         refresh();
+        // the indices are cleaned without the dao
+        elementCache.invalidateAll();
     }
 }
@@ -32,7 +32,9 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import alien4cloud.dao.ElasticSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.FetchContext;
+import alien4cloud.dao.model.VersionedData;
 import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.exception.VersionConflictException;
 import alien4cloud.model.application.Application;
 import alien4cloud.model.common.Tag;
 import alien4cloud.model.components.CapabilityDefinition;
@@ -169,6 +171,25 @@ public class EsDaoCrudTest extends AbstractDAOTest {
         refresh();
     }
 
+    @Test
+    public void saveIfVersionTest() throws IndexingServiceException, JsonProcessingException {
+        saveDataToES(indexedNodeTypeTest);
+
+        VersionedData<IndexedNodeType> read = dao.findVersionedById(IndexedNodeType.class, indexedNodeTypeTest.getId());
+        assertBeanEqualsToOriginal(read.getData());
+        long newVersion = dao.saveIfVersion(read.getData(), read.getVersion());
+        assertEquals(read.getVersion() + 1, newVersion);
+
+        // saving again from the version initially read is a conflict
+        try {
+            dao.saveIfVersion(read.getData(), read.getVersion());
+            fail("A save from an outdated version should fail");
+        } catch (VersionConflictException e) {
+            assertEquals(newVersion, dao.findVersionedById(IndexedNodeType.class, indexedNodeTypeTest.getId()).getVersion());
+        }
+        assertNull(dao.findVersionedById(IndexedNodeType.class, "5"));
+    }
+
     @Test
     public void deleteToscaComponentSuccessfulTest() throws IndexingServiceException, JsonProcessingException {
 
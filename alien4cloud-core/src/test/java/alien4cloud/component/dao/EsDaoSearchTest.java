@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -15,7 +16,9 @@ import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.MappingBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -91,6 +94,19 @@ public class EsDaoSearchTest extends AbstractDAOTest {
         assertEquals(2, searchResp.getData().length);
     }
 
+    @Test
+    public void scrollTest() throws IndexingServiceException, InterruptedException, IOException {
+        // batch size smaller than the number of elements to force several scroll requests
+        Iterator<IndexedNodeType> iterator = dao.scroll(IndexedNodeType.class, null, null, 1);
+        List<IndexedNodeType> elements = Lists.newArrayList(iterator);
+        assertEquals(4, elements.size());
+        assertFalse(iterator.hasNext());
+
+        iterator = dao.scroll(IndexedNodeType.class, QueryBuilders.termQuery("archiveName", "pokerFace"), SortBuilders.fieldSort("archiveVersion"), 1);
+        elements = Lists.newArrayList(iterator);
+        assertEquals(2, elements.size());
+    }
+
     @Test
     public void searchInTagsTest() throws IndexingServiceException, InterruptedException, IOException {
 
@@ -0,0 +1,82 @@
+package alien4cloud.component.dao;
+
+import javax.annotation.Resource;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RefreshPolicy;
+import alien4cloud.dao.model.VersionedData;
+import alien4cloud.model.application.Application;
+import alien4cloud.model.topology.Topology;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class RefreshPolicyTest extends AbstractDAOTest {
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO dao;
+
+    @Test
+    public void topologiesShouldBeSearchableRightAfterTheirSave() {
+        // topologies are counted by search requests (csar usage, node type scores) right after they are saved
+        Topology topology = new Topology();
+        topology.setId("topology");
+        dao.save(topology);
+
+        Assert.assertEquals(1, dao.count(Topology.class, QueryBuilders.idsQuery().ids("topology")));
+    }
+
+    @Test
+    public void immediateWriteShouldBeSearchable() {
+        dao.save(application("immediate"), RefreshPolicy.IMMEDIATE);
+        Assert.assertEquals(1, dao.count(Application.class, QueryBuilders.idsQuery().ids("immediate")));
+
+        dao.delete(Application.class, "immediate", RefreshPolicy.IMMEDIATE);
+        Assert.assertEquals(0, dao.count(Application.class, QueryBuilders.idsQuery().ids("immediate")));
+    }
+
+    @Test
+    public void nextRefreshWriteShouldBeReadableById() {
+        dao.save(application("next-refresh"), RefreshPolicy.NEXT_REFRESH);
+
+        // get requests are real-time
+        Assert.assertNotNull(dao.findById(Application.class, "next-refresh"));
+        refresh();
+        Assert.assertEquals(1, dao.count(Application.class, QueryBuilders.idsQuery().ids("next-refresh")));
+    }
+
+    @Test
+    public void versionedWriteShouldUseTheGivenRefreshPolicy() {
+        dao.save(application("versioned"), RefreshPolicy.IMMEDIATE);
+        VersionedData<Application> read = dao.findVersionedById(Application.class, "versioned");
+
+        read.getData().setName("updated");
+        long version = dao.saveIfVersion(read.getData(), read.getVersion(), RefreshPolicy.IMMEDIATE);
+
+        Assert.assertEquals(read.getVersion() + 1, version);
+        Assert.assertEquals(1, dao.count(Application.class, QueryBuilders.termQuery("name", "updated")));
+    }
+
+    @Test
+    public void asyncWriteShouldEventuallyBeWritten() throws InterruptedException {
+        dao.save(application("async"), RefreshPolicy.ASYNC);
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (dao.findById(Application.class, "async") == null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(dao.findById(Application.class, "async"));
+    }
+
+    private static Application application(String id) {
+        Application application = new Application();
+        application.setId(id);
+        application.setName(id);
+        return application;
+    }
+}
@@ -0,0 +1,138 @@
+package alien4cloud.dao;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.annotation.Resource;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.hppc.cursors.ObjectCursor;
+import org.elasticsearch.mapping.ElasticSearchClient;
+import org.elasticsearch.mapping.MappingBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class MonitorESDAOTest {
+    private static final long DAY_MS = 1000L * 60 * 60 * 24;
+    private static final String LEGACY_INDEX = "deploymentmonitorevents";
+
+    @Resource(name = "alien-monitor-es-dao")
+    private MonitorESDAO monitorDAO;
+    @Resource
+    private ElasticSearchClient esclient;
+    private Client client;
+    private long now;
+
+    @Before
+    public void before() {
+        client = esclient.getClient();
+        now = System.currentTimeMillis();
+    }
+
+    @After
+    public void after() {
+        if (indexExists(LEGACY_INDEX)) {
+            client.admin().indices().prepareDelete(LEGACY_INDEX).execute().actionGet();
+            ReflectionTestUtils.invokeMethod(monitorDAO, "initEventIndices");
+        }
+    }
+
+    @Test
+    public void eventsShouldBeSavedInTheIndexOfTheirDay() {
+        String todayIndex = indexName(now);
+        Assert.assertEquals(todayIndex, monitorDAO.getEventIndex(now));
+        // events without date are saved in the index of the current day
+        Assert.assertEquals(todayIndex, monitorDAO.getEventIndex(0));
+        Assert.assertEquals(indexName(now - 3 * DAY_MS), monitorDAO.getEventIndex(now - 3 * DAY_MS));
+
+        PaaSMessageMonitorEvent event = new PaaSMessageMonitorEvent();
+        event.setDate(now);
+        event.setDeploymentId("deployment");
+        event.setMessage("message");
+        Assert.assertEquals(todayIndex, monitorDAO.getIndexForWrite(event));
+        // the daily index is part of the events alias with the mappings of the events
+        Assert.assertTrue(getAliasIndices().contains(todayIndex));
+        Assert.assertNotNull(client.admin().indices().prepareGetMappings(todayIndex).execute().actionGet().getMappings().get(todayIndex)
+                .get(MappingBuilder.indexTypeFromClass(PaaSMessageMonitorEvent.class)));
+    }
+
+    @Test
+    public void eventIndicesShouldBeSelectedForAPeriod() {
+        for (int i = 0; i < 4; i++) {
+            monitorDAO.getEventIndex(now - i * DAY_MS);
+        }
+
+        List<String> indices = Arrays.asList(monitorDAO.getEventIndices(now - 2 * DAY_MS, now - DAY_MS));
+
+        Assert.assertEquals(Arrays.asList(indexName(now - DAY_MS), indexName(now - 2 * DAY_MS)), indices);
+        Assert.assertEquals(indexName(now), monitorDAO.getEventIndices(now, Long.MAX_VALUE)[0]);
+    }
+
+    @Test
+    public void legacyIndexShouldBeAddedToTheAlias() {
+        client.admin().indices().prepareCreate(LEGACY_INDEX).execute().actionGet();
+
+        ReflectionTestUtils.invokeMethod(monitorDAO, "initEventIndices");
+
+        Assert.assertTrue(getAliasIndices().contains(LEGACY_INDEX));
+        List<String> indices = Arrays.asList(monitorDAO.getEventIndices(now, now));
+        Assert.assertEquals(Arrays.asList(indexName(now), LEGACY_INDEX), indices);
+    }
+
+    @Test
+    public void expiredIndicesShouldBeDropped() {
+        String expiredIndex = monitorDAO.getEventIndex(now - 5 * DAY_MS);
+        Assert.assertTrue(indexExists(expiredIndex));
+
+        monitorDAO.dropExpiredEventIndices();
+
+        Assert.assertFalse(indexExists(expiredIndex));
+        Assert.assertFalse(Arrays.asList(monitorDAO.getEventIndices(0, Long.MAX_VALUE)).contains(expiredIndex));
+        Assert.assertTrue(indexExists(indexName(now)));
+    }
+
+    @Test
+    public void indexDroppedByAnotherInstanceShouldBeCreatedAgainBeforeWriting() {
+        String index = monitorDAO.getEventIndex(now - DAY_MS);
+        // another instance drops the index, this instance still knows it
+        client.admin().indices().prepareDelete(index).execute().actionGet();
+
+        Assert.assertEquals(index, monitorDAO.getEventIndex(now - DAY_MS));
+
+        Assert.assertTrue(indexExists(index));
+        Assert.assertTrue(getAliasIndices().contains(index));
+    }
+
+    private boolean indexExists(String index) {
+        return client.admin().indices().prepareExists(index).execute().actionGet().isExists();
+    }
+
+    private List<String> getAliasIndices() {
+        List<String> indices = Lists.newArrayList();
+        for (ObjectCursor<String> index : client.admin().indices().prepareGetAliases(MonitorESDAO.EVENTS_ALIAS).execute().actionGet().getAliases().keys()) {
+            indices.add(index.value);
+        }
+        return indices;
+    }
+
+    private static String indexName(long date) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy.MM.dd");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return "deploymentmonitorevents-" + dateFormat.format(new Date(date));
+    }
+}
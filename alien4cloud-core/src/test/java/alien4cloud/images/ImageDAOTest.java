@@ -0,0 +1,63 @@
+package alien4cloud.images;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.dao.IGenericIdDAO;
+import alien4cloud.utils.ImageQuality;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class ImageDAOTest {
+    @Resource
+    private IImageDAO imageDAO;
+    @Resource(name = "image-dao")
+    private IGenericIdDAO imageGenericIdDAO;
+
+    @Test
+    public void qualityShouldBeGeneratedWhenFirstRead() throws IOException {
+        String imageId = imageDAO.writeImage(image(100, 50));
+        try {
+            // only the original image is stored on upload
+            Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, imageId));
+            Assert.assertNull(imageGenericIdDAO.findById(ImageData.class, ImageQuality.QUALITY_32.name() + imageId));
+
+            ImageData imageData = imageDAO.readImage(imageId, ImageQuality.QUALITY_32);
+
+            Assert.assertEquals("image/png", imageData.getMime());
+            BufferedImage resized = ImageIO.read(new ByteArrayInputStream(imageData.getData()));
+            Assert.assertEquals(32, resized.getWidth());
+            Assert.assertEquals(16, resized.getHeight());
+            // the generated quality is stored and read as is afterwards
+            ImageData storedData = imageGenericIdDAO.findById(ImageData.class, ImageQuality.QUALITY_32.name() + imageId);
+            Assert.assertNotNull(storedData);
+            Assert.assertArrayEquals(imageData.getData(), imageDAO.readImage(imageId, ImageQuality.QUALITY_32).getData());
+        } finally {
+            imageDAO.delete(imageId);
+        }
+        // generated qualities are deleted with the image
+        Assert.assertNull(imageGenericIdDAO.findById(ImageData.class, ImageQuality.QUALITY_32.name() + imageId));
+    }
+
+    @Test
+    public void qualityOfAMissingImageShouldBeNull() {
+        Assert.assertNull(imageDAO.readImage("missing", ImageQuality.QUALITY_32));
+    }
+
+    private static byte[] image(int width, int height) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", baos);
+        return baos.toByteArray();
+    }
+}
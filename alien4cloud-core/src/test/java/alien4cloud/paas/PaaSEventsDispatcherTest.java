@@ -0,0 +1,149 @@
+package alien4cloud.paas;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PaaSEventsDispatcherTest {
+    private PaaSEventsDispatcher dispatcher;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void before() {
+        metricRegistry = new MetricRegistry();
+        dispatcher = new PaaSEventsDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "metricRegistry", metricRegistry);
+    }
+
+    @After
+    public void after() {
+        dispatcher.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dispatcherWithoutPartitionShouldBeRejected() {
+        ReflectionTestUtils.setField(dispatcher, "partitions", 0);
+        dispatcher.checkSettings();
+    }
+
+    @Test
+    public void eventsOfADeploymentShouldBeProcessedInOrder() throws InterruptedException {
+        int deployments = 5;
+        int eventsPerDeployment = 100;
+        RecordingListener listener = new RecordingListener(deployments * eventsPerDeployment);
+        dispatcher.addListener(listener);
+
+        for (int i = 0; i < eventsPerDeployment; i++) {
+            for (int deployment = 0; deployment < deployments; deployment++) {
+                dispatcher.dispatch(event("deployment-" + deployment, i));
+            }
+        }
+
+        Assert.assertTrue(listener.processed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(deployments, listener.messages.size());
+        for (List<String> messages : listener.messages.values()) {
+            Assert.assertEquals(eventsPerDeployment, messages.size());
+            for (int i = 0; i < eventsPerDeployment; i++) {
+                Assert.assertEquals(String.valueOf(i), messages.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void eventsShouldBeDroppedWhenTheQueueIsFull() throws InterruptedException {
+        ReflectionTestUtils.setField(dispatcher, "partitions", 1);
+        ReflectionTestUtils.setField(dispatcher, "queueSize", 1);
+        RecordingListener listener = new RecordingListener(2);
+        listener.release = new CountDownLatch(1);
+        dispatcher.addListener(listener);
+
+        // the first event is processed by the worker that then waits, the second one fills the queue
+        dispatcher.dispatch(event("deployment", 0));
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(event("deployment", 1));
+        // the dispatch doesn't wait for the listener, the event is dropped
+        dispatcher.dispatch(event("deployment", 2));
+        Assert.assertEquals(1L, count("dropped_events"));
+
+        listener.release.countDown();
+        Assert.assertTrue(listener.processed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Lists.newArrayList("0", "1"), listener.messages.get("deployment"));
+    }
+
+    @Test
+    public void workerShouldSurviveAListenerError() throws InterruptedException {
+        ReflectionTestUtils.setField(dispatcher, "partitions", 1);
+        RecordingListener listener = new RecordingListener(1);
+        listener.failingMessage = "0";
+        dispatcher.addListener(listener);
+
+        dispatcher.dispatch(event("deployment", 0), event("deployment", 1));
+
+        Assert.assertTrue(listener.processed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Lists.newArrayList("1"), listener.messages.get("deployment"));
+        Assert.assertEquals(1L, count("errors"));
+    }
+
+    private static PaaSMessageMonitorEvent event(String deploymentId, int index) {
+        PaaSMessageMonitorEvent event = new PaaSMessageMonitorEvent();
+        event.setDeploymentId(deploymentId);
+        event.setMessage(String.valueOf(index));
+        return event;
+    }
+
+    private long count(String counter) {
+        return metricRegistry.getCounters().get(MetricRegistry.name(PaaSEventsDispatcher.class, "RecordingListener", counter)).getCount();
+    }
+
+    private static class RecordingListener implements IPaasEventListener<PaaSMessageMonitorEvent> {
+        private final Map<String, List<String>> messages = Maps.newConcurrentMap();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch processed;
+        private CountDownLatch release;
+        private String failingMessage;
+
+        private RecordingListener(int expectedEvents) {
+            this.processed = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void eventHappened(PaaSMessageMonitorEvent event) {
+            if (event.getMessage().equals(failingMessage)) {
+                throw new AssertionError("Listener failure");
+            }
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<String> deploymentMessages = messages.get(event.getDeploymentId());
+            if (deploymentMessages == null) {
+                deploymentMessages = Lists.newCopyOnWriteArrayList();
+                messages.put(event.getDeploymentId(), deploymentMessages);
+            }
+            deploymentMessages.add(event.getMessage());
+            processed.countDown();
+        }
+
+        @Override
+        public boolean canHandle(PaaSMessageMonitorEvent event) {
+            return true;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package alien4cloud.paas;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Date;
+import java.util.List;
 
 import javax.annotation.Resource;
 
@@ -14,17 +17,28 @@ import org.elasticsearch.mapping.ElasticSearchClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.cloud.ActiveDeploymentRegistry;
+import alien4cloud.dao.MonitorESDAO;
 import alien4cloud.paas.PaaSProviderPollingMonitor;
+import alien4cloud.paas.PaaSProviderPollingMonitor.PollingSettings;
+import alien4cloud.paas.model.AbstractMonitorEvent;
 import alien4cloud.paas.model.DeploymentStatus;
 import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
 import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+import alien4cloud.paas.model.PaaSMonitorWatermark;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Test monitoring events recovery
@@ -33,11 +47,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @ContextConfiguration("classpath:application-context-test.xml")
 public class PaaSProviderPollingMonitorTest {
 
-    @Resource(name = "alien-es-dao")
-    private IGenericSearchDAO alienDao;
+    @Resource
+    private ActiveDeploymentRegistry activeDeploymentRegistry;
 
     @Resource(name = "alien-monitor-es-dao")
-    private IGenericSearchDAO alienMonitorDao;
+    private MonitorESDAO alienMonitorDao;
 
     @Resource
     ElasticSearchClient esclient;
@@ -67,8 +81,8 @@ public class PaaSProviderPollingMonitorTest {
             eventMessage.setMessage("EVENT MESSAGE : " + eventMessage.getDate());
             eventJson = jsonMapper.writeValueAsString(eventMessage);
 
-            nodeClient.prepareIndex("deploymentmonitorevents", PaaSMessageMonitorEvent.class.getSimpleName().toLowerCase()).setSource(eventJson)
-                    .setRefresh(true).execute().actionGet();
+            nodeClient.prepareIndex(alienMonitorDao.getEventIndex(eventMessage.getDate()), PaaSMessageMonitorEvent.class.getSimpleName().toLowerCase())
+                    .setSource(eventJson).setRefresh(true).execute().actionGet();
         }
 
         // add 3 deployment status events
@@ -83,7 +97,9 @@ public class PaaSProviderPollingMonitorTest {
             eventDeploymentStatus.setDeploymentStatus(DeploymentStatus.DEPLOYED);
             eventJson = jsonMapper.writeValueAsString(eventDeploymentStatus);
 
-            nodeClient.prepareIndex("deploymentmonitorevents", PaaSDeploymentStatusMonitorEvent.class.getSimpleName().toLowerCase()).setSource(eventJson)
+            nodeClient
+                    .prepareIndex(alienMonitorDao.getEventIndex(eventDeploymentStatus.getDate()),
+                            PaaSDeploymentStatusMonitorEvent.class.getSimpleName().toLowerCase()).setSource(eventJson)
                     .setRefresh(true).execute().actionGet();
         }
 
@@ -98,7 +114,7 @@ public class PaaSProviderPollingMonitorTest {
         // init with some events
         initEvents();
 
-        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, "CloudID");
+        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(activeDeploymentRegistry, alienMonitorDao, null, null, "CloudID");
         Field lastPollingDateField = PaaSProviderPollingMonitor.class.getDeclaredField("lastPollingDate");
         lastPollingDateField.setAccessible(true);
         Date lastDate = (Date) lastPollingDateField.get(paaSProviderPollingMonitor);
@@ -109,7 +125,7 @@ public class PaaSProviderPollingMonitorTest {
     @Test
     public void testLoadEventsWithoutEvents() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 
-        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, "CloudID");
+        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(activeDeploymentRegistry, alienMonitorDao, null, null, "CloudID");
         Field lastPollingDateField = PaaSProviderPollingMonitor.class.getDeclaredField("lastPollingDate");
         lastPollingDateField.setAccessible(true);
         Date lastDate = (Date) lastPollingDateField.get(paaSProviderPollingMonitor);
@@ -118,6 +134,188 @@ public class PaaSProviderPollingMonitorTest {
         assertTrue(lastDate.after(new Date()));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void recoveryShouldContinueWhenPushedEventsOverflowDuringAPoll() {
+        IPushEventsPaaSProvider paaSProvider = Mockito.mock(IPushEventsPaaSProvider.class);
+        PaaSEventsDispatcher dispatcher = Mockito.mock(PaaSEventsDispatcher.class);
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(Mockito.mock(ActiveDeploymentRegistry.class), mockMonitorDAO(), paaSProvider,
+                dispatcher, "CloudID", null, new PollingSettings(2, 8, 1));
+        ArgumentCaptor<IPaaSEventsConsumer> consumer = ArgumentCaptor.forClass(IPaaSEventsConsumer.class);
+        Mockito.verify(paaSProvider).setEventsConsumer(consumer.capture());
+
+        // the monitoring starts by recovering the events by polling
+        monitor.run();
+        ArgumentCaptor<IPaaSCallback> callback = ArgumentCaptor.forClass(IPaaSCallback.class);
+        Mockito.verify(paaSProvider).getEventsSince(Mockito.any(Date.class), Mockito.eq(2), callback.capture());
+        // the queue overflows while the poll is in progress
+        assertTrue(consumer.getValue().offer(messageEvent(1)));
+        assertFalse(consumer.getValue().offer(messageEvent(2)));
+        callback.getValue().onSuccess(new AbstractMonitorEvent[0]);
+
+        // the dropped event must be recovered by another poll
+        monitor.run();
+        Mockito.verify(paaSProvider, Mockito.times(2)).getEventsSince(Mockito.any(Date.class), Mockito.eq(2), Mockito.any(IPaaSCallback.class));
+        callback.getValue().onSuccess(new AbstractMonitorEvent[0]);
+
+        // recovery is over, pushed events are processed
+        monitor.run();
+        Mockito.verify(paaSProvider, Mockito.times(2)).getEventsSince(Mockito.any(Date.class), Mockito.anyInt(), Mockito.any(IPaaSCallback.class));
+        Mockito.verify(dispatcher).dispatch(Mockito.<AbstractMonitorEvent> anyVararg());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void polledEventsShouldGrowWithFullPagesAndShrinkWithPartialOnes() {
+        IPaaSProvider paaSProvider = Mockito.mock(IPaaSProvider.class);
+        ActiveDeploymentRegistry registry = Mockito.mock(ActiveDeploymentRegistry.class);
+        Mockito.when(registry.hasDeployments("CloudID")).thenReturn(true);
+        TaskScheduler scheduler = Mockito.mock(TaskScheduler.class);
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(registry, mockMonitorDAO(), paaSProvider,
+                Mockito.mock(PaaSEventsDispatcher.class), "CloudID", scheduler, new PollingSettings(2, 8, 0));
+        // first tick checks that the cloud has deployments
+        monitor.run();
+
+        IPaaSCallback<AbstractMonitorEvent[]> callback = poll(monitor, paaSProvider, 2);
+        callback.onSuccess(messageEvents(0, 2));
+        // a full page triggers a new poll immediately
+        Mockito.verify(scheduler).schedule(Mockito.eq(monitor), Mockito.any(Date.class));
+        callback = poll(monitor, paaSProvider, 4);
+        callback.onSuccess(messageEvents(2, 4));
+        callback = poll(monitor, paaSProvider, 8);
+        callback.onSuccess(messageEvents(6, 8));
+        // the maximum is reached
+        callback = poll(monitor, paaSProvider, 8);
+        callback.onSuccess(messageEvents(14, 1));
+        poll(monitor, paaSProvider, 4);
+        Mockito.verify(scheduler, Mockito.times(3)).schedule(Mockito.eq(monitor), Mockito.any(Date.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void monitoringShouldRestartFromTheWatermark() {
+        IPaaSProvider paaSProvider = Mockito.mock(IPaaSProvider.class);
+        MonitorESDAO monitorDAO = mockMonitorDAO();
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(mockRegistryWithDeployments(), monitorDAO, paaSProvider,
+                Mockito.mock(PaaSEventsDispatcher.class), "CloudID", null, new PollingSettings(10, 10, 0));
+        monitor.run();
+        monitor.run();
+
+        Mockito.verify(paaSProvider).getEventsSince(Mockito.eq(new Date(1000L)), Mockito.eq(10), Mockito.any(IPaaSCallback.class));
+        // the events are not searched when the watermark exists
+        Mockito.verify(monitorDAO, Mockito.never()).getEventIndices(Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    public void eventsAlreadyProcessedShouldBeIgnored() {
+        IPaaSProvider paaSProvider = Mockito.mock(IPaaSProvider.class);
+        MonitorESDAO monitorDAO = mockMonitorDAO();
+        PaaSEventsDispatcher dispatcher = Mockito.mock(PaaSEventsDispatcher.class);
+        final List<AbstractMonitorEvent> dispatched = Lists.newArrayList();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                for (Object event : invocation.getArguments()) {
+                    dispatched.add((AbstractMonitorEvent) event);
+                }
+                return null;
+            }
+        }).when(dispatcher).dispatch(Mockito.<AbstractMonitorEvent> anyVararg());
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(mockRegistryWithDeployments(), monitorDAO, paaSProvider, dispatcher, "CloudID",
+                null, new PollingSettings(10, 10, 0));
+        monitor.run();
+
+        poll(monitor, paaSProvider, 10).onSuccess(new AbstractMonitorEvent[] { messageEvent(0), messageEvent(1) });
+        // polling is done from the date of the latest event, the latest event is returned again with an older one and a new one at the same date
+        PaaSMessageMonitorEvent newEvent = messageEvent(1);
+        newEvent.setMessage("OTHER EVENT MESSAGE");
+        poll(monitor, paaSProvider, 10).onSuccess(new AbstractMonitorEvent[] { messageEvent(0), messageEvent(1), newEvent, messageEvent(2) });
+
+        assertEquals(4, dispatched.size());
+        assertSame(newEvent, dispatched.get(2));
+        assertEquals(2002L, dispatched.get(3).getDate());
+        // events and watermark are saved after every poll, the watermark last
+        ArgumentCaptor<Object[]> saved = ArgumentCaptor.forClass(Object[].class);
+        Mockito.verify(monitorDAO, Mockito.times(4)).saveBuffered(saved.capture());
+        PaaSMonitorWatermark watermark = (PaaSMonitorWatermark) saved.getValue()[0];
+        assertEquals(2002L, watermark.getLastEventDate());
+        assertEquals(1, watermark.getLastEventKeys().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pushedEventsShouldBeIgnoredOnlyIfTheyHaveBeenRecovered() {
+        IPushEventsPaaSProvider paaSProvider = Mockito.mock(IPushEventsPaaSProvider.class);
+        PaaSEventsDispatcher dispatcher = Mockito.mock(PaaSEventsDispatcher.class);
+        final List<AbstractMonitorEvent> dispatched = Lists.newArrayList();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                for (Object event : invocation.getArguments()) {
+                    dispatched.add((AbstractMonitorEvent) event);
+                }
+                return null;
+            }
+        }).when(dispatcher).dispatch(Mockito.<AbstractMonitorEvent> anyVararg());
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(Mockito.mock(ActiveDeploymentRegistry.class), mockMonitorDAO(), paaSProvider,
+                dispatcher, "CloudID", null, new PollingSettings(10, 10, 10));
+        ArgumentCaptor<IPaaSEventsConsumer> consumer = ArgumentCaptor.forClass(IPaaSEventsConsumer.class);
+        Mockito.verify(paaSProvider).setEventsConsumer(consumer.capture());
+
+        // events are pushed while they are recovered by polling
+        IPaaSCallback<AbstractMonitorEvent[]> callback = poll(monitor, paaSProvider, 10);
+        PaaSMessageMonitorEvent sameDateEvent = messageEvent(1);
+        sameDateEvent.setMessage("OTHER EVENT MESSAGE");
+        assertTrue(consumer.getValue().offer(messageEvent(0), messageEvent(1), sameDateEvent, messageEvent(2)));
+        callback.onSuccess(new AbstractMonitorEvent[] { messageEvent(0), messageEvent(1) });
+        assertEquals(2, dispatched.size());
+
+        // recovery is over, only the pushed events that have not been polled are processed
+        monitor.run();
+        assertEquals(4, dispatched.size());
+        assertSame(sameDateEvent, dispatched.get(2));
+        assertEquals(2002L, dispatched.get(3).getDate());
+    }
+
+    private ActiveDeploymentRegistry mockRegistryWithDeployments() {
+        ActiveDeploymentRegistry registry = Mockito.mock(ActiveDeploymentRegistry.class);
+        Mockito.when(registry.hasDeployments("CloudID")).thenReturn(true);
+        return registry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private IPaaSCallback<AbstractMonitorEvent[]> poll(PaaSProviderPollingMonitor monitor, IPaaSProvider paaSProvider, int expectedPolledEvents) {
+        Mockito.reset(paaSProvider);
+        monitor.run();
+        ArgumentCaptor<IPaaSCallback> callback = ArgumentCaptor.forClass(IPaaSCallback.class);
+        Mockito.verify(paaSProvider).getEventsSince(Mockito.any(Date.class), Mockito.eq(expectedPolledEvents), callback.capture());
+        return callback.getValue();
+    }
+
+    private MonitorESDAO mockMonitorDAO() {
+        MonitorESDAO monitorDAO = Mockito.mock(MonitorESDAO.class);
+        Mockito.when(monitorDAO.findById(PaaSMonitorWatermark.class, "CloudID")).thenReturn(
+                new PaaSMonitorWatermark("CloudID", 1000L, Sets.<String> newHashSet()));
+        Mockito.when(monitorDAO.getJsonMapper()).thenReturn(jsonMapper);
+        return monitorDAO;
+    }
+
+    private AbstractMonitorEvent[] messageEvents(int from, int count) {
+        AbstractMonitorEvent[] events = new AbstractMonitorEvent[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = messageEvent(from + i);
+        }
+        return events;
+    }
+
+    private PaaSMessageMonitorEvent messageEvent(int index) {
+        PaaSMessageMonitorEvent event = new PaaSMessageMonitorEvent();
+        event.setDate(2000L + index);
+        event.setDeploymentId("ID-" + index);
+        event.setMessage("EVENT MESSAGE " + index);
+        return event;
+    }
+
     private Date addMinutesToDate(int minutes, Date beforeTime) {
         final long ONE_MINUTE_IN_MILLIS = 60000;// millisecs
         long curTimeInMs = beforeTime.getTime();
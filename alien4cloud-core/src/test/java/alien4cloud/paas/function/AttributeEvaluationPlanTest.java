@@ -0,0 +1,106 @@
+package alien4cloud.paas.function;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.AttributeDefinition;
+import alien4cloud.model.components.ConcatPropertyValue;
+import alien4cloud.model.components.FunctionPropertyValue;
+import alien4cloud.model.components.IValue;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSNodeTemplate;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.tosca.normative.ToscaFunctionConstants;
+import alien4cloud.utils.MapUtil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class AttributeEvaluationPlanTest {
+    private Topology topology;
+    private PaaSTopology paaSTopology;
+
+    @Before
+    public void before() {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setProperties(MapUtil.newHashMap(new String[] { "port" }, new AbstractPropertyValue[] { new ScalarPropertyValue("8080") }));
+        topology = new Topology();
+        topology.setNodeTemplates(MapUtil.newHashMap(new String[] { "server" }, new NodeTemplate[] { nodeTemplate }));
+
+        AttributeDefinition ipAddress = new AttributeDefinition();
+        ipAddress.setDefault("none");
+        ConcatPropertyValue url = new ConcatPropertyValue();
+        url.setParameters(Lists.<IValue> newArrayList(new ScalarPropertyValue("http://"),
+                new FunctionPropertyValue(ToscaFunctionConstants.GET_ATTRIBUTE, Lists.newArrayList(ToscaFunctionConstants.SELF, "ip_address")),
+                new ScalarPropertyValue(":"),
+                new FunctionPropertyValue(ToscaFunctionConstants.GET_PROPERTY, Lists.newArrayList(ToscaFunctionConstants.SELF, "port"))));
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setAttributes(MapUtil.newHashMap(new String[] { "ip_address", "url" }, new IValue[] { ipAddress, url }));
+
+        PaaSNodeTemplate paaSNodeTemplate = new PaaSNodeTemplate("server", nodeTemplate);
+        paaSNodeTemplate.setIndexedToscaElement(nodeType);
+        paaSTopology = new PaaSTopology();
+        paaSTopology.setAllNodes(MapUtil.newHashMap(new String[] { "server" }, new PaaSNodeTemplate[] { paaSNodeTemplate }));
+    }
+
+    @Test
+    public void applyShouldEvaluateAttributes() {
+        Map<String, InstanceInformation> instances = Maps.newHashMap();
+        instances.put("0", instance("ip_address", "10.0.0.1", "url", ""));
+        instances.put("1", instance("ip_address", ""));
+        Map<String, Map<String, InstanceInformation>> instanceInformations = Maps.newHashMap();
+        instanceInformations.put("server", instances);
+
+        AttributeEvaluationPlan.compile(topology, paaSTopology).apply(instanceInformations);
+
+        Assert.assertEquals("10.0.0.1", instances.get("0").getAttributes().get("ip_address"));
+        Assert.assertEquals("http://10.0.0.1:8080", instances.get("0").getAttributes().get("url"));
+        // no runtime value, the default value of the definition is used
+        Assert.assertEquals("none", instances.get("1").getAttributes().get("ip_address"));
+    }
+
+    @Test
+    public void applyShouldReevaluateDerivedAttributesOfEvaluatedInstances() {
+        Map<String, InstanceInformation> instances = Maps.newHashMap();
+        instances.put("0", instance("ip_address", "10.0.0.1", "url", ""));
+        Map<String, Map<String, InstanceInformation>> instanceInformations = Maps.newHashMap();
+        instanceInformations.put("server", instances);
+        AttributeEvaluationPlan evaluationPlan = AttributeEvaluationPlan.compile(topology, paaSTopology);
+        evaluationPlan.apply(instanceInformations);
+
+        // an event updates the raw attribute of an instance that has already been evaluated
+        instances.get("0").getAttributes().put("ip_address", "10.0.0.2");
+        evaluationPlan.apply(instanceInformations);
+
+        Assert.assertEquals("10.0.0.2", instances.get("0").getAttributes().get("ip_address"));
+        Assert.assertEquals("http://10.0.0.2:8080", instances.get("0").getAttributes().get("url"));
+    }
+
+    @Test
+    public void applyShouldIgnoreUnknownNodesAndAttributes() {
+        Map<String, Map<String, InstanceInformation>> instanceInformations = Maps.newHashMap();
+        instanceInformations.put("server", MapUtil.newHashMap(new String[] { "0" }, new InstanceInformation[] { instance("other", "value") }));
+        instanceInformations.put("unknown", MapUtil.newHashMap(new String[] { "0" }, new InstanceInformation[] { instance("url", "value") }));
+
+        AttributeEvaluationPlan.compile(topology, paaSTopology).apply(instanceInformations);
+
+        Assert.assertEquals("value", instanceInformations.get("server").get("0").getAttributes().get("other"));
+        Assert.assertEquals("value", instanceInformations.get("unknown").get("0").getAttributes().get("url"));
+    }
+
+    private static InstanceInformation instance(String... attributes) {
+        Map<String, String> attributesMap = Maps.newHashMap();
+        for (int i = 0; i < attributes.length; i += 2) {
+            attributesMap.put(attributes[i], attributes[i + 1]);
+        }
+        return new InstanceInformation("started", null, attributesMap, null, null);
+    }
+}
@@ -0,0 +1,209 @@
+package alien4cloud.topology;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.utils.TypeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TopologyDeltaServiceTest {
+    private static final String TOPOLOGY_ID = "topology";
+    private static final String CLIENT_ID = "client";
+    private static final String COMPUTE_TYPE = "tosca.nodes.Compute";
+    private static final String DATABASE_TYPE = "tosca.nodes.Database";
+
+    private ICSARRepositorySearchService csarRepoSearchService;
+    private TopologyService topologyService;
+    private TopologyDeltaService topologyDeltaService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        IGenericSearchDAO alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(alienDAO.getJsonMapper()).thenReturn(new ObjectMapper());
+        csarRepoSearchService = Mockito.mock(ICSARRepositorySearchService.class);
+        topologyService = Mockito.mock(TopologyService.class);
+        Mockito.when(topologyService.getIndexedCapabilityTypes(Mockito.any(Collection.class), Mockito.any(Collection.class))).thenReturn(
+                Maps.<String, IndexedCapabilityType> newHashMap());
+
+        topologyDeltaService = new TopologyDeltaService();
+        ReflectionTestUtils.setField(topologyDeltaService, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(topologyDeltaService, "csarRepoSearchService", csarRepoSearchService);
+        ReflectionTestUtils.setField(topologyDeltaService, "topologyService", topologyService);
+    }
+
+    @Test
+    public void completeDTOShouldBeReturnedWithoutBaseVersion() {
+        Topology topology = topology(1L, nodeTemplate("compute", COMPUTE_TYPE));
+        TopologyDTO fullDTO = fullDTO(topology, COMPUTE_TYPE);
+        Mockito.when(topologyService.buildTopologyDTO(topology)).thenReturn(fullDTO);
+
+        Assert.assertSame(fullDTO, topologyDeltaService.buildTopologyDTO(topology, CLIENT_ID, null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deltaShouldContainOnlyTheChangesSinceTheBaseVersion() {
+        Topology v1 = topology(1L, nodeTemplate("compute", COMPUTE_TYPE), nodeTemplate("compute2", COMPUTE_TYPE), nodeTemplate("removed", COMPUTE_TYPE));
+        Mockito.when(topologyService.buildTopologyDTO(v1)).thenReturn(fullDTO(v1, COMPUTE_TYPE));
+        topologyDeltaService.buildTopologyDTO(v1, CLIENT_ID, null);
+
+        NodeTemplate updated = nodeTemplate("compute2", COMPUTE_TYPE);
+        updated.setAttributes(Maps.<String, String> newHashMap());
+        updated.getAttributes().put("ip_address", "");
+        Topology v2 = topology(2L, nodeTemplate("compute", COMPUTE_TYPE), updated, nodeTemplate("database", DATABASE_TYPE));
+        TypeMap types = new TypeMap();
+        types.put(DATABASE_TYPE, nodeType(DATABASE_TYPE));
+        Mockito.when(csarRepoSearchService.getElementsInDependencies(Mockito.any(Map.class), Mockito.any(Collection.class))).thenReturn(types);
+
+        TopologyDTO dto = topologyDeltaService.buildTopologyDTO(v2, CLIENT_ID, 1L);
+
+        Assert.assertTrue(dto instanceof TopologyDeltaDTO);
+        TopologyDeltaDTO delta = (TopologyDeltaDTO) dto;
+        Assert.assertEquals(Long.valueOf(1L), delta.getBaseVersion());
+        Assert.assertEquals(Long.valueOf(2L), delta.getVersion());
+        Assert.assertEquals(Sets.newHashSet("compute2", "database"), delta.getNodeTemplates().keySet());
+        Assert.assertEquals(Sets.newHashSet("removed"), delta.getRemovedNodeTemplates());
+        Assert.assertNull(delta.getTopology().getNodeTemplates());
+        // only the types that have not been sent yet are part of the delta
+        Assert.assertEquals(Sets.newHashSet(DATABASE_TYPE), delta.getNodeTypes().keySet());
+        verifyRequestedNodeTypes(Sets.newHashSet(DATABASE_TYPE));
+        Mockito.verify(topologyService, Mockito.times(1)).buildTopologyDTO(Mockito.any(Topology.class));
+    }
+
+    @Test
+    public void completeDTOShouldBeReturnedWhenBaseVersionIsNotTheLastVersionSent() {
+        Topology v1 = topology(1L, nodeTemplate("compute", COMPUTE_TYPE));
+        Mockito.when(topologyService.buildTopologyDTO(v1)).thenReturn(fullDTO(v1, COMPUTE_TYPE));
+        topologyDeltaService.buildTopologyDTO(v1, CLIENT_ID, null);
+
+        Topology v3 = topology(3L, nodeTemplate("compute", COMPUTE_TYPE));
+        TopologyDTO fullDTO = fullDTO(v3, COMPUTE_TYPE);
+        Mockito.when(topologyService.buildTopologyDTO(v3)).thenReturn(fullDTO);
+
+        // the client has a version that has been replaced by another client
+        Assert.assertSame(fullDTO, topologyDeltaService.buildTopologyDTO(v3, CLIENT_ID, 2L));
+    }
+
+    @Test
+    public void completeDTOShouldBeReturnedWhenDependenciesChanged() {
+        Topology v1 = topology(1L, nodeTemplate("compute", COMPUTE_TYPE));
+        Mockito.when(topologyService.buildTopologyDTO(v1)).thenReturn(fullDTO(v1, COMPUTE_TYPE));
+        topologyDeltaService.buildTopologyDTO(v1, CLIENT_ID, null);
+
+        Topology v2 = topology(2L, nodeTemplate("compute", COMPUTE_TYPE));
+        v2.setDependencies(Sets.newHashSet(new CSARDependency("tosca-normative-types", "1.0.0")));
+        TopologyDTO fullDTO = fullDTO(v2, COMPUTE_TYPE);
+        Mockito.when(topologyService.buildTopologyDTO(v2)).thenReturn(fullDTO);
+
+        Assert.assertSame(fullDTO, topologyDeltaService.buildTopologyDTO(v2, CLIENT_ID, 1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshotsShouldBeKeptPerClient() {
+        Topology v1 = topology(1L, nodeTemplate("compute", COMPUTE_TYPE));
+        Mockito.when(topologyService.buildTopologyDTO(v1)).thenReturn(fullDTO(v1, COMPUTE_TYPE));
+        topologyDeltaService.buildTopologyDTO(v1, CLIENT_ID, null);
+        topologyDeltaService.buildTopologyDTO(v1, "other", null);
+
+        // the first client updates the topology
+        Topology v2 = topology(2L, nodeTemplate("compute", COMPUTE_TYPE), nodeTemplate("database", DATABASE_TYPE));
+        TypeMap types = new TypeMap();
+        types.put(DATABASE_TYPE, nodeType(DATABASE_TYPE));
+        Mockito.when(csarRepoSearchService.getElementsInDependencies(Mockito.any(Map.class), Mockito.any(Collection.class))).thenReturn(types);
+        Assert.assertTrue(topologyDeltaService.buildTopologyDTO(v2, CLIENT_ID, 1L) instanceof TopologyDeltaDTO);
+
+        // the other client still has the version 1 and gets the changes since this version, including the new type
+        Topology v3 = topology(3L, nodeTemplate("compute", COMPUTE_TYPE), nodeTemplate("database", DATABASE_TYPE), nodeTemplate("compute2",
+                COMPUTE_TYPE));
+        TopologyDTO dto = topologyDeltaService.buildTopologyDTO(v3, "other", 1L);
+        Assert.assertTrue(dto instanceof TopologyDeltaDTO);
+        Assert.assertEquals(Sets.newHashSet("database", "compute2"), ((TopologyDeltaDTO) dto).getNodeTemplates().keySet());
+        Assert.assertEquals(Sets.newHashSet(DATABASE_TYPE), dto.getNodeTypes().keySet());
+
+        // the first client gets the changes since the version 2
+        dto = topologyDeltaService.buildTopologyDTO(v3, CLIENT_ID, 2L);
+        Assert.assertTrue(dto instanceof TopologyDeltaDTO);
+        Assert.assertEquals(Sets.newHashSet("compute2"), ((TopologyDeltaDTO) dto).getNodeTemplates().keySet());
+        Assert.assertTrue(dto.getNodeTypes().isEmpty());
+    }
+
+    @Test
+    public void completeDTOShouldBeReturnedToUnknownClients() {
+        Topology v1 = topology(1L, nodeTemplate("compute", COMPUTE_TYPE));
+        Mockito.when(topologyService.buildTopologyDTO(v1)).thenReturn(fullDTO(v1, COMPUTE_TYPE));
+        topologyDeltaService.buildTopologyDTO(v1, CLIENT_ID, null);
+
+        Topology v2 = topology(2L, nodeTemplate("compute", COMPUTE_TYPE));
+        TopologyDTO fullDTO = fullDTO(v2, COMPUTE_TYPE);
+        Mockito.when(topologyService.buildTopologyDTO(v2)).thenReturn(fullDTO);
+
+        Assert.assertSame(fullDTO, topologyDeltaService.buildTopologyDTO(v2, null, 1L));
+        Assert.assertSame(fullDTO, topologyDeltaService.buildTopologyDTO(v2, "other", 1L));
+    }
+
+    private static Topology topology(long version, NodeTemplate... nodeTemplates) {
+        Topology topology = new Topology();
+        topology.setId(TOPOLOGY_ID);
+        topology.setLastUpdateDate(new Date(version));
+        topology.setDependencies(Sets.<CSARDependency> newHashSet());
+        Map<String, NodeTemplate> nodeTemplateMap = Maps.newHashMap();
+        for (NodeTemplate nodeTemplate : nodeTemplates) {
+            nodeTemplateMap.put(nodeTemplate.getName(), nodeTemplate);
+        }
+        topology.setNodeTemplates(nodeTemplateMap);
+        return topology;
+    }
+
+    private static NodeTemplate nodeTemplate(String name, String type) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setName(name);
+        nodeTemplate.setType(type);
+        return nodeTemplate;
+    }
+
+    private static IndexedNodeType nodeType(String id) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(id);
+        return nodeType;
+    }
+
+    private static TopologyDTO fullDTO(Topology topology, String... nodeTypeIds) {
+        Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
+        for (String nodeTypeId : nodeTypeIds) {
+            nodeTypes.put(nodeTypeId, nodeType(nodeTypeId));
+        }
+        return new TopologyDTO(topology, nodeTypes, Maps.<String, IndexedRelationshipType> newHashMap(), Maps.<String, IndexedCapabilityType> newHashMap(),
+                null, null, topology.getLastUpdateDate().getTime());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void verifyRequestedNodeTypes(Set<String> expectedNodeTypes) {
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(csarRepoSearchService).getElementsInDependencies(captor.capture(), Mockito.any(Collection.class));
+        Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds = captor.getValue();
+        Assert.assertEquals(expectedNodeTypes, elementIds.get(IndexedNodeType.class));
+    }
+}
@@ -0,0 +1,74 @@
+package alien4cloud.topology;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.model.VersionedData;
+import alien4cloud.exception.VersionConflictException;
+import alien4cloud.model.topology.Topology;
+
+public class TopologyServiceCoreTest {
+    private static final String TOPOLOGY_ID = "topology";
+
+    private IGenericSearchDAO alienDAO;
+    private TopologyServiceCore topologyServiceCore;
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        topologyServiceCore = new TopologyServiceCore();
+        ReflectionTestUtils.setField(topologyServiceCore, "alienDAO", alienDAO);
+    }
+
+    @Test
+    public void updateShouldBeAppliedAgainOnConflict() {
+        Topology firstRead = topology();
+        Topology secondRead = topology();
+        Mockito.when(alienDAO.findVersionedById(Topology.class, TOPOLOGY_ID)).thenReturn(new VersionedData<Topology>(firstRead, 1L),
+                new VersionedData<Topology>(secondRead, 2L));
+        // the topology is updated concurrently between the first read and the first save
+        Mockito.when(alienDAO.saveIfVersion(firstRead, 1L)).thenThrow(new VersionConflictException("conflict", null));
+        Mockito.when(alienDAO.saveIfVersion(secondRead, 2L)).thenReturn(3L);
+
+        final int[] updates = { 0 };
+        Topology updated = topologyServiceCore.updateTopology(TOPOLOGY_ID, new ITopologyUpdater() {
+            @Override
+            public void update(Topology topology) {
+                updates[0]++;
+                topology.setDelegateId("updated");
+            }
+        });
+
+        Assert.assertEquals(2, updates[0]);
+        Assert.assertSame(secondRead, updated);
+        Assert.assertEquals("updated", updated.getDelegateId());
+        Assert.assertEquals(Long.valueOf(3L), updated.getDocumentVersion());
+        Assert.assertNotNull(updated.getLastUpdateDate());
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void updateShouldFailWhenEveryAttemptConflicts() {
+        Mockito.when(alienDAO.findVersionedById(Topology.class, TOPOLOGY_ID)).thenReturn(new VersionedData<Topology>(topology(), 1L));
+        Mockito.when(alienDAO.saveIfVersion(Mockito.any(Topology.class), Mockito.eq(1L))).thenThrow(new VersionConflictException("conflict", null));
+
+        try {
+            topologyServiceCore.updateTopology(TOPOLOGY_ID, new ITopologyUpdater() {
+                @Override
+                public void update(Topology topology) {
+                }
+            });
+        } finally {
+            Mockito.verify(alienDAO, Mockito.times(3)).saveIfVersion(Mockito.any(Topology.class), Mockito.eq(1L));
+        }
+    }
+
+    private static Topology topology() {
+        Topology topology = new Topology();
+        topology.setId(TOPOLOGY_ID);
+        return topology;
+    }
+}
@@ -0,0 +1,66 @@
+package alien4cloud.topology;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.validation.NodeFilterValidationService;
+import alien4cloud.topology.validation.TopologyAbstractNodeValidationService;
+import alien4cloud.topology.validation.TopologyAbstractRelationshipValidationService;
+import alien4cloud.topology.validation.TopologyPropertiesValidationService;
+import alien4cloud.topology.validation.TopologyRequirementBoundsValidationServices;
+import alien4cloud.utils.TypeMap;
+
+import com.google.common.collect.Maps;
+
+public class TopologyValidationServiceTest {
+    private TopologyServiceCore topologyServiceCore;
+    private TopologyPropertiesValidationService propertiesValidationService;
+    private TopologyRequirementBoundsValidationServices requirementBoundsValidationServices;
+    private TopologyAbstractRelationshipValidationService abstractRelationshipValidationService;
+    private TopologyAbstractNodeValidationService abstractNodeValidationService;
+    private NodeFilterValidationService nodeFilterValidationService;
+    private TopologyValidationService validationService;
+
+    @Before
+    public void before() {
+        topologyServiceCore = Mockito.mock(TopologyServiceCore.class);
+        propertiesValidationService = Mockito.mock(TopologyPropertiesValidationService.class);
+        requirementBoundsValidationServices = Mockito.mock(TopologyRequirementBoundsValidationServices.class);
+        abstractRelationshipValidationService = Mockito.mock(TopologyAbstractRelationshipValidationService.class);
+        abstractNodeValidationService = Mockito.mock(TopologyAbstractNodeValidationService.class);
+        nodeFilterValidationService = Mockito.mock(NodeFilterValidationService.class);
+
+        validationService = new TopologyValidationService();
+        ReflectionTestUtils.setField(validationService, "topologyServiceCore", topologyServiceCore);
+        ReflectionTestUtils.setField(validationService, "topologyPropertiesValidationService", propertiesValidationService);
+        ReflectionTestUtils.setField(validationService, "topologyRequirementBoundsValidationServices", requirementBoundsValidationServices);
+        ReflectionTestUtils.setField(validationService, "topologyAbstractRelationshipValidationService", abstractRelationshipValidationService);
+        ReflectionTestUtils.setField(validationService, "topologyAbstractNodeValidationService", abstractNodeValidationService);
+        ReflectionTestUtils.setField(validationService, "nodeFilterValidationService", nodeFilterValidationService);
+    }
+
+    @Test
+    public void typesShouldBeFetchedOnceAndSharedWithTheValidators() {
+        Topology topology = new Topology();
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+        topology.getNodeTemplates().put("compute", new NodeTemplate());
+        TypeMap types = new TypeMap();
+        Mockito.when(topologyServiceCore.getIndexedTypesFromTopology(topology)).thenReturn(types);
+
+        validationService.validateTopology(topology, null, null);
+
+        Mockito.verify(topologyServiceCore, Mockito.times(1)).getIndexedTypesFromTopology(topology);
+        // every validator gets the types fetched for the topology instead of fetching them again
+        Mockito.verify(abstractRelationshipValidationService).validateAbstractRelationships(topology, types);
+        Mockito.verify(abstractNodeValidationService).findReplacementForAbstracts(topology, types);
+        Mockito.verify(requirementBoundsValidationServices).validateRequirementsLowerBounds(topology, types);
+        Mockito.verify(nodeFilterValidationService).validateRequirementFilters(topology, types);
+        Mockito.verify(propertiesValidationService).validateProperties(topology, types);
+        Mockito.verifyNoMoreInteractions(abstractRelationshipValidationService, abstractNodeValidationService, requirementBoundsValidationServices,
+                nodeFilterValidationService, propertiesValidationService);
+    }
+}
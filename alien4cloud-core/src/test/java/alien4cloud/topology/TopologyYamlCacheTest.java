@@ -0,0 +1,88 @@
+package alien4cloud.topology;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.topology.Topology;
+
+public class TopologyYamlCacheTest {
+    private TopologyYamlCache yamlCache;
+
+    @Before
+    public void before() {
+        IGenericSearchDAO alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        yamlCache = new TopologyYamlCache();
+        ReflectionTestUtils.setField(yamlCache, "alienDAO", alienDAO);
+        yamlCache.init();
+        Mockito.verify(alienDAO).addWriteListener(yamlCache);
+    }
+
+    @Test
+    public void yamlShouldBeCachedUntilTheTopologyIsUpdated() {
+        Topology topology = topology("topology", 1);
+        yamlCache.put(topology, "author", "yaml");
+
+        Assert.assertEquals("yaml", yamlCache.get(topology, "author"));
+        Assert.assertEquals("yaml", yamlCache.get(topology("topology", 1), "author"));
+        // another update date or author doesn't match
+        Assert.assertNull(yamlCache.get(topology("topology", 2), "author"));
+        Assert.assertNull(yamlCache.get(topology, "other"));
+        Assert.assertNull(yamlCache.get(topology("other", 1), "author"));
+    }
+
+    @Test
+    public void topologyWithoutIdOrUpdateDateShouldNotBeCached() {
+        Topology topology = new Topology();
+        topology.setLastUpdateDate(new Date(1));
+        yamlCache.put(topology, "author", "yaml");
+        Assert.assertNull(yamlCache.get(topology, "author"));
+
+        topology = new Topology();
+        topology.setId("topology");
+        yamlCache.put(topology, "author", "yaml");
+        Assert.assertNull(yamlCache.get(topology, "author"));
+    }
+
+    @Test
+    public void daoWritesShouldInvalidateTheTopology() {
+        Topology topology = topology("topology", 1);
+        Topology other = topology("other", 1);
+        yamlCache.put(topology, "author", "yaml");
+        yamlCache.put(other, "author", "other yaml");
+
+        // a save through the dao that doesn't change the update date still invalidates the yaml
+        yamlCache.saved(topology("topology", 1));
+        Assert.assertNull(yamlCache.get(topology, "author"));
+        Assert.assertEquals("other yaml", yamlCache.get(other, "author"));
+
+        yamlCache.deleted(Topology.class, "other");
+        Assert.assertNull(yamlCache.get(other, "author"));
+    }
+
+    @Test
+    public void daoWritesOfOtherClassesShouldNotInvalidateTheCache() {
+        Topology topology = topology("topology", 1);
+        yamlCache.put(topology, "author", "yaml");
+
+        yamlCache.saved(new Object());
+        yamlCache.deleted(Object.class, "topology");
+        yamlCache.deletedByQuery(Object.class);
+        Assert.assertEquals("yaml", yamlCache.get(topology, "author"));
+
+        yamlCache.deletedByQuery(Topology.class);
+        Assert.assertNull(yamlCache.get(topology, "author"));
+    }
+
+    private static Topology topology(String id, long lastUpdateDate) {
+        Topology topology = new Topology();
+        topology.setId(id);
+        topology.setLastUpdateDate(new Date(lastUpdateDate));
+        return topology;
+    }
+}
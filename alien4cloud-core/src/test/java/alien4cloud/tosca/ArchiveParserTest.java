@@ -13,6 +13,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import alien4cloud.git.RepositoryManager;
+import alien4cloud.model.components.CSARDependency;
 import alien4cloud.tosca.model.ArchiveRoot;
 import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
@@ -20,6 +21,8 @@ import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.utils.FileUtil;
 
+import com.google.common.collect.Sets;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:tosca/archive-parser-application-context.xml")
 public class ArchiveParserTest {
@@ -47,6 +50,23 @@ public class ArchiveParserTest {
         Assert.assertFalse(ArchiveUploadService.hasError(parsingResult, ParsingErrorLevel.ERROR));
     }
 
+    @Test
+    public void parseDependenciesShouldOnlyParseTheArchiveHeader() throws ParsingException, IOException {
+        Path archiveZipPath = artifactsDirectory.resolve("dependencies-archive.zip");
+        FileUtil.zip(Paths.get("src/test/resources/tosca/SimpleProfile_wd03/archives/dependencies"), archiveZipPath);
+
+        ParsingResult<ArchiveRoot> parsingResult = archiveParser.parseDependencies(archiveZipPath);
+
+        displayErrors(parsingResult);
+        Assert.assertFalse(ArchiveUploadService.hasError(parsingResult, ParsingErrorLevel.ERROR));
+        Assert.assertEquals("dependencies-archive", parsingResult.getResult().getArchive().getName());
+        Assert.assertEquals("1.0.0-SNAPSHOT", parsingResult.getResult().getArchive().getVersion());
+        Assert.assertEquals(Sets.newHashSet(new CSARDependency("tosca-normative-types", "1.0.0-SNAPSHOT-wd03"), new CSARDependency("tosca-base-types",
+                "2.0.0")), parsingResult.getResult().getArchive().getDependencies());
+        // the types of the archive are not parsed
+        Assert.assertTrue(parsingResult.getResult().getNodeTypes().isEmpty());
+    }
+
     public static void displayErrors(ParsingResult<?> parsingResult) {
         System.out.println("\n\nERRORS: \n");
         for (int i = 0; i < parsingResult.getContext().getParsingErrors().size(); i++) {
@@ -0,0 +1,120 @@
+package alien4cloud.tosca;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.model.CsarDependenciesBean;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class BulkArchiveUploadServiceTest {
+    private ArchiveUploadService uploadService;
+    private BulkArchiveUploadService bulkUploadService;
+    /** Paths of the uploaded archives in the order in which the uploads started. */
+    private List<Path> uploaded;
+
+    @Before
+    public void before() throws Exception {
+        uploaded = Collections.synchronizedList(Lists.<Path> newArrayList());
+        uploadService = Mockito.mock(ArchiveUploadService.class);
+        Mockito.when(uploadService.upload(Mockito.any(Path.class))).thenAnswer(new Answer<ParsingResult<Csar>>() {
+            @Override
+            public ParsingResult<Csar> answer(InvocationOnMock invocation) throws Exception {
+                Path path = (Path) invocation.getArguments()[0];
+                uploaded.add(path);
+                // slow uploads so that an archive uploaded too early would start before the end of its dependencies
+                Thread.sleep(50);
+                Csar csar = new Csar();
+                csar.setName(path.toString());
+                return new ParsingResult<Csar>(csar, null);
+            }
+        });
+
+        bulkUploadService = new BulkArchiveUploadService();
+        ReflectionTestUtils.setField(bulkUploadService, "uploadService", uploadService);
+        ReflectionTestUtils.setField(bulkUploadService, "importThreads", 4);
+        bulkUploadService.init();
+    }
+
+    @After
+    public void after() {
+        bulkUploadService.shutdown();
+    }
+
+    @Test
+    public void archivesShouldBeUploadedAfterTheirDependencies() throws Exception {
+        Path base1 = archive("base", "1.0");
+        Path base2 = archive("base", "2.0");
+        Path lib = archive("lib", "1.0", new CSARDependency("base", "1.0"));
+        Path app = archive("app", "1.0", new CSARDependency("lib", "1.0"), new CSARDependency("base", "2.0"));
+        Path other = archive("other", "1.0");
+
+        List<ParsingResult<Csar>> results = bulkUploadService.upload(Lists.newArrayList(app, lib, base2, other, base1));
+
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(5, uploaded.size());
+        Assert.assertTrue(uploaded.indexOf(base1) < uploaded.indexOf(lib));
+        // previous versions of an archive are uploaded first
+        Assert.assertTrue(uploaded.indexOf(base1) < uploaded.indexOf(base2));
+        Assert.assertTrue(uploaded.indexOf(lib) < uploaded.indexOf(app));
+        Assert.assertTrue(uploaded.indexOf(base2) < uploaded.indexOf(app));
+    }
+
+    @Test
+    public void archiveGivenTwiceShouldBeUploadedOnce() throws Exception {
+        Path first = archive("lib", "1.0");
+        Path duplicate = archive("lib", "1.0");
+        Path app = archive("app", "1.0", new CSARDependency("lib", "1.0"));
+
+        List<ParsingResult<Csar>> results = bulkUploadService.upload(Lists.newArrayList(first, app, duplicate));
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(Lists.newArrayList(first, app), uploaded);
+        Mockito.verify(uploadService, Mockito.never()).upload(duplicate);
+    }
+
+    @Test
+    public void dependentsOfAFailedArchiveShouldNotBeUploaded() throws Exception {
+        Path lib = archive("lib", "1.0");
+        Path app = archive("app", "1.0", new CSARDependency("lib", "1.0"));
+        ParsingException failure = new ParsingException("lib", Lists.<ParsingError> newArrayList());
+        Mockito.doThrow(failure).when(uploadService).upload(lib);
+
+        try {
+            bulkUploadService.upload(Lists.newArrayList(app, lib));
+            Assert.fail("Upload of an archive that depends on an invalid archive should fail.");
+        } catch (ParsingException e) {
+            Assert.assertSame(failure, e);
+        }
+        Mockito.verify(uploadService, Mockito.never()).upload(app);
+    }
+
+    private Path archive(String name, String version, CSARDependency... dependencies) throws ParsingException {
+        // every archive has its own path, even the ones with the same name and version
+        Path path = Paths.get(name + "-" + version + "-" + System.nanoTime() + ".zip");
+        CsarDependenciesBean archive = new CsarDependenciesBean();
+        archive.setPath(path);
+        archive.setName(name);
+        archive.setVersion(version);
+        archive.setDependencies(dependencies.length == 0 ? null : Sets.newHashSet(dependencies));
+        Mockito.when(uploadService.preParsing(path)).thenReturn(archive);
+        return path;
+    }
+}
@@ -3,9 +3,16 @@ package alien4cloud.tosca.container;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Resource;
 
@@ -16,21 +23,30 @@ import org.junit.runner.RunWith;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import alien4cloud.component.ICSARRepositoryIndexerService;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
+import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.common.Tag;
 import alien4cloud.dao.IGenericIdDAO;
+import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.images.IImageDAO;
 import alien4cloud.images.ImageData;
+import alien4cloud.images.ImageReferencesLock;
 import alien4cloud.tosca.ArchiveImageLoader;
 import alien4cloud.tosca.ArchiveParser;
 import alien4cloud.tosca.ArchivePostProcessor;
 import alien4cloud.tosca.ArchiveUploadService;
 import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.FileUtil;
 
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:application-context-test.xml")
 public class ArchiveImageLoaderTest {
@@ -55,6 +71,12 @@ public class ArchiveImageLoaderTest {
     private IImageDAO imageDAO;
     @Resource(name = "image-dao")
     private IGenericIdDAO imageGenericIdDAO;
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Resource
+    private ICSARRepositoryIndexerService indexerService;
+    @Resource
+    private ImageReferencesLock imageReferencesLock;
 
     @Before
     public void prepareCloudServiceArchive() throws IOException {
@@ -76,6 +98,121 @@ public class ArchiveImageLoaderTest {
         checkImages(result.getResult().getNodeTypes());
     }
 
+    @Test
+    public void sameIconsShouldShareTheirImage() throws IOException, ParsingException {
+        Path csarFileForTesting = Paths.get(CSAR_OUTPUT_FOLDER.toString(), tmpArchiveName);
+        FileUtil.zip(PATH_TOSCA_BASE_TYPES, csarFileForTesting);
+
+        ParsingResult<ArchiveRoot> result = importImages(csarFileForTesting);
+        String rootIconId = getIconId(result, "tosca.nodes.Root");
+        String tierIconId = getIconId(result, "tosca.nodes.Tier");
+
+        // images are identified by their content
+        assertEquals(Hashing.sha256().hashBytes(Files.readAllBytes(PATH_TOSCA_BASE_TYPES.resolve("images/test.jpg"))).toString(), tierIconId);
+        assertEquals(tierIconId, getIconId(result, "tosca.nodes.Compute"));
+        Assert.assertNotEquals(tierIconId, rootIconId);
+        Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, tierIconId));
+
+        // importing the same icons again reuses the existing images
+        result = importImages(csarFileForTesting);
+        assertEquals(rootIconId, getIconId(result, "tosca.nodes.Root"));
+        assertEquals(tierIconId, getIconId(result, "tosca.nodes.Tier"));
+    }
+
+    @Test
+    public void onlyUnusedImagesShouldBeDeleted() throws IOException, ParsingException {
+        Path csarFileForTesting = Paths.get(CSAR_OUTPUT_FOLDER.toString(), tmpArchiveName);
+        FileUtil.zip(PATH_TOSCA_BASE_TYPES, csarFileForTesting);
+        ParsingResult<ArchiveRoot> result = importImages(csarFileForTesting);
+        String usedIconId = getIconId(result, "tosca.nodes.Tier");
+        String unusedIconId = getIconId(result, "tosca.nodes.Root");
+
+        // an element of another archive still uses the icon
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId("alien.nodes.SharedIcon");
+        nodeType.setArchiveName("shared-icon");
+        nodeType.setArchiveVersion("1.0");
+        nodeType.setTags(Lists.newArrayList(new Tag("icon", usedIconId)));
+        alienDAO.save(nodeType);
+        try {
+            indexerService.deleteUnusedImages(Lists.newArrayList(usedIconId, unusedIconId));
+
+            Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, usedIconId));
+            Assert.assertNull(imageGenericIdDAO.findById(ImageData.class, unusedIconId));
+        } finally {
+            alienDAO.delete(IndexedNodeType.class, nodeType.getId());
+            imageDAO.delete(usedIconId);
+        }
+    }
+
+    @Test
+    public void unusedImagesDeletionShouldWaitForImports() throws Exception {
+        Path csarFileForTesting = Paths.get(CSAR_OUTPUT_FOLDER.toString(), tmpArchiveName);
+        FileUtil.zip(PATH_TOSCA_BASE_TYPES, csarFileForTesting);
+        final String iconId = getIconId(importImages(csarFileForTesting), "tosca.nodes.Tier");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Lock importLock = imageReferencesLock.importLock();
+        importLock.lock();
+        try {
+            // the import has written its images but has not indexed its elements yet
+            Future<Boolean> deletion = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    indexerService.deleteUnusedImages(Lists.newArrayList(iconId));
+                    return true;
+                }
+            });
+            Thread.sleep(200);
+            Assert.assertFalse(deletion.isDone());
+            Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, iconId));
+
+            importLock.unlock();
+            importLock = null;
+            Assert.assertTrue(deletion.get(10, TimeUnit.SECONDS));
+            Assert.assertNull(imageGenericIdDAO.findById(ImageData.class, iconId));
+        } finally {
+            if (importLock != null) {
+                importLock.unlock();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void invalidIconShouldBeReportedAsAWarning() throws IOException, ParsingException {
+        Path archiveFolder = CSAR_OUTPUT_FOLDER.resolve("tosca-base-types-tags-invalid-icon");
+        FileUtil.copy(PATH_TOSCA_BASE_TYPES, archiveFolder);
+        Files.write(archiveFolder.resolve("images/test.jpg"), "not an image".getBytes("UTF-8"));
+        Path csarFileForTesting = Paths.get(CSAR_OUTPUT_FOLDER.toString(), tmpArchiveName);
+        FileUtil.zip(archiveFolder, csarFileForTesting);
+
+        ParsingResult<ArchiveRoot> result = importImages(csarFileForTesting);
+
+        Assert.assertFalse(ArchiveUploadService.hasError(result, ParsingErrorLevel.ERROR));
+        int invalidIcons = 0;
+        for (ParsingError error : result.getContext().getParsingErrors()) {
+            if (ErrorCode.INVALID_ICON_FORMAT.equals(error.getErrorCode())) {
+                assertEquals(ParsingErrorLevel.WARNING, error.getErrorLevel());
+                invalidIcons++;
+            }
+        }
+        // the Tier and Compute icons, the valid icon of Root is still imported
+        assertEquals(2, invalidIcons);
+        Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, getIconId(result, "tosca.nodes.Root")));
+    }
+
+    private ParsingResult<ArchiveRoot> importImages(Path csarFileForTesting) throws ParsingException {
+        ParsingResult<ArchiveRoot> result = parser.parse(csarFileForTesting);
+        processor.postProcess(result);
+        imageLoader.importImages(csarFileForTesting, result);
+        return result;
+    }
+
+    private static String getIconId(ParsingResult<ArchiveRoot> result, String nodeType) {
+        return ArchiveImageLoader.getIconTag(result.getResult().getNodeTypes().get(nodeType).getTags()).getValue();
+    }
+
     private void checkImages(Map<String, ? extends IndexedInheritableToscaElement> elements) {
         boolean elementHasTags = false;
         String currentUUID = null;
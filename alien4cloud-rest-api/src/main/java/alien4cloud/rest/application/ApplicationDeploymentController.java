@@ -2,12 +2,14 @@ package alien4cloud.rest.application;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 import javax.validation.Valid;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -39,6 +41,7 @@ import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMa
 import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
 import alien4cloud.utils.ReflectionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -65,6 +68,9 @@ public class ApplicationDeploymentController {
     private DeploymentService deploymentService;
     @Resource
     private DeploymentSetupService deploymentSetupService;
+    /** Timeout of the scaling requests, scaling may take longer than the default timeout of the asynchronous requests. */
+    @Value("${async_requests.operation_timeout_ms:900000}")
+    private long operationTimeoutMs;
 
     /**
      * Trigger deployment of the application on the current configured PaaS.
@@ -178,45 +184,68 @@ public class ApplicationDeploymentController {
         return RestResponseBuilder.<Deployment> builder().data(deployment).build();
     }
 
-    @ApiOperation(value = "Get the deployment status for the environements that the current user is allowed to see for a given application.", notes = "Returns the current status of an application list from the PaaS it is deployed on for all environments.")
+    @ApiOperation(value = "Get the deployment status for the environements that the current user is allowed to see for a given application.", notes = "Returns the last known status of an application list for all environments, the statuses that are not known are retrieved from the PaaS for a bounded time and are UNKNOWN if the PaaS doesn't answer in time.")
     @RequestMapping(value = "/statuses", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     public RestResponse<Map<String, Map<String, EnvironmentStatusDTO>>> getApplicationsStatuses(@RequestBody List<String> applicationIds) {
-        Map<String, Map<String, EnvironmentStatusDTO>> statuses = Maps.newHashMap();
-
+        Map<String, Map<String, ApplicationEnvironment>> applicationsEnvironments = Maps.newLinkedHashMap();
+        List<ApplicationEnvironment> allowedEnvironments = Lists.newArrayList();
         for (String applicationId : applicationIds) {
-            Map<String, EnvironmentStatusDTO> environmentStatuses = Maps.newHashMap();
+            Map<String, ApplicationEnvironment> allowedApplicationEnvironments = Maps.newHashMap();
             Application application = applicationService.checkAndGetApplication(applicationId);
             // get all environments status for the current application
             ApplicationEnvironment[] environments = applicationEnvironmentService.getByApplicationId(application.getId());
             for (ApplicationEnvironment env : environments) {
                 if (AuthorizationUtil.hasAuthorizationForEnvironment(env, ApplicationEnvironmentRole.values())) {
-                    DeploymentStatus status = DeploymentStatus.UNKNOWN;
-                    try {
-                        status = applicationEnvironmentService.getStatus(env);
-                    } catch (Exception e) {
-                        log.debug("Getting status for the environment <" + env.getId() + "> failed because the associated cloud <" + env.getCloudId()
-                                + "> seems disabled. Returned status is UNKNOWN.", e);
-                    }
-                    environmentStatuses.put(env.getId(), new EnvironmentStatusDTO(env.getName(), status));
+                    allowedApplicationEnvironments.put(env.getId(), env);
+                    allowedEnvironments.add(env);
                 }
             }
-            statuses.put(applicationId, environmentStatuses);
+            applicationsEnvironments.put(applicationId, allowedApplicationEnvironments);
+        }
+        // statuses of all the environments are retrieved at once
+        Map<String, DeploymentStatus> environmentsStatuses = applicationEnvironmentService.getStatuses(allowedEnvironments);
+
+        Map<String, Map<String, EnvironmentStatusDTO>> statuses = Maps.newHashMap();
+        for (Map.Entry<String, Map<String, ApplicationEnvironment>> applicationEnvironments : applicationsEnvironments.entrySet()) {
+            Map<String, EnvironmentStatusDTO> environmentStatuses = Maps.newHashMap();
+            for (ApplicationEnvironment env : applicationEnvironments.getValue().values()) {
+                environmentStatuses.put(env.getId(), new EnvironmentStatusDTO(env.getName(), environmentsStatuses.get(env.getId())));
+            }
+            statuses.put(applicationEnvironments.getKey(), environmentStatuses);
         }
         return RestResponseBuilder.<Map<String, Map<String, EnvironmentStatusDTO>>> builder().data(statuses).build();
     }
 
+    @ApiOperation(value = "Get the deployment status of many environments at once.", notes = "Returns the last known status of the given environments, the statuses that are not known are retrieved from the PaaS for a bounded time and are UNKNOWN if the PaaS doesn't answer in time. Environments the current user is not allowed to see are ignored.")
+    @RequestMapping(value = "/environments/statuses", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public RestResponse<Map<String, DeploymentStatus>> getEnvironmentsStatuses(@RequestBody List<String> applicationEnvironmentIds) {
+        List<ApplicationEnvironment> allowedEnvironments = Lists.newArrayList();
+        List<ApplicationEnvironment> environments = applicationEnvironmentIds.isEmpty() ? null : alienDAO.findByIds(ApplicationEnvironment.class,
+                applicationEnvironmentIds.toArray(new String[applicationEnvironmentIds.size()]));
+        if (environments != null) {
+            for (ApplicationEnvironment env : environments) {
+                if (AuthorizationUtil.hasAuthorizationForEnvironment(env, ApplicationEnvironmentRole.values())) {
+                    allowedEnvironments.add(env);
+                }
+            }
+        }
+        return RestResponseBuilder.<Map<String, DeploymentStatus>> builder().data(applicationEnvironmentService.getStatuses(allowedEnvironments)).build();
+    }
+
     /**
      * Get detailed informations for every instances of every node of the application on the PaaS.
      *
      * @param applicationId The id of the application to be deployed.
+     * @param refresh True to get the informations from the PaaS rather than the last known informations.
      * @return A {@link RestResponse} that contains detailed informations (See {@link InstanceInformation}) of the application on the PaaS it is deployed.
      */
     @ApiOperation(value = "Get detailed informations for every instances of every node of the application on the PaaS.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ] and Application environment role required [ APPLICATION_USER | DEPLOYMENT_MANAGER ]")
     @RequestMapping(value = "/{applicationId}/environments/{applicationEnvironmentId}/deployment/informations", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     public DeferredResult<RestResponse<Map<String, Map<String, InstanceInformation>>>> getInstanceInformation(@PathVariable String applicationId,
-            @PathVariable String applicationEnvironmentId) {
+            @PathVariable String applicationEnvironmentId, @RequestParam(required = false, defaultValue = "false") boolean refresh) {
         Application application = applicationService.checkAndGetApplication(applicationId);
         ApplicationEnvironment environment = applicationEnvironmentService.getEnvironmentByIdOrDefault(application.getId(), applicationEnvironmentId);
         if (!AuthorizationUtil.hasAuthorizationForApplication(application, ApplicationRole.APPLICATION_MANAGER)) {
@@ -224,12 +253,12 @@ public class ApplicationDeploymentController {
         }
 
         Deployment deployment = applicationEnvironmentService.getActiveDeployment(environment.getId());
-        final DeferredResult<RestResponse<Map<String, Map<String, InstanceInformation>>>> instancesDeferredResult = new DeferredResult<>(5L * 60L * 1000L);
+        final DeferredResult<RestResponse<Map<String, Map<String, InstanceInformation>>>> instancesDeferredResult = new DeferredResult<>();
         if (deployment == null) { // if there is no topology associated with the version it could not have been deployed.
             instancesDeferredResult.setResult(RestResponseBuilder.<Map<String, Map<String, InstanceInformation>>> builder().build());
         } else {
             try {
-                deploymentService.getInstancesInformation(deployment, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
+                deploymentService.getInstancesInformation(deployment, refresh, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
                     @Override
                     public void onSuccess(Map<String, Map<String, InstanceInformation>> data) {
                         instancesDeferredResult.setResult(RestResponseBuilder.<Map<String, Map<String, InstanceInformation>>> builder().data(data).build());
@@ -251,63 +280,65 @@ public class ApplicationDeploymentController {
     @RequestMapping(value = "/{applicationId}/environments/{applicationEnvironmentId}/deployment/maintenance", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     @Audit
-    public RestResponse<Void> switchMaintenanceModeOn(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId) {
+    public Callable<RestResponse<Void>> switchMaintenanceModeOn(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId) {
         ApplicationEnvironment environment = getAppEnvironmentAndCheckAuthorization(applicationId, applicationEnvironmentId);
-        try {
-            deploymentService.switchMaintenanceMode(environment.getId(), true);
-        } catch (CloudDisabledException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.CLOUD_DISABLED_ERROR.getCode(), e.getMessage())).build();
-        } catch (MaintenanceModeException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.MAINTENANCE_MODE_ERROR.getCode(), e.getMessage())).build();
-        }
-        return RestResponseBuilder.<Void> builder().build();
+        return switchMaintenanceMode(environment.getId(), null, null, true);
     }
 
     @RequestMapping(value = "/{applicationId}/environments/{applicationEnvironmentId}/deployment/maintenance", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     @Audit
-    public RestResponse<Void> switchMaintenanceModeOff(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId) {
+    public Callable<RestResponse<Void>> switchMaintenanceModeOff(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId) {
         ApplicationEnvironment environment = getAppEnvironmentAndCheckAuthorization(applicationId, applicationEnvironmentId);
-        try {
-            deploymentService.switchMaintenanceMode(environment.getId(), false);
-        } catch (CloudDisabledException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.CLOUD_DISABLED_ERROR.getCode(), e.getMessage())).build();
-        } catch (MaintenanceModeException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.MAINTENANCE_MODE_ERROR.getCode(), e.getMessage())).build();
-        }
-        return RestResponseBuilder.<Void> builder().build();
+        return switchMaintenanceMode(environment.getId(), null, null, false);
     }
 
     @RequestMapping(value = "/{applicationId}/environments/{applicationEnvironmentId}/deployment/{nodeTemplateId}/{instanceId}/maintenance", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     @Audit
-    public RestResponse<Void> switchInstanceMaintenanceModeOn(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId,
+    public Callable<RestResponse<Void>> switchInstanceMaintenanceModeOn(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId,
             @PathVariable String nodeTemplateId, @PathVariable String instanceId) {
         ApplicationEnvironment environment = getAppEnvironmentAndCheckAuthorization(applicationId, applicationEnvironmentId);
-        try {
-            deploymentService.switchInstanceMaintenanceMode(environment.getId(), nodeTemplateId, instanceId, true);
-        } catch (CloudDisabledException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.CLOUD_DISABLED_ERROR.getCode(), e.getMessage())).build();
-        } catch (MaintenanceModeException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.MAINTENANCE_MODE_ERROR.getCode(), e.getMessage())).build();
-        }
-        return RestResponseBuilder.<Void> builder().build();
+        return switchMaintenanceMode(environment.getId(), nodeTemplateId, instanceId, true);
     }
 
     @RequestMapping(value = "/{applicationId}/environments/{applicationEnvironmentId}/deployment/{nodeTemplateId}/{instanceId}/maintenance", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
     @Audit
-    public RestResponse<Void> switchInstanceMaintenanceModeOff(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId,
+    public Callable<RestResponse<Void>> switchInstanceMaintenanceModeOff(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId,
             @PathVariable String nodeTemplateId, @PathVariable String instanceId) {
         ApplicationEnvironment environment = getAppEnvironmentAndCheckAuthorization(applicationId, applicationEnvironmentId);
-        try {
-            deploymentService.switchInstanceMaintenanceMode(environment.getId(), nodeTemplateId, instanceId, false);
-        } catch (CloudDisabledException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.CLOUD_DISABLED_ERROR.getCode(), e.getMessage())).build();
-        } catch (MaintenanceModeException e) {
-            return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.MAINTENANCE_MODE_ERROR.getCode(), e.getMessage())).build();
-        }
-        return RestResponseBuilder.<Void> builder().build();
+        return switchMaintenanceMode(environment.getId(), nodeTemplateId, instanceId, false);
+    }
+
+    /**
+     * Switch the maintenance mode of a deployment or of an instance, the PaaS provider is called by the rest async executor.
+     *
+     * @param environmentId The id of the deployed environment.
+     * @param nodeTemplateId The id of the node template of the instance or null to switch the maintenance mode of the whole deployment.
+     * @param instanceId The id of the instance or null to switch the maintenance mode of the whole deployment.
+     * @param maintenanceModeOn true to switch the maintenance mode on, false to switch it off.
+     */
+    private Callable<RestResponse<Void>> switchMaintenanceMode(final String environmentId, final String nodeTemplateId, final String instanceId,
+            final boolean maintenanceModeOn) {
+        return new Callable<RestResponse<Void>>() {
+            @Override
+            public RestResponse<Void> call() {
+                try {
+                    if (nodeTemplateId == null) {
+                        deploymentService.switchMaintenanceMode(environmentId, maintenanceModeOn);
+                    } else {
+                        deploymentService.switchInstanceMaintenanceMode(environmentId, nodeTemplateId, instanceId, maintenanceModeOn);
+                    }
+                } catch (CloudDisabledException e) {
+                    return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.CLOUD_DISABLED_ERROR.getCode(), e.getMessage())).build();
+                } catch (MaintenanceModeException e) {
+                    return RestResponseBuilder.<Void> builder().error(new RestError(RestErrorCode.MAINTENANCE_MODE_ERROR.getCode(), e.getMessage()))
+                            .build();
+                }
+                return RestResponseBuilder.<Void> builder().build();
+            }
+        };
     }
 
     private ApplicationEnvironment getAppEnvironmentAndCheckAuthorization(String applicationId, String applicationEnvironmentId) {
@@ -337,7 +368,7 @@ public class ApplicationDeploymentController {
     public DeferredResult<RestResponse<Void>> scale(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId,
             @PathVariable String nodeTemplateId,
             @RequestParam int instances) {
-        final DeferredResult<RestResponse<Void>> result = new DeferredResult<>(15L * 60L * 1000L);
+        final DeferredResult<RestResponse<Void>> result = new DeferredResult<>(operationTimeoutMs);
         ApplicationEnvironment environment = getAppEnvironmentAndCheckAuthorization(applicationId, applicationEnvironmentId);
 
         try {
@@ -1,7 +1,9 @@
 package alien4cloud.rest.application;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 
@@ -148,21 +150,26 @@ public class ApplicationEnvironmentController {
      * @param applicationId the id of the application to be deployed.
      * @param applicationEnvironmentId the environment for which to get the status
      * @return A {@link RestResponse} that contains the application's current {@link DeploymentStatus}.
-     * @throws Exception
      */
     @ApiOperation(value = "Get an application environment from its id", notes = "Returns the application environment. Application role required [ APPLICATION_USER | DEPLOYMENT_MANAGER ]")
     @RequestMapping(value = "/{applicationEnvironmentId:.+}/status", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("isAuthenticated()")
-    public RestResponse<DeploymentStatus> getApplicationEnvironmentStatus(@PathVariable String applicationId, @PathVariable String applicationEnvironmentId)
-            throws Exception {
+    public Callable<RestResponse<DeploymentStatus>> getApplicationEnvironmentStatus(@PathVariable String applicationId,
+            @PathVariable String applicationEnvironmentId) {
         Application application = applicationService.checkAndGetApplication(applicationId);
-        ApplicationEnvironment environment = applicationEnvironmentService.getOrFail(applicationEnvironmentId);
+        final ApplicationEnvironment environment = applicationEnvironmentService.getOrFail(applicationEnvironmentId);
         AuthorizationUtil.checkAuthorizationForEnvironment(environment, ApplicationEnvironmentRole.values());
         if (!AuthorizationUtil.hasAuthorizationForApplication(application, ApplicationRole.APPLICATION_MANAGER)) {
             AuthorizationUtil.checkAuthorizationForEnvironment(environment, ApplicationEnvironmentRole.values());
         }
-        DeploymentStatus status = applicationEnvironmentService.getStatus(environment);
-        return RestResponseBuilder.<DeploymentStatus> builder().data(status).build();
+        // the PaaS provider may be queried if the status is not known yet
+        return new Callable<RestResponse<DeploymentStatus>>() {
+            @Override
+            public RestResponse<DeploymentStatus> call() throws Exception {
+                DeploymentStatus status = applicationEnvironmentService.getStatus(environment);
+                return RestResponseBuilder.<DeploymentStatus> builder().data(status).build();
+            }
+        };
     }
 
     /**
@@ -458,6 +465,7 @@ public class ApplicationEnvironmentController {
     private ApplicationEnvironmentDTO[] getApplicationEnvironmentDTO(ApplicationEnvironment[] applicationEnvironments) {
         List<ApplicationEnvironmentDTO> listApplicationEnvironmentsDTO = Lists.newArrayList();
         ApplicationEnvironmentDTO tempEnvDTO = null;
+        Map<String, DeploymentStatus> statuses = applicationEnvironmentService.getStatuses(Arrays.asList(applicationEnvironments));
         for (ApplicationEnvironment env : applicationEnvironments) {
             tempEnvDTO = new ApplicationEnvironmentDTO();
             tempEnvDTO.setApplicationId(env.getApplicationId());
@@ -475,13 +483,7 @@ public class ApplicationEnvironmentController {
             tempEnvDTO.setCloudId(env.getCloudId());
             ApplicationVersion applicationVersion = applicationVersionService.get(env.getCurrentVersionId());
             tempEnvDTO.setCurrentVersionName(applicationVersion != null ? applicationVersion.getVersion() : null);
-            try {
-                tempEnvDTO.setStatus(applicationEnvironmentService.getStatus(env));
-            } catch (Exception e) {
-                log.debug("Getting status for the environment <" + env.getId() + "> failed because the associated cloud <" + env.getCloudId()
-                        + "> seems disabled. Returned status is UNKNOWN.", e);
-                tempEnvDTO.setStatus(DeploymentStatus.UNKNOWN);
-            }
+            tempEnvDTO.setStatus(statuses.get(env.getId()));
             listApplicationEnvironmentsDTO.add(tempEnvDTO);
         }
         return listApplicationEnvironmentsDTO.toArray(new ApplicationEnvironmentDTO[listApplicationEnvironmentsDTO.size()]);
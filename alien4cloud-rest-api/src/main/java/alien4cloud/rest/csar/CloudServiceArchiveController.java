@@ -74,6 +74,7 @@ import alien4cloud.rest.topology.CsarRelatedResourceDTO;
 import alien4cloud.security.AuthorizationUtil;
 import alien4cloud.security.model.CloudRole;
 import alien4cloud.topology.TopologyService;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.tosca.ArchiveUploadService;
 import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
@@ -112,6 +113,8 @@ public class CloudServiceArchiveController {
     @Resource
     private TopologyService topologyService;
     @Resource
+    private TopologyServiceCore topologyServiceCore;
+    @Resource
     private CloudService cloudService;
     @Resource
     private CloudResourceMatcherService cloudResourceMatcherService;
@@ -474,7 +477,7 @@ public class CloudServiceArchiveController {
                 // update the topology object for the CSAR.
                 Topology topology = YamlParserUtil.parseFromUTF8File(yamlFilePath, Topology.class);
                 topology.setId(topologyId);
-                csarDAO.save(topology);
+                topologyServiceCore.save(topology);
                 // deploy this topology
                 DeploymentSetup deploymentSetup = new DeploymentSetup();
                 DeploymentSetupMatchInfo deploymentSetupMatchInfo = deploymentSetupService.generateCloudResourcesMapping(deploymentSetup, topology, cloud,
@@ -26,6 +26,7 @@ import alien4cloud.model.topology.NodeTemplate;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.model.AbstractMonitorEvent;
 import alien4cloud.paas.model.PaaSInstanceStorageMonitorEvent;
+import alien4cloud.topology.ITopologyUpdater;
 import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.tosca.normative.NormativeBlockStorageConstants;
 import alien4cloud.tosca.normative.ToscaFunctionConstants;
@@ -73,7 +74,14 @@ public class BlockStorageEventHandler extends DeploymentEventHandler {
 
     }
 
-    private void updateApplicationTopology(PaaSInstanceStorageMonitorEvent storageEvent, final String volumeIds) {
+    /**
+     * Add the volume id to the application topology or to the deployment setup.
+     *
+     * @param storageEvent The storage event.
+     * @param volumeIds The volume ids aggregated from the runtime topology, only used for the deployment setup as the volume ids of the application topology
+     *            are aggregated from the topology being updated.
+     */
+    private void updateApplicationTopology(final PaaSInstanceStorageMonitorEvent storageEvent, final String volumeIds) {
         if (storageEvent.isDeletable()) {
             log.info("Delete blockstorage is activated. Skipping application topology volumeId update...");
             return;
@@ -95,9 +103,25 @@ public class BlockStorageEventHandler extends DeploymentEventHandler {
         AbstractPropertyValue abstractPropertyValue = nodeTemplate.getProperties().get(NormativeBlockStorageConstants.VOLUME_ID);
         if (abstractPropertyValue == null || abstractPropertyValue instanceof ScalarPropertyValue) { // the value is set in the topology
             log.info("Updating application topology: Storage NodeTemplate <{}.{}> to add a new volumeId", topology.getId(), storageEvent.getNodeTemplateId());
-            log.debug("VolumeId to add: <{}>. New value is <{}>", storageEvent.getVolumeId(), volumeIds);
-            nodeTemplate.getProperties().put(NormativeBlockStorageConstants.VOLUME_ID, new ScalarPropertyValue(volumeIds));
-            alienDAO.save(topology);
+            // the topology may be edited concurrently, the update is applied again on the latest topology in case of conflict so the volume ids must be
+            // aggregated from the topology being updated
+            try {
+                topoServiceCore.updateTopology(topology.getId(), new ITopologyUpdater() {
+                    @Override
+                    public void update(Topology topology) {
+                        String topologyVolumeIds = getAggregatedVolumeIds(topology, storageEvent);
+                        if (topologyVolumeIds == null) {
+                            // the volume id is already set
+                            return;
+                        }
+                        log.debug("VolumeId to add: <{}>. New value is <{}>", storageEvent.getVolumeId(), topologyVolumeIds);
+                        NodeTemplate nodeTemplate = topoServiceCore.getNodeTemplate(topology, storageEvent.getNodeTemplateId());
+                        nodeTemplate.getProperties().put(NormativeBlockStorageConstants.VOLUME_ID, new ScalarPropertyValue(topologyVolumeIds));
+                    }
+                });
+            } catch (NotFoundException e) {
+                log.warn("Fail to update volumeIds for node " + storageEvent.getNodeTemplateId(), e);
+            }
         } else {
             FunctionPropertyValue function = (FunctionPropertyValue) abstractPropertyValue;
             if (function.getFunction().equals(ToscaFunctionConstants.GET_INPUT)) {
@@ -119,7 +143,7 @@ public class BlockStorageEventHandler extends DeploymentEventHandler {
         log.info("Updating Runtime topology: Storage NodeTemplate <{}.{}> to add a new volumeId", runtimeTopo.getId(), storageEvent.getNodeTemplateId());
         nodeTemplate.getProperties().put(NormativeBlockStorageConstants.VOLUME_ID, new ScalarPropertyValue(volumeIds));
         log.debug("VolumeId to add: <{}>. New value is <{}>", storageEvent.getVolumeId(), volumeIds);
-        alienMonitorDao.save(runtimeTopo);
+        deploymentService.saveRuntimeTopology(runtimeTopo);
     }
 
     private String getAggregatedVolumeIds(Topology topology, PaaSInstanceStorageMonitorEvent storageEvent) {
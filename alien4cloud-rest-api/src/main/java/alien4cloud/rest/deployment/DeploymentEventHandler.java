@@ -1,7 +1,6 @@
 package alien4cloud.rest.deployment;
 
 import java.security.Principal;
-import java.util.Date;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,6 +14,8 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.cloud.ActiveDeploymentRegistry;
+import alien4cloud.cloud.DeploymentService;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.ApplicationEnvironment;
@@ -50,6 +51,12 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
     @Resource
     private SimpMessagingTemplate template;
 
+    @Resource
+    private ActiveDeploymentRegistry activeDeploymentRegistry;
+
+    @Resource
+    private DeploymentService deploymentService;
+
     protected void send(AbstractMonitorEvent event) {
         String eventType = MappingBuilder.indexTypeFromClass(event.getClass());
         String topicName = TOPIC_PREFIX + '/' + event.getDeploymentId() + '/' + eventType;
@@ -60,7 +67,7 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
 
         if (event instanceof PaaSDeploymentStatusMonitorEvent) {
 
-            Deployment deployment = alienDAO.findById(Deployment.class, event.getDeploymentId());
+            Deployment deployment = getDeployment(event.getDeploymentId());
 
             if (deployment != null) {
                 updateDeploymentStatus(deployment, ((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus());
@@ -77,11 +84,20 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
         }
     }
 
+    private Deployment getDeployment(String deploymentId) {
+        Deployment deployment = activeDeploymentRegistry.get(deploymentId);
+        if (deployment == null) {
+            // the deployment has already ended
+            deployment = alienDAO.findById(Deployment.class, deploymentId);
+        }
+        return deployment;
+    }
+
     private void updateDeploymentStatus(Deployment deployment, DeploymentStatus newStatus) {
+        // the deployment is only updated when it ends, other status don't change the deployment
         if (DeploymentStatus.UNDEPLOYED.equals(newStatus)) {
-            deployment.setEndDate(new Date());
+            deploymentService.markUndeployed(deployment);
         }
-        alienDAO.save(deployment);
     }
 
     /**
@@ -121,7 +137,7 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
     }
 
     private void checkDeploymentAuthorization(Authentication authentication, User a4cUser, String deploymentId) {
-        Deployment deployment = alienDAO.findById(Deployment.class, deploymentId);
+        Deployment deployment = getDeployment(deploymentId);
         switch (deployment.getSourceType()) {
         case APPLICATION:
             // check if the user has right for the environment associated with the deployment.
@@ -10,6 +10,7 @@ import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -79,6 +80,9 @@ public class RuntimeController {
     private TopologyService topologyService;
     @Resource
     private TopologyServiceCore topologyServiceCore;
+    /** Timeout of the operation executions, operations may take longer than the default timeout of the asynchronous requests. */
+    @Value("${async_requests.operation_timeout_ms:900000}")
+    private long operationTimeoutMs;
 
     @ApiOperation(value = "Trigger a custom command on a specific node template of a topology .", authorizations = { @Authorization("APPLICATION_MANAGER") }, notes = "Returns a response with no errors and the command response as data in success case. Application role required [ APPLICATION_MANAGER ]")
     @RequestMapping(value = "/{applicationId:.+?}/operations", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -86,7 +90,7 @@ public class RuntimeController {
     @PreAuthorize("isAuthenticated()")
     @Audit
     public DeferredResult<RestResponse<Object>> executeOperation(@PathVariable String applicationId, @RequestBody @Valid OperationExecRequest operationRequest) {
-        final DeferredResult<RestResponse<Object>> result = new DeferredResult<>(15L * 60L * 1000L);
+        final DeferredResult<RestResponse<Object>> result = new DeferredResult<>(operationTimeoutMs);
         Application application = applicationService.getOrFail(applicationId);
         ApplicationEnvironment environment = applicationEnvironmentService.getEnvironmentByIdOrDefault(applicationId,
                 operationRequest.getApplicationEnvironmentId());
@@ -94,7 +98,7 @@ public class RuntimeController {
             AuthorizationUtil.checkAuthorizationForEnvironment(environment, ApplicationEnvironmentRole.DEPLOYMENT_MANAGER);
         }
 
-        Topology topology = deploymentService.getRuntimeTopology(operationRequest.getApplicationEnvironmentId());
+        Topology topology = deploymentService.getCachedRuntimeTopology(operationRequest.getApplicationEnvironmentId());
         // validate the operation request
         try {
             validateCommand(operationRequest, topology);
@@ -117,7 +121,7 @@ public class RuntimeController {
         }
         // try to trigger the execution of the operation
         try {
-            deploymentService.triggerOperationExecution(operationRequest, topology, new IPaaSCallback<Map<String, String>>() {
+            deploymentService.triggerOperationExecution(operationRequest, new IPaaSCallback<Map<String, String>>() {
                 @Override
                 public void onSuccess(Map<String, String> data) {
                     result.setResult(RestResponseBuilder.<Object> builder().data(data).build());
@@ -0,0 +1,26 @@
+package alien4cloud.rest.topology;
+
+import java.util.List;
+
+import javax.validation.Valid;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * Ordered list of edition operations to apply on a topology in a single update.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class TopologyBatchRequest {
+    @Valid
+    @NotEmpty
+    private List<TopologyOperationRequest> operations;
+}
@@ -0,0 +1,24 @@
+package alien4cloud.rest.topology;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import alien4cloud.topology.TopologyDTO;
+
+/**
+ * Result of a {@link TopologyBatchRequest}: the results of the operations that have been applied and the updated topology.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class TopologyBatchResult {
+    /** Results of the operations in the order of the request. Operations after a failed one are not applied and have no result. */
+    private List<TopologyOperationResult> results;
+    /** The updated topology, null if an operation failed (the topology is not saved in such case). */
+    private TopologyDTO topology;
+}
@@ -70,6 +70,7 @@ import alien4cloud.paas.plan.StartEvent;
 import alien4cloud.paas.plan.TopologyTreeBuilderService;
 import alien4cloud.paas.wf.WorkflowsBuilderService;
 import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
+import alien4cloud.rest.model.RestError;
 import alien4cloud.rest.model.RestErrorBuilder;
 import alien4cloud.rest.model.RestErrorCode;
 import alien4cloud.rest.model.RestResponse;
@@ -123,6 +124,9 @@ public class TopologyController {
     @Resource
     private TopologyServiceCore topologyServiceCore;
 
+    @Resource
+    private TopologyDTOBuilder topologyDTOBuilder;
+
     @Resource
     private TopologyTreeBuilderService topologyTreeBuilderService;
 
@@ -164,7 +168,7 @@ public class TopologyController {
         Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
         topologyService
                 .checkAuthorizations(topology, ApplicationRole.APPLICATION_MANAGER, ApplicationRole.APPLICATION_DEVOPS, ApplicationRole.APPLICATION_USER);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -200,9 +204,27 @@ public class TopologyController {
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
+        RestError error = doAddNodeTemplate(topology, nodeTemplateRequest);
+        if (error != null) {
+            return RestResponseBuilder.<TopologyDTO> builder().error(error).build();
+        }
+
+        TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
+        workflowBuilderService.addNode(topologyContext, nodeTemplateRequest.getName(), topology.getNodeTemplates().get(nodeTemplateRequest.getName()));
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
+    }
+
+    /**
+     * Add a node template in a topology, without updating the workflows nor saving the topology.
+     *
+     * @return null if the node template has been added, the error otherwise.
+     */
+    private RestError doAddNodeTemplate(Topology topology, NodeTemplateRequest nodeTemplateRequest) {
+        String topologyId = topology.getId();
         IndexedNodeType indexedNodeType = alienDAO.findById(IndexedNodeType.class, nodeTemplateRequest.getIndexedNodeTypeId());
         if (indexedNodeType == null) {
-            return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.COMPONENT_MISSING_ERROR).build()).build();
+            return RestErrorBuilder.builder(RestErrorCode.COMPONENT_MISSING_ERROR).build();
         }
         if (indexedNodeType.getSubstitutionTopologyId() != null && topology.getDelegateType().equalsIgnoreCase(TopologyTemplate.class.getSimpleName())) {
             // it's a try to add this topology's type
@@ -232,11 +254,7 @@ public class TopologyController {
 
         log.debug("Adding a new Node template <" + nodeTemplateRequest.getName() + "> bound to the node type <" + nodeTemplateRequest.getIndexedNodeTypeId()
                 + "> to the topology <" + topology.getId() + "> .");
-
-        TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
-        workflowBuilderService.addNode(topologyContext, nodeTemplateRequest.getName(), nodeTemplate);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return null;
     }
 
     /**
@@ -268,8 +286,8 @@ public class TopologyController {
         workflowBuilderService.renameNode(topology, nodeTemplate, nodeTemplateName, newNodeTemplateName);
         log.debug("Renaming the Node template <{}> with <{}> in the topology <{}> .", nodeTemplateName, newNodeTemplateName, topologyId);
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -390,26 +408,42 @@ public class TopologyController {
         Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
         topologyService.checkEditionAuthorizations(topology);
 
+        RestError error = doAddRelationshipTemplate(topology, nodeTemplateName, relationshipName, relationshipTemplateRequest);
+        if (error != null) {
+            return RestResponseBuilder.<TopologyDTO> builder().error(error).build();
+        }
+        TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
+        workflowBuilderService.addRelationship(topologyContext, nodeTemplateName, relationshipName);
+        topologyServiceCore.save(topology);
+        log.info("Added relationship to the topology [" + topologyId + "], node name [" + nodeTemplateName + "], relationship name [" + relationshipName + "]");
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
+    }
+
+    /**
+     * Add a relationship template to a node template, without updating the workflows nor saving the topology.
+     *
+     * @return null if the relationship template has been added, the error otherwise.
+     */
+    private RestError doAddRelationshipTemplate(Topology topology, String nodeTemplateName, String relationshipName,
+            AddRelationshipTemplateRequest relationshipTemplateRequest) {
         IndexedRelationshipType indexedRelationshipType = alienDAO.findById(IndexedRelationshipType.class, relationshipTemplateRequest
                 .getRelationshipTemplate().getType() + ":" + relationshipTemplateRequest.getArchiveVersion());
         if (indexedRelationshipType == null) {
-            return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.COMPONENT_MISSING_ERROR).build()).build();
+            return RestErrorBuilder.builder(RestErrorCode.COMPONENT_MISSING_ERROR).build();
         }
         topologyService.loadType(topology, indexedRelationshipType);
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
-        NodeTemplate nodeTemplate = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
+        NodeTemplate nodeTemplate = topologyServiceCore.getNodeTemplate(topology.getId(), nodeTemplateName, nodeTemplates);
 
         boolean upperBoundReachedSource = topologyRequirementBoundsValidationServices.isRequirementUpperBoundReachedForSource(nodeTemplate,
                 relationshipTemplateRequest.getRelationshipTemplate().getRequirementName(), topology.getDependencies());
         // return with a rest response error
         if (upperBoundReachedSource) {
-            return RestResponseBuilder
-                    .<TopologyDTO> builder()
-                    .error(RestErrorBuilder
-                            .builder(RestErrorCode.UPPER_BOUND_REACHED)
-                            .message(
-                                    "UpperBound reached on requirement <" + relationshipTemplateRequest.getRelationshipTemplate().getRequirementName()
-                                            + "> on node <" + nodeTemplateName + ">.").build()).build();
+            return RestErrorBuilder
+                    .builder(RestErrorCode.UPPER_BOUND_REACHED)
+                    .message(
+                            "UpperBound reached on requirement <" + relationshipTemplateRequest.getRelationshipTemplate().getRequirementName() + "> on node <"
+                                    + nodeTemplateName + ">.").build();
         }
 
         boolean upperBoundReachedTarget = topologyCapabilityBoundsValidationServices.isCapabilityUpperBoundReachedForTarget(relationshipTemplateRequest
@@ -417,13 +451,11 @@ public class TopologyController {
                 topology.getDependencies());
         // return with a rest response error
         if (upperBoundReachedTarget) {
-            return RestResponseBuilder
-                    .<TopologyDTO> builder()
-                    .error(RestErrorBuilder
-                            .builder(RestErrorCode.UPPER_BOUND_REACHED)
-                            .message(
-                                    "UpperBound reached on capability <" + relationshipTemplateRequest.getRelationshipTemplate().getTargetedCapabilityName()
-                                            + "> on node <" + relationshipTemplateRequest.getRelationshipTemplate().getTarget() + ">.").build()).build();
+            return RestErrorBuilder
+                    .builder(RestErrorCode.UPPER_BOUND_REACHED)
+                    .message(
+                            "UpperBound reached on capability <" + relationshipTemplateRequest.getRelationshipTemplate().getTargetedCapabilityName()
+                                    + "> on node <" + relationshipTemplateRequest.getRelationshipTemplate().getTarget() + ">.").build();
         }
 
         Map<String, RelationshipTemplate> relationships = nodeTemplate.getRelationships();
@@ -437,11 +469,87 @@ public class TopologyController {
         TopologyServiceCore.fillProperties(properties, indexedRelationshipType.getProperties(), null);
         relationship.setProperties(properties);
         relationships.put(relationshipName, relationship);
-        TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
-        workflowBuilderService.addRelationship(topologyContext, nodeTemplateName, relationshipName);
-        alienDAO.save(topology);
-        log.info("Added relationship to the topology [" + topologyId + "], node name [" + nodeTemplateName + "], relationship name [" + relationshipName + "]");
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return null;
+    }
+
+    /**
+     * Apply an ordered list of edition operations on a topology: the topology is loaded once, the workflows are computed once and the topology is saved
+     * once. Operations are applied in order and the batch stops on the first failing operation, in such case the topology is not saved.
+     *
+     * @param topologyId The id of the topology to update.
+     * @param batchRequest The operations to apply.
+     * @return A response that contains the result of every applied operation and the DTO of the updated topology if all operations succeeded.
+     */
+    @ApiOperation(value = "Apply several edition operations on a topology.", notes = "Operations are applied in order, the topology is saved only if all the operations succeed. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
+    @RequestMapping(value = "/{topologyId:.+}/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public RestResponse<TopologyBatchResult> batch(@PathVariable String topologyId, @RequestBody @Valid TopologyBatchRequest batchRequest) {
+        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        topologyService.checkEditionAuthorizations(topology);
+        topologyService.throwsErrorIfReleased(topology);
+
+        List<TopologyOperationResult> results = Lists.newArrayList();
+        for (int i = 0; i < batchRequest.getOperations().size(); i++) {
+            TopologyOperationResult result = applyOperation(topology, i, batchRequest.getOperations().get(i));
+            results.add(result);
+            if (result.getError() != null) {
+                log.debug("Operation <{}> of the batch on topology <{}> failed, topology is not updated.", i, topologyId);
+                return RestResponseBuilder.<TopologyBatchResult> builder().data(new TopologyBatchResult(results, null)).error(result.getError()).build();
+            }
+        }
+
+        workflowBuilderService.refreshWorkflows(workflowBuilderService.buildTopologyContext(topology));
+        topologyServiceCore.save(topology);
+        log.debug("Applied <{}> operations on topology <{}>", results.size(), topologyId);
+        return RestResponseBuilder.<TopologyBatchResult> builder().data(new TopologyBatchResult(results, topologyDTOBuilder.build(topology))).build();
+    }
+
+    private TopologyOperationResult applyOperation(Topology topology, int index, TopologyOperationRequest operation) {
+        try {
+            // the topology context caches the types, build a new one for every operation as the dependencies may change
+            TopologyContext topologyContext;
+            RestError error;
+            switch (operation.getType()) {
+            case ADD_NODE_TEMPLATE:
+                if (operation.getNodeTemplate() == null) {
+                    throw new InvalidArgumentException("nodeTemplate is required to add a node template.");
+                }
+                error = doAddNodeTemplate(topology, operation.getNodeTemplate());
+                if (error == null) {
+                    topologyContext = workflowBuilderService.buildTopologyContext(topology);
+                    workflowBuilderService.addNodeToWorkflows(topologyContext, operation.getNodeTemplate().getName());
+                }
+                return new TopologyOperationResult(index, error, null);
+            case UPDATE_NODE_TEMPLATE_PROPERTY:
+                if (operation.getProperty() == null) {
+                    throw new InvalidArgumentException("property is required to update a node template property.");
+                }
+                RestResponse<ConstraintInformation> response = doUpdatePropertyValue(topology, operation.getNodeTemplateName(), operation.getProperty());
+                return response == null ? new TopologyOperationResult(index, null, null) : new TopologyOperationResult(index, response.getError(),
+                        response.getData());
+            case ADD_RELATIONSHIP_TEMPLATE:
+                if (operation.getRelationship() == null || operation.getRelationship().getRelationshipTemplate() == null) {
+                    throw new InvalidArgumentException("relationship is required to add a relationship template.");
+                }
+                error = doAddRelationshipTemplate(topology, operation.getNodeTemplateName(), operation.getRelationshipName(), operation.getRelationship());
+                if (error == null) {
+                    topologyContext = workflowBuilderService.buildTopologyContext(topology);
+                    workflowBuilderService.addRelationshipToWorkflows(topologyContext, operation.getNodeTemplateName(), operation.getRelationshipName());
+                }
+                return new TopologyOperationResult(index, error, null);
+            default:
+                throw new InvalidArgumentException("Operation type <" + operation.getType() + "> is not supported.");
+            }
+        } catch (NotFoundException e) {
+            return new TopologyOperationResult(index, RestErrorBuilder.builder(RestErrorCode.NOT_FOUND_ERROR).message(e.getMessage()).build(), null);
+        } catch (AlreadyExistException e) {
+            return new TopologyOperationResult(index, RestErrorBuilder.builder(RestErrorCode.ALREADY_EXIST_ERROR).message(e.getMessage()).build(), null);
+        } catch (CyclicReferenceException e) {
+            return new TopologyOperationResult(index, RestErrorBuilder.builder(RestErrorCode.CYCLIC_TOPOLOGY_TEMPLATE_REFERENCE_ERROR).message(e.getMessage())
+                    .build(), null);
+        } catch (InvalidArgumentException e) {
+            return new TopologyOperationResult(index, RestErrorBuilder.builder(RestErrorCode.ILLEGAL_PARAMETER).message(e.getMessage()).build(), null);
+        }
     }
 
     /**
@@ -507,9 +615,9 @@ public class TopologyController {
         updateGroupMembers(topology, template, nodeTemplateName, null);
         // update the workflows
         workflowBuilderService.removeNode(topology, nodeTemplateName, template);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -592,8 +700,24 @@ public class TopologyController {
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
+        RestResponse<ConstraintInformation> response = doUpdatePropertyValue(topology, nodeTemplateName, updatePropertyRequest);
+        if (response != null) {
+            return response;
+        }
+
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<ConstraintInformation> builder().build();
+    }
+
+    /**
+     * Update one property of a node template, without saving the topology.
+     *
+     * @return null if the property has been updated, a response with the error otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private RestResponse<ConstraintInformation> doUpdatePropertyValue(Topology topology, String nodeTemplateName, UpdatePropertyRequest updatePropertyRequest) {
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
-        NodeTemplate nodeTemp = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
+        NodeTemplate nodeTemp = topologyServiceCore.getNodeTemplate(topology.getId(), nodeTemplateName, nodeTemplates);
         String propertyName = updatePropertyRequest.getPropertyName();
         Object propertyValue = updatePropertyRequest.getPropertyValue();
 
@@ -633,8 +757,7 @@ public class TopologyController {
             }
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<ConstraintInformation> builder().build();
+        return null;
     }
 
     /**
@@ -683,7 +806,7 @@ public class TopologyController {
         }
         relationships.get(relationshipName).getProperties().put(propertyName, new ScalarPropertyValue(propertyValue));
 
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -734,7 +857,7 @@ public class TopologyController {
         }
         capabilities.get(capabilityId).getProperties().put(propertyName, new ScalarPropertyValue(propertyValue));
 
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -827,8 +950,8 @@ public class TopologyController {
         // add the new node to the workflow
         workflowBuilderService.addNode(workflowBuilderService.buildTopologyContext(topology), nodeTemplateRequest.getName(), newNodeTemplate);
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -871,8 +994,8 @@ public class TopologyController {
             artifact.setArtifactName(artifactFile.getOriginalFilename());
             artifact.setArtifactRef(artifactFileId);
             artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
-            alienDAO.save(topology);
-            return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+            topologyServiceCore.save(topology);
+            return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
         } finally {
             Closeables.close(artifactStream, true);
         }
@@ -913,11 +1036,11 @@ public class TopologyController {
             artifact.setArtifactRepository(null);
             artifact.setArtifactRef(baseArtifact.getArtifactRef());
             artifact.setArtifactName(baseArtifact.getArtifactName());
-            alienDAO.save(topology);
+            topologyServiceCore.save(topology);
         } else {
             log.warn("Reset service for the artifact <" + artifactId + "> on the node template <" + nodeTemplateName + "> failed.");
         }
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -957,8 +1080,8 @@ public class TopologyController {
             artifact.setArtifactName(artifactFile.getOriginalFilename());
             artifact.setArtifactRef(artifactFileId);
             artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
-            alienDAO.save(topology);
-            return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+            topologyServiceCore.save(topology);
+            return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
         } finally {
             Closeables.close(artifactStream, true);
         }
@@ -1030,8 +1153,8 @@ public class TopologyController {
                     + "] of the topology [" + topologyId + "]");
         }
         workflowBuilderService.removeRelationship(topology, nodeTemplateName, relationshipName, relationshipTemplate);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Activate a property as an output property.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1051,9 +1174,9 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /*
@@ -1109,13 +1232,13 @@ public class TopologyController {
             outputCapabilityProperties.get(nodeTemplateName).get(capabilityId).add(propertyId);
         } else {
             // the property is already set as an output property
-            return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+            return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
         }
 
         topology.setOutputCapabilityProperties(outputCapabilityProperties);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove a capability property from the output property list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1138,9 +1261,9 @@ public class TopologyController {
         outputCapabilityProperties.get(nodeTemplateName).get(capabilityId).remove(propertyId);
 
         topology.setOutputCapabilityProperties(outputCapabilityProperties);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Activate an attribute as an output attribute.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1161,9 +1284,9 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove a property from the output property list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1176,9 +1299,9 @@ public class TopologyController {
         topologyService.throwsErrorIfReleased(topology);
 
         topology.setOutputProperties(removeValueFromMap(topology.getOutputProperties(), nodeTemplateName, propertyName));
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove an attribute from the output attributes list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1191,9 +1314,9 @@ public class TopologyController {
         topologyService.throwsErrorIfReleased(topology);
 
         topology.setOutputAttributes(removeValueFromMap(topology.getOutputAttributes(), nodeTemplateName, attributeName));
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Associate an artifact to an input artifact (create it if it doesn't exist).", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1230,8 +1353,8 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Un-associate an artifact from the input artifact.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1248,8 +1371,8 @@ public class TopologyController {
         if (nodeTemplate.getArtifacts() != null && nodeTemplate.getArtifacts().containsKey(artifactId)) {
             InputArtifactUtil.unsetInputArtifact(nodeTemplate.getArtifacts().get(artifactId));
         }
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Un-associate an artifact from the input artifact.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1279,8 +1402,8 @@ public class TopologyController {
 
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Un-associate an artifact from the input artifact.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1307,8 +1430,8 @@ public class TopologyController {
 
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Get the list of input artifacts candidates for this node's artifact.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
@@ -1375,8 +1498,8 @@ public class TopologyController {
         log.debug("Renaiming the relationship <{}> with <{}> in the node template <{}> of topology <{}> .", relationshipName, newRelationshipName,
                 nodeTemplateName, topologyId);
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
@@ -1389,7 +1512,7 @@ public class TopologyController {
         topologyService.throwsErrorIfReleased(topology);
 
         if (groupName.equals(newGroupName)) {
-            return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+            return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
         }
 
         if (topology.getGroups().containsKey(newGroupName)) {
@@ -1410,8 +1533,8 @@ public class TopologyController {
             topology.getGroups().put(newGroupName, nodeGroup);
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     private int getAvailableGroupIndex(Topology topology) {
@@ -1446,8 +1569,8 @@ public class TopologyController {
             }
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Add a node to a node group. If the group doesn't exists, it's created.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
@@ -1489,8 +1612,8 @@ public class TopologyController {
         }
         nodeTemplate.getGroups().add(groupName);
         nodeGroup.getMembers().add(nodeName);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove a node from a node group.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
@@ -1511,8 +1634,8 @@ public class TopologyController {
             nodeTemplate.getGroups().remove(groupName);
         }
 
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     private Map<String, Set<String>> addToMap(Map<String, Set<String>> map, String key, String value) {
@@ -0,0 +1,58 @@
+package alien4cloud.rest.topology;
+
+import javax.annotation.Resource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.TopologyDTO;
+import alien4cloud.topology.TopologyDeltaService;
+
+/**
+ * Builds the topology DTO returned by the topology edition operations.
+ *
+ * When the client identifies itself with the {@value #CLIENT_HEADER} header and sends the version of the topology it already has in the
+ * {@value #BASE_VERSION_HEADER} header, only the changes since this version are returned (see {@link alien4cloud.topology.TopologyDeltaDTO}), else the
+ * complete topology DTO is returned.
+ */
+@Component
+public class TopologyDTOBuilder {
+    public static final String BASE_VERSION_HEADER = "A4C-Topology-Base-Version";
+    public static final String CLIENT_HEADER = "A4C-Topology-Client";
+
+    @Resource
+    private TopologyDeltaService topologyDeltaService;
+
+    /**
+     * Build the DTO for a topology, as a delta if requested by the client.
+     *
+     * @param topology The topology for which to build the DTO.
+     * @return The DTO to return to the client.
+     */
+    public TopologyDTO build(Topology topology) {
+        return topologyDeltaService.buildTopologyDTO(topology, getHeader(CLIENT_HEADER), getBaseVersion());
+    }
+
+    private String getHeader(String header) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(header);
+    }
+
+    private Long getBaseVersion() {
+        String baseVersion = getHeader(BASE_VERSION_HEADER);
+        if (baseVersion == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(baseVersion);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
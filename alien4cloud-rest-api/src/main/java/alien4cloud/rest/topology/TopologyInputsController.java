@@ -66,6 +66,9 @@ public class TopologyInputsController {
     @Resource
     private TopologyServiceCore topologyServiceCore;
 
+    @Resource
+    private TopologyDTOBuilder topologyDTOBuilder;
+
     @Resource
     private ICSARRepositorySearchService csarRepoSearchService;
 
@@ -96,7 +99,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Add a new input <{}> for the topology <{}>.", inputId, topologyId);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         if (StringUtils.isNotEmpty(newPropertyDefinition.getDefault())) {
             DeploymentSetup[] deploymentSetups = deploymentSetupService.getByTopologyId(topologyId);
             for (DeploymentSetup deploymentSetup : deploymentSetups) {
@@ -108,7 +111,7 @@ public class TopologyInputsController {
             }
         }
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -152,7 +155,7 @@ public class TopologyInputsController {
             throw new NotFoundException("Input " + inputId + " not found");
         }
         if (inputId.equals(newInputId)) {
-            return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+            return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
         }
         if (!newInputId.matches("\\w+")) {
             RestError e = new RestError();
@@ -181,7 +184,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Change the name of an input parameter <{}> to <{}> for the topology ", inputId, newInputId, topologyId);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         DeploymentSetup[] deploymentSetups = deploymentSetupService.getByTopologyId(topologyId);
         for (DeploymentSetup deploymentSetup : deploymentSetups) {
             if (deploymentSetup.getInputProperties() != null && deploymentSetup.getInputProperties().containsKey(inputId)) {
@@ -191,7 +194,7 @@ public class TopologyInputsController {
             }
         }
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -263,7 +266,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Remove the input " + inputId + " from the topology " + topologyId);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         DeploymentSetup[] deploymentSetups = deploymentSetupService.getByTopologyId(topologyId);
         for (DeploymentSetup deploymentSetup : deploymentSetups) {
             if (deploymentSetup.getInputProperties() != null && deploymentSetup.getInputProperties().containsKey(inputId)) {
@@ -272,7 +275,7 @@ public class TopologyInputsController {
             }
         }
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topologyServiceCore.getMandatoryTopology(topologyId))).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topologyServiceCore.getMandatoryTopology(topologyId))).build();
     }
 
     /**
@@ -323,8 +326,8 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -359,10 +362,10 @@ public class TopologyInputsController {
                 nodeTemplate.getProperties().put(propertyId, null);
             }
             log.debug("Disassociated the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-            alienDAO.save(topology);
+            topologyServiceCore.save(topology);
         }
 
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -514,8 +517,8 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the relationship template <{}> to an input of the topology <{}>.", propertyId, relationshipId, topologyId);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -563,8 +566,8 @@ public class TopologyInputsController {
         } else {
             throw new NotFoundException("Property " + propertyId + " do not exist for relationship " + relationshipId + " of node " + nodeTemplateName);
         }
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -621,8 +624,8 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the capability template <{}> to an input of the topology <{}>.", propertyId, capabilityId, topologyId);
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     /**
@@ -669,8 +672,8 @@ public class TopologyInputsController {
         } else {
             throw new NotFoundException("Property " + propertyId + " do not exist for capability " + capabilityId + " of node " + nodeTemplateName);
         }
-        alienDAO.save(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        topologyServiceCore.save(topology);
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     private Map<String, PropertyDefinition> getInputs(Topology topology, boolean create) {
@@ -0,0 +1,39 @@
+package alien4cloud.rest.topology;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * An edition operation of a batch (see {@link TopologyBatchRequest}). Only the fields related to the operation type have to be set.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class TopologyOperationRequest {
+    public enum OperationType {
+        /** Add a node template, requires the nodeTemplate request. */
+        ADD_NODE_TEMPLATE,
+        /** Update a property of a node template, requires the nodeTemplateName and the property request. */
+        UPDATE_NODE_TEMPLATE_PROPERTY,
+        /** Add a relationship to a node template, requires the nodeTemplateName, relationshipName and the relationship request. */
+        ADD_RELATIONSHIP_TEMPLATE
+    }
+
+    @NotNull
+    private OperationType type;
+    /** Name of the node template to update (property and relationship operations). */
+    private String nodeTemplateName;
+    /** Name of the relationship to add. */
+    private String relationshipName;
+    @Valid
+    private NodeTemplateRequest nodeTemplate;
+    private UpdatePropertyRequest property;
+    private AddRelationshipTemplateRequest relationship;
+}
@@ -0,0 +1,25 @@
+package alien4cloud.rest.topology;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import alien4cloud.rest.model.RestError;
+import alien4cloud.tosca.properties.constraints.ConstraintUtil.ConstraintInformation;
+
+/**
+ * Result of an operation of a {@link TopologyBatchRequest}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class TopologyOperationResult {
+    /** Index of the operation in the batch. */
+    private int index;
+    /** Error of the operation, null if the operation succeeded. */
+    private RestError error;
+    /** Details of the violated constraint when a property update fails. */
+    private ConstraintInformation constraintInformation;
+}
@@ -59,6 +59,9 @@ public class TopologySubstitutionsController {
     @Resource
     private TopologyServiceCore topologyServiceCore;
 
+    @Resource
+    private TopologyDTOBuilder topologyDTOBuilder;
+
     @Resource
     private ICSARRepositorySearchService csarRepoSearchService;
 
@@ -100,9 +103,9 @@ public class TopologySubstitutionsController {
             topology.getDependencies().add(new CSARDependency(nodeType.getArchiveName(), nodeType.getArchiveVersion()));
         }
         topology.getSubstitutionMapping().setSubstitutionType(nodeType);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove the substitution type, delete the corresponding type (if not already used)", notes = "Returns a topology with it's details. Role required [ ARCHITECT ]")
@@ -132,13 +135,13 @@ public class TopologySubstitutionsController {
         }
         topologyService.unloadType(topology, new String[] { substitutionType.getElementId() });
         topology.setSubstitutionMapping(null);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         // unset the substitution topologyId on the csar
         csar.setSubstitutionTopologyId(null);
         alienDAO.save(csar);
         // delete the CSAR and the type
         csarService.deleteCsar(csar.getId());
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Expose the given capability as a capability for the substitution type associated with this topology.", notes = "Role required [ ARCHITECT ]")
@@ -176,10 +179,10 @@ public class TopologySubstitutionsController {
             throw new AlreadyExistException(String.format("The substitution capability <%s> already exists", substitutionCapabilityId));
         }
         substitutionCapabilities.put(substitutionCapabilityId, new SubstitutionTarget(nodeTemplateName, capabilityId));
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         // update the type
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Update the substitution capability (typically change it's name).", notes = "Role required [ ARCHITECT ]")
@@ -214,10 +217,10 @@ public class TopologySubstitutionsController {
                     newKey, newKey));
         }
         targetMap.put(newKey, target);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         // update the type
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Remove the substitution capability from the substitution type.", notes = "Role required [ ARCHITECT ]")
@@ -246,10 +249,10 @@ public class TopologySubstitutionsController {
         if (target == null) {
             throw new NotFoundException("No substitution capability or requirement has been found for key " + key);
         }
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         // update the type
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Expose the given requirement as a requirement for the substitution type associated with this topology.", notes = "Role required [ ARCHITECT ]")
@@ -286,10 +289,10 @@ public class TopologySubstitutionsController {
             throw new AlreadyExistException(String.format("The substitution requirement <%s> already exists", substitutionRequirementId));
         }
         substitutionRequirements.put(substitutionRequirementId, new SubstitutionTarget(nodeTemplateName, requirementId));
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         // update the type
         topologyServiceCore.updateSubstitutionType(topology);
-        return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
+        return RestResponseBuilder.<TopologyDTO> builder().data(topologyDTOBuilder.build(topology)).build();
     }
 
     @ApiOperation(value = "Update the substitution requirement (typically change it's name).", notes = "Role required [ ARCHITECT ]")
@@ -14,7 +14,6 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.wf.Workflow;
@@ -41,9 +40,6 @@ public class TopologyWorkflowController {
     @Resource
     private WorkflowsBuilderService workflowBuilderService;
 
-    @Resource(name = "alien-es-dao")
-    private IGenericSearchDAO alienDAO;
-
 
     @RequestMapping(value = "/{topologyId}/workflows", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     public RestResponse<Set<String>> getWorkflows(@PathVariable String topologyId) {
@@ -58,7 +54,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.ceateWorkflow(topology);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -73,7 +69,7 @@ public class TopologyWorkflowController {
         if (wf.isStandard()) {
             throw new RuntimeException("standard wf can not be removed");
         }
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return new RestResponse<Void>();
     }
 
@@ -93,7 +89,7 @@ public class TopologyWorkflowController {
         }
         wf.setName(newName);
         topology.getWorkflows().put(newName, wf);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -105,7 +101,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.reinitWorkflow(workflowName, workflowBuilderService.buildTopologyContext(topology));
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -118,7 +114,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.removeEdge(topology, workflowName, from, to);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -131,7 +127,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.connectStepFrom(topology, workflowName, stepId, stepNames);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -144,7 +140,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.renameStep(topology, workflowName, stepId, newStepName);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -157,7 +153,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.connectStepTo(topology, workflowName, stepId, stepNames);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -170,7 +166,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.swapSteps(topology, workflowName, stepId, targetId);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -184,7 +180,7 @@ public class TopologyWorkflowController {
 
         Workflow wf = workflowBuilderService.addActivity(topology, workflowName, activityRequest.getRelatedStepId(), activityRequest.isBefore(),
                 activityRequest.getActivity());
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
@@ -195,7 +191,7 @@ public class TopologyWorkflowController {
         topologyService.throwsErrorIfReleased(topology);
 
         Workflow wf = workflowBuilderService.removeStep(topology, workflowName, stepId, false);
-        alienDAO.save(topology);
+        topologyServiceCore.save(topology);
         return RestResponseBuilder.<Workflow> builder().data(wf).build();
     }
 
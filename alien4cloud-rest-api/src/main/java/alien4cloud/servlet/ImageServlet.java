@@ -9,7 +9,11 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import lombok.AllArgsConstructor;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -18,22 +22,42 @@ import alien4cloud.images.IImageDAO;
 import alien4cloud.images.ImageData;
 import alien4cloud.utils.ImageQuality;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+
 /**
  * A servlet that query an image by id and return's it.
  * 
+ * The content of an image never changes for a given id so the images are kept in an in-memory LRU cache and clients can revalidate their copy through its
+ * ETag.
+ * 
  * @author luc boutier
  */
 @Component
 public class ImageServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
+    /** Maximum size of the cached images in MB (0 disables the cache). */
+    @Value("${images.cache.max_size_mb:32}")
+    private int cacheMaxSizeMb;
+
     private IImageDAO imageDAO;
+    /** Images by id and quality. */
+    private transient Cache<String, CachedImage> imageCache;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
         ApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(config.getServletContext());
         this.imageDAO = context.getBean(IImageDAO.class);
+        this.imageCache = CacheBuilder.newBuilder().maximumWeight(cacheMaxSizeMb * 1024L * 1024L).weigher(new Weigher<String, CachedImage>() {
+            @Override
+            public int weigh(String key, CachedImage value) {
+                return value.data.length;
+            }
+        }).build();
     }
 
     @Override
@@ -47,17 +71,22 @@ public class ImageServlet extends HttpServlet {
             imageQuality = ImageQuality.valueOf(quality);
         }
 
-        final ImageData imageData = this.imageDAO.readImage(imageId, imageQuality);
-        if (imageData != null) {
+        final CachedImage image = imageId == null ? null : getImage(imageId, imageQuality);
+        if (image != null) {
+            resp.setHeader(HttpHeaders.ETAG, image.etag);
+            if (matchesETag(req.getHeader(HttpHeaders.IF_NONE_MATCH), image.etag)) {
+                resp.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
             // Set content type
-            resp.setContentType(imageData.getMime());
+            resp.setContentType(image.mime);
             // Set content size
-            resp.setContentLength(imageData.getData().length);
+            resp.setContentLength(image.data.length);
 
             // Open the file and output streams
             final OutputStream out = resp.getOutputStream();
             try {
-                out.write(imageData.getData());
+                out.write(image.data);
             } finally {
                 out.close();
             }
@@ -65,4 +94,40 @@ public class ImageServlet extends HttpServlet {
             resp.setStatus(HttpStatus.NOT_FOUND.value());
         }
     }
-}
\ No newline at end of file
+
+    private CachedImage getImage(String imageId, ImageQuality imageQuality) {
+        String cacheKey = imageQuality.name() + ":" + imageId;
+        CachedImage image = imageCache.getIfPresent(cacheKey);
+        if (image != null) {
+            return image;
+        }
+        // missing images are not cached as they may be created later
+        ImageData imageData = this.imageDAO.readImage(imageId, imageQuality);
+        if (imageData == null) {
+            return null;
+        }
+        image = new CachedImage(imageData.getData(), imageData.getMime(), "\"" + Hashing.md5().hashBytes(imageData.getData()).toString() + "\"");
+        imageCache.put(cacheKey, image);
+        return image;
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @AllArgsConstructor
+    private static final class CachedImage {
+        private final byte[] data;
+        private final String mime;
+        private final String etag;
+    }
+}
@@ -0,0 +1,50 @@
+package alien4cloud.webconfiguration;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Configuration of the asynchronous rest requests: requests that wait for a PaaS provider are released from the servlet container threads and are
+ * processed by a bounded executor.
+ */
+@Configuration
+public class AsyncRequestsConfiguration extends WebMvcConfigurerAdapter {
+    /** Default timeout of the asynchronous requests. */
+    @Value("${async_requests.timeout_ms:300000}")
+    private long timeoutMs;
+    @Value("${async_requests.pool_size:10}")
+    private int poolSize;
+    /** Maximum number of requests waiting for a thread of the executor, requests are rejected once the queue is full. */
+    @Value("${async_requests.queue_size:100}")
+    private int queueSize;
+
+    @Resource
+    private AsyncRequestsMonitor asyncRequestsMonitor;
+
+    @Bean(name = "rest-async-executor")
+    public ThreadPoolTaskExecutor restAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("rest-async-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueSize);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeoutMs);
+        configurer.setTaskExecutor(restAsyncExecutor());
+        configurer.registerDeferredResultInterceptors(asyncRequestsMonitor.getDeferredResultInterceptor());
+        configurer.registerCallableInterceptors(asyncRequestsMonitor.getCallableInterceptor());
+    }
+}
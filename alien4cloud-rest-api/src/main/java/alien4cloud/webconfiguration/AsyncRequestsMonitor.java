@@ -0,0 +1,134 @@
+package alien4cloud.webconfiguration;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptorAdapter;
+
+import alien4cloud.rest.model.RestErrorBuilder;
+import alien4cloud.rest.model.RestErrorCode;
+import alien4cloud.rest.model.RestResponse;
+import alien4cloud.rest.model.RestResponseBuilder;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Keeps track of the asynchronous rest requests (requests that return a {@link DeferredResult} or a {@link Callable}) and answers the requests that time out
+ * with a {@link RestErrorCode#PAAS_TIMEOUT_ERROR} error.
+ */
+@Slf4j
+@Component
+public class AsyncRequestsMonitor {
+    @Resource(name = "rest-async-executor")
+    private ThreadPoolTaskExecutor executor;
+    @Resource
+    private MetricRegistry metricRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Number of requests in flight, sampled whenever a request starts. */
+    private Histogram inFlightRequests;
+    private Counter started;
+    private Counter timeouts;
+
+    private final DeferredResultInterceptor deferredResultInterceptor = new DeferredResultInterceptor();
+    private final CallableInterceptor callableInterceptor = new CallableInterceptor();
+
+    @PostConstruct
+    public void init() {
+        inFlightRequests = metricRegistry.histogram(name(AsyncRequestsMonitor.class, "in_flight_requests"));
+        started = metricRegistry.counter(name(AsyncRequestsMonitor.class, "started"));
+        timeouts = metricRegistry.counter(name(AsyncRequestsMonitor.class, "timeouts"));
+        metricRegistry.register(name(AsyncRequestsMonitor.class, "in_flight"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return inFlight.get();
+            }
+        });
+        metricRegistry.register(name(AsyncRequestsMonitor.class, "executor", "active"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getActiveCount();
+            }
+        });
+        metricRegistry.register(name(AsyncRequestsMonitor.class, "executor", "queue_size"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getThreadPoolExecutor().getQueue().size();
+            }
+        });
+    }
+
+    public DeferredResultInterceptor getDeferredResultInterceptor() {
+        return deferredResultInterceptor;
+    }
+
+    public CallableInterceptor getCallableInterceptor() {
+        return callableInterceptor;
+    }
+
+    private void requestStarted() {
+        started.inc();
+        inFlightRequests.update(inFlight.incrementAndGet());
+    }
+
+    private RestResponse<Void> timedOut(NativeWebRequest request) {
+        timeouts.inc();
+        log.warn("Asynchronous request <{}> timed out.", request.getDescription(false));
+        return RestResponseBuilder.<Void> builder()
+                .error(RestErrorBuilder.builder(RestErrorCode.PAAS_TIMEOUT_ERROR).message("The PaaS provider didn't answer in time.").build()).build();
+    }
+
+    /** Interceptor for the requests that return a {@link DeferredResult}. */
+    public class DeferredResultInterceptor extends DeferredResultProcessingInterceptorAdapter {
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            requestStarted();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> boolean handleTimeout(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            ((DeferredResult<Object>) deferredResult).setResult(timedOut(request));
+            return false;
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /** Interceptor for the requests that return a {@link Callable}, callables are executed by the bounded rest async executor. */
+    public class CallableInterceptor extends CallableProcessingInterceptorAdapter {
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            // counted once executing as the executor may reject the task (queued tasks are reported by the executor metrics)
+            requestStarted();
+        }
+
+        @Override
+        public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+            return timedOut(request);
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            inFlight.decrementAndGet();
+        }
+    }
+}
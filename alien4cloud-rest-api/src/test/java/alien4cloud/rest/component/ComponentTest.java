@@ -228,7 +228,8 @@ public class ComponentTest {
     private void clearIndex(String indexName, Class<?> clazz) throws InterruptedException {
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
         log.info("Cleaning ES Index " + ElasticSearchDAO.TOSCA_ELEMENT_INDEX + " and type " + typeName);
-        nodeClient.prepareDeleteByQuery(indexName).setQuery(QueryBuilders.matchAllQuery()).setTypes(typeName).execute().actionGet();
+        // delete through the dao so that the cached resolutions of the deleted types are invalidated
+        dao.delete(clazz, QueryBuilders.matchAllQuery());
     }
 
     @After
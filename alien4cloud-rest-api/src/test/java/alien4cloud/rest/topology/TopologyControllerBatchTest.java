@@ -0,0 +1,129 @@
+package alien4cloud.rest.topology;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.wf.WorkflowsBuilderService;
+import alien4cloud.rest.model.RestErrorCode;
+import alien4cloud.rest.model.RestResponse;
+import alien4cloud.topology.TopologyDTO;
+import alien4cloud.topology.TopologyService;
+import alien4cloud.topology.TopologyServiceCore;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TopologyControllerBatchTest {
+    private static final String TOPOLOGY_ID = "topology";
+    private static final String COMPUTE_TYPE_ID = "tosca.nodes.Compute:1.0";
+
+    private TopologyServiceCore topologyServiceCore;
+    private TopologyDTOBuilder topologyDTOBuilder;
+    private Topology topology;
+    private TopologyController topologyController;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        topology = new Topology();
+        topology.setId(TOPOLOGY_ID);
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+
+        IndexedNodeType computeType = new IndexedNodeType();
+        computeType.setElementId("tosca.nodes.Compute");
+        IGenericSearchDAO alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(alienDAO.findById(IndexedNodeType.class, COMPUTE_TYPE_ID)).thenReturn(computeType);
+
+        topologyServiceCore = Mockito.mock(TopologyServiceCore.class);
+        Mockito.when(topologyServiceCore.getMandatoryTopology(TOPOLOGY_ID)).thenReturn(topology);
+        TopologyService topologyService = Mockito.mock(TopologyService.class);
+        Mockito.when(topologyService.loadType(topology, computeType)).thenReturn(computeType);
+        Mockito.when(topologyService.buildNodeTemplate(Mockito.any(Set.class), Mockito.eq(computeType), Mockito.any(NodeTemplate.class))).thenAnswer(
+                new Answer<NodeTemplate>() {
+                    @Override
+                    public NodeTemplate answer(InvocationOnMock invocation) {
+                        NodeTemplate nodeTemplate = new NodeTemplate();
+                        nodeTemplate.setType("tosca.nodes.Compute");
+                        return nodeTemplate;
+                    }
+                });
+        topologyDTOBuilder = Mockito.mock(TopologyDTOBuilder.class);
+        Mockito.when(topologyDTOBuilder.build(topology)).thenReturn(new TopologyDTO());
+
+        topologyController = new TopologyController();
+        ReflectionTestUtils.setField(topologyController, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(topologyController, "topologyServiceCore", topologyServiceCore);
+        ReflectionTestUtils.setField(topologyController, "topologyService", topologyService);
+        ReflectionTestUtils.setField(topologyController, "topologyDTOBuilder", topologyDTOBuilder);
+        ReflectionTestUtils.setField(topologyController, "workflowBuilderService", Mockito.mock(WorkflowsBuilderService.class));
+    }
+
+    @Test
+    public void batchShouldApplyAllOperationsAndSaveTheTopologyOnce() {
+        RestResponse<TopologyBatchResult> response = topologyController.batch(TOPOLOGY_ID,
+                batch(addNodeTemplate("compute", COMPUTE_TYPE_ID), addNodeTemplate("compute2", COMPUTE_TYPE_ID)));
+
+        Assert.assertNull(response.getError());
+        List<TopologyOperationResult> results = response.getData().getResults();
+        Assert.assertEquals(2, results.size());
+        Assert.assertNull(results.get(0).getError());
+        Assert.assertNull(results.get(1).getError());
+        Assert.assertNotNull(response.getData().getTopology());
+        Assert.assertEquals(2, topology.getNodeTemplates().size());
+        Mockito.verify(topologyServiceCore, Mockito.times(1)).save(topology);
+    }
+
+    @Test
+    public void batchShouldStopOnTheFirstFailingOperationAndNotSaveTheTopology() {
+        RestResponse<TopologyBatchResult> response = topologyController.batch(TOPOLOGY_ID,
+                batch(addNodeTemplate("compute", COMPUTE_TYPE_ID), addNodeTemplate("missing", "missing:1.0"), addNodeTemplate("compute2", COMPUTE_TYPE_ID)));
+
+        Assert.assertEquals(RestErrorCode.COMPONENT_MISSING_ERROR.getCode(), response.getError().getCode());
+        List<TopologyOperationResult> results = response.getData().getResults();
+        // the operation after the failing one is not applied
+        Assert.assertEquals(2, results.size());
+        Assert.assertNull(results.get(0).getError());
+        Assert.assertEquals(1, results.get(1).getIndex());
+        Assert.assertEquals(RestErrorCode.COMPONENT_MISSING_ERROR.getCode(), results.get(1).getError().getCode());
+        Assert.assertNull(response.getData().getTopology());
+        Mockito.verify(topologyServiceCore, Mockito.never()).save(Mockito.any(Topology.class));
+    }
+
+    @Test
+    public void batchShouldReportAnOperationThatThrows() {
+        RestResponse<TopologyBatchResult> response = topologyController.batch(TOPOLOGY_ID,
+                batch(addNodeTemplate("compute", COMPUTE_TYPE_ID), addNodeTemplate("compute", COMPUTE_TYPE_ID)));
+
+        Assert.assertEquals(RestErrorCode.ALREADY_EXIST_ERROR.getCode(), response.getError().getCode());
+        Assert.assertEquals(2, response.getData().getResults().size());
+        Mockito.verify(topologyServiceCore, Mockito.never()).save(Mockito.any(Topology.class));
+    }
+
+    private static TopologyBatchRequest batch(TopologyOperationRequest... operations) {
+        TopologyBatchRequest batchRequest = new TopologyBatchRequest();
+        batchRequest.setOperations(Lists.newArrayList(operations));
+        return batchRequest;
+    }
+
+    private static TopologyOperationRequest addNodeTemplate(String name, String nodeTypeId) {
+        NodeTemplateRequest nodeTemplateRequest = new NodeTemplateRequest();
+        nodeTemplateRequest.setName(name);
+        nodeTemplateRequest.setIndexedNodeTypeId(nodeTypeId);
+        TopologyOperationRequest operation = new TopologyOperationRequest();
+        operation.setType(TopologyOperationRequest.OperationType.ADD_NODE_TEMPLATE);
+        operation.setNodeTemplate(nodeTemplateRequest);
+        return operation;
+    }
+}
@@ -0,0 +1,95 @@
+package alien4cloud.servlet;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import alien4cloud.images.IImageDAO;
+import alien4cloud.images.ImageData;
+import alien4cloud.utils.ImageQuality;
+
+public class ImageServletTest {
+    private static final byte[] IMAGE = new byte[] { 1, 2, 3, 4 };
+
+    private IImageDAO imageDAO;
+    private ImageServlet servlet;
+
+    @Before
+    public void before() throws Exception {
+        ImageData imageData = new ImageData();
+        imageData.setId("image");
+        imageData.setData(IMAGE);
+        imageData.setMime("image/png");
+        imageDAO = Mockito.mock(IImageDAO.class);
+        Mockito.when(imageDAO.readImage("image", ImageQuality.QUALITY_BEST)).thenReturn(imageData);
+
+        WebApplicationContext context = Mockito.mock(WebApplicationContext.class);
+        Mockito.when(context.getBean(IImageDAO.class)).thenReturn(imageDAO);
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+
+        servlet = new ImageServlet();
+        ReflectionTestUtils.setField(servlet, "cacheMaxSizeMb", 1);
+        servlet.init(new MockServletConfig(servletContext));
+    }
+
+    @Test
+    public void imageShouldBeServedWithAnETag() throws Exception {
+        MockHttpServletResponse response = get("image", null);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        Assert.assertEquals("image/png", response.getContentType());
+        Assert.assertArrayEquals(IMAGE, response.getContentAsByteArray());
+        Assert.assertNotNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void matchingETagShouldGetANotModifiedResponse() throws Exception {
+        String etag = get("image", null).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = get("image", "\"other\", " + etag);
+
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+        Assert.assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        // the image content is served from the cache
+        Mockito.verify(imageDAO, Mockito.times(1)).readImage("image", ImageQuality.QUALITY_BEST);
+    }
+
+    @Test
+    public void otherETagShouldGetTheImage() throws Exception {
+        MockHttpServletResponse response = get("image", "\"other\"");
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        Assert.assertArrayEquals(IMAGE, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void missingImageShouldNotBeCached() throws Exception {
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, get("missing", null).getStatus());
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, get("missing", null).getStatus());
+
+        Mockito.verify(imageDAO, Mockito.times(2)).readImage("missing", ImageQuality.QUALITY_BEST);
+    }
+
+    private MockHttpServletResponse get(String imageId, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/img");
+        request.setParameter("id", imageId);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        return response;
+    }
+}
@@ -0,0 +1,85 @@
+package alien4cloud.webconfiguration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+
+import alien4cloud.rest.exception.RestTechnicalExceptionHandler;
+import alien4cloud.rest.model.RestErrorCode;
+import alien4cloud.rest.model.RestResponse;
+
+public class AsyncRequestsConfigurationTest {
+    private ThreadPoolTaskExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void before() {
+        AsyncRequestsConfiguration configuration = new AsyncRequestsConfiguration();
+        ReflectionTestUtils.setField(configuration, "poolSize", 1);
+        ReflectionTestUtils.setField(configuration, "queueSize", 1);
+        executor = configuration.restAsyncExecutor();
+        executor.initialize();
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void after() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void requestsShouldBeRejectedOnceTheExecutorIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(blockingTask(started));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the second request waits in the queue
+        executor.submit(blockingTask(new CountDownLatch(1)));
+        Assert.assertEquals(1, executor.getThreadPoolExecutor().getQueue().size());
+
+        try {
+            executor.submit(blockingTask(new CountDownLatch(1)));
+            Assert.fail("The executor should reject the requests once its queue is full.");
+        } catch (TaskRejectedException e) {
+            Assert.assertEquals(1, executor.getActiveCount());
+        }
+    }
+
+    @Test
+    public void rejectedRequestsShouldGetAServiceUnavailableResponse() throws Exception {
+        TaskRejectedException rejected = new TaskRejectedException("Executor is full");
+        RestTechnicalExceptionHandler handler = new RestTechnicalExceptionHandler();
+
+        Method handlerMethod = new ExceptionHandlerMethodResolver(RestTechnicalExceptionHandler.class).resolveMethod(rejected);
+
+        Assert.assertNotNull(handlerMethod);
+        Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, handlerMethod.getAnnotation(ResponseStatus.class).value());
+        RestResponse<?> response = (RestResponse<?>) handlerMethod.invoke(handler, rejected);
+        Assert.assertEquals(RestErrorCode.UNCATEGORIZED_ERROR.getCode(), response.getError().getCode());
+    }
+
+    private Runnable blockingTask(final CountDownLatch started) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
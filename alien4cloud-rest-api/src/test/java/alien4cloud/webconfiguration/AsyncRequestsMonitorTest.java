@@ -0,0 +1,101 @@
+package alien4cloud.webconfiguration;
+
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import alien4cloud.rest.model.RestErrorCode;
+import alien4cloud.rest.model.RestResponse;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class AsyncRequestsMonitorTest {
+    private MetricRegistry metricRegistry;
+    private ThreadPoolTaskExecutor executor;
+    private AsyncRequestsMonitor monitor;
+    private NativeWebRequest request;
+
+    @Before
+    public void before() {
+        metricRegistry = new MetricRegistry();
+        executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        monitor = new AsyncRequestsMonitor();
+        ReflectionTestUtils.setField(monitor, "metricRegistry", metricRegistry);
+        ReflectionTestUtils.setField(monitor, "executor", executor);
+        monitor.init();
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/rest/test"));
+    }
+
+    @After
+    public void after() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void callablesShouldBeCountedWhileInFlight() throws Exception {
+        Callable<Object> task = task();
+        monitor.getCallableInterceptor().preProcess(request, task);
+
+        Assert.assertEquals(1, gauge("in_flight"));
+        Assert.assertEquals(1L, metricRegistry.counter(MetricRegistry.name(AsyncRequestsMonitor.class, "started")).getCount());
+        Assert.assertEquals(1L, metricRegistry.histogram(MetricRegistry.name(AsyncRequestsMonitor.class, "in_flight_requests")).getCount());
+
+        monitor.getCallableInterceptor().afterCompletion(request, task);
+        Assert.assertEquals(0, gauge("in_flight"));
+    }
+
+    @Test
+    public void callableTimeoutShouldReturnAPaaSTimeoutError() throws Exception {
+        Callable<Object> task = task();
+        monitor.getCallableInterceptor().preProcess(request, task);
+
+        Object result = monitor.getCallableInterceptor().handleTimeout(request, task);
+
+        Assert.assertEquals(RestErrorCode.PAAS_TIMEOUT_ERROR.getCode(), ((RestResponse<?>) result).getError().getCode());
+        Assert.assertEquals(1L, metricRegistry.counter(MetricRegistry.name(AsyncRequestsMonitor.class, "timeouts")).getCount());
+    }
+
+    @Test
+    public void deferredResultTimeoutShouldSetAPaaSTimeoutError() throws Exception {
+        DeferredResult<Object> deferredResult = new DeferredResult<Object>();
+        monitor.getDeferredResultInterceptor().beforeConcurrentHandling(request, deferredResult);
+        Assert.assertEquals(1, gauge("in_flight"));
+
+        // the result is set by the interceptor so the other interceptors must not be called
+        Assert.assertFalse(monitor.getDeferredResultInterceptor().handleTimeout(request, deferredResult));
+        Assert.assertEquals(RestErrorCode.PAAS_TIMEOUT_ERROR.getCode(), ((RestResponse<?>) deferredResult.getResult()).getError().getCode());
+        Assert.assertEquals(1L, metricRegistry.counter(MetricRegistry.name(AsyncRequestsMonitor.class, "timeouts")).getCount());
+
+        monitor.getDeferredResultInterceptor().afterCompletion(request, deferredResult);
+        Assert.assertEquals(0, gauge("in_flight"));
+    }
+
+    @Test
+    public void executorMetricsShouldBeRegistered() {
+        Assert.assertEquals(0, gauge("executor", "active"));
+        Assert.assertEquals(0, gauge("executor", "queue_size"));
+    }
+
+    private int gauge(String... names) {
+        return (Integer) metricRegistry.getGauges().get(MetricRegistry.name(AsyncRequestsMonitor.class, names)).getValue();
+    }
+
+    private static Callable<Object> task() {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                return null;
+            }
+        };
+    }
+}
@@ -4,13 +4,16 @@ import java.beans.IntrospectionException;
 import java.io.IOException;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.audit.model.AuditConfiguration;
 import alien4cloud.audit.model.AuditTrace;
+import alien4cloud.dao.ESBulkIndexer;
 import alien4cloud.dao.ESGenericSearchDAO;
+import alien4cloud.dao.RefreshPolicy;
 import alien4cloud.exception.IndexingServiceException;
 
 @Component("alien-audit-dao")
@@ -20,6 +23,10 @@ public class AuditESDAO extends ESGenericSearchDAO {
 
     @Value("${audit.ttl}")
     private String auditTtl;
+    @Value("${audit.refresh_policy:ASYNC}")
+    private RefreshPolicy auditTraceRefreshPolicy;
+    @Resource(name = "alien-bulk-indexer")
+    private ESBulkIndexer bulkIndexer;
 
     @PostConstruct
     public void init() {
@@ -30,6 +37,8 @@ public class AuditESDAO extends ESGenericSearchDAO {
         }
         // Audit trace index
         initIndices(ALIEN_AUDIT_INDEX, auditTtl, AuditTrace.class, AuditConfiguration.class);
+        setRefreshPolicy(auditTraceRefreshPolicy, AuditTrace.class);
+        setBulkIndexer(bulkIndexer);
         initCompleted();
     }
 }
\ No newline at end of file
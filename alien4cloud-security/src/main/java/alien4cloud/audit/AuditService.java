@@ -55,7 +55,8 @@ public class AuditService {
     }
 
     public void saveAuditTrace(AuditTrace auditTrace) {
-        alienDAO.save(auditTrace);
+        // audit traces are written through the bulk indexer so the request thread doesn't wait for elastic search.
+        alienDAO.saveBuffered(new AuditTrace[] { auditTrace });
     }
 
     public AuditConfiguration getMandatoryAuditConfiguration() {
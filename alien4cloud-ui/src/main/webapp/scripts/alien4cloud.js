@@ -59,6 +59,7 @@ define(function(require) {
   });
 
   require('scripts/common/services/rest_technical_error_interceptor');
+  require('scripts/topology/services/topology_base_version_interceptor');
 
   alien4cloud.startup = function() {
     // add requirements to alien4cloud
@@ -67,6 +68,7 @@ define(function(require) {
     alien4cloud.config(['$stateProvider', '$urlRouterProvider', '$httpProvider',
       function($stateProvider, $urlRouterProvider, $httpProvider) {
         $httpProvider.interceptors.push('restTechnicalErrorInterceptor');
+        $httpProvider.interceptors.push('topologyBaseVersionInterceptor');
         $urlRouterProvider.otherwise('/');
         states.config($stateProvider);
       }
@@ -223,10 +223,12 @@ define(function (require) {
       };
 
 
-      function refreshInstancesStatuses() {
+      // refresh: true to get the instances from the PaaS rather than the last known instances
+      function refreshInstancesStatuses(refresh) {
         applicationServices.runtime.get({
           applicationId: applicationId,
-          applicationEnvironmentId: $scope.selectedEnvironment.id
+          applicationEnvironmentId: $scope.selectedEnvironment.id,
+          refresh: refresh === true
         }, function(successResult) {
           if (!angular.equals($scope.topology.instances, successResult.data)) {
             getPAASEvents();
@@ -248,7 +250,7 @@ define(function (require) {
         }, function(successResult) { // get the topology
           $scope.topology = successResult.data;
           topologyJsonProcessor.process($scope.topology);
-          refreshInstancesStatuses(); // update instance states
+          refreshInstancesStatuses(true); // update instance states from the PaaS
           refreshCloudInfo(); // cloud info for deployment view
         });
       };
@@ -35,6 +35,7 @@ define(function (require) {
 
   require('scripts/topology/controllers/search_relationship');
   require('scripts/topology/services/topology_json_processor');
+  require('scripts/topology/services/topology_base_version_interceptor');
   require('scripts/topology/services/topology_services');
   require('scripts/topology/directives/plan_rendering');
   require('scripts/topology/directives/topology_rendering');
@@ -43,7 +44,7 @@ define(function (require) {
   require('scripts/topology/services/workflow_services');
 
   modules.get('a4c-topology-editor', ['a4c-common', 'ui.bootstrap', 'a4c-tosca', 'a4c-styles']).controller('TopologyCtrl',
-    ['$scope', '$modal', '$timeout', 'topologyJsonProcessor', 'topologyServices', 'componentService', 'nodeTemplateService', 'appVersions', 'preselectedVersion', 'topologyId', 'toscaService', 'toscaCardinalitiesService', 'workflowServices',
+    ['$scope', '$modal', '$timeout', 'topologyJsonProcessor', 'topologyBaseVersionInterceptor', 'topologyServices', 'componentService', 'nodeTemplateService', 'appVersions', 'preselectedVersion', 'topologyId', 'toscaService', 'toscaCardinalitiesService', 'workflowServices',
     'topoEditArtifacts',
     'topoEditDisplay',
     'topoEditGroups',
@@ -57,7 +58,7 @@ define(function (require) {
     'topoEditVersions',
     'topoEditWf',
     'topoEditYaml',
-    function($scope, $modal, $timeout, topologyJsonProcessor, topologyServices, componentService, nodeTemplateService, appVersions, preselectedVersion, topologyId, toscaService, toscaCardinalitiesService, workflowServices,
+    function($scope, $modal, $timeout, topologyJsonProcessor, topologyBaseVersionInterceptor, topologyServices, componentService, nodeTemplateService, appVersions, preselectedVersion, topologyId, toscaService, toscaCardinalitiesService, workflowServices,
     topoEditArtifacts,
     topoEditDisplay,
     topoEditGroups,
@@ -101,7 +102,45 @@ define(function (require) {
       }
       $scope.workflows.setCurrentWorkflowName('install');
 
+      // apply a topology delta (changes since the base version) on the topology currently edited.
+      function applyDelta(topologyDelta) {
+        var nodeTemplates = angular.extend({}, $scope.topology.topology.nodeTemplates, topologyDelta.nodeTemplates);
+        angular.forEach(topologyDelta.removedNodeTemplates, function(nodeTemplateName) {
+          delete nodeTemplates[nodeTemplateName];
+        });
+        topologyDelta.topology.nodeTemplates = nodeTemplates;
+        return {
+          topology: topologyDelta.topology,
+          nodeTypes: angular.extend({}, $scope.topology.nodeTypes, topologyDelta.nodeTypes),
+          relationshipTypes: angular.extend({}, $scope.topology.relationshipTypes, topologyDelta.relationshipTypes),
+          capabilityTypes: angular.extend({}, $scope.topology.capabilityTypes, topologyDelta.capabilityTypes),
+          outputCapabilityProperties: topologyDelta.outputCapabilityProperties,
+          yaml: topologyDelta.yaml,
+          version: topologyDelta.version
+        };
+      }
+
+      function loadTopology(selectedNodeTemplate) {
+        // the topology is read completely, next edition operations will return the changes since this version.
+        topologyBaseVersionInterceptor.reset();
+        return topologyServices.dao.get({
+          topologyId: $scope.topologyId
+        }, function(successResult) {
+          $scope.refreshTopology(successResult.data, selectedNodeTemplate);
+        });
+      }
+
       $scope.refreshTopology = function(topologyDTO, selectedNodeTemplate) {
+        if (_.defined(topologyDTO.baseVersion)) {
+          if (_.undefined($scope.topology) || $scope.topology.version !== topologyDTO.baseVersion) {
+            // the delta doesn't apply to the topology we have, reload it completely
+            loadTopology(selectedNodeTemplate);
+            return;
+          }
+          topologyDTO = applyDelta(topologyDTO);
+        }
+        topologyBaseVersionInterceptor.setVersion(topologyDTO.topology.id, topologyDTO.version);
+
         for (var nodeId in topologyDTO.topology.nodeTemplates) {
           if (topologyDTO.topology.nodeTemplates.hasOwnProperty(nodeId)) {
             topologyDTO.topology.nodeTemplates[nodeId].name = nodeId;
@@ -143,11 +182,17 @@ define(function (require) {
         $scope.substitution.refresh();
       };
 
+      $scope.$on('$destroy', function() {
+        topologyBaseVersionInterceptor.reset();
+      });
+
+      // the topology has been updated by someone else since it has been read, reload it so that the user can apply the change again.
+      $scope.$on('topologyVersionConflict', function() {
+        loadTopology();
+      });
+
       // Topology can comes from application OR topology template
-      topologyServices.dao.get({
-        topologyId: $scope.topologyId
-      }, function(successResult) {
-        $scope.refreshTopology(successResult.data);
+      loadTopology().$promise.then(function() {
         // init the group collapse indicators
         $scope.groupCollapsed = {};
         angular.forEach($scope.topology.topology.groups, function(value, key) {
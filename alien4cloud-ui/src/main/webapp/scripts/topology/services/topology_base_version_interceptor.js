@@ -0,0 +1,59 @@
+// http interceptor that requests topology deltas rather than complete topologies for the topology under edition and notifies the editor of the version
+// conflicts (the topology has been updated by someone else since it has been read) so that the topology is reloaded.
+define(function (require) {
+  'use strict';
+
+  var modules = require('modules');
+  var _ = require('lodash');
+
+  modules.get('a4c-topology-editor').factory('topologyBaseVersionInterceptor', ['$rootScope', '$q',
+    function($rootScope, $q) {
+      var BASE_VERSION_HEADER = 'A4C-Topology-Base-Version';
+      var CLIENT_HEADER = 'A4C-Topology-Client';
+      var VERSION_CONFLICT_EVENT = 'topologyVersionConflict';
+      // identifies this editor so that the deltas are computed from what this editor received (and not another tab or user).
+      var clientId = Date.now().toString(36) + Math.random().toString(36).substring(2);
+      // topology under edition and version of this topology known by the editor.
+      var topologyId = null;
+      var version = null;
+
+      return {
+        /**
+        * Set the version of the topology known by the editor, the edition operations on this topology will then return only the changes since this version.
+        *
+        * @param id Id of the topology under edition.
+        * @param topologyVersion Version of the topology known by the editor.
+        */
+        setVersion: function(id, topologyVersion) {
+          topologyId = id;
+          version = _.defined(topologyVersion) ? topologyVersion : null;
+        },
+        /** Stop requesting deltas, next operations will return complete topologies. */
+        reset: function() {
+          topologyId = null;
+          version = null;
+        },
+        request: function(config) {
+          if (_.defined(config.url) && config.url.indexOf('rest/topologies/') === 0) {
+            config.headers = config.headers || {};
+            config.headers[CLIENT_HEADER] = clientId;
+          }
+          // only edition operations are processed by the editor, the topology reads always return the complete topology.
+          if (version !== null && config.method !== 'GET' && _.defined(config.url) && config.url.indexOf('rest/topologies/' + topologyId + '/') === 0) {
+            config.headers = config.headers || {};
+            config.headers[BASE_VERSION_HEADER] = version;
+          }
+          return config;
+        },
+        responseError: function(rejection) {
+          // the error message is displayed by the technical error interceptor
+          if (rejection.status === 409 && _.defined(rejection.config) && _.defined(rejection.config.url) &&
+            rejection.config.url.indexOf('rest/topologies/') === 0) {
+            $rootScope.$broadcast(VERSION_CONFLICT_EVENT);
+          }
+          return $q.reject(rejection);
+        }
+      };
+    }
+  ]); // factory
+}); // define
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,7 @@ import alien4cloud.rest.model.RestResponse;
 import alien4cloud.rest.utils.JsonUtil;
 import alien4cloud.rest.utils.RestClient;
 import alien4cloud.tool.compilation.exception.CompilationToolRuntimeException;
+import alien4cloud.utils.TypeMap;
 
 @Slf4j
 public class CheckElementExistService implements ICSARRepositorySearchService, InitializingBean {
@@ -83,6 +85,11 @@ public class CheckElementExistService implements ICSARRepositorySearchService, I
         throw new NotImplementedException("This method is not used in the compilation tool.");
     }
 
+    @Override
+    public TypeMap getElementsInDependencies(Map<Class<? extends IndexedToscaElement>, Set<String>> elementIds, Collection<CSARDependency> dependencies) {
+        throw new NotImplementedException("This method is not used in the compilation tool.");
+    }
+
     @Override
     public <T extends IndexedToscaElement> T getRequiredElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies)
             throws NotFoundException {